@@ -0,0 +1,121 @@
+package com.example.embeddedservice;
+
+import com.example.inventoryservice.InventoryServiceApplication;
+import com.example.orderservice.OrderServiceApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the inventory service and the order service in one process, e.g. for an edge store or
+ * for tests. Each service runs in an application context of its own, configured by the
+ * {@code application.properties} of its jar and overridden by the
+ * {@code embedded-<service>.properties} of this module. The order service calls the inventory
+ * service through an in-process gRPC channel, which hands the protobuf messages over by
+ * reference instead of serializing them through Netty. Both services keep their REST APIs, and
+ * the order service its gRPC port.
+ * <p>
+ * Command line arguments apply to both services, unless prefixed with {@code inventory:} or
+ * {@code order:}, e.g. {@code order:--spring.datasource.url=jdbc:postgresql://db:5432/orderdb}.
+ */
+public final class EmbeddedApplication implements AutoCloseable {
+    static final String INVENTORY_PREFIX = "inventory:";
+    static final String ORDER_PREFIX = "order:";
+
+    private final ConfigurableApplicationContext inventoryContext;
+    private final ConfigurableApplicationContext orderContext;
+
+    private EmbeddedApplication(ConfigurableApplicationContext inventoryContext,
+                                ConfigurableApplicationContext orderContext) {
+        this.inventoryContext = inventoryContext;
+        this.orderContext = orderContext;
+    }
+
+    /**
+     * Entry point for the application.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        EmbeddedApplication application = start(args);
+        Runtime.getRuntime().addShutdownHook(new Thread(application::close, "embedded-shutdown"));
+    }
+
+    /**
+     * Starts the inventory service, then the order service, so that the inventory service
+     * already serves when the order service warms up.
+     *
+     * @param args the command line arguments
+     * @return the running services
+     */
+    public static EmbeddedApplication start(String... args) {
+        List<String> inventoryArgs = new ArrayList<>();
+        List<String> orderArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith(INVENTORY_PREFIX)) {
+                inventoryArgs.add(arg.substring(INVENTORY_PREFIX.length()));
+            } else if (arg.startsWith(ORDER_PREFIX)) {
+                orderArgs.add(arg.substring(ORDER_PREFIX.length()));
+            } else {
+                inventoryArgs.add(arg);
+                orderArgs.add(arg);
+            }
+        }
+        ConfigurableApplicationContext inventoryContext =
+                run(InventoryServiceApplication.class, "embedded-inventory-service.properties", inventoryArgs);
+        try {
+            return new EmbeddedApplication(inventoryContext,
+                    run(OrderServiceApplication.class, "embedded-order-service.properties", orderArgs));
+        } catch (RuntimeException e) {
+            inventoryContext.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the application context of the inventory service.
+     *
+     * @return the inventory service's context
+     */
+    public ConfigurableApplicationContext getInventoryContext() {
+        return inventoryContext;
+    }
+
+    /**
+     * Returns the application context of the order service.
+     *
+     * @return the order service's context
+     */
+    public ConfigurableApplicationContext getOrderContext() {
+        return orderContext;
+    }
+
+    /**
+     * Stops the order service, then the inventory service it calls.
+     */
+    @Override
+    public void close() {
+        orderContext.close();
+        inventoryContext.close();
+    }
+
+    static ConfigurableApplicationContext run(Class<?> applicationClass, String overrides, List<String> args) {
+        // Both jars have an application.properties at their root, so each service is pointed at
+        // the one of its own jar.
+        return new SpringApplicationBuilder(applicationClass)
+                .properties("spring.config.location=" + configLocation(applicationClass),
+                        "spring.config.additional-location=classpath:/" + overrides)
+                .registerShutdownHook(false)
+                .run(args.toArray(String[]::new));
+    }
+
+    static String configLocation(Class<?> applicationClass) {
+        String location = applicationClass.getProtectionDomain().getCodeSource().getLocation().toString();
+        if (location.endsWith(".jar")) {
+            location = "jar:" + location + "!/";
+        }
+        return location + "application.properties";
+    }
+}
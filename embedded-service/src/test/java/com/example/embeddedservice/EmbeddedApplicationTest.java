@@ -0,0 +1,74 @@
+package com.example.embeddedservice;
+
+import com.example.inventoryservice.entity.Product;
+import com.example.inventoryservice.repository.ProductRepository;
+import com.example.orderservice.entity.Order;
+import com.example.orderservice.service.OrderService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.Environment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddedApplicationTest {
+
+    private static EmbeddedApplication application;
+
+    @BeforeAll
+    static void start() {
+        application = EmbeddedApplication.start(
+                "--spring.datasource.driverClassName=org.h2.Driver",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--server.port=0",
+                "inventory:--spring.datasource.url=jdbc:h2:mem:embedded-inventory;MODE=PostgreSQL",
+                "inventory:--inventory.warm-up.iterations=5",
+                "order:--spring.datasource.url=jdbc:h2:mem:embedded-orders",
+                "order:--grpc.server.port=0",
+                "order:--order.warm-up.iterations=5");
+    }
+
+    @AfterAll
+    static void stop() {
+        application.close();
+    }
+
+    /**
+     * Verifies that each service is configured by the application.properties of its own jar,
+     * with the embedded overrides on top.
+     */
+    @Test
+    void testEachServiceReadsItsOwnConfiguration() {
+        Environment inventory = application.getInventoryContext().getEnvironment();
+        Environment orders = application.getOrderContext().getEnvironment();
+
+        assertEquals("inventory-service", inventory.getProperty("spring.application.name"));
+        assertEquals("optimistic", inventory.getProperty("inventory.stock-update.strategy"));
+        assertEquals("-1", inventory.getProperty("grpc.server.port"));
+        assertEquals("order-service", orders.getProperty("spring.application.name"));
+        assertEquals("database", orders.getProperty("order.durability.mode"));
+        assertEquals("in-process:inventory-service", orders.getProperty("grpc.client.inventory-service.address"));
+    }
+
+    /**
+     * Verifies that an order is created through the in-process channel, and that the stock is
+     * taken from the inventory service in the same process.
+     */
+    @Test
+    void testOrderReservesStockInProcess() {
+        ProductRepository products = application.getInventoryContext().getBean(ProductRepository.class);
+        Product product = new Product();
+        product.setName("Embedded Laptop");
+        product.setStockQuantity(10);
+        long productId = products.save(product).getId();
+        Order order = new Order();
+        order.setProduct("Embedded Laptop");
+        order.setQuantity(3);
+
+        Order created = application.getOrderContext().getBean(OrderService.class).createOrder(order);
+
+        assertEquals("CREATED", created.getStatus());
+        assertEquals(productId, created.getProductId());
+        assertEquals(7, products.findById(productId).orElseThrow().getStockQuantity());
+    }
+}
@@ -0,0 +1,491 @@
+package com.example.embeddedservice;
+
+import com.example.inventoryservice.InventoryServiceApplication;
+import com.example.inventoryservice.config.StockUpdateProperties;
+import com.example.inventoryservice.entity.Product;
+import com.example.inventoryservice.grpc.InventoryServiceGrpc;
+import com.example.inventoryservice.grpc.ReleaseStockRequest;
+import com.example.inventoryservice.grpc.StockResponse;
+import com.example.inventoryservice.grpc.UpdateStockRequest;
+import com.example.inventoryservice.repository.ProductRepository;
+import com.example.orderservice.compensation.CompensationQueue;
+import com.example.orderservice.config.OrderStatsProperties;
+import com.example.orderservice.entity.Order;
+import com.example.orderservice.repository.OrderRepository;
+import com.example.orderservice.service.OrderService;
+import com.example.orderservice.service.OrderStatistics;
+import com.example.orderservice.service.PriorityLaneExecutor;
+import com.example.orderservice.service.ProductIdCache;
+import com.example.orderservice.service.ResourceVersion;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Simulates several order service nodes placing orders concurrently against one inventory
+ * service, with latency and failures injected on their inventory stubs, and checks that the
+ * stock stays consistent:
+ * <ul>
+ *   <li>stock never goes negative, neither while orders are placed nor afterwards;</li>
+ *   <li>every decrement the inventory made was either acknowledged to a node, or its response
+ *       was lost by an injected failure;</li>
+ *   <li>every CREATED order is backed by an acknowledged decrement of its quantity, and every
+ *       acknowledged decrement by a CREATED order;</li>
+ *   <li>stock is conserved: the initial stock is the remaining stock, plus the quantity of the
+ *       CREATED orders, plus the stock taken by decrements whose response was lost;</li>
+ *   <li>once the nodes have released the orders that failed, as their compensation reconciler
+ *       would, the stock taken by lost decrements is back: the initial stock is the remaining
+ *       stock plus the quantity of the CREATED orders.</li>
+ * </ul>
+ * Each node is an {@link OrderService} with an in-process channel of its own to a real inventory
+ * service on H2. The workload and the faults are a function of the seed: every order draws its
+ * node, product, quantity and the faults of its inventory calls from a random generator split
+ * off the seed. The interleaving of the orders is left to the scheduler, so every run explores
+ * another one; a run that breaks an invariant reports its seed to replay the same workload.
+ */
+final class OrderStockSimulation implements AutoCloseable {
+    private static final AtomicInteger RUNS = new AtomicInteger();
+
+    private final ConfigurableApplicationContext inventoryContext;
+    private final ProductRepository productRepository;
+    private final String channelName;
+
+    /**
+     * Settings of a simulation run.
+     *
+     * @param nodes the number of order service nodes
+     * @param threadsPerNode the number of orders each node processes concurrently
+     * @param orders the number of orders placed across all nodes
+     * @param products the number of products ordered
+     * @param stockPerProduct the initial stock of each product
+     * @param maxQuantity the largest quantity of an order; quantities are uniform from one
+     * @param latencyRate the probability that an inventory call is delayed, on the way there and
+     *                    back independently
+     * @param maxLatency the longest delay injected
+     * @param dropRate the probability that an inventory call fails before it reaches the inventory
+     * @param loseRate the probability that an inventory call fails after the inventory served it
+     * @param seed the seed of the workload and the faults
+     */
+    record Settings(int nodes, int threadsPerNode, int orders, int products, int stockPerProduct,
+                    int maxQuantity, double latencyRate, Duration maxLatency, double dropRate,
+                    double loseRate, long seed) {
+
+        /**
+         * Returns the default settings: orders for about twice the stock, so that products sell
+         * out while the nodes still compete for them. The number of orders and the seed can be
+         * set with {@code -Dsimulation.orders} and {@code -Dsimulation.seed}.
+         *
+         * @return the default settings
+         */
+        static Settings defaults() {
+            return new Settings(4, 8, Integer.getInteger("simulation.orders", 2000), 8, 250, 3,
+                    0.2, Duration.ofMillis(2), 0.02, 0.02, Long.getLong("simulation.seed", 20261019L));
+        }
+    }
+
+    /**
+     * Outcome of a simulation run.
+     *
+     * @param seed the seed of the run
+     * @param orders the number of orders placed
+     * @param elapsed the time the orders took
+     * @param created the number of CREATED orders
+     * @param rejected the number of REJECTED orders
+     * @param errors the number of orders createOrder threw for, also counted as rejected
+     * @param lostUnits the stock taken by decrements whose response was lost
+     * @param releasedOrders the number of failed orders whose stock was put back
+     * @param minObservedStock the lowest stock of any product seen while orders were placed
+     * @param violations the invariants broken, empty if the stock stayed consistent
+     */
+    record Report(long seed, int orders, Duration elapsed, long created, long rejected, long errors,
+                  long lostUnits, long releasedOrders, int minObservedStock, List<String> violations) {
+
+        /**
+         * Returns the number of orders processed per second.
+         *
+         * @return the throughput of the run
+         */
+        double ordersPerSecond() {
+            return orders / (elapsed.toNanos() / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("seed %d: %d orders in %d ms (%.0f orders/s), %d created, %d rejected "
+                            + "(%d errors), %d units lost with responses, %d orders released, min stock %d, "
+                            + "violations %s",
+                    seed, orders, elapsed.toMillis(), ordersPerSecond(), created, rejected, errors,
+                    lostUnits, releasedOrders, minObservedStock, violations);
+        }
+    }
+
+    /**
+     * Starts an inventory service on an in-memory H2 database, serving gRPC in-process only.
+     *
+     * @param strategy the stock update strategy of the inventory service; it must keep the
+     *                 stock in the products table
+     */
+    OrderStockSimulation(StockUpdateProperties.Strategy strategy) {
+        String name = "simulation-" + strategy.name().toLowerCase() + "-" + RUNS.incrementAndGet();
+        channelName = name;
+        inventoryContext = EmbeddedApplication.run(InventoryServiceApplication.class,
+                "embedded-inventory-service.properties", List.of(
+                        "--spring.datasource.url=jdbc:h2:mem:" + name + ";MODE=PostgreSQL",
+                        "--spring.datasource.driverClassName=org.h2.Driver",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--server.port=0",
+                        "--grpc.server.in-process-name=" + name,
+                        "--inventory.stock-update.strategy=" + strategy.name().toLowerCase(),
+                        "--inventory.warm-up.enabled=false"));
+        productRepository = inventoryContext.getBean(ProductRepository.class);
+    }
+
+    /**
+     * Stocks new products, places the orders of the workload on the nodes and checks the
+     * invariants once all of them are processed.
+     *
+     * @param settings the settings of the run
+     * @return the outcome of the run
+     * @throws InterruptedException if interrupted while waiting for the orders
+     */
+    Report run(Settings settings) throws InterruptedException {
+        Map<Long, String> productNames = new HashMap<>();
+        for (int i = 0; i < settings.products(); i++) {
+            Product product = new Product();
+            product.setName(channelName + " product " + RUNS.incrementAndGet());
+            product.setStockQuantity(settings.stockPerProduct());
+            productNames.put(productRepository.save(product).getId(), product.getName());
+        }
+        List<String> names = List.copyOf(productNames.values());
+
+        Ledger ledger = new Ledger();
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < settings.nodes(); i++) {
+            nodes.add(new Node(channelName, new FaultInjector(settings, ledger), settings.threadsPerNode()));
+        }
+        LongAccumulator minObservedStock = new LongAccumulator(Math::min, settings.stockPerProduct());
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleWithFixedDelay(() -> productRepository.findAllById(productNames.keySet())
+                        .forEach(product -> minObservedStock.accumulate(product.getStockQuantity())),
+                0, 5, TimeUnit.MILLISECONDS);
+
+        LongAdder errors = new LongAdder();
+        CountDownLatch processed = new CountDownLatch(settings.orders());
+        SplittableRandom workload = new SplittableRandom(settings.seed());
+        long begin = System.nanoTime();
+        for (int i = 0; i < settings.orders(); i++) {
+            // Split in submission order, so that every order gets the same generator for a seed.
+            SplittableRandom random = workload.split();
+            Node node = nodes.get(random.nextInt(nodes.size()));
+            Order order = new Order();
+            order.setProduct(names.get(random.nextInt(names.size())));
+            order.setQuantity(1 + random.nextInt(settings.maxQuantity()));
+            node.executor.execute(() -> {
+                FaultInjector.PLAN.set(random);
+                try {
+                    node.orderService.createOrder(order);
+                } catch (RuntimeException e) {
+                    errors.increment();
+                } finally {
+                    FaultInjector.PLAN.remove();
+                    processed.countDown();
+                }
+            });
+        }
+        if (!processed.await(5, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Orders still processing after 5 minutes, seed " + settings.seed());
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - begin);
+        sampler.shutdownNow();
+        sampler.awaitTermination(10, TimeUnit.SECONDS);
+        nodes.forEach(Node::close);
+
+        Map<Long, Integer> remaining = new HashMap<>();
+        productRepository.findAllById(productNames.keySet())
+                .forEach(product -> remaining.put(product.getId(), product.getStockQuantity()));
+        Map<Long, Long> createdUnits = new HashMap<>();
+        Map<Long, Long> createdOrders = new HashMap<>();
+        long created = 0;
+        long rejected = 0;
+        for (Node node : nodes) {
+            for (Order order : node.savedOrders) {
+                if ("CREATED".equals(order.getStatus())) {
+                    created++;
+                    createdUnits.merge(order.getProductId(), (long) order.getQuantity(), Long::sum);
+                    createdOrders.merge(order.getProductId(), 1L, Long::sum);
+                } else {
+                    rejected++;
+                }
+            }
+        }
+
+        List<String> violations = new ArrayList<>();
+        if (created + rejected != settings.orders()) {
+            violations.add((created + rejected) + " orders stored for " + settings.orders() + " placed");
+        }
+        if (minObservedStock.get() < 0) {
+            violations.add("stock observed at " + minObservedStock.get());
+        }
+        productNames.forEach((productId, name) -> {
+            int stock = remaining.get(productId);
+            long taken = settings.stockPerProduct() - stock;
+            long acknowledged = ledger.acknowledgedUnits.getOrDefault(productId, 0L);
+            long lost = ledger.lostUnits.getOrDefault(productId, 0L);
+            long decrements = ledger.acknowledgedDecrements.getOrDefault(productId, 0L);
+            long units = createdUnits.getOrDefault(productId, 0L);
+            long orders = createdOrders.getOrDefault(productId, 0L);
+            if (stock < 0) {
+                violations.add(name + ": stock ended at " + stock);
+            }
+            if (taken != acknowledged + lost) {
+                violations.add(name + ": " + taken + " units taken, " + acknowledged + " acknowledged and "
+                        + lost + " lost");
+            }
+            if (orders != decrements || units != acknowledged) {
+                violations.add(name + ": " + orders + " orders for " + units + " units CREATED, "
+                        + decrements + " decrements of " + acknowledged + " units acknowledged");
+            }
+            if (settings.stockPerProduct() != stock + units + lost) {
+                violations.add(name + ": " + settings.stockPerProduct() + " units stocked, " + stock
+                        + " remaining, " + units + " ordered and " + lost + " lost");
+            }
+        });
+
+        long releasedOrders = release(nodes);
+        productRepository.findAllById(productNames.keySet()).forEach(product -> {
+            long units = createdUnits.getOrDefault(product.getId(), 0L);
+            if (settings.stockPerProduct() != product.getStockQuantity() + units) {
+                violations.add(product.getName() + ": " + settings.stockPerProduct() + " units stocked, "
+                        + product.getStockQuantity() + " remaining after release and " + units + " ordered");
+            }
+        });
+        long lostUnits = ledger.lostUnits.values().stream().mapToLong(Long::longValue).sum();
+        return new Report(settings.seed(), settings.orders(), elapsed, created, rejected, errors.sum(),
+                lostUnits, releasedOrders, (int) minObservedStock.get(), violations);
+    }
+
+    /**
+     * Releases the orders the nodes asked to release, in batches, without injected faults.
+     */
+    private long release(List<Node> nodes) {
+        ManagedChannel channel = InProcessChannelBuilder.forName(channelName).build();
+        try {
+            InventoryServiceGrpc.InventoryServiceBlockingStub inventory = InventoryServiceGrpc.newBlockingStub(channel);
+            List<String> orderRefs = nodes.stream().flatMap(node -> node.releaseRequests.stream()).toList();
+            long released = 0;
+            for (int from = 0; from < orderRefs.size(); from += 100) {
+                released += inventory.releaseStock(ReleaseStockRequest.newBuilder()
+                        .addAllOrderRefs(orderRefs.subList(from, Math.min(from + 100, orderRefs.size())))
+                        .build()).getReleased();
+            }
+            return released;
+        } finally {
+            channel.shutdownNow();
+        }
+    }
+
+    @Override
+    public void close() {
+        inventoryContext.close();
+    }
+
+    /**
+     * An order service node: an {@link OrderService} with its own channel to the inventory and
+     * its own threads, storing orders and the orders to release in memory.
+     */
+    private static final class Node {
+        private final ManagedChannel channel;
+        private final OrderService orderService;
+        private final ExecutorService executor;
+        private final Queue<Order> savedOrders = new ConcurrentLinkedQueue<>();
+        private final Queue<String> releaseRequests = new ConcurrentLinkedQueue<>();
+
+        private Node(String channelName, FaultInjector faults, int threads) {
+            OrderRepository orderRepository = mock(OrderRepository.class, withSettings().stubOnly());
+            when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+                Order order = invocation.getArgument(0);
+                savedOrders.add(order);
+                return order;
+            });
+            CompensationQueue compensationQueue = mock(CompensationQueue.class, withSettings().stubOnly());
+            doAnswer(invocation -> releaseRequests.add(invocation.getArgument(0)))
+                    .when(compensationQueue).requestRelease(any());
+            channel = InProcessChannelBuilder.forName(channelName).build();
+            orderService = new OrderService(orderRepository, new ProductIdCache(100_000),
+                    PriorityLaneExecutor.callerRuns(new SimpleMeterRegistry()), null,
+                    new OrderStatistics(new OrderStatsProperties()), new ResourceVersion(), compensationQueue);
+            ReflectionTestUtils.setField(orderService, "inventoryServiceStub",
+                    InventoryServiceGrpc.newBlockingStub(channel).withInterceptors(faults));
+            executor = Executors.newFixedThreadPool(threads);
+        }
+
+        private void close() {
+            executor.shutdown();
+            channel.shutdownNow();
+        }
+    }
+
+    /**
+     * The stock decrements the nodes saw succeed, by product id, and those whose success was
+     * hidden from them by a lost response.
+     */
+    private static final class Ledger {
+        private final Map<Long, Long> acknowledgedUnits = new ConcurrentHashMap<>();
+        private final Map<Long, Long> acknowledgedDecrements = new ConcurrentHashMap<>();
+        private final Map<Long, Long> lostUnits = new ConcurrentHashMap<>();
+
+        private void record(long productId, int quantity, boolean lost) {
+            if (lost) {
+                lostUnits.merge(productId, (long) quantity, Long::sum);
+            } else {
+                acknowledgedUnits.merge(productId, (long) quantity, Long::sum);
+                acknowledgedDecrements.merge(productId, 1L, Long::sum);
+            }
+        }
+    }
+
+    /**
+     * Delays and fails the inventory calls of a node as planned by the random generator of the
+     * order being processed on the calling thread. A dropped call fails before it reaches the
+     * inventory; a lost call is served, but fails as if its response never arrived.
+     */
+    private static final class FaultInjector implements ClientInterceptor {
+        private static final ThreadLocal<SplittableRandom> PLAN = new ThreadLocal<>();
+
+        private final Settings settings;
+        private final Ledger ledger;
+
+        private FaultInjector(Settings settings, Ledger ledger) {
+            this.settings = settings;
+            this.ledger = ledger;
+        }
+
+        @Override
+        public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                                   CallOptions callOptions, Channel next) {
+            SplittableRandom random = PLAN.get();
+            double fault = random.nextDouble();
+            long requestDelay = delay(random);
+            long responseDelay = delay(random);
+            LockSupport.parkNanos(requestDelay);
+            if (fault < settings.dropRate()) {
+                return new FailedCall<>(Status.UNAVAILABLE.withDescription("Injected: request dropped"));
+            }
+            boolean lose = fault < settings.dropRate() + settings.loseRate();
+            return new ForwardingClientCall.SimpleForwardingClientCall<>(next.newCall(method, callOptions)) {
+                private UpdateStockRequest update;
+
+                @Override
+                public void start(Listener<RespT> responseListener, Metadata headers) {
+                    super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<>(responseListener) {
+                        private RespT response;
+
+                        @Override
+                        public void onMessage(RespT message) {
+                            response = message;
+                            if (!lose) {
+                                super.onMessage(message);
+                            }
+                        }
+
+                        @Override
+                        public void onClose(Status status, Metadata trailers) {
+                            LockSupport.parkNanos(responseDelay);
+                            if (update != null && response instanceof StockResponse stock
+                                    && stock.getStatus() == StockResponse.Status.UPDATED) {
+                                ledger.record(stock.getProductId(), update.getQuantity(), lose);
+                            }
+                            if (lose && status.isOk()) {
+                                super.onClose(Status.UNAVAILABLE.withDescription("Injected: response lost"), new Metadata());
+                            } else {
+                                super.onClose(status, trailers);
+                            }
+                        }
+                    }, headers);
+                }
+
+                @Override
+                public void sendMessage(ReqT message) {
+                    if (message instanceof UpdateStockRequest request) {
+                        update = request;
+                    }
+                    super.sendMessage(message);
+                }
+            };
+        }
+
+        private long delay(SplittableRandom random) {
+            return random.nextDouble() < settings.latencyRate()
+                    ? random.nextLong(settings.maxLatency().toNanos()) : 0;
+        }
+    }
+
+    /**
+     * A call that fails with the given status as soon as it is started, without reaching the
+     * server.
+     */
+    private static final class FailedCall<ReqT, RespT> extends ClientCall<ReqT, RespT> {
+        private final Status status;
+
+        private FailedCall(Status status) {
+            this.status = status;
+        }
+
+        @Override
+        public void start(Listener<RespT> responseListener, Metadata headers) {
+            responseListener.onClose(status, new Metadata());
+        }
+
+        @Override
+        public void request(int numMessages) {
+        }
+
+        @Override
+        public void cancel(String message, Throwable cause) {
+        }
+
+        @Override
+        public void halfClose() {
+        }
+
+        @Override
+        public void sendMessage(ReqT message) {
+        }
+    }
+}
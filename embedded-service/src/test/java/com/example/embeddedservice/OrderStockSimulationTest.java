@@ -0,0 +1,42 @@
+package com.example.embeddedservice;
+
+import com.example.inventoryservice.config.StockUpdateProperties;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderStockSimulationTest {
+    private static final Logger log = LoggerFactory.getLogger(OrderStockSimulationTest.class);
+
+    /**
+     * Verifies that thousands of orders placed concurrently from several order service nodes,
+     * with latency and failures injected on their inventory calls, neither oversell nor lose
+     * track of stock, and that releasing the failed orders puts back the stock of lost responses,
+     * with each stock update strategy that keeps the stock in the products table.
+     */
+    @ParameterizedTest
+    @EnumSource(value = StockUpdateProperties.Strategy.class, names = {"OPTIMISTIC", "PESSIMISTIC"})
+    void testStockStaysConsistentUnderConcurrentOrders(StockUpdateProperties.Strategy strategy) throws Exception {
+        OrderStockSimulation.Settings settings = OrderStockSimulation.Settings.defaults();
+        OrderStockSimulation.Report report;
+        try (OrderStockSimulation simulation = new OrderStockSimulation(strategy)) {
+            report = simulation.run(settings);
+        }
+        log.info("{}: {}", strategy, report);
+
+        assertEquals(List.of(), report.violations(), "Invariants broken, replay with -Dsimulation.seed=" + report.seed());
+        assertEquals(settings.orders(), report.created() + report.rejected());
+        assertTrue(report.created() > 0);
+        // The orders ask for about twice the stock, and faults were injected.
+        assertTrue(report.rejected() > report.errors());
+        assertTrue(report.errors() > 0);
+        assertTrue(report.lostUnits() > 0);
+        assertTrue(report.releasedOrders() > 0);
+        assertTrue(report.minObservedStock() >= 0);
+    }
+}
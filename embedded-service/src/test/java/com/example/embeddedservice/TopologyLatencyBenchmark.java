@@ -0,0 +1,139 @@
+package com.example.embeddedservice;
+
+import com.example.inventoryservice.entity.Product;
+import com.example.inventoryservice.grpc.InventoryServiceGrpc;
+import com.example.inventoryservice.grpc.StockRequest;
+import com.example.inventoryservice.repository.ProductRepository;
+import com.example.orderservice.OrderServiceApplication;
+import com.example.orderservice.entity.Order;
+import com.example.orderservice.service.OrderService;
+import io.grpc.ManagedChannel;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the latency of the embedded topology, where the order service calls the inventory
+ * service in-process, with the networked one, where it calls it over gRPC on loopback. The
+ * inventory service serves both in-process and on a port; one order service is connected each
+ * way. Measured are a single {@code CheckStock} call, and {@code createOrder}, which makes two
+ * inventory calls and stores the order, both on H2.
+ * <p>
+ * Not part of the regular test run:
+ * <pre>
+ * mvn test -Dtest=TopologyLatencyBenchmark
+ * </pre>
+ */
+class TopologyLatencyBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(TopologyLatencyBenchmark.class);
+
+    private static final long WARMUP_NANOS = 5_000_000_000L;
+    private static final long MEASURE_NANOS = 10_000_000_000L;
+    private static final String PRODUCT = "Benchmark Laptop";
+
+    @Test
+    void benchmarkTopologies() throws Exception {
+        int inventoryPort = freePort();
+        try (EmbeddedApplication embedded = EmbeddedApplication.start(
+                "--spring.datasource.driverClassName=org.h2.Driver",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--server.port=0",
+                "--spring.jpa.show-sql=false",
+                "inventory:--spring.datasource.url=jdbc:h2:mem:benchmark-inventory;MODE=PostgreSQL",
+                "inventory:--grpc.server.port=" + inventoryPort,
+                "order:--spring.datasource.url=jdbc:h2:mem:benchmark-orders-embedded",
+                "order:--grpc.server.port=0");
+             ConfigurableApplicationContext networked = networkedOrderService(inventoryPort)) {
+            Product product = new Product();
+            product.setName(PRODUCT);
+            product.setStockQuantity(Integer.MAX_VALUE);
+            embedded.getInventoryContext().getBean(ProductRepository.class).save(product);
+
+            ManagedChannel inProcessChannel = InProcessChannelBuilder.forName("inventory-service").build();
+            ManagedChannel nettyChannel = NettyChannelBuilder.forAddress("localhost", inventoryPort).usePlaintext().build();
+            InventoryServiceGrpc.InventoryServiceBlockingStub inProcess = InventoryServiceGrpc.newBlockingStub(inProcessChannel);
+            InventoryServiceGrpc.InventoryServiceBlockingStub overNetty = InventoryServiceGrpc.newBlockingStub(nettyChannel);
+            // Connects the channel, and fails rather than waits should the port not serve.
+            overNetty.withDeadlineAfter(10, TimeUnit.SECONDS).checkStock(StockRequest.getDefaultInstance());
+            StockRequest stockRequest = StockRequest.newBuilder().setProduct(PRODUCT).setQuantity(1).build();
+            OrderService embeddedOrders = embedded.getOrderContext().getBean(OrderService.class);
+            OrderService networkedOrders = networked.getBean(OrderService.class);
+
+            Map<String, Runnable> scenarios = new LinkedHashMap<>();
+            scenarios.put("CheckStock in-process", () -> inProcess.checkStock(stockRequest));
+            scenarios.put("CheckStock networked", () -> overNetty.checkStock(stockRequest));
+            scenarios.put("createOrder embedded", () -> createOrder(embeddedOrders));
+            scenarios.put("createOrder networked", () -> createOrder(networkedOrders));
+
+            // Warm up every scenario before measuring any, so that the code paths they share are
+            // compiled alike for all of them.
+            scenarios.values().forEach(scenario -> repeat(scenario, WARMUP_NANOS));
+            scenarios.forEach((name, scenario) -> {
+                long[] nanos = repeat(scenario, MEASURE_NANOS);
+                Arrays.sort(nanos);
+                double seconds = Arrays.stream(nanos).sum() / 1e9;
+                log.info(String.format("%-24s %8.0f calls/s  p50 %6.1f us  p99 %7.1f us  p99.9 %7.1f us",
+                        name, nanos.length / seconds, nanos[nanos.length / 2] / 1e3,
+                        nanos[(int) (nanos.length * 0.99)] / 1e3, nanos[(int) (nanos.length * 0.999)] / 1e3));
+            });
+            inProcessChannel.shutdownNow();
+            nettyChannel.shutdownNow();
+        }
+    }
+
+    private static ConfigurableApplicationContext networkedOrderService(int inventoryPort) {
+        return new SpringApplicationBuilder(OrderServiceApplication.class)
+                .properties("spring.config.location=" + EmbeddedApplication.configLocation(OrderServiceApplication.class))
+                .registerShutdownHook(false)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark-orders-networked",
+                        "--spring.datasource.driverClassName=org.h2.Driver",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.sql.init.mode=never",
+                        "--server.port=0",
+                        "--grpc.server.port=0",
+                        "--grpc.client.inventory-service.address=static://localhost:" + inventoryPort,
+                        "--spring.application.name=order-service-networked");
+    }
+
+    private static void createOrder(OrderService orderService) {
+        Order order = new Order();
+        order.setProduct(PRODUCT);
+        order.setQuantity(1);
+        orderService.createOrder(order);
+    }
+
+    private static long[] repeat(Runnable scenario, long nanos) {
+        long[] latencies = new long[1024];
+        int calls = 0;
+        long begin = System.nanoTime();
+        long now = begin;
+        while (now - begin < nanos) {
+            long start = now;
+            scenario.run();
+            now = System.nanoTime();
+            if (calls == latencies.length) {
+                latencies = Arrays.copyOf(latencies, calls * 2);
+            }
+            latencies[calls++] = now - start;
+        }
+        return Arrays.copyOf(latencies, calls);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
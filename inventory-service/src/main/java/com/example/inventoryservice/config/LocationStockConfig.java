@@ -0,0 +1,40 @@
+package com.example.inventoryservice.config;
+
+import com.example.inventoryservice.service.LocationStock;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * Keeps stock per warehouse and allocates it by policy, when
+ * {@code inventory.locations.enabled=true}.
+ */
+@Configuration
+@EnableConfigurationProperties(LocationStockProperties.class)
+@ConditionalOnProperty(prefix = "inventory.locations", name = "enabled", havingValue = "true")
+public class LocationStockConfig {
+
+    /**
+     * Creates the stock per warehouse; it is loaded when the context starts.
+     *
+     * @param properties the warehouse settings
+     * @param jdbcTemplate the template the stock is read and written with
+     * @return the stock per warehouse
+     * @throws IllegalStateException if no warehouse is configured
+     */
+    @Bean(initMethod = "start")
+    public LocationStock locationStock(LocationStockProperties properties, JdbcTemplate jdbcTemplate) {
+        if (properties.getWarehouses().isEmpty()) {
+            throw new IllegalStateException("inventory.locations.warehouses must list at least one warehouse");
+        }
+        List<LocationStock.Location> locations = properties.getWarehouses().entrySet().stream()
+                .map(entry -> new LocationStock.Location(entry.getKey(), entry.getValue().getLatitude(),
+                        entry.getValue().getLongitude(), entry.getValue().getPriority()))
+                .toList();
+        return new LocationStock(jdbcTemplate, locations, properties.getPolicy(), properties.getMaxSplit());
+    }
+}
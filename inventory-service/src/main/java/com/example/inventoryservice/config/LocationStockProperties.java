@@ -0,0 +1,61 @@
+package com.example.inventoryservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings for stock kept per warehouse, bound from {@code inventory.locations.*}.
+ */
+@Setter
+@Getter
+@ConfigurationProperties(prefix = "inventory.locations")
+public class LocationStockProperties {
+
+    /**
+     * The order in which warehouses are considered for an allocation.
+     */
+    public enum Policy {
+        /**
+         * Closest to the destination first; by priority for requests without a destination.
+         */
+        NEAREST,
+
+        /**
+         * Lowest priority value first.
+         */
+        PRIORITY,
+
+        /**
+         * Most stock of the product first, which splits the fewest quantities.
+         */
+        MOST_STOCK
+    }
+
+    private boolean enabled = false;
+    private Policy policy = Policy.NEAREST;
+
+    /**
+     * Maximum number of warehouses a quantity is split across.
+     */
+    private int maxSplit = 3;
+
+    /**
+     * The warehouses by code; ties in the allocation policy go to the warehouse listed first.
+     */
+    private Map<String, Warehouse> warehouses = new LinkedHashMap<>();
+
+    /**
+     * Where a warehouse is, and how it ranks under {@link Policy#PRIORITY}.
+     */
+    @Setter
+    @Getter
+    public static class Warehouse {
+        private double latitude;
+        private double longitude;
+        private int priority;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.inventoryservice.config;
+
+import com.example.inventoryservice.grpc.ProductProto;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.EnumDescriptor;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.ReflectionHints;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+import java.util.List;
+
+/**
+ * Reflection hints for a GraalVM native image, for what Spring AOT cannot find on its own: the
+ * generated protobuf messages, their builders and enums, which protobuf and the protobuf message
+ * converters look up reflectively, e.g. {@code getDefaultInstance} and the field accessors.
+ */
+public class NativeImageHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        String javaPackage = ProductProto.getDescriptor().getOptions().getJavaPackage() + ".";
+        registerMessages(hints.reflection(), javaPackage, ProductProto.getDescriptor().getMessageTypes());
+        registerEnums(hints.reflection(), javaPackage, ProductProto.getDescriptor().getEnumTypes());
+    }
+
+    private static void registerMessages(ReflectionHints reflection, String prefix, List<Descriptor> messages) {
+        for (Descriptor message : messages) {
+            String className = prefix + message.getName();
+            reflection.registerType(TypeReference.of(className), MemberCategory.INVOKE_PUBLIC_METHODS);
+            reflection.registerType(TypeReference.of(className + "$Builder"), MemberCategory.INVOKE_PUBLIC_METHODS);
+            registerMessages(reflection, className + "$", message.getNestedTypes());
+            registerEnums(reflection, className + "$", message.getEnumTypes());
+        }
+    }
+
+    private static void registerEnums(ReflectionHints reflection, String prefix, List<EnumDescriptor> enums) {
+        for (EnumDescriptor enumType : enums) {
+            reflection.registerType(TypeReference.of(prefix + enumType.getName()), MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+    }
+}
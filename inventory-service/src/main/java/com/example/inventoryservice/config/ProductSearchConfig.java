@@ -0,0 +1,37 @@
+package com.example.inventoryservice.config;
+
+import com.example.inventoryservice.service.ProductSearchIndex;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+@Configuration
+@EnableConfigurationProperties(ProductSearchProperties.class)
+public class ProductSearchConfig {
+
+    /**
+     * Creates the product search index. It is built when the context starts, and its refreshes
+     * are stopped when it closes.
+     *
+     * @param properties the search settings
+     * @param dataSource the data source products are read from
+     * @param transactionManager the transaction manager the index is loaded in
+     * @return the product search index
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public ProductSearchIndex productSearchIndex(ProductSearchProperties properties, DataSource dataSource,
+                                                 PlatformTransactionManager transactionManager) {
+        // Stream the catalogue instead of materializing it; PostgreSQL needs a transaction for that.
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(10_000);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        return new ProductSearchIndex(jdbcTemplate, transactionTemplate, properties.getMaxCandidates(),
+                properties.getRefreshInterval(), properties.getRebuildInterval());
+    }
+}
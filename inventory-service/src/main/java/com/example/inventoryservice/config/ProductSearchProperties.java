@@ -0,0 +1,32 @@
+package com.example.inventoryservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the product search index, bound from {@code inventory.search.*}.
+ */
+@Setter
+@Getter
+@ConfigurationProperties(prefix = "inventory.search")
+public class ProductSearchProperties {
+
+    /**
+     * Maximum number of products a search considers per ranking tier; bounds the cost of very
+     * short queries.
+     */
+    private int maxCandidates = 200;
+
+    /**
+     * Interval at which products created by other writers are added to the index.
+     */
+    private Duration refreshInterval = Duration.ofSeconds(30);
+
+    /**
+     * Interval at which the index is rebuilt, picking up renamed and deleted products.
+     */
+    private Duration rebuildInterval = Duration.ofHours(1);
+}
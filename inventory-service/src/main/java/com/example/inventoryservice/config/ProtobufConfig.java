@@ -0,0 +1,23 @@
+package com.example.inventoryservice.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Lets the REST API read and write the protobuf messages of {@code product.proto} as
+ * {@code application/x-protobuf}, next to JSON.
+ */
+@Configuration
+public class ProtobufConfig {
+
+    /**
+     * Creates the protobuf message converter, which Spring Boot adds to the converters of
+     * Spring MVC. It only handles protobuf messages, so entities are still written as JSON.
+     *
+     * @return the protobuf message converter
+     */
+    @Bean
+    public SizedProtobufHttpMessageConverter protobufHttpMessageConverter() {
+        return new SizedProtobufHttpMessageConverter();
+    }
+}
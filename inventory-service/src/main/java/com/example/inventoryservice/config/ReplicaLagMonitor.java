@@ -0,0 +1,90 @@
+package com.example.inventoryservice.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks whether the read replica is within the configured staleness bound. The lag is
+ * measured on a background thread once per check interval, so routing a transaction costs a
+ * volatile read and never waits for the replica. The lag query times out after the check
+ * interval, rounded up to whole seconds, so a hanging replica is reported as stale on the
+ * next run instead of blocking the monitor.
+ */
+public class ReplicaLagMonitor {
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final JdbcTemplate replica;
+    private final String lagQuery;
+    private final double maxLagSeconds;
+    private final Duration checkInterval;
+    private volatile boolean fresh;
+    private ScheduledExecutorService scheduler;
+
+    public ReplicaLagMonitor(DataSource replica, String lagQuery, Duration maxLag, Duration checkInterval) {
+        this.replica = new JdbcTemplate(replica);
+        this.replica.setQueryTimeout((int) Math.max(1, (checkInterval.toMillis() + 999) / 1000));
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLag.toNanos() / 1e9;
+        this.checkInterval = checkInterval;
+    }
+
+    /**
+     * Starts measuring the lag, immediately and then at the configured interval.
+     */
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-replica-lag");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::run, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops measuring the lag; the last result is kept.
+     */
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Measures the lag once and records whether the replica is fresh.
+     */
+    public void run() {
+        fresh = measure();
+    }
+
+    /**
+     * Returns whether reads may be served by the replica. Until the first successful
+     * measurement, and whenever the lag cannot be measured, the replica is treated as stale.
+     *
+     * @return {@code true} if the replica lag is within the staleness bound
+     */
+    public boolean isReplicaFresh() {
+        return fresh;
+    }
+
+    private boolean measure() {
+        try {
+            Double lagSeconds = replica.queryForObject(lagQuery, Double.class);
+            if (lagSeconds == null) {
+                log.warn("Replica lag query returned no value, routing reads to the primary");
+                return false;
+            }
+            return lagSeconds <= maxLagSeconds;
+        } catch (DataAccessException e) {
+            log.warn("Could not measure replica lag, routing reads to the primary: {}", e.getMessage());
+            return false;
+        }
+    }
+}
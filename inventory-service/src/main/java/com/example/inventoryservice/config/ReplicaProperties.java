@@ -0,0 +1,40 @@
+package com.example.inventoryservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for routing read-only transactions to a read replica, bound from
+ * {@code inventory.replica.*}. Pool settings of the replica are bound from
+ * {@code inventory.replica.hikari.*}.
+ */
+@Setter
+@Getter
+@ConfigurationProperties(prefix = "inventory.replica")
+public class ReplicaProperties {
+    private boolean enabled;
+    private String url;
+    private String username;
+    private String password;
+
+    /**
+     * Maximum replication lag at which reads are still served by the replica.
+     */
+    private Duration maxLag = Duration.ofSeconds(5);
+
+    /**
+     * How often the replication lag is measured; also the timeout of the lag query, rounded
+     * up to whole seconds.
+     */
+    private Duration lagCheckInterval = Duration.ofSeconds(1);
+
+    /**
+     * Query run on the replica that returns its replication lag in seconds. A {@code null}
+     * result, as on a server that is not replicating, counts as stale. The default reports the time since the last replayed
+     * transaction, which overstates the lag while the primary receives no writes.
+     */
+    private String lagQuery = "SELECT EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())";
+}
@@ -0,0 +1,25 @@
+package com.example.inventoryservice.config;
+
+import com.example.inventoryservice.service.StockAlertEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(StockAlertProperties.class)
+public class StockAlertConfig {
+
+    /**
+     * Creates the engine that raises low-stock alerts; the thresholds are loaded by
+     * {@code InventoryService}.
+     *
+     * @param properties the alert settings
+     * @param meterRegistry the registry for alert metrics
+     * @return the stock alert engine
+     */
+    @Bean
+    public StockAlertEngine stockAlertEngine(StockAlertProperties properties, MeterRegistry meterRegistry) {
+        return new StockAlertEngine(properties, meterRegistry);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.inventoryservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for low-stock alerts, bound from {@code inventory.alerts.*}.
+ */
+@Setter
+@Getter
+@ConfigurationProperties(prefix = "inventory.alerts")
+public class StockAlertProperties {
+
+    /**
+     * Number of recent alerts retained for polling clients and resuming subscribers.
+     */
+    private int historySize = 1000;
+}
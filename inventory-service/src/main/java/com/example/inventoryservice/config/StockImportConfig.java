@@ -0,0 +1,44 @@
+package com.example.inventoryservice.config;
+
+import com.example.inventoryservice.importer.StockImporter;
+import com.example.inventoryservice.service.ProductSearchIndex;
+import com.example.inventoryservice.service.ResourceVersion;
+import com.example.inventoryservice.service.StockAlertEngine;
+import com.example.inventoryservice.service.StockJournal;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Configuration
+@EnableConfigurationProperties(StockImportProperties.class)
+public class StockImportConfig {
+
+    /**
+     * Creates the bulk stock importer, and the unique index on product names it relies on.
+     *
+     * @param properties the import settings
+     * @param jdbcTemplate the JDBC template batches are applied with
+     * @param transactionManager the transaction manager each batch runs in
+     * @param stockJournal the stock journal, present with the journal strategy only
+     * @param stockAlerts the engine that raises alerts for imported stock changes
+     * @param productSearchIndex the search index created products are added to
+     * @param productsVersion the version of the product list, incremented by every batch
+     * @param meterRegistry the registry for import metrics
+     * @return the stock importer
+     */
+    @Bean(initMethod = "createNameIndex")
+    public StockImporter stockImporter(StockImportProperties properties, JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       ObjectProvider<StockJournal> stockJournal, StockAlertEngine stockAlerts,
+                                       ProductSearchIndex productSearchIndex, ResourceVersion productsVersion,
+                                       MeterRegistry meterRegistry) {
+        return new StockImporter(jdbcTemplate, new TransactionTemplate(transactionManager),
+                stockJournal.getIfAvailable(), stockAlerts, productSearchIndex, productsVersion,
+                properties.getBatchSize(), meterRegistry);
+    }
+}
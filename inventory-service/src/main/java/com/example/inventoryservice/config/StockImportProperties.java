@@ -0,0 +1,19 @@
+package com.example.inventoryservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for bulk stock imports, bound from {@code inventory.import.*}.
+ */
+@Setter
+@Getter
+@ConfigurationProperties(prefix = "inventory.import")
+public class StockImportProperties {
+
+    /**
+     * Number of records applied per transaction; bounds the memory an import holds at a time.
+     */
+    private int batchSize = 1000;
+}
@@ -0,0 +1,104 @@
+package com.example.inventoryservice.config;
+
+import com.example.inventoryservice.repository.ProductRepository;
+import com.example.inventoryservice.service.JournalStockUpdateStrategy;
+import com.example.inventoryservice.service.OptimisticStockUpdateStrategy;
+import com.example.inventoryservice.service.PessimisticStockUpdateStrategy;
+import com.example.inventoryservice.service.StockJournal;
+import com.example.inventoryservice.service.StockReservationPurger;
+import com.example.inventoryservice.service.StockReservations;
+import com.example.inventoryservice.service.StockUpdateStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Configuration
+@EnableConfigurationProperties(StockUpdateProperties.class)
+public class StockUpdateConfig {
+
+    /**
+     * Creates the stock update strategy selected by {@code inventory.stock-update.strategy}.
+     *
+     * @param properties the stock update settings
+     * @param productRepository the product repository
+     * @param transactionManager the transaction manager each update attempt runs in
+     * @param meterRegistry the registry for conflict metrics
+     * @param stockJournal the stock journal, present with the journal strategy only
+     * @param stockReservations the record of the stock taken for orders, unused by the journal
+     *                          strategy
+     * @return the configured stock update strategy
+     */
+    @Bean
+    public StockUpdateStrategy stockUpdateStrategy(StockUpdateProperties properties,
+                                                   ProductRepository productRepository,
+                                                   PlatformTransactionManager transactionManager,
+                                                   MeterRegistry meterRegistry,
+                                                   ObjectProvider<StockJournal> stockJournal,
+                                                   StockReservations stockReservations) {
+        return switch (properties.getStrategy()) {
+            case JOURNAL -> new JournalStockUpdateStrategy(stockJournal.getObject());
+            case PESSIMISTIC -> new PessimisticStockUpdateStrategy(productRepository,
+                    new TransactionTemplate(transactionManager), stockReservations,
+                    properties, meterRegistry);
+            case OPTIMISTIC -> new OptimisticStockUpdateStrategy(productRepository,
+                    new TransactionTemplate(transactionManager), stockReservations,
+                    properties, meterRegistry);
+        };
+    }
+
+    /**
+     * Creates the record of the stock taken for orders, which lets the order service release the
+     * stock of orders it could not complete.
+     *
+     * @param jdbcTemplate the JDBC template for reservation reads and writes
+     * @return the stock reservations
+     */
+    @Bean
+    public StockReservations stockReservations(JdbcTemplate jdbcTemplate) {
+        return new StockReservations(jdbcTemplate);
+    }
+
+    /**
+     * Creates the background purge of the reservations older than
+     * {@code inventory.stock-update.reservations.retention}.
+     *
+     * @param properties the stock update settings
+     * @param stockReservations the record of the stock taken for orders
+     * @param transactionManager the transaction manager each purge batch runs in
+     * @param meterRegistry the registry for purge metrics
+     * @return the reservation purger
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public StockReservationPurger stockReservationPurger(StockUpdateProperties properties,
+                                                         StockReservations stockReservations,
+                                                         PlatformTransactionManager transactionManager,
+                                                         MeterRegistry meterRegistry) {
+        StockUpdateProperties.Reservations reservations = properties.getReservations();
+        return new StockReservationPurger(stockReservations, new TransactionTemplate(transactionManager),
+                reservations.getRetention(), reservations.getPurgeInterval(), reservations.getPurgeBatchSize(),
+                meterRegistry);
+    }
+
+    /**
+     * Creates the stock journal used by {@code inventory.stock-update.strategy=journal}. The
+     * projection is rebuilt when the context starts, and a final snapshot is taken when it closes.
+     *
+     * @param properties the stock update settings
+     * @param jdbcTemplate the JDBC template for journal reads and appends
+     * @param transactionManager the transaction manager each append batch runs in
+     * @return the stock journal
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnProperty(prefix = "inventory.stock-update", name = "strategy", havingValue = "journal")
+    public StockJournal stockJournal(StockUpdateProperties properties, JdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager) {
+        return new StockJournal(jdbcTemplate, new TransactionTemplate(transactionManager),
+                properties.getJournal().getMaxBatchSize(), properties.getJournal().getSnapshotEvery());
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.inventoryservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for concurrent stock updates, bound from {@code inventory.stock-update.*}.
+ */
+@Setter
+@Getter
+@ConfigurationProperties(prefix = "inventory.stock-update")
+public class StockUpdateProperties {
+
+    /**
+     * How concurrent decrements of the same product are serialized.
+     */
+    public enum Strategy {
+        OPTIMISTIC,
+        PESSIMISTIC,
+
+        /**
+         * Stock is kept in an append-only journal with an in-memory projection.
+         */
+        JOURNAL
+    }
+
+    private Strategy strategy = Strategy.OPTIMISTIC;
+    private int maxAttempts = 5;
+    private Duration initialBackoff = Duration.ofMillis(2);
+    private Duration maxBackoff = Duration.ofMillis(50);
+    private Journal journal = new Journal();
+    private Reservations reservations = new Reservations();
+
+    /**
+     * Settings of the {@link Strategy#JOURNAL} strategy.
+     */
+    @Setter
+    @Getter
+    public static class Journal {
+        /**
+         * Maximum number of appends committed together by the journal writer.
+         */
+        private int maxBatchSize = 256;
+
+        /**
+         * Number of journaled movements after which a new snapshot is taken.
+         */
+        private long snapshotEvery = 10_000;
+    }
+
+    /**
+     * Retention of the stock taken per order reference.
+     */
+    @Setter
+    @Getter
+    public static class Reservations {
+        /**
+         * How long reservations are kept after they were taken or released. Must exceed the
+         * window the order service reconciles ({@code order.reconciliation.interval} plus
+         * {@code order.reconciliation.delay}), including the longer windows of retried runs.
+         */
+        private Duration retention = Duration.ofDays(7);
+
+        /**
+         * Time between two purges of reservations beyond the retention.
+         */
+        private Duration purgeInterval = Duration.ofHours(1);
+
+        /**
+         * Maximum number of reservations deleted in one transaction.
+         */
+        private int purgeBatchSize = 1000;
+    }
+}
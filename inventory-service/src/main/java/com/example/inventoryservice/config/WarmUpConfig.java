@@ -0,0 +1,56 @@
+package com.example.inventoryservice.config;
+
+import com.example.inventoryservice.grpc.InventoryGrpcService;
+import com.example.inventoryservice.repository.ProductRepository;
+import com.example.inventoryservice.warmup.InventoryWarmUpTraffic;
+import com.example.inventoryservice.warmup.WarmUp;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Warms the service up before it reports itself ready; include the {@code warmUp} health
+ * indicator in the readiness group to hold traffic back until then.
+ */
+@Configuration
+@EnableConfigurationProperties(WarmUpProperties.class)
+public class WarmUpConfig {
+
+    /**
+     * Creates the synthetic stock checks of the warm-up.
+     *
+     * @param properties the warm-up settings
+     * @param inventoryGrpcService the gRPC service the checks are made against
+     * @param productRepository the repository a product to check by id is taken from
+     * @return the synthetic stock checks
+     */
+    @Bean
+    public InventoryWarmUpTraffic inventoryWarmUpTraffic(WarmUpProperties properties,
+                                                         InventoryGrpcService inventoryGrpcService,
+                                                         ProductRepository productRepository) {
+        return new InventoryWarmUpTraffic(inventoryGrpcService, productRepository, properties.getProduct());
+    }
+
+    /**
+     * Creates the warm-up, which opens connections in the primary and, if configured, the
+     * replica pool, then checks stock by name and by id.
+     *
+     * @param properties the warm-up settings
+     * @param pools the connection pools
+     * @param traffic the synthetic stock checks
+     * @return the warm-up, which is also the {@code warmUp} health indicator
+     */
+    @Bean
+    public WarmUp warmUp(WarmUpProperties properties, ObjectProvider<HikariDataSource> pools,
+                         InventoryWarmUpTraffic traffic) {
+        Map<String, Runnable> calls = new LinkedHashMap<>();
+        calls.put("checkStockByName", traffic::checkStockByName);
+        calls.put("checkStockById", traffic::checkStockById);
+        return new WarmUp(properties, pools.orderedStream().toList(), calls);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.inventoryservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the warm-up that runs after startup, before the service reports itself ready,
+ * bound from {@code inventory.warm-up.*}.
+ */
+@Setter
+@Getter
+@ConfigurationProperties(prefix = "inventory.warm-up")
+public class WarmUpProperties {
+
+    /**
+     * Whether to warm up; without it the service is ready as soon as it has started.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Synthetic calls of each kind, enough for the JIT to compile the paths they take.
+     */
+    private int iterations = 200;
+
+    /**
+     * Connections opened in each connection pool; at most the size of the pool.
+     */
+    private int connections = 5;
+
+    /**
+     * Upper bound on the whole warm-up, after which the service becomes ready regardless.
+     */
+    private Duration timeout = Duration.ofSeconds(30);
+
+    /**
+     * Product the synthetic stock checks ask for; it need not exist.
+     */
+    private String product = "warm-up";
+}
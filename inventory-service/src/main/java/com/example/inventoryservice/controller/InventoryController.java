@@ -1,19 +1,47 @@
 package com.example.inventoryservice.controller;
 
 import com.example.inventoryservice.entity.Product;
+import com.example.inventoryservice.grpc.ProductList;
+import com.example.inventoryservice.grpc.StockResponse;
+import com.example.inventoryservice.importer.CsvStockImportReader;
+import com.example.inventoryservice.importer.StockImporter;
 import com.example.inventoryservice.service.InventoryService;
+import com.example.inventoryservice.service.ProductSearchIndex;
+import com.example.inventoryservice.service.ResourceVersion;
+import com.example.inventoryservice.service.StockAlert;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/inventory")
 @CrossOrigin(origins = "http://localhost:4200")
 public class InventoryController {
+    /**
+     * The media type of protobuf responses, which use the messages of {@code product.proto}.
+     */
+    public static final String APPLICATION_PROTOBUF = "application/x-protobuf";
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+
     private final InventoryService inventoryService;
 
     public InventoryController(InventoryService inventoryService) {
@@ -21,12 +49,183 @@ public class InventoryController {
     }
 
     /**
-     * Get all products.
+     * Get all products. The response carries the ETag and modification time of the current
+     * version of the product list, and a request with matching {@code If-None-Match} or
+     * {@code If-Modified-Since} headers gets a 304 without the list being read.
      *
-     * @return a list of products
+     * @param request the request, with the validators of the client's copy if it has one
+     * @return a list of products, or 304 if the client's copy is current
      */
     @GetMapping("/products")
-    public ResponseEntity<List<Product>> getAllProducts() {
-        return ResponseEntity.ok(inventoryService.getAllProducts());
+    public ResponseEntity<List<Product>> getAllProducts(WebRequest request) {
+        return conditionalGet(request, inventoryService.getProductsVersion(), inventoryService::getAllProducts);
+    }
+
+    /**
+     * Get all products as a protobuf {@code ProductList}, with the same validation as
+     * {@link #getAllProducts(WebRequest)}.
+     *
+     * @param request the request, with the validators of the client's copy if it has one
+     * @return the list of products, or 304 if the client's copy is current
+     */
+    @GetMapping(value = "/products", produces = APPLICATION_PROTOBUF)
+    public ResponseEntity<ProductList> getAllProductsAsProtobuf(WebRequest request) {
+        return conditionalGet(request, inventoryService.getProductsVersion().variant("pb"), () -> {
+            ProductList.Builder list = ProductList.newBuilder();
+            for (Product product : inventoryService.getAllProducts()) {
+                list.addProducts(StockResponse.newBuilder()
+                        .setProductId(product.getId())
+                        .setProduct(product.getName())
+                        .setStockQuantity(product.getStockQuantity())
+                        .setAvailable(product.getStockQuantity() > 0));
+            }
+            return list.build();
+        });
+    }
+
+    /**
+     * Answers a request for the product list with 304 if the client's copy has the current
+     * version, and with the list and its validators otherwise.
+     */
+    private static <T> ResponseEntity<T> conditionalGet(WebRequest request, ResourceVersion.Tag version,
+                                                        Supplier<T> body) {
+        if (!version.settled()) {
+            // A lagging replica may still serve the previous version; let clients refetch.
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT)
+                    .body(body.get());
+        }
+        if (request.checkNotModified(version.eTag(), version.lastModified().toEpochMilli())) {
+            // The validators have been added to the response by checkNotModified.
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT).build();
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT)
+                .eTag(version.eTag()).lastModified(version.lastModified())
+                .body(body.get());
+    }
+
+    /**
+     * Search products by name, for type-ahead product selection instead of loading the whole
+     * catalogue. Matches prefixes of the name and of its words, and words with a typo.
+     *
+     * @param q the text typed by the user
+     * @param page the number of the page, starting at 0
+     * @param size the number of products per page
+     * @return the page of matching products, or 400 if the page or size is out of range
+     */
+    @GetMapping("/products/search")
+    public ResponseEntity<ProductSearchIndex.Page> searchProducts(@RequestParam String q,
+                                                                  @RequestParam(defaultValue = "0") int page,
+                                                                  @RequestParam(defaultValue = "20") int size) {
+        if (page < 0 || size < 1 || size > MAX_SEARCH_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(inventoryService.searchProducts(q, page, size));
+    }
+
+    /**
+     * Add stock to several products at once, all or nothing.
+     *
+     * @param quantities the quantity to add per product name
+     * @return 200 if the stock was added, 400 if a quantity is not positive, or 404 with the
+     *         names of the unknown products
+     */
+    @PostMapping("/restock")
+    public ResponseEntity<?> restock(@RequestBody Map<String, Integer> quantities) {
+        if (quantities.isEmpty() || quantities.values().stream().anyMatch(quantity -> quantity == null || quantity <= 0)) {
+            return ResponseEntity.badRequest().body("Restock quantities must be positive");
+        }
+        List<String> unknown = inventoryService.restock(quantities);
+        if (!unknown.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(unknown);
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * Import products and stock from a CSV upload with lines of {@code product,quantity[,mode]}.
+     * The upload is streamed and applied in batches while it is read.
+     *
+     * @param csv the CSV body
+     * @return the counts of the import and of each of its batches
+     * @throws IOException if the upload cannot be read
+     */
+    @PostMapping(path = "/import", consumes = "text/csv")
+    public ResponseEntity<StockImporter.Result> importStock(InputStream csv) throws IOException {
+        StockImporter.Session session = inventoryService.openStockImport();
+        CsvStockImportReader.read(new InputStreamReader(csv, StandardCharsets.UTF_8), session);
+        return ResponseEntity.ok(session.finish());
+    }
+
+    /**
+     * Set or clear the reorder threshold of a product.
+     *
+     * @param id the id of the product
+     * @param reorderThreshold the stock level at or below which to alert, or no body to clear it
+     * @return the updated product, 400 if the threshold is negative, or 404 if the product does
+     *         not exist
+     */
+    @PutMapping("/products/{id}/reorder-threshold")
+    public ResponseEntity<?> setReorderThreshold(@PathVariable long id,
+                                                 @RequestBody(required = false) Integer reorderThreshold) {
+        if (reorderThreshold != null && reorderThreshold < 0) {
+            return ResponseEntity.badRequest().body("Reorder threshold must not be negative");
+        }
+        Product product = inventoryService.setReorderThreshold(id, reorderThreshold);
+        return product != null ? ResponseEntity.ok(product) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Get the stock of a product in every warehouse.
+     *
+     * @param id the id of the product
+     * @return the stock per warehouse code, or 409 if stock is not kept per warehouse
+     */
+    @GetMapping("/products/{id}/locations")
+    public ResponseEntity<?> getLocationStock(@PathVariable long id) {
+        try {
+            return ResponseEntity.ok(inventoryService.getLocationStock(id));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Set the stock of a product in a warehouse, e.g. after a count; the stock of the product
+     * changes by the same amount.
+     *
+     * @param id the id of the product
+     * @param location the warehouse code
+     * @param quantity the new stock in the warehouse
+     * @return the stock per warehouse code, 400 if the quantity is negative or the warehouse is
+     *         unknown, 404 if the product does not exist, or 409 if stock is not kept per
+     *         warehouse or the product lacks the stock a decrease removes
+     */
+    @PutMapping("/products/{id}/locations/{location}")
+    public ResponseEntity<?> setLocationStock(@PathVariable long id, @PathVariable String location,
+                                              @RequestBody Integer quantity) {
+        if (quantity == null || quantity < 0) {
+            return ResponseEntity.badRequest().body("Stock must not be negative");
+        }
+        try {
+            Map<String, Integer> stock = inventoryService.setLocationStock(id, location, quantity);
+            return stock != null ? ResponseEntity.ok(stock) : ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Get the retained low-stock alerts, for clients that poll instead of streaming them over
+     * gRPC.
+     *
+     * @param after the sequence number of the last alert already seen
+     * @return the newer alerts, oldest first
+     */
+    @GetMapping("/alerts")
+    public ResponseEntity<List<StockAlert>> getStockAlerts(@RequestParam(defaultValue = "0") long after) {
+        return ResponseEntity.ok(inventoryService.getStockAlerts(after));
     }
 }
\ No newline at end of file
@@ -7,11 +7,25 @@ import lombok.Setter;
 @Setter
 @Getter
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = @Index(name = "products_name_uidx", columnList = "name", unique = true))
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     private String name;
     private int stockQuantity;
+
+    /**
+     * Stock level at or below which the product needs restocking and a low-stock alert is
+     * raised; {@code null} if the product is not watched.
+     */
+    private Integer reorderThreshold;
+
+    /**
+     * Optimistic lock version, incremented by Hibernate on every update so that
+     * concurrent stock decrements based on a stale read are rejected instead of
+     * silently overwriting each other.
+     */
+    @Version
+    private Long version;
 }
\ No newline at end of file
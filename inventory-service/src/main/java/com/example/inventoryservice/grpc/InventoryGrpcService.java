@@ -1,13 +1,55 @@
 package com.example.inventoryservice.grpc;
 
 import com.example.inventoryservice.entity.Product;
+import com.example.inventoryservice.importer.StockImportRecord;
+import com.example.inventoryservice.importer.StockImporter;
 import com.example.inventoryservice.service.InventoryService;
+import com.example.inventoryservice.service.LocationStock;
+import com.example.inventoryservice.service.StockAlert;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import net.devh.boot.grpc.server.service.GrpcService;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 
 @GrpcService
 public class InventoryGrpcService extends InventoryServiceGrpc.InventoryServiceImplBase {
+    // Messages are immutable, so the outcomes that do not depend on a product are shared by all
+    // calls; the others are completed with the product.
+    private static final StockResponse AVAILABLE =
+            stockResponse(StockResponse.Status.AVAILABLE, true, "Stock available");
+    private static final StockResponse INSUFFICIENT_STOCK =
+            stockResponse(StockResponse.Status.INSUFFICIENT_STOCK, false, "Insufficient stock");
+    private static final StockResponse UPDATED =
+            stockResponse(StockResponse.Status.UPDATED, true, "Stock updated successfully");
+    private static final StockResponse UPDATE_FAILED =
+            stockResponse(StockResponse.Status.UPDATE_FAILED, false, "Failed to update stock");
+    private static final StockResponse PRODUCT_NOT_FOUND_ON_CHECK =
+            stockResponse(StockResponse.Status.PRODUCT_NOT_FOUND, false, "Insufficient stock");
+    private static final StockResponse PRODUCT_NOT_FOUND_ON_UPDATE =
+            stockResponse(StockResponse.Status.PRODUCT_NOT_FOUND, false, "Failed to update stock");
+
+    // Responses recently sent for a product, by product id and outcome. A slot is overwritten
+    // when the stock of its product changes or another product maps to it, so this only bounds
+    // how many responses are kept, not which.
+    private static final int RECENT_RESPONSES = 4096;
+
+    // Products per message of a decrement stream; rows are fetched from the database in chunks
+    // of the same size.
+    private static final int DECREMENTS_PER_MESSAGE = 500;
+
     private final InventoryService inventoryService;
+    private final AtomicReferenceArray<StockResponse> recentResponses = new AtomicReferenceArray<>(RECENT_RESPONSES);
 
     public InventoryGrpcService(InventoryService inventoryService) {
         this.inventoryService = inventoryService;
@@ -16,20 +58,24 @@ public class InventoryGrpcService extends InventoryServiceGrpc.InventoryServiceI
     /**
      * Check if the stock of the given product is available.
      *
-     * @param request  request containing the product name and quantity
+     * @param request  request containing the product id or name and quantity
      * @param responseObserver  observer to be called with the response
      */
     @Override
     public void checkStock(StockRequest request, StreamObserver<StockResponse> responseObserver) {
-        boolean isAvailable = inventoryService.checkStock(request.getProduct(), request.getQuantity());
-        Product product = inventoryService.getProductByName(request.getProduct());
-        int stockQuantity = product != null ? product.getStockQuantity() : 0;
-
-        StockResponse response = StockResponse.newBuilder()
-                .setAvailable(isAvailable)
-                .setStockQuantity(stockQuantity)
-                .setMessage(isAvailable ? "Stock available" : "Insufficient stock")
-                .build();
+        // A single lookup both decides availability and fills in the response; with the journal
+        // stock update strategy it is served from the journal projection.
+        Product product = request.getProductId() != 0
+                ? inventoryService.getProductStock(request.getProductId())
+                : inventoryService.getProductStock(request.getProduct());
+
+        StockResponse response;
+        if (product == null) {
+            response = PRODUCT_NOT_FOUND_ON_CHECK;
+        } else {
+            response = withProduct(product.getStockQuantity() >= request.getQuantity() ? AVAILABLE : INSUFFICIENT_STOCK,
+                    product);
+        }
 
         responseObserver.onNext(response);
         responseObserver.onCompleted();
@@ -38,22 +84,418 @@ public class InventoryGrpcService extends InventoryServiceGrpc.InventoryServiceI
     /**
      * Update the stock of the given product.
      *
-     * @param request  request containing the product name and quantity
+     * @param request  request containing the product id or name, quantity and order reference
      * @param responseObserver  observer to be called with the response
      */
     @Override
     public void updateStock(UpdateStockRequest request, StreamObserver<StockResponse> responseObserver) {
-        boolean updated = inventoryService.updateStock(request.getProduct(), request.getQuantity());
-        Product product = inventoryService.getProductByName(request.getProduct());
-        int stockQuantity = product != null ? product.getStockQuantity() : 0;
-
-        StockResponse response = StockResponse.newBuilder()
-                .setAvailable(updated)
-                .setStockQuantity(stockQuantity)
-                .setMessage(updated ? "Stock updated successfully" : "Failed to update stock")
+        boolean byId = request.getProductId() != 0;
+        String orderRef = orderRef(request.getOrderRef());
+        boolean updated = byId
+                ? inventoryService.updateStock(request.getProductId(), request.getQuantity(), orderRef)
+                : inventoryService.updateStock(request.getProduct(), request.getQuantity(), orderRef);
+        Product product = byId
+                ? inventoryService.getProductStock(request.getProductId())
+                : inventoryService.getProductStock(request.getProduct());
+
+        StockResponse response;
+        if (product == null) {
+            response = updated ? UPDATED : PRODUCT_NOT_FOUND_ON_UPDATE;
+        } else {
+            response = withProduct(updated ? UPDATED : UPDATE_FAILED, product);
+        }
+
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * Reserve the stock of several products in one all-or-nothing operation.
+     * Quantities of repeated products are added up before reserving. Products are identified
+     * by id when every item carries one, and by name otherwise.
+     *
+     * @param request  request containing the products and quantities to reserve, and the order
+     *                 reference
+     * @param responseObserver  observer to be called with the response
+     */
+    @Override
+    public void reserveStock(ReserveStockRequest request, StreamObserver<ReserveStockResponse> responseObserver) {
+        boolean valid = request.getItemsCount() > 0;
+        boolean byId = true;
+        for (StockItem item : request.getItemsList()) {
+            if (item.getQuantity() <= 0 || (item.getProductId() == 0 && item.getProduct().isEmpty())) {
+                valid = false;
+                break;
+            }
+            byId &= item.getProductId() != 0;
+        }
+
+        String orderRef = orderRef(request.getOrderRef());
+        ReserveStockResponse response;
+        if (!valid) {
+            response = ReserveStockResponse.newBuilder()
+                    .setReserved(false)
+                    .setMessage("Invalid reservation request")
+                    .build();
+        } else {
+            try {
+                response = byId ? reserveByIds(request, orderRef) : reserveByNames(request, orderRef);
+            } catch (DuplicateKeyException e) {
+                response = ReserveStockResponse.newBuilder()
+                        .setReserved(false)
+                        .setMessage("Order already reserved or released")
+                        .build();
+            }
+        }
+
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    private ReserveStockResponse reserveByIds(ReserveStockRequest request, String orderRef) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        request.getItemsList().forEach(item -> quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum));
+        List<Long> unavailable = inventoryService.reserveStockByIds(quantities, orderRef);
+        return ReserveStockResponse.newBuilder()
+                .setReserved(unavailable.isEmpty())
+                .setMessage(unavailable.isEmpty() ? "Stock reserved" : "Insufficient stock")
+                .addAllUnavailableProductIds(unavailable)
                 .build();
+    }
+
+    private ReserveStockResponse reserveByNames(ReserveStockRequest request, String orderRef) {
+        Map<String, Integer> quantities = new HashMap<>();
+        request.getItemsList().forEach(item -> quantities.merge(item.getProduct(), item.getQuantity(), Integer::sum));
+        List<String> unavailable = inventoryService.reserveStock(quantities, orderRef);
+        return ReserveStockResponse.newBuilder()
+                .setReserved(unavailable.isEmpty())
+                .setMessage(unavailable.isEmpty() ? "Stock reserved" : "Insufficient stock")
+                .addAllUnavailableProducts(unavailable)
+                .build();
+    }
+
+    private static String orderRef(String orderRef) {
+        return orderRef.isEmpty() ? null : orderRef;
+    }
+
+    /**
+     * Put back the stock taken for orders that will not be completed. Releasing is idempotent,
+     * and an order released before its stock update arrives is refused the stock.
+     *
+     * @param request  request containing the references of the orders to release
+     * @param responseObserver  observer to be called with the response
+     */
+    @Override
+    public void releaseStock(ReleaseStockRequest request, StreamObserver<ReleaseStockResponse> responseObserver) {
+        int released;
+        try {
+            released = inventoryService.releaseStock(request.getOrderRefsList());
+        } catch (IllegalStateException e) {
+            responseObserver.onError(Status.FAILED_PRECONDITION.withDescription(e.getMessage()).asRuntimeException());
+            return;
+        }
+        int orders = new HashSet<>(request.getOrderRefsList()).size();
+        responseObserver.onNext(ReleaseStockResponse.newBuilder()
+                .setReleased(released)
+                .setUnchanged(orders - released)
+                .build());
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * Stream the stock taken per product by orders in a time window, in product id order and in
+     * chunks, for reconciliation against the orders. The database cursor is read no faster than
+     * the client takes the chunks: a chunk is only sent once the call is ready for it, so neither
+     * side buffers the whole result.
+     *
+     * @param request  request containing the time window and the range of product ids
+     * @param responseObserver  observer the chunks are streamed to
+     */
+    @Override
+    public void streamOrderDecrements(OrderDecrementsRequest request, StreamObserver<OrderDecrements> responseObserver) {
+        ServerCallStreamObserver<OrderDecrements> chunks = (ServerCallStreamObserver<OrderDecrements>) responseObserver;
+        if (request.getToTime() <= request.getFromTime()) {
+            chunks.onError(Status.INVALID_ARGUMENT.withDescription("Empty time window").asRuntimeException());
+            return;
+        }
+        long toProductId = request.getToProductId() == 0 ? Long.MAX_VALUE : request.getToProductId();
+        OrderDecrements.Builder chunk = OrderDecrements.newBuilder();
+        try {
+            inventoryService.streamOrderDecrements(Instant.ofEpochMilli(request.getFromTime()),
+                    Instant.ofEpochMilli(request.getToTime()), request.getFromProductId(), toProductId,
+                    DECREMENTS_PER_MESSAGE, (productId, quantity) -> {
+                        chunk.addProducts(ProductDecrement.newBuilder().setProductId(productId).setQuantity(quantity));
+                        if (chunk.getProductsCount() == DECREMENTS_PER_MESSAGE) {
+                            send(chunks, chunk);
+                        }
+                    });
+            if (chunk.getProductsCount() > 0) {
+                send(chunks, chunk);
+            }
+        } catch (CancellationException e) {
+            // The client went away; the cursor is closed with the transaction.
+            return;
+        } catch (IllegalStateException e) {
+            chunks.onError(Status.FAILED_PRECONDITION.withDescription(e.getMessage()).asRuntimeException());
+            return;
+        }
+        chunks.onCompleted();
+    }
+
+    private static void send(ServerCallStreamObserver<OrderDecrements> chunks, OrderDecrements.Builder chunk) {
+        while (!chunks.isReady()) {
+            if (chunks.isCancelled()) {
+                throw new CancellationException("Call cancelled");
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        chunks.onNext(chunk.build());
+        chunk.clear();
+    }
+
+    /**
+     * Take stock of a product from the warehouses picked by the allocation policy, e.g. the
+     * nearest warehouse to the destination that has all of it, splitting the quantity across
+     * warehouses if allowed and needed.
+     *
+     * @param request  request containing the product id or name, quantity, destination and order
+     *                 reference
+     * @param responseObserver  observer to be called with the response
+     */
+    @Override
+    public void allocateStock(AllocateStockRequest request, StreamObserver<AllocateStockResponse> responseObserver) {
+        AllocateStockResponse.Builder response = AllocateStockResponse.newBuilder().setAllocated(false);
+        Product product = null;
+        if (request.getQuantity() <= 0 || (request.getProductId() == 0 && request.getProduct().isEmpty())) {
+            response.setMessage("Invalid allocation request");
+        } else {
+            product = request.getProductId() != 0
+                    ? inventoryService.getProductById(request.getProductId())
+                    : inventoryService.getProductByName(request.getProduct());
+            if (product == null) {
+                response.setMessage("Product not found");
+            }
+        }
+
+        if (product != null) {
+            response.setProductId(product.getId());
+            LocationStock.Destination destination = request.hasDestination()
+                    ? new LocationStock.Destination(request.getDestination().getLatitude(),
+                            request.getDestination().getLongitude())
+                    : null;
+            try {
+                List<LocationStock.Allocation> allocations = inventoryService.allocateStock(product.getId(),
+                        request.getQuantity(), destination, request.getAllowSplit(), orderRef(request.getOrderRef()));
+                allocations.forEach(allocation -> response.addAllocations(LocationAllocation.newBuilder()
+                        .setLocation(allocation.location())
+                        .setQuantity(allocation.quantity())
+                        .setDistanceKm(allocation.distanceKm())));
+                response.setAllocated(!allocations.isEmpty())
+                        .setMessage(allocations.isEmpty() ? "Insufficient stock" : "Stock allocated");
+            } catch (DuplicateKeyException e) {
+                response.setMessage("Order already reserved or released");
+            } catch (IllegalStateException e) {
+                responseObserver.onError(Status.FAILED_PRECONDITION.withDescription(e.getMessage()).asRuntimeException());
+                return;
+            }
+        }
+
+        responseObserver.onNext(response.build());
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * Add stock to several products in one all-or-nothing operation, e.g. for a delivery.
+     * Quantities of repeated products are added up. Products are identified by id when every
+     * item carries one, and by name otherwise.
+     *
+     * @param request  request containing the products and quantities to add
+     * @param responseObserver  observer to be called with the response
+     */
+    @Override
+    public void restock(RestockRequest request, StreamObserver<RestockResponse> responseObserver) {
+        boolean valid = request.getItemsCount() > 0;
+        boolean byId = true;
+        for (StockItem item : request.getItemsList()) {
+            if (item.getQuantity() <= 0 || (item.getProductId() == 0 && item.getProduct().isEmpty())) {
+                valid = false;
+                break;
+            }
+            byId &= item.getProductId() != 0;
+        }
+
+        RestockResponse response;
+        if (!valid) {
+            response = RestockResponse.newBuilder()
+                    .setRestocked(false)
+                    .setMessage("Invalid restock request")
+                    .build();
+        } else if (byId) {
+            Map<Long, Integer> quantities = new HashMap<>();
+            request.getItemsList().forEach(item -> quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum));
+            List<Long> unknown = inventoryService.restockByIds(quantities);
+            response = RestockResponse.newBuilder()
+                    .setRestocked(unknown.isEmpty())
+                    .setMessage(unknown.isEmpty() ? "Stock added" : "Unknown products")
+                    .addAllUnknownProductIds(unknown)
+                    .build();
+        } else {
+            Map<String, Integer> quantities = new HashMap<>();
+            request.getItemsList().forEach(item -> quantities.merge(item.getProduct(), item.getQuantity(), Integer::sum));
+            List<String> unknown = inventoryService.restock(quantities);
+            response = RestockResponse.newBuilder()
+                    .setRestocked(unknown.isEmpty())
+                    .setMessage(unknown.isEmpty() ? "Stock added" : "Unknown products")
+                    .addAllUnknownProducts(unknown)
+                    .build();
+        }
 
         responseObserver.onNext(response);
         responseObserver.onCompleted();
     }
+
+    /**
+     * Stream low-stock alerts: first the retained alerts after the requested sequence number,
+     * then every new alert, until the client cancels the call.
+     *
+     * @param request  request containing the sequence number of the last alert already seen
+     * @param responseObserver  observer the alerts are streamed to
+     */
+    @Override
+    public void watchStockAlerts(WatchStockAlertsRequest request, StreamObserver<StockAlertEvent> responseObserver) {
+        ServerCallStreamObserver<StockAlertEvent> alerts = (ServerCallStreamObserver<StockAlertEvent>) responseObserver;
+        Runnable unsubscribe = inventoryService.subscribeToStockAlerts(request.getAfterSequence(), alert -> {
+            // Alerts of different products may be raised concurrently; a call takes one message at a time.
+            synchronized (alerts) {
+                if (!alerts.isCancelled()) {
+                    alerts.onNext(toEvent(alert));
+                }
+            }
+        });
+        alerts.setOnCancelHandler(unsubscribe::run);
+    }
+
+    /**
+     * Import products and stock from a client stream. Records are applied in batches while the
+     * client is still streaming; since a message is only requested from the client after the
+     * previous one has been handled, a fast client is held back by flow control instead of being
+     * buffered. The response reports the counts of every batch.
+     *
+     * @param responseObserver  observer to be called with the counts once the client completes
+     * @return the observer of the client's import chunks
+     */
+    @Override
+    public StreamObserver<ImportStockRequest> importStock(StreamObserver<ImportStockResponse> responseObserver) {
+        StockImporter.Session session = inventoryService.openStockImport();
+        return new StreamObserver<>() {
+            private boolean failed;
+
+            @Override
+            public void onNext(ImportStockRequest request) {
+                if (failed) {
+                    return;
+                }
+                try {
+                    request.getRecordsList().forEach(record -> session.add(toRecord(record)));
+                } catch (RuntimeException e) {
+                    failed = true;
+                    responseObserver.onError(Status.INTERNAL
+                            .withDescription("Import failed: " + e.getMessage())
+                            .asRuntimeException());
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                // The client gave up; the batches applied so far are kept.
+                failed = true;
+            }
+
+            @Override
+            public void onCompleted() {
+                if (failed) {
+                    return;
+                }
+                try {
+                    responseObserver.onNext(toResponse(session.finish()));
+                    responseObserver.onCompleted();
+                } catch (RuntimeException e) {
+                    responseObserver.onError(Status.INTERNAL
+                            .withDescription("Import failed: " + e.getMessage())
+                            .asRuntimeException());
+                }
+            }
+        };
+    }
+
+    private static StockImportRecord toRecord(ImportRecord record) {
+        return new StockImportRecord(record.getProduct(), record.getQuantity(),
+                record.getMode() == ImportRecord.Mode.ADJUST ? StockImportRecord.Mode.ADJUST : StockImportRecord.Mode.SET);
+    }
+
+    private static ImportStockResponse toResponse(StockImporter.Result result) {
+        ImportStockResponse.Builder builder = ImportStockResponse.newBuilder()
+                .setRecords(result.records())
+                .setCreated(result.created())
+                .setUpdated(result.updated())
+                .setAdjusted(result.adjusted())
+                .setRejected(result.rejected());
+        for (StockImporter.BatchResult batch : result.batches()) {
+            builder.addBatches(ImportBatch.newBuilder()
+                    .setBatch(batch.batch())
+                    .setRecords(batch.records())
+                    .setCreated(batch.created())
+                    .setUpdated(batch.updated())
+                    .setAdjusted(batch.adjusted())
+                    .setRejected(batch.rejected()));
+        }
+        return builder.build();
+    }
+
+    private static StockAlertEvent toEvent(StockAlert alert) {
+        return StockAlertEvent.newBuilder()
+                .setSequence(alert.sequence())
+                .setProductId(alert.productId())
+                .setProduct(alert.product())
+                .setStockQuantity(alert.stockQuantity())
+                .setReorderThreshold(alert.reorderThreshold())
+                .setType(alert.type() == StockAlert.Type.LOW_STOCK
+                        ? StockAlertEvent.Type.LOW_STOCK : StockAlertEvent.Type.RESTOCKED)
+                .setTimestamp(alert.timestamp().toEpochMilli())
+                .build();
+    }
+
+    private static StockResponse stockResponse(StockResponse.Status status, boolean available, String message) {
+        return StockResponse.newBuilder()
+                .setStatus(status)
+                .setAvailable(available)
+                .setMessage(message)
+                .build();
+    }
+
+    private StockResponse withProduct(StockResponse outcome, Product product) {
+        Long productId = product.getId();
+        int slot = -1;
+        if (productId != null) {
+            slot = (Long.hashCode(productId) * 31 + outcome.getStatusValue()) & (RECENT_RESPONSES - 1);
+            StockResponse recent = recentResponses.get(slot);
+            if (recent != null && recent.getProductId() == productId && recent.getStatus() == outcome.getStatus()
+                    && recent.getStockQuantity() == product.getStockQuantity()) {
+                return recent;
+            }
+        }
+        StockResponse.Builder builder = StockResponse.newBuilder()
+                .setStatus(outcome.getStatus())
+                .setAvailable(outcome.getAvailable())
+                .setMessage(outcome.getMessage())
+                .setStockQuantity(product.getStockQuantity());
+        if (productId != null) {
+            builder.setProductId(productId);
+        }
+        StockResponse response = builder.build();
+        if (slot >= 0) {
+            recentResponses.set(slot, response);
+        }
+        return response;
+    }
 }
\ No newline at end of file
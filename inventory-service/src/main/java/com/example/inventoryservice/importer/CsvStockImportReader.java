@@ -0,0 +1,110 @@
+package com.example.inventoryservice.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads a stock import from CSV, one record per line: {@code product,quantity[,mode]}, where the
+ * mode is {@code set} (the default) or {@code adjust}. A header line is skipped, and fields may
+ * be quoted with double quotes. The input is read line by line, so it is never held in memory
+ * as a whole.
+ */
+public final class CsvStockImportReader {
+
+    private CsvStockImportReader() {
+    }
+
+    /**
+     * Reads every line of the input into the session; lines that are not valid records are
+     * counted as rejected.
+     *
+     * @param input the CSV input
+     * @param session the import session the records are added to
+     * @throws IOException if the input cannot be read
+     */
+    public static void read(Reader input, StockImporter.Session session) throws IOException {
+        BufferedReader reader = new BufferedReader(input);
+        boolean first = true;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            if (line.isBlank()) {
+                continue;
+            }
+            StockImportRecord record = parse(line);
+            if (record != null) {
+                session.add(record);
+            } else if (!first || !isHeader(line)) {
+                session.reject();
+            }
+            first = false;
+        }
+    }
+
+    /**
+     * Parses one line.
+     *
+     * @return the record, or {@code null} if the line is not a valid record
+     */
+    static StockImportRecord parse(String line) {
+        List<String> fields = split(line);
+        if (fields == null || fields.size() < 2 || fields.size() > 3) {
+            return null;
+        }
+        StockImportRecord.Mode mode = StockImportRecord.Mode.SET;
+        if (fields.size() == 3 && !fields.get(2).isBlank()) {
+            try {
+                mode = StockImportRecord.Mode.valueOf(fields.get(2).trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        try {
+            return new StockImportRecord(fields.get(0).trim(), Integer.parseInt(fields.get(1).trim()), mode);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean isHeader(String line) {
+        return line.trim().toLowerCase(Locale.ROOT).startsWith("product");
+    }
+
+    /**
+     * Splits a line into fields, unquoting quoted fields.
+     *
+     * @return the fields, or {@code null} if a quote is not closed
+     */
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
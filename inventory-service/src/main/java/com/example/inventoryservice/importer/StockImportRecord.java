@@ -0,0 +1,23 @@
+package com.example.inventoryservice.importer;
+
+/**
+ * One line of a stock import.
+ *
+ * @param product the name of the product
+ * @param quantity the new stock with {@link Mode#SET}, or the change of stock with
+ *                 {@link Mode#ADJUST}
+ * @param mode how the quantity is applied
+ */
+public record StockImportRecord(String product, int quantity, Mode mode) {
+
+    public enum Mode {
+        /**
+         * Sets the stock of the product, creating the product if it does not exist.
+         */
+        SET,
+        /**
+         * Adds the quantity, which may be negative, to the stock of an existing product.
+         */
+        ADJUST
+    }
+}
@@ -0,0 +1,359 @@
+package com.example.inventoryservice.importer;
+
+import com.example.inventoryservice.service.ProductSearchIndex;
+import com.example.inventoryservice.service.ResourceVersion;
+import com.example.inventoryservice.service.StockAlertEngine;
+import com.example.inventoryservice.service.StockJournal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Applies bulk product upserts and stock adjustments, e.g. when loading a catalogue.
+ * <p>
+ * Records are consumed through a {@link Session} and applied in batches of a fixed size, so
+ * memory use does not grow with the size of the input. Each batch runs in one transaction as a
+ * handful of JDBC batch statements: the existing products of the batch are locked in name
+ * order, like {@code InventoryService#reserveStock} does, then their stock is set or adjusted
+ * and the missing products are inserted. Records for the same product within a batch are
+ * combined first. With a {@link StockJournal}, stock changes of existing products are journaled
+ * instead of written to the products table.
+ * <p>
+ * Batches are committed as they fill up, so an import that fails halfway keeps the batches
+ * applied before the failure. Created products are added to the {@link ProductSearchIndex}
+ * and the version of the product list is incremented after each batch that changed products.
+ * <p>
+ * Upserts by name rely on the unique index on product names, which {@link #createNameIndex()}
+ * creates on startup. A database that still holds several products under one name must be
+ * migrated with {@code db/merge-duplicate-products.sql} first; until then imports fail.
+ */
+public class StockImporter {
+    private static final Logger log = LoggerFactory.getLogger(StockImporter.class);
+    private static final int MAX_NAME_LENGTH = 255;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionOperations transactionOperations;
+    private final StockJournal stockJournal;
+    private final StockAlertEngine stockAlerts;
+    private final ProductSearchIndex productSearchIndex;
+    private final ResourceVersion productsVersion;
+    private final int batchSize;
+    private final Counter created;
+    private final Counter updated;
+    private final Counter adjusted;
+    private final Counter rejected;
+    private volatile boolean uniqueNames = true;
+
+    public StockImporter(JdbcTemplate jdbcTemplate, TransactionOperations transactionOperations,
+                         @Nullable StockJournal stockJournal, StockAlertEngine stockAlerts,
+                         @Nullable ProductSearchIndex productSearchIndex, ResourceVersion productsVersion,
+                         int batchSize, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionOperations = transactionOperations;
+        this.stockJournal = stockJournal;
+        this.stockAlerts = stockAlerts;
+        this.productSearchIndex = productSearchIndex;
+        this.productsVersion = productsVersion;
+        this.batchSize = batchSize;
+        this.created = meterRegistry.counter("inventory.import.products", "result", "created");
+        this.updated = meterRegistry.counter("inventory.import.products", "result", "updated");
+        this.adjusted = meterRegistry.counter("inventory.import.products", "result", "adjusted");
+        this.rejected = meterRegistry.counter("inventory.import.products", "result", "rejected");
+    }
+
+    /**
+     * Creates the unique index on product names, unless products are still stored under the
+     * same name. Imports are refused in that case, and the duplicates logged as an error; the
+     * rest of the service runs as before.
+     */
+    public void createNameIndex() {
+        List<String> duplicates = jdbcTemplate.queryForList(
+                "SELECT name FROM products GROUP BY name HAVING COUNT(*) > 1 ORDER BY name", String.class);
+        if (duplicates.isEmpty()) {
+            jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS products_name_uidx ON products (name)");
+        } else {
+            log.error("Products {} are stored more than once; stock imports are refused until they are merged "
+                    + "with db/merge-duplicate-products.sql", duplicates);
+        }
+        uniqueNames = duplicates.isEmpty();
+    }
+
+    /**
+     * Starts an import.
+     *
+     * @return a session that the records of the import are added to
+     */
+    public Session open() {
+        return new Session();
+    }
+
+    private BatchResult apply(int batch, int records, int invalid, SortedMap<String, Change> changes) {
+        if (!uniqueNames) {
+            throw new IllegalStateException("Product names are not unique; merge the duplicate products first");
+        }
+        int[] counts = stockJournal != null
+                ? transactionOperations.execute(status -> applyToJournal(changes))
+                : transactionOperations.execute(status -> applyToTable(changes));
+        BatchResult result = new BatchResult(batch, records, counts[0], counts[1], counts[2], invalid + counts[3]);
+        created.increment(result.created());
+        updated.increment(result.updated());
+        adjusted.increment(result.adjusted());
+        rejected.increment(result.rejected());
+        if (result.created() + result.updated() + result.adjusted() > 0) {
+            productsVersion.increment();
+        }
+        if (result.created() > 0 && productSearchIndex != null) {
+            productSearchIndex.refresh();
+        }
+        changes.keySet().forEach(productName -> {
+            Long watchedId = stockAlerts.getWatchedId(productName);
+            if (watchedId != null) {
+                stockAlerts.evaluate(watchedId, this::currentStock);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Applies a batch to the products table.
+     *
+     * @return the number of created, updated, adjusted and rejected products
+     */
+    private int[] applyToTable(SortedMap<String, Change> changes) {
+        Map<String, Long> existing = lockExisting(changes);
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> sets = new ArrayList<>();
+        List<Object[]> adjustments = new ArrayList<>();
+        int rejectedCount = 0;
+        for (Map.Entry<String, Change> entry : changes.entrySet()) {
+            Change change = entry.getValue();
+            if (!existing.containsKey(entry.getKey())) {
+                if (change.set()) {
+                    inserts.add(new Object[]{entry.getKey(), change.quantity()});
+                } else {
+                    rejectedCount++;
+                }
+            } else if (change.set()) {
+                sets.add(new Object[]{change.quantity(), entry.getKey()});
+            } else {
+                adjustments.add(new Object[]{change.quantity(), entry.getKey(), change.quantity()});
+            }
+        }
+        jdbcTemplate.batchUpdate("UPDATE products SET stock_quantity = ?, version = version + 1 WHERE name = ?", sets);
+        int adjustedCount = 0;
+        for (int count : jdbcTemplate.batchUpdate("UPDATE products SET stock_quantity = stock_quantity + ?, "
+                + "version = version + 1 WHERE name = ? AND stock_quantity + ? >= 0", adjustments)) {
+            if (count == 0) {
+                rejectedCount++;
+            } else {
+                adjustedCount++;
+            }
+        }
+        insert(inserts);
+        return new int[]{inserts.size(), sets.size(), adjustedCount, rejectedCount};
+    }
+
+    /**
+     * Applies a batch to the stock journal; new products are inserted into the products table
+     * with their stock, which the journal picks up when they are first used.
+     *
+     * @return the number of created, updated, adjusted and rejected products
+     */
+    private int[] applyToJournal(SortedMap<String, Change> changes) {
+        Map<String, Long> existing = findExisting(changes);
+        List<Object[]> inserts = new ArrayList<>();
+        Map<Long, Integer> targets = new HashMap<>();
+        Map<Long, Integer> deltas = new HashMap<>();
+        int rejectedCount = 0;
+        for (Map.Entry<String, Change> entry : changes.entrySet()) {
+            Change change = entry.getValue();
+            Long productId = existing.get(entry.getKey());
+            if (productId == null) {
+                if (change.set()) {
+                    inserts.add(new Object[]{entry.getKey(), change.quantity()});
+                } else {
+                    rejectedCount++;
+                }
+            } else if (change.set()) {
+                targets.put(productId, change.quantity());
+            } else {
+                deltas.put(productId, change.quantity());
+            }
+        }
+        insert(inserts);
+        List<Long> refused = targets.isEmpty() && deltas.isEmpty() ? List.of() : stockJournal.adjust(targets, deltas, null);
+        int refusedTargets = (int) refused.stream().filter(targets::containsKey).count();
+        rejectedCount += refused.size();
+        return new int[]{inserts.size(), targets.size() - refusedTargets,
+                deltas.size() - (refused.size() - refusedTargets), rejectedCount};
+    }
+
+    private Map<String, Long> lockExisting(SortedMap<String, Change> changes) {
+        Map<String, Long> existing = new HashMap<>();
+        namedJdbcTemplate.query("SELECT id, name FROM products WHERE name IN (:names) ORDER BY name FOR UPDATE",
+                Map.of("names", changes.keySet()), row -> {
+                    existing.put(row.getString(2), row.getLong(1));
+                });
+        return existing;
+    }
+
+    private Map<String, Long> findExisting(SortedMap<String, Change> changes) {
+        Map<String, Long> existing = new HashMap<>();
+        namedJdbcTemplate.query("SELECT id, name FROM products WHERE name IN (:names)",
+                Map.of("names", changes.keySet()), row -> {
+                    existing.put(row.getString(2), row.getLong(1));
+                });
+        return existing;
+    }
+
+    private void insert(List<Object[]> inserts) {
+        jdbcTemplate.batchUpdate("INSERT INTO products (name, stock_quantity, version) VALUES (?, ?, 0)", inserts);
+    }
+
+    private Integer currentStock(long productId) {
+        if (stockJournal != null) {
+            return stockJournal.getStock(productId);
+        }
+        List<Integer> found = jdbcTemplate.queryForList(
+                "SELECT stock_quantity FROM products WHERE id = ?", Integer.class, productId);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    /**
+     * The records of one import, applied whenever a batch is full. A session is used by one
+     * thread at a time.
+     */
+    public final class Session {
+        private final SortedMap<String, Change> changes = new TreeMap<>();
+        private final List<BatchResult> batches = new ArrayList<>();
+        private int records;
+        private int invalid;
+
+        private Session() {
+        }
+
+        /**
+         * Adds a record to the current batch, applying the batch if it is full.
+         *
+         * @param record the record
+         * @throws RuntimeException if the batch cannot be applied; the import must be abandoned
+         */
+        public void add(StockImportRecord record) {
+            records++;
+            String product = record.product();
+            if (product == null || product.isBlank() || product.length() > MAX_NAME_LENGTH
+                    || (record.mode() == StockImportRecord.Mode.SET && record.quantity() < 0)) {
+                invalid++;
+            } else {
+                Change change = new Change(record.mode() == StockImportRecord.Mode.SET, record.quantity());
+                changes.merge(product, change, Change::then);
+            }
+            if (records == batchSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Counts an input line that could not be parsed as a record in the current batch.
+         */
+        public void reject() {
+            records++;
+            invalid++;
+            if (records == batchSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Applies the last batch and ends the import.
+         *
+         * @return the counts of the import and of each of its batches
+         * @throws RuntimeException if the batch cannot be applied
+         */
+        public Result finish() {
+            if (records > 0) {
+                flush();
+            }
+            return Result.of(batches);
+        }
+
+        private void flush() {
+            int batch = batches.size() + 1;
+            // A combined stock that ends up negative can no longer be applied.
+            changes.values().removeIf(change -> {
+                if (change.set() && change.quantity() < 0) {
+                    invalid++;
+                    return true;
+                }
+                return false;
+            });
+            try {
+                batches.add(changes.isEmpty()
+                        ? new BatchResult(batch, records, 0, 0, 0, invalid)
+                        : apply(batch, records, invalid, changes));
+            } catch (RuntimeException e) {
+                log.warn("Stock import failed in batch {} after {} applied batches: {}",
+                        batch, batches.size(), e.getMessage());
+                throw e;
+            } finally {
+                changes.clear();
+                records = 0;
+                invalid = 0;
+            }
+        }
+    }
+
+    /**
+     * The stock change of one product within a batch.
+     */
+    private record Change(boolean set, int quantity) {
+
+        Change then(Change next) {
+            return next.set ? next : new Change(set, quantity + next.quantity);
+        }
+    }
+
+    /**
+     * The counts of one batch of an import.
+     *
+     * @param batch the number of the batch, starting at 1
+     * @param records the number of records in the batch
+     * @param created the number of products created
+     * @param updated the number of existing products whose stock was set
+     * @param adjusted the number of existing products whose stock was adjusted
+     * @param rejected the number of records or products rejected: malformed records, adjustments
+     *                 of unknown products and adjustments that would make the stock negative
+     */
+    public record BatchResult(int batch, int records, int created, int updated, int adjusted, int rejected) {
+    }
+
+    /**
+     * The counts of a whole import.
+     */
+    public record Result(int records, int created, int updated, int adjusted, int rejected,
+                         List<BatchResult> batches) {
+
+        static Result of(List<BatchResult> batches) {
+            return new Result(batches.stream().mapToInt(BatchResult::records).sum(),
+                    batches.stream().mapToInt(BatchResult::created).sum(),
+                    batches.stream().mapToInt(BatchResult::updated).sum(),
+                    batches.stream().mapToInt(BatchResult::adjusted).sum(),
+                    batches.stream().mapToInt(BatchResult::rejected).sum(),
+                    List.copyOf(batches));
+        }
+    }
+}
@@ -1,7 +1,17 @@
 package com.example.inventoryservice.repository;
 
 import com.example.inventoryservice.entity.Product;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
     /**
@@ -11,4 +21,74 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
      * @return the product with the given name, or {@code null} if no such product exists
      */
     Product findByName(String name);
+
+    /**
+     * Find a product by name and lock its row for the rest of the current transaction
+     * ({@code SELECT ... FOR UPDATE SKIP LOCKED}). Must be called inside a transaction.
+     *
+     * @param name the name of the product
+     * @return the locked product, or {@code null} if no such product exists or its row
+     *         is currently locked by another transaction
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select p from Product p where p.name = :name")
+    Product findByNameForUpdateSkipLocked(@Param("name") String name);
+
+    /**
+     * Find a product by id and lock its row for the rest of the current transaction
+     * ({@code SELECT ... FOR UPDATE SKIP LOCKED}). Must be called inside a transaction.
+     *
+     * @param id the id of the product
+     * @return the locked product, or {@code null} if no such product exists or its row
+     *         is currently locked by another transaction
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select p from Product p where p.id = :id")
+    Product findByIdForUpdateSkipLocked(@Param("id") Long id);
+
+    /**
+     * Find the products with the given names and lock their rows for the rest of the current
+     * transaction ({@code SELECT ... FOR UPDATE}). Rows are returned, and therefore locked, in
+     * name order so that concurrent multi-product reservations cannot deadlock each other.
+     * Must be called inside a transaction.
+     *
+     * @param names the names of the products
+     * @return the locked products ordered by name; names without a product are omitted
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Product p where p.name in :names order by p.name")
+    List<Product> findAllByNameInForUpdate(@Param("names") Collection<String> names);
+
+    /**
+     * Find the products with the given ids and lock their rows for the rest of the current
+     * transaction ({@code SELECT ... FOR UPDATE}), in id order so that concurrent
+     * multi-product reservations cannot deadlock each other. Must be called inside a transaction.
+     *
+     * @param ids the ids of the products
+     * @return the locked products ordered by id; ids without a product are omitted
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Product p where p.id in :ids order by p.id")
+    List<Product> findAllByIdInForUpdate(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Find the products that have a reorder threshold.
+     *
+     * @return the watched products
+     */
+    List<Product> findByReorderThresholdIsNotNull();
+
+    /**
+     * Set or clear the reorder threshold of a product without touching its stock or version.
+     * Must be called inside a transaction.
+     *
+     * @param id the id of the product
+     * @param reorderThreshold the new threshold, or {@code null} to stop watching the product
+     * @return the number of updated products, 0 if no such product exists
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update Product p set p.reorderThreshold = :reorderThreshold where p.id = :id")
+    int updateReorderThreshold(@Param("id") Long id, @Param("reorderThreshold") Integer reorderThreshold);
 }
\ No newline at end of file
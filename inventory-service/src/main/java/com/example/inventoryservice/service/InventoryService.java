@@ -1,16 +1,99 @@
 package com.example.inventoryservice.service;
 
+import com.example.inventoryservice.config.StockAlertProperties;
+import com.example.inventoryservice.config.StockUpdateProperties;
 import com.example.inventoryservice.entity.Product;
+import com.example.inventoryservice.importer.StockImporter;
 import com.example.inventoryservice.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Service
 public class InventoryService {
     private final ProductRepository productRepository;
+    private final StockUpdateStrategy stockUpdateStrategy;
+    private final StockJournal stockJournal;
+    private final StockReservations stockReservations;
+    private final StockAlertEngine stockAlerts;
+    private final StockImporter stockImporter;
+    private final ProductSearchIndex productSearchIndex;
+    private final LocationStock locationStock;
+    private final ResourceVersion productsVersion;
 
     public InventoryService(ProductRepository productRepository) {
+        this(productRepository, new OptimisticStockUpdateStrategy(productRepository,
+                new StockUpdateProperties(), new SimpleMeterRegistry()));
+    }
+
+    public InventoryService(ProductRepository productRepository, StockUpdateStrategy stockUpdateStrategy) {
+        this(productRepository, stockUpdateStrategy, null, null,
+                new StockAlertEngine(new StockAlertProperties(), new SimpleMeterRegistry()), null, null, null,
+                new ResourceVersion());
+    }
+
+    /**
+     * Creates the service. With a {@link StockJournal}, stock is read from the journal's
+     * projection and reservations are journaled instead of locking product rows.
+     *
+     * @param productRepository the product repository
+     * @param stockUpdateStrategy the strategy for single-product decrements
+     * @param stockJournal the stock journal, or {@code null} to keep stock in the products table
+     * @param stockReservations where stock taken for orders is recorded, or {@code null} if it
+     *                          cannot be released
+     * @param stockAlerts the engine that raises alerts when stock crosses a reorder threshold
+     * @param stockImporter the bulk stock importer, or {@code null} if imports are not supported
+     * @param productSearchIndex the product search index, or {@code null} if search is not supported
+     * @param locationStock the stock per warehouse, or {@code null} if stock is not kept per
+     *                      warehouse
+     * @param productsVersion the version of the product list, incremented on every change
+     */
+    @Autowired
+    public InventoryService(ProductRepository productRepository, StockUpdateStrategy stockUpdateStrategy,
+                            @Nullable StockJournal stockJournal, @Nullable StockReservations stockReservations,
+                            StockAlertEngine stockAlerts,
+                            @Nullable StockImporter stockImporter, @Nullable ProductSearchIndex productSearchIndex,
+                            @Nullable LocationStock locationStock, ResourceVersion productsVersion) {
         this.productRepository = productRepository;
+        this.stockUpdateStrategy = stockUpdateStrategy;
+        this.stockJournal = stockJournal;
+        this.stockReservations = stockReservations;
+        this.stockAlerts = stockAlerts;
+        this.stockImporter = stockImporter;
+        this.productSearchIndex = productSearchIndex;
+        this.locationStock = locationStock;
+        this.productsVersion = productsVersion;
+    }
+
+    /**
+     * Starts watching the products that have a reorder threshold, raising alerts for those that
+     * are already low on stock.
+     */
+    @PostConstruct
+    public void watchReorderThresholds() {
+        for (Product product : productRepository.findByReorderThresholdIsNotNull()) {
+            stockAlerts.watch(product.getId(), product.getName(), product.getReorderThreshold());
+            stockAlerts.evaluate(product.getId(), this::currentStock);
+        }
     }
 
     /**
@@ -21,13 +104,39 @@ public class InventoryService {
      * @return {@code true} if the product exists, and the stock quantity is enough,
      *         {@code false} otherwise
      */
+    @Transactional(readOnly = true)
     public boolean checkStock(String productName, int quantity) {
+        if (stockJournal != null) {
+            Long productId = stockJournal.getProductId(productName);
+            return productId != null && checkStock(productId.longValue(), quantity);
+        }
         Product product = productRepository.findByName(productName);
         return product != null && product.getStockQuantity() >= quantity;
     }
 
+    /**
+     * Checks if the specified quantity of a product is available in stock, looking the
+     * product up by primary key.
+     *
+     * @param productId the id of the product to check
+     * @param quantity the quantity to check for availability
+     * @return {@code true} if the product exists, and the stock quantity is enough,
+     *         {@code false} otherwise
+     */
+    @Transactional(readOnly = true)
+    public boolean checkStock(long productId, int quantity) {
+        if (stockJournal != null) {
+            Integer stock = stockJournal.getStock(productId);
+            return stock != null && stock >= quantity;
+        }
+        Product product = getProductById(productId);
+        return product != null && product.getStockQuantity() >= quantity;
+    }
+
     /**
      * Updates the stock quantity of a specified product by reducing it by the given amount.
+     * Concurrent updates of the same product are serialized by the configured
+     * {@link StockUpdateStrategy}, so stock is never oversold.
      *
      * @param productName the name of the product to update
      * @param quantity the amount to reduce the product's stock quantity by
@@ -35,13 +144,601 @@ public class InventoryService {
      *         does not exist or there is not enough stock to fulfill the update
      */
     public boolean updateStock(String productName, int quantity) {
-        Product product = productRepository.findByName(productName);
-        if (product != null && product.getStockQuantity() >= quantity) {
-            product.setStockQuantity(product.getStockQuantity() - quantity);
-            productRepository.save(product);
-            return true;
+        return updateStock(productName, quantity, null);
+    }
+
+    /**
+     * Updates the stock quantity of a specified product by reducing it by the given amount, for
+     * an order. The stock taken can be put back with {@link #releaseStock(Collection)}.
+     *
+     * @param productName the name of the product to update
+     * @param quantity the amount to reduce the product's stock quantity by
+     * @param orderRef the order the stock is taken for, or {@code null}
+     * @return {@code true} if the stock was successfully updated, {@code false} if the product
+     *         does not exist, there is not enough stock to fulfill the update, or the order has
+     *         taken stock or been released before
+     */
+    public boolean updateStock(String productName, int quantity, String orderRef) {
+        boolean updated = stockUpdateStrategy.decrement(productName, quantity, orderRef);
+        if (updated) {
+            productsVersion.increment();
+        }
+        Long watchedId = stockAlerts.getWatchedId(productName);
+        if (updated && watchedId != null) {
+            stockAlerts.evaluate(watchedId, this::currentStock);
+        }
+        return updated;
+    }
+
+    /**
+     * Updates the stock quantity of the product with the given id by reducing it by the given
+     * amount, looking the product up by primary key.
+     *
+     * @param productId the id of the product to update
+     * @param quantity the amount to reduce the product's stock quantity by
+     * @return {@code true} if the stock was successfully updated, {@code false} if the product
+     *         does not exist or there is not enough stock to fulfill the update
+     */
+    public boolean updateStock(long productId, int quantity) {
+        return updateStock(productId, quantity, null);
+    }
+
+    /**
+     * Updates the stock quantity of the product with the given id by reducing it by the given
+     * amount, for an order. The stock taken can be put back with {@link #releaseStock(Collection)}.
+     *
+     * @param productId the id of the product to update
+     * @param quantity the amount to reduce the product's stock quantity by
+     * @param orderRef the order the stock is taken for, or {@code null}
+     * @return {@code true} if the stock was successfully updated, {@code false} if the product
+     *         does not exist, there is not enough stock to fulfill the update, or the order has
+     *         taken stock or been released before
+     */
+    public boolean updateStock(long productId, int quantity, String orderRef) {
+        boolean updated = stockUpdateStrategy.decrementById(productId, quantity, orderRef);
+        if (updated) {
+            productsVersion.increment();
+            stockAlerts.evaluate(productId, this::currentStock);
+        }
+        return updated;
+    }
+
+    /**
+     * Reserves stock for several products at once: either every product has enough stock and
+     * all of them are decremented, or nothing is changed.
+     * <p>
+     * Runs in a single transaction that locks the product rows in name order, so concurrent
+     * reservations over overlapping products cannot deadlock.
+     *
+     * @param quantities the quantity to reserve per product name; must not be empty
+     * @return the names of the products that do not exist or lack stock, in name order;
+     *         empty if the reservation succeeded
+     */
+    @Transactional
+    public List<String> reserveStock(Map<String, Integer> quantities) {
+        return reserveStock(quantities, null);
+    }
+
+    /**
+     * Reserves stock for several products at once for an order, like {@link #reserveStock(Map)}.
+     * The stock taken can be put back with {@link #releaseStock(Collection)}.
+     *
+     * @param quantities the quantity to reserve per product name; must not be empty
+     * @param orderRef the order the stock is reserved for, or {@code null}
+     * @return the names of the products that do not exist or lack stock, in name order;
+     *         empty if the reservation succeeded
+     * @throws org.springframework.dao.DuplicateKeyException if the order has taken stock or been
+     *         released before
+     */
+    @Transactional
+    public List<String> reserveStock(Map<String, Integer> quantities, String orderRef) {
+        if (stockJournal != null) {
+            return reserveInJournal(quantities, orderRef);
+        }
+        openReservation(orderRef);
+        return reserve(new TreeMap<>(quantities),
+                productRepository.findAllByNameInForUpdate(quantities.keySet()), Product::getName, orderRef);
+    }
+
+    /**
+     * Reserves stock for several products, identified by id, at once: either every product has
+     * enough stock and all of them are decremented, or nothing is changed.
+     * <p>
+     * Runs in a single transaction that locks the product rows in id order, so concurrent
+     * reservations over overlapping products cannot deadlock.
+     *
+     * @param quantities the quantity to reserve per product id; must not be empty
+     * @return the ids of the products that do not exist or lack stock, in id order;
+     *         empty if the reservation succeeded
+     */
+    @Transactional
+    public List<Long> reserveStockByIds(Map<Long, Integer> quantities) {
+        return reserveStockByIds(quantities, null);
+    }
+
+    /**
+     * Reserves stock for several products, identified by id, at once for an order, like
+     * {@link #reserveStockByIds(Map)}. The stock taken can be put back with
+     * {@link #releaseStock(Collection)}.
+     *
+     * @param quantities the quantity to reserve per product id; must not be empty
+     * @param orderRef the order the stock is reserved for, or {@code null}
+     * @return the ids of the products that do not exist or lack stock, in id order;
+     *         empty if the reservation succeeded
+     * @throws org.springframework.dao.DuplicateKeyException if the order has taken stock or been
+     *         released before
+     */
+    @Transactional
+    public List<Long> reserveStockByIds(Map<Long, Integer> quantities, String orderRef) {
+        if (stockJournal != null) {
+            List<Long> unavailable = stockJournal.reserve(quantities, orderRef);
+            if (unavailable.isEmpty()) {
+                productsChanged(quantities.keySet());
+            }
+            return unavailable;
+        }
+        openReservation(orderRef);
+        return reserve(new TreeMap<>(quantities),
+                productRepository.findAllByIdInForUpdate(quantities.keySet()), Product::getId, orderRef);
+    }
+
+    /**
+     * Puts back the stock taken for orders that will not be completed, e.g. because the order
+     * service could not store them. Each order is released once: releasing it again, or
+     * releasing an order that has not taken stock, changes nothing, and an order released before
+     * it takes stock is refused the stock.
+     * <p>
+     * Runs in a single transaction that locks the reservations in reference order, then the
+     * product rows in id order, then the warehouse stock.
+     *
+     * @param orderRefs the references of the orders to release
+     * @return the number of orders whose stock was put back
+     * @throws IllegalStateException if stock taken for orders is not recorded, as with the
+     *         stock journal
+     */
+    @Transactional
+    public int releaseStock(Collection<String> orderRefs) {
+        if (stockJournal != null || stockReservations == null) {
+            throw new IllegalStateException("Stock release is not supported by this stock update strategy");
+        }
+        Map<Long, Integer> quantities = new HashMap<>();
+        List<String> released = new ArrayList<>();
+        for (String orderRef : new TreeSet<>(orderRefs)) {
+            Map<Long, Integer> taken = stockReservations.release(orderRef);
+            if (!taken.isEmpty()) {
+                released.add(orderRef);
+                taken.forEach((productId, quantity) -> quantities.merge(productId, quantity, Integer::sum));
+            }
+        }
+        List<Long> unknown = quantities.isEmpty() ? List.of() : restockByIds(quantities);
+        if (!unknown.isEmpty()) {
+            // Skips products deleted since the stock was taken.
+            unknown.forEach(quantities::remove);
+            if (!quantities.isEmpty()) {
+                restockByIds(quantities);
+            }
+        }
+        if (locationStock != null) {
+            // After the product rows, in the lock order of allocations.
+            for (String orderRef : released) {
+                locationStock.release(orderRef).forEach((productId, allocations) ->
+                        afterCommit(() -> locationStock.putBack(productId, allocations)));
+            }
         }
-        return false;
+        return released.size();
+    }
+
+    /**
+     * Streams the stock that orders took per product in a time window, in product id order, for
+     * reconciliation against the orders. Only stock taken under an order reference is counted,
+     * less the stock of released orders; the rows are read from a cursor, so memory does not
+     * grow with the number of products.
+     *
+     * @param from the start of the window, inclusive
+     * @param to the end of the window, exclusive
+     * @param fromProductId the lowest product id, inclusive
+     * @param toProductId the highest product id, exclusive
+     * @param fetchSize the number of rows fetched from the database at a time
+     * @param consumer called with each product id and the quantity taken
+     * @throws IllegalStateException if stock taken for orders is not recorded
+     */
+    @Transactional(readOnly = true)
+    public void streamOrderDecrements(Instant from, Instant to, long fromProductId, long toProductId, int fetchSize,
+                                      BiConsumer<Long, Long> consumer) {
+        if (stockJournal != null) {
+            stockJournal.sumOrderDecrements(from, to, fromProductId, toProductId, fetchSize, consumer);
+        } else if (stockReservations != null) {
+            stockReservations.sumTaken(from, to, fromProductId, toProductId, fetchSize, consumer);
+        } else {
+            throw new IllegalStateException("Stock taken for orders is not recorded by this stock update strategy");
+        }
+    }
+
+    /**
+     * Takes stock of a product from the warehouses picked by the allocation policy, together
+     * with the stock of the product itself: either both are taken or neither is.
+     *
+     * @param productId the id of the product
+     * @param quantity the quantity to take
+     * @param destination where the stock is shipped to, or {@code null} if unknown
+     * @param split whether the quantity may be taken from several warehouses
+     * @param orderRef the order the stock is taken for, or {@code null}
+     * @return the quantity taken per warehouse; empty if the warehouses or the product lack
+     *         stock
+     * @throws IllegalStateException if stock is not kept per warehouse, or kept in the stock
+     *         journal
+     * @throws org.springframework.dao.DuplicateKeyException if the order has taken stock or been
+     *         released before
+     */
+    @Transactional
+    public List<LocationStock.Allocation> allocateStock(long productId, int quantity,
+                                                        @Nullable LocationStock.Destination destination, boolean split,
+                                                        String orderRef) {
+        requireLocationStock();
+        List<LocationStock.Allocation> allocations = locationStock.allocate(productId, quantity, destination, split);
+        if (allocations.isEmpty()) {
+            return allocations;
+        }
+        afterRollback(() -> locationStock.putBack(productId, allocations));
+        if (!reserveStockByIds(Map.of(productId, quantity), orderRef).isEmpty()) {
+            locationStock.putBack(productId, allocations);
+            return List.of();
+        }
+        locationStock.record(productId, allocations, orderRef);
+        return allocations;
+    }
+
+    /**
+     * Sets the stock of a product in a warehouse, and changes the stock of the product by the
+     * same amount.
+     *
+     * @param productId the id of the product
+     * @param location the warehouse code
+     * @param quantity the new stock in the warehouse
+     * @return the stock of the product per warehouse, or {@code null} if the product does not
+     *         exist
+     * @throws IllegalArgumentException if the warehouse is not configured
+     * @throws IllegalStateException if stock is not kept per warehouse, or if the product or the
+     *         warehouse does not have the stock a decrease removes
+     */
+    @Transactional
+    public Map<String, Integer> setLocationStock(long productId, String location, int quantity) {
+        requireLocationStock();
+        if (productRepository.findAllByIdInForUpdate(List.of(productId)).isEmpty()) {
+            return null;
+        }
+        int delta = locationStock.set(productId, location, quantity);
+        List<LocationStock.Allocation> change = List.of(new LocationStock.Allocation(location, Math.abs(delta), 0));
+        if (delta > 0) {
+            afterCommit(() -> locationStock.putBack(productId, change));
+            restockByIds(Map.of(productId, delta));
+        } else if (delta < 0) {
+            afterRollback(() -> locationStock.putBack(productId, change));
+            if (!reserveStockByIds(Map.of(productId, -delta)).isEmpty()) {
+                throw new IllegalStateException("Product " + productId + " does not have the stock to remove");
+            }
+        }
+        // An increase shows in memory only once it commits.
+        Map<String, Integer> stock = locationStock.getStock(productId);
+        stock.put(location, quantity);
+        return stock;
+    }
+
+    /**
+     * Returns the stock of a product in every warehouse.
+     *
+     * @param productId the id of the product
+     * @return the stock per warehouse code
+     * @throws IllegalStateException if stock is not kept per warehouse
+     */
+    public Map<String, Integer> getLocationStock(long productId) {
+        requireLocationStock();
+        return locationStock.getStock(productId);
+    }
+
+    private void requireLocationStock() {
+        if (locationStock == null || stockJournal != null) {
+            throw new IllegalStateException("Stock is not kept per warehouse");
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static void afterRollback(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        action.run();
+                    }
+                }
+            });
+        }
+    }
+
+    private void openReservation(String orderRef) {
+        if (orderRef != null && stockReservations != null) {
+            stockReservations.open(orderRef);
+        }
+    }
+
+    private <K> List<K> reserve(SortedMap<K, Integer> requested, List<Product> lockedProducts,
+                                Function<Product, K> key, String orderRef) {
+        Map<K, Product> locked = new HashMap<>();
+        for (Product product : lockedProducts) {
+            locked.put(key.apply(product), product);
+        }
+
+        List<K> unavailable = new ArrayList<>();
+        requested.forEach((productKey, quantity) -> {
+            Product product = locked.get(productKey);
+            if (product == null || product.getStockQuantity() < quantity) {
+                unavailable.add(productKey);
+            }
+        });
+        if (!unavailable.isEmpty()) {
+            if (orderRef != null && stockReservations != null) {
+                stockReservations.cancel(orderRef);
+            }
+            return unavailable;
+        }
+
+        locked.values().forEach(product ->
+                product.setStockQuantity(product.getStockQuantity() - requested.get(key.apply(product))));
+        productRepository.saveAll(locked.values());
+        if (orderRef != null && stockReservations != null) {
+            Map<Long, Integer> taken = new HashMap<>();
+            locked.values().forEach(product -> taken.put(product.getId(), requested.get(key.apply(product))));
+            stockReservations.add(orderRef, taken);
+        }
+        productsChanged(lockedProducts.stream().map(Product::getId).toList());
+        return unavailable;
+    }
+
+    /**
+     * Adds stock to several products at once, for example when a delivery arrives: either every
+     * product exists and all of them are incremented, or nothing is changed.
+     * <p>
+     * Runs in a single transaction that locks the product rows in name order, like
+     * {@link #reserveStock(Map)}.
+     *
+     * @param quantities the quantity to add per product name; must not be empty
+     * @return the names of the products that do not exist, in name order; empty if the stock
+     *         was added
+     */
+    @Transactional
+    public List<String> restock(Map<String, Integer> quantities) {
+        if (stockJournal != null) {
+            return restockInJournal(quantities);
+        }
+        return restock(new TreeMap<>(quantities),
+                productRepository.findAllByNameInForUpdate(quantities.keySet()), Product::getName);
+    }
+
+    /**
+     * Adds stock to several products, identified by id, at once: either every product exists
+     * and all of them are incremented, or nothing is changed.
+     *
+     * @param quantities the quantity to add per product id; must not be empty
+     * @return the ids of the products that do not exist, in id order; empty if the stock was added
+     */
+    @Transactional
+    public List<Long> restockByIds(Map<Long, Integer> quantities) {
+        if (stockJournal != null) {
+            List<Long> unknown = stockJournal.restock(quantities, null);
+            if (unknown.isEmpty()) {
+                productsChanged(quantities.keySet());
+            }
+            return unknown;
+        }
+        return restock(new TreeMap<>(quantities),
+                productRepository.findAllByIdInForUpdate(quantities.keySet()), Product::getId);
+    }
+
+    private <K> List<K> restock(SortedMap<K, Integer> requested, List<Product> lockedProducts,
+                                Function<Product, K> key) {
+        Map<K, Product> locked = new HashMap<>();
+        for (Product product : lockedProducts) {
+            locked.put(key.apply(product), product);
+        }
+        List<K> unknown = new ArrayList<>();
+        requested.keySet().forEach(productKey -> {
+            if (!locked.containsKey(productKey)) {
+                unknown.add(productKey);
+            }
+        });
+        if (!unknown.isEmpty()) {
+            return unknown;
+        }
+
+        locked.values().forEach(product ->
+                product.setStockQuantity(product.getStockQuantity() + requested.get(key.apply(product))));
+        productRepository.saveAll(locked.values());
+        productsChanged(lockedProducts.stream().map(Product::getId).toList());
+        return unknown;
+    }
+
+    private List<String> restockInJournal(Map<String, Integer> quantities) {
+        Map<Long, Integer> byId = new HashMap<>();
+        Map<Long, String> names = new HashMap<>();
+        SortedSet<String> unknown = new TreeSet<>();
+        quantities.forEach((productName, quantity) -> {
+            Long productId = stockJournal.getProductId(productName);
+            if (productId == null) {
+                unknown.add(productName);
+            } else {
+                byId.put(productId, quantity);
+                names.put(productId, productName);
+            }
+        });
+        if (!unknown.isEmpty()) {
+            return new ArrayList<>(unknown);
+        }
+        stockJournal.restock(byId, null).forEach(productId -> unknown.add(names.get(productId)));
+        if (unknown.isEmpty()) {
+            productsChanged(byId.keySet());
+        }
+        return new ArrayList<>(unknown);
+    }
+
+    /**
+     * Starts a bulk import of product upserts and stock adjustments. The records added to the
+     * session are applied in batches as they arrive.
+     *
+     * @return the import session
+     * @throws IllegalStateException if imports are not supported
+     */
+    public StockImporter.Session openStockImport() {
+        if (stockImporter == null) {
+            throw new IllegalStateException("Stock import is not configured");
+        }
+        return stockImporter.open();
+    }
+
+    /**
+     * Searches products by name for type-ahead selection, matching prefixes of the name and of
+     * its words, and words with a typo.
+     *
+     * @param query the text typed by the user
+     * @param page the number of the page, starting at 0
+     * @param size the number of products per page
+     * @return the page of matching products, best matches first
+     * @throws IllegalStateException if search is not supported
+     */
+    public ProductSearchIndex.Page searchProducts(String query, int page, int size) {
+        if (productSearchIndex == null) {
+            throw new IllegalStateException("Product search is not configured");
+        }
+        return productSearchIndex.search(query, page, size);
+    }
+
+    /**
+     * Sets or clears the reorder threshold of a product and evaluates it against the current
+     * stock, so a product that is already low raises an alert right away.
+     *
+     * @param productId the id of the product
+     * @param reorderThreshold the new threshold, or {@code null} to stop watching the product
+     * @return the updated product, or {@code null} if no such product exists
+     */
+    @Transactional
+    public Product setReorderThreshold(long productId, Integer reorderThreshold) {
+        if (productRepository.updateReorderThreshold(productId, reorderThreshold) == 0) {
+            return null;
+        }
+        Product product = getProductById(productId);
+        stockAlerts.watch(productId, product.getName(), reorderThreshold);
+        productsChanged(List.of(productId));
+        return product;
+    }
+
+    /**
+     * Returns the retained low-stock alerts after the given sequence number, oldest first.
+     *
+     * @param afterSequence the sequence number of the last alert already seen, or 0
+     * @return the newer alerts
+     */
+    public List<StockAlert> getStockAlerts(long afterSequence) {
+        return stockAlerts.getAlerts(afterSequence);
+    }
+
+    /**
+     * Subscribes to low-stock alerts, starting with the retained alerts after the given
+     * sequence number.
+     *
+     * @param afterSequence the sequence number of the last alert already seen, or 0
+     * @param subscriber receives the alerts on the thread that changed the stock; must not block
+     * @return a handle that unsubscribes
+     */
+    public Runnable subscribeToStockAlerts(long afterSequence, Consumer<StockAlert> subscriber) {
+        return stockAlerts.subscribe(afterSequence, subscriber);
+    }
+
+    /**
+     * Increments the version of the product list and evaluates the reorder thresholds of
+     * products that changed, after the current transaction commits so that rolled back changes
+     * never raise alerts or invalidate cached product lists.
+     */
+    private void productsChanged(Collection<Long> productIds) {
+        boolean watched = stockAlerts.isWatched(productIds);
+        Runnable changed = () -> {
+            productsVersion.increment();
+            if (watched) {
+                productIds.forEach(productId -> stockAlerts.evaluate(productId, this::currentStock));
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    changed.run();
+                }
+            });
+        } else {
+            changed.run();
+        }
+    }
+
+    private Integer currentStock(long productId) {
+        if (stockJournal != null) {
+            return stockJournal.getStock(productId);
+        }
+        return productRepository.findById(productId).map(Product::getStockQuantity).orElse(null);
+    }
+
+    private List<String> reserveInJournal(Map<String, Integer> quantities, String orderRef) {
+        Map<Long, Integer> byId = new HashMap<>();
+        Map<Long, String> names = new HashMap<>();
+        SortedSet<String> unavailable = new TreeSet<>();
+        quantities.forEach((productName, quantity) -> {
+            Long productId = stockJournal.getProductId(productName);
+            if (productId == null) {
+                unavailable.add(productName);
+            } else {
+                byId.put(productId, quantity);
+                names.put(productId, productName);
+            }
+        });
+        if (!unavailable.isEmpty()) {
+            return new ArrayList<>(unavailable);
+        }
+        stockJournal.reserve(byId, orderRef).forEach(productId -> unavailable.add(names.get(productId)));
+        if (unavailable.isEmpty()) {
+            productsChanged(byId.keySet());
+        }
+        return new ArrayList<>(unavailable);
+    }
+
+    /**
+     * Returns the product with its journaled stock. The stock is set on a detached copy, as the
+     * managed product would otherwise be flushed back to {@code products.stock_quantity} when
+     * called from a read-write transaction.
+     */
+    private Product withJournaledStock(Product product) {
+        if (stockJournal != null && product != null) {
+            Integer stock = stockJournal.getStock(product.getId());
+            if (stock != null) {
+                Product copy = new Product();
+                copy.setId(product.getId());
+                copy.setName(product.getName());
+                copy.setStockQuantity(stock);
+                copy.setReorderThreshold(product.getReorderThreshold());
+                copy.setVersion(product.getVersion());
+                return copy;
+            }
+        }
+        return product;
     }
 
     /**
@@ -49,8 +746,60 @@ public class InventoryService {
      *
      * @return a list of all products in the inventory
      */
+    @Transactional(readOnly = true)
     public List<Product> getAllProducts() {
-        return productRepository.findAll();
+        return productRepository.findAll().stream().map(this::withJournaledStock).toList();
+    }
+
+    /**
+     * Returns the validators of the current version of the product list. Take them before
+     * reading the list with {@link #getAllProducts()}.
+     *
+     * @return the current version of the product list
+     */
+    public ResourceVersion.Tag getProductsVersion() {
+        return productsVersion.current();
+    }
+
+    /**
+     * Retrieves the stock of a product by its id. With the journal stock update strategy the
+     * stock is read from the journal projection without a database read, and the returned
+     * product only carries its id and stock.
+     *
+     * @param productId the id of the product
+     * @return the product with its current stock, or {@code null} if no such product exists
+     */
+    public Product getProductStock(long productId) {
+        if (stockJournal == null) {
+            return productRepository.findById(productId).orElse(null);
+        }
+        Integer stock = stockJournal.getStock(productId);
+        return stock == null ? null : stockOf(productId, null, stock);
+    }
+
+    /**
+     * Retrieves the stock of a product by its name. With the journal stock update strategy the
+     * id is resolved from the journal's cache of names and the stock is read from the journal
+     * projection, and the returned product only carries its id, name and stock.
+     *
+     * @param productName the name of the product
+     * @return the product with its current stock, or {@code null} if no such product exists
+     */
+    public Product getProductStock(String productName) {
+        if (stockJournal == null) {
+            return productRepository.findByName(productName);
+        }
+        Long productId = stockJournal.getProductId(productName);
+        Integer stock = productId == null ? null : stockJournal.getStock(productId);
+        return stock == null ? null : stockOf(productId, productName, stock);
+    }
+
+    private static Product stockOf(long productId, String productName, int stock) {
+        Product product = new Product();
+        product.setId(productId);
+        product.setName(productName);
+        product.setStockQuantity(stock);
+        return product;
     }
 
     /**
@@ -59,7 +808,19 @@ public class InventoryService {
      * @param productName the name of the product to retrieve
      * @return the product with the given name, or {@code null} if no such product exists
      */
+    @Transactional(readOnly = true)
     public Product getProductByName(String productName) {
-        return productRepository.findByName(productName);
+        return withJournaledStock(productRepository.findByName(productName));
+    }
+
+    /**
+     * Retrieves a product by its id.
+     *
+     * @param productId the id of the product to retrieve
+     * @return the product with the given id, or {@code null} if no such product exists
+     */
+    @Transactional(readOnly = true)
+    public Product getProductById(long productId) {
+        return withJournaledStock(productRepository.findById(productId).orElse(null));
     }
 }
\ No newline at end of file
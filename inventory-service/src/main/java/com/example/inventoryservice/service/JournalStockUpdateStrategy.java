@@ -0,0 +1,28 @@
+package com.example.inventoryservice.service;
+
+/**
+ * Decrements stock through the {@link StockJournal}: the oversell guard is a compare-and-set on
+ * the in-memory projection and the write is an append to the journal, so decrements of the same
+ * product never wait on each other's row locks or retry on version conflicts.
+ * <p>
+ * The order reference is journaled with the movement, but not recorded in
+ * {@link StockReservations}, so stock taken this way cannot be released.
+ */
+public class JournalStockUpdateStrategy implements StockUpdateStrategy {
+    private final StockJournal stockJournal;
+
+    public JournalStockUpdateStrategy(StockJournal stockJournal) {
+        this.stockJournal = stockJournal;
+    }
+
+    @Override
+    public boolean decrement(String productName, int quantity, String orderRef) {
+        Long productId = stockJournal.getProductId(productName);
+        return productId != null && stockJournal.decrement(productId, quantity, orderRef);
+    }
+
+    @Override
+    public boolean decrementById(long productId, int quantity, String orderRef) {
+        return stockJournal.decrement(productId, quantity, orderRef);
+    }
+}
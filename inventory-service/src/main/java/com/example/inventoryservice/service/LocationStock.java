@@ -0,0 +1,367 @@
+package com.example.inventoryservice.service;
+
+import com.example.inventoryservice.config.LocationStockProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Stock of products per warehouse ({@code location_stock}), with an in-memory copy that
+ * allocations are decided on.
+ * <p>
+ * Each product has one {@link AtomicIntegerArray} holding its stock in every warehouse, indexed
+ * by the position of the warehouse in the configuration, and the warehouses are kept in parallel
+ * arrays as points on the unit sphere, so that ranking them by distance takes a dot product per
+ * warehouse and no trigonometry. An allocation is a scan over the warehouses of one product and a
+ * compare-and-set per warehouse taken from, so it does not touch the database and does not
+ * contend with allocations of other products. As with the {@link StockJournal}, decreases take
+ * effect in memory at once, so that a warehouse is never over-allocated, and are then written to
+ * the database by the caller's transaction; increases take effect once they are committed. The
+ * in-memory copy assumes a single inventory-service instance.
+ */
+public class LocationStock {
+    private static final Logger log = LoggerFactory.getLogger(LocationStock.class);
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final List<Location> locations;
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+    private final int[] priorities;
+    private final LocationStockProperties.Policy policy;
+    private final int maxSplit;
+    private final Map<Long, AtomicIntegerArray> stock = new ConcurrentHashMap<>();
+
+    public LocationStock(JdbcTemplate jdbcTemplate, List<Location> locations, LocationStockProperties.Policy policy,
+                         int maxSplit) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.locations = List.copyOf(locations);
+        this.policy = policy;
+        this.maxSplit = maxSplit;
+        int count = this.locations.size();
+        xs = new double[count];
+        ys = new double[count];
+        zs = new double[count];
+        priorities = new int[count];
+        for (int slot = 0; slot < count; slot++) {
+            Location location = this.locations.get(slot);
+            slots.put(location.code(), slot);
+            double[] point = point(location.latitude(), location.longitude());
+            xs[slot] = point[0];
+            ys[slot] = point[1];
+            zs[slot] = point[2];
+            priorities[slot] = location.priority();
+        }
+    }
+
+    /**
+     * Loads the stock of the configured warehouses. Rows of warehouses that are no longer
+     * configured are ignored.
+     */
+    public void start() {
+        jdbcTemplate.query("SELECT product_id, location, quantity FROM location_stock", row -> {
+            Integer slot = slots.get(row.getString(2));
+            if (slot != null) {
+                quantities(row.getLong(1)).set(slot, row.getInt(3));
+            }
+        });
+        log.info("Loaded the stock of {} products in {} warehouses", stock.size(), locations.size());
+    }
+
+    /**
+     * Returns the stock of a product in every warehouse.
+     *
+     * @param productId the id of the product
+     * @return the stock per warehouse code, in configuration order
+     */
+    public Map<String, Integer> getStock(long productId) {
+        AtomicIntegerArray available = stock.get(productId);
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (int slot = 0; slot < locations.size(); slot++) {
+            quantities.put(locations.get(slot).code(), available == null ? 0 : available.get(slot));
+        }
+        return quantities;
+    }
+
+    /**
+     * Takes a quantity of a product from the warehouses picked by the allocation policy: the
+     * first warehouse in policy order that has all of it, or, if splitting is allowed and none
+     * has, the first warehouses in policy order that have any, up to the maximum split. The
+     * stock is taken in memory only; {@link #record} it in the transaction that takes the stock
+     * of the product, and {@link #putBack} it if that transaction rolls back.
+     *
+     * @param productId the id of the product
+     * @param quantity the quantity to take
+     * @param destination where the stock is shipped to, or {@code null} if unknown
+     * @param split whether the quantity may be taken from several warehouses
+     * @return the quantity taken per warehouse, in policy order; empty if the warehouses do not
+     *         have enough stock, in which case nothing is taken
+     */
+    public List<Allocation> allocate(long productId, int quantity, @Nullable Destination destination, boolean split) {
+        AtomicIntegerArray available = stock.get(productId);
+        if (available == null || quantity <= 0) {
+            return List.of();
+        }
+        double[] point = destination == null ? null : point(destination.latitude(), destination.longitude());
+        while (true) {
+            int slot = best(available, point, quantity, null);
+            if (slot < 0) {
+                break;
+            }
+            if (tryTake(available, slot, quantity)) {
+                return List.of(allocation(slot, quantity, point));
+            }
+        }
+        if (!split || maxSplit < 2) {
+            return List.of();
+        }
+
+        boolean[] considered = new boolean[locations.size()];
+        List<Allocation> allocations = new ArrayList<>();
+        int remaining = quantity;
+        while (remaining > 0 && allocations.size() < maxSplit) {
+            int slot = best(available, point, 1, considered);
+            if (slot < 0) {
+                break;
+            }
+            considered[slot] = true;
+            int taken = takeUpTo(available, slot, remaining);
+            if (taken > 0) {
+                allocations.add(allocation(slot, taken, point));
+                remaining -= taken;
+            }
+        }
+        if (remaining > 0) {
+            putBack(productId, allocations);
+            return List.of();
+        }
+        return allocations;
+    }
+
+    /**
+     * Puts stock back into the warehouses in memory, e.g. after the transaction that took it
+     * rolled back, or once a release is committed.
+     *
+     * @param productId the id of the product
+     * @param allocations the quantity per warehouse
+     */
+    public void putBack(long productId, List<Allocation> allocations) {
+        AtomicIntegerArray available = quantities(productId);
+        allocations.forEach(allocation -> available.addAndGet(slot(allocation.location()), allocation.quantity()));
+    }
+
+    /**
+     * Writes allocated stock to the database, in the transaction that takes the stock of the
+     * product. With an order reference, the allocation is kept for {@link #release}.
+     *
+     * @param productId the id of the product
+     * @param allocations the quantity taken per warehouse
+     * @param orderRef the order the stock is taken for, or {@code null}
+     */
+    public void record(long productId, List<Allocation> allocations, @Nullable String orderRef) {
+        jdbcTemplate.batchUpdate("UPDATE location_stock SET quantity = quantity - ? WHERE product_id = ? AND location = ?",
+                allocations.stream()
+                        .map(allocation -> new Object[]{allocation.quantity(), productId, allocation.location()})
+                        .toList());
+        if (orderRef != null) {
+            jdbcTemplate.batchUpdate("INSERT INTO location_reservations (order_ref, product_id, location, quantity) "
+                            + "VALUES (?, ?, ?, ?)",
+                    allocations.stream()
+                            .map(allocation -> new Object[]{orderRef, productId, allocation.location(), allocation.quantity()})
+                            .toList());
+        }
+    }
+
+    /**
+     * Puts the stock allocated to an order back into its warehouses in the database, in the
+     * transaction that releases the order. {@link #putBack} the result once it commits.
+     *
+     * @param orderRef the order reference
+     * @return the quantity to put back per product id and warehouse; empty if the order did not
+     *         allocate stock
+     */
+    public Map<Long, List<Allocation>> release(String orderRef) {
+        Map<Long, List<Allocation>> released = new HashMap<>();
+        jdbcTemplate.query("SELECT product_id, location, quantity FROM location_reservations WHERE order_ref = ?",
+                row -> {
+                    released.computeIfAbsent(row.getLong(1), productId -> new ArrayList<>())
+                            .add(new Allocation(row.getString(2), row.getInt(3), 0));
+                }, orderRef);
+        if (released.isEmpty()) {
+            return released;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        released.forEach((productId, allocations) -> allocations.forEach(allocation ->
+                rows.add(new Object[]{allocation.quantity(), productId, allocation.location()})));
+        jdbcTemplate.batchUpdate("UPDATE location_stock SET quantity = quantity + ? WHERE product_id = ? AND location = ?",
+                rows);
+        jdbcTemplate.update("DELETE FROM location_reservations WHERE order_ref = ?", orderRef);
+        return released;
+    }
+
+    /**
+     * Sets the stock of a product in a warehouse, e.g. after a count. Must be called in a
+     * transaction that has locked the row of the product, which serializes the changes of its
+     * warehouse stock; the stored stock is locked as well, and the new stock is written as is. A
+     * decrease takes effect in memory at once; {@link #putBack} an increase once the transaction
+     * commits.
+     *
+     * @param productId the id of the product
+     * @param location the warehouse code
+     * @param quantity the new stock
+     * @return the change of stock, which is negative for a decrease
+     * @throws IllegalArgumentException if the warehouse is not configured
+     * @throws IllegalStateException if a decrease removes stock that is being allocated
+     */
+    public int set(long productId, String location, int quantity) {
+        int slot = slot(location);
+        List<Integer> stored = jdbcTemplate.queryForList(
+                "SELECT quantity FROM location_stock WHERE product_id = ? AND location = ? FOR UPDATE",
+                Integer.class, productId, location);
+        int delta = quantity - (stored.isEmpty() ? 0 : stored.get(0));
+        if (delta < 0 && !tryTake(quantities(productId), slot, -delta)) {
+            throw new IllegalStateException("Stock of product " + productId + " in " + location + " is being allocated");
+        }
+        if (stored.isEmpty()) {
+            jdbcTemplate.update("INSERT INTO location_stock (product_id, location, quantity) VALUES (?, ?, ?)",
+                    productId, location, quantity);
+        } else {
+            jdbcTemplate.update("UPDATE location_stock SET quantity = ? WHERE product_id = ? AND location = ?",
+                    quantity, productId, location);
+        }
+        return delta;
+    }
+
+    private AtomicIntegerArray quantities(long productId) {
+        return stock.computeIfAbsent(productId, id -> new AtomicIntegerArray(locations.size()));
+    }
+
+    private int slot(String location) {
+        Integer slot = slots.get(location);
+        if (slot == null) {
+            throw new IllegalArgumentException("Unknown location " + location);
+        }
+        return slot;
+    }
+
+    /**
+     * Returns the warehouse that comes first in policy order among those with at least the
+     * given stock, or -1 if there is none.
+     */
+    private int best(AtomicIntegerArray available, @Nullable double[] destination, int atLeast,
+                     @Nullable boolean[] excluded) {
+        int best = -1;
+        double bestKey = 0;
+        for (int slot = 0; slot < priorities.length; slot++) {
+            if (excluded != null && excluded[slot]) {
+                continue;
+            }
+            int quantity = available.get(slot);
+            if (quantity < atLeast) {
+                continue;
+            }
+            double key = switch (policy) {
+                // The larger the dot product of two points, the closer they are.
+                case NEAREST -> destination != null
+                        ? -(xs[slot] * destination[0] + ys[slot] * destination[1] + zs[slot] * destination[2])
+                        : priorities[slot];
+                case PRIORITY -> priorities[slot];
+                case MOST_STOCK -> -quantity;
+            };
+            if (best < 0 || key < bestKey) {
+                best = slot;
+                bestKey = key;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns a position as a point on the unit sphere.
+     */
+    private static double[] point(double latitude, double longitude) {
+        double latitudeRadians = Math.toRadians(latitude);
+        double longitudeRadians = Math.toRadians(longitude);
+        double latitudeCosine = Math.cos(latitudeRadians);
+        return new double[]{latitudeCosine * Math.cos(longitudeRadians), latitudeCosine * Math.sin(longitudeRadians),
+                Math.sin(latitudeRadians)};
+    }
+
+    private Allocation allocation(int slot, int quantity, @Nullable double[] destination) {
+        double distanceKm = 0;
+        if (destination != null) {
+            double dx = xs[slot] - destination[0];
+            double dy = ys[slot] - destination[1];
+            double dz = zs[slot] - destination[2];
+            double chord = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            distanceKm = 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, chord / 2));
+        }
+        return new Allocation(locations.get(slot).code(), quantity, distanceKm);
+    }
+
+    private static boolean tryTake(AtomicIntegerArray available, int slot, int quantity) {
+        while (true) {
+            int current = available.get(slot);
+            if (current < quantity) {
+                return false;
+            }
+            if (available.compareAndSet(slot, current, current - quantity)) {
+                return true;
+            }
+        }
+    }
+
+    private static int takeUpTo(AtomicIntegerArray available, int slot, int quantity) {
+        while (true) {
+            int current = available.get(slot);
+            if (current <= 0) {
+                return 0;
+            }
+            int taken = Math.min(current, quantity);
+            if (available.compareAndSet(slot, current, current - taken)) {
+                return taken;
+            }
+        }
+    }
+
+    /**
+     * A warehouse.
+     *
+     * @param code the code stock is recorded under
+     * @param latitude the latitude in degrees
+     * @param longitude the longitude in degrees
+     * @param priority the rank under the priority policy; lower comes first
+     */
+    public record Location(String code, double latitude, double longitude, int priority) {
+    }
+
+    /**
+     * Where allocated stock is shipped to.
+     *
+     * @param latitude the latitude in degrees
+     * @param longitude the longitude in degrees
+     */
+    public record Destination(double latitude, double longitude) {
+    }
+
+    /**
+     * Stock taken from one warehouse.
+     *
+     * @param location the warehouse code
+     * @param quantity the quantity taken
+     * @param distanceKm the distance from the warehouse to the destination, or 0 without one
+     */
+    public record Allocation(String location, int quantity, double distanceKm) {
+    }
+}
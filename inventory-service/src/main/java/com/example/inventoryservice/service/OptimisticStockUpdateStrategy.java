@@ -0,0 +1,78 @@
+package com.example.inventoryservice.service;
+
+import com.example.inventoryservice.config.StockUpdateProperties;
+import com.example.inventoryservice.entity.Product;
+import com.example.inventoryservice.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionOperations;
+
+/**
+ * Reads the product without locking and relies on the {@code @Version} column of
+ * {@link Product} to reject the write if another transaction updated the row in between.
+ * Cheap when contention is low; every conflict costs a re-read and a retry.
+ * <p>
+ * Each attempt runs in one read-write transaction, so the read is served by the primary even
+ * when read-only transactions are routed to a replica.
+ */
+public class OptimisticStockUpdateStrategy extends RetryingStockUpdateStrategy {
+    private final ProductRepository productRepository;
+    private final TransactionOperations transactionOperations;
+
+    public OptimisticStockUpdateStrategy(ProductRepository productRepository,
+                                         StockUpdateProperties properties,
+                                         MeterRegistry meterRegistry) {
+        this(productRepository, TransactionOperations.withoutTransaction(), properties, meterRegistry);
+    }
+
+    public OptimisticStockUpdateStrategy(ProductRepository productRepository,
+                                         TransactionOperations transactionOperations,
+                                         StockUpdateProperties properties,
+                                         MeterRegistry meterRegistry) {
+        this(productRepository, transactionOperations, null, properties, meterRegistry);
+    }
+
+    /**
+     * Creates the strategy.
+     *
+     * @param productRepository the product repository
+     * @param transactionOperations the transactions each attempt runs in
+     * @param stockReservations where decrements for orders are recorded, or {@code null} to
+     *                          ignore order references
+     * @param properties the stock update settings
+     * @param meterRegistry the registry for conflict metrics
+     */
+    public OptimisticStockUpdateStrategy(ProductRepository productRepository,
+                                         TransactionOperations transactionOperations,
+                                         @Nullable StockReservations stockReservations,
+                                         StockUpdateProperties properties,
+                                         MeterRegistry meterRegistry) {
+        super("optimistic", stockReservations, properties, meterRegistry);
+        this.productRepository = productRepository;
+        this.transactionOperations = transactionOperations;
+    }
+
+    @Override
+    protected Outcome attempt(Long productId, String productName, int quantity, String orderRef) {
+        try {
+            return transactionOperations.execute(status -> {
+                if (!openReservation(orderRef)) {
+                    return withoutStock(status, Outcome.REJECTED);
+                }
+                Product product = productId != null
+                        ? productRepository.findById(productId).orElse(null)
+                        : productRepository.findByName(productName);
+                if (product == null || product.getStockQuantity() < quantity) {
+                    return withoutStock(status, Outcome.REJECTED);
+                }
+                product.setStockQuantity(product.getStockQuantity() - quantity);
+                productRepository.save(product);
+                addToReservation(orderRef, product.getId(), quantity);
+                return Outcome.UPDATED;
+            });
+        } catch (OptimisticLockingFailureException e) {
+            return Outcome.CONFLICT;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.inventoryservice.service;
+
+import com.example.inventoryservice.config.StockUpdateProperties;
+import com.example.inventoryservice.entity.Product;
+import com.example.inventoryservice.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Locks the product row with {@code SELECT ... FOR UPDATE SKIP LOCKED} inside a transaction
+ * and decrements it while holding the lock. A row that is locked by another transaction is
+ * skipped rather than waited on, so a busy product is reported as a conflict and retried with
+ * backoff instead of piling up blocked connections.
+ */
+public class PessimisticStockUpdateStrategy extends RetryingStockUpdateStrategy {
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public PessimisticStockUpdateStrategy(ProductRepository productRepository,
+                                          TransactionTemplate transactionTemplate,
+                                          StockUpdateProperties properties,
+                                          MeterRegistry meterRegistry) {
+        this(productRepository, transactionTemplate, null, properties, meterRegistry);
+    }
+
+    /**
+     * Creates the strategy.
+     *
+     * @param productRepository the product repository
+     * @param transactionTemplate the transactions each attempt runs in
+     * @param stockReservations where decrements for orders are recorded, or {@code null} to
+     *                          ignore order references
+     * @param properties the stock update settings
+     * @param meterRegistry the registry for conflict metrics
+     */
+    public PessimisticStockUpdateStrategy(ProductRepository productRepository,
+                                          TransactionTemplate transactionTemplate,
+                                          @Nullable StockReservations stockReservations,
+                                          StockUpdateProperties properties,
+                                          MeterRegistry meterRegistry) {
+        super("pessimistic", stockReservations, properties, meterRegistry);
+        this.productRepository = productRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    protected Outcome attempt(Long productId, String productName, int quantity, String orderRef) {
+        return transactionTemplate.execute(status -> {
+            if (!openReservation(orderRef)) {
+                return withoutStock(status, Outcome.REJECTED);
+            }
+            Product product = productId != null
+                    ? productRepository.findByIdForUpdateSkipLocked(productId)
+                    : productRepository.findByNameForUpdateSkipLocked(productName);
+            if (product == null) {
+                // Either the product does not exist or its row is locked by another writer.
+                boolean exists = productId != null
+                        ? productRepository.existsById(productId)
+                        : productRepository.findByName(productName) != null;
+                return withoutStock(status, exists ? Outcome.CONFLICT : Outcome.REJECTED);
+            }
+            if (product.getStockQuantity() < quantity) {
+                return withoutStock(status, Outcome.REJECTED);
+            }
+            product.setStockQuantity(product.getStockQuantity() - quantity);
+            addToReservation(orderRef, product.getId(), quantity);
+            return Outcome.UPDATED;
+        });
+    }
+}
@@ -0,0 +1,474 @@
+package com.example.inventoryservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory index of product names for type-ahead search, so that clients can look products up
+ * without loading the whole catalogue.
+ * <p>
+ * Names are split into lower-case tokens. Tokens and whole names are kept in sorted maps, so
+ * the names or tokens starting with a prefix are one range scan away, like in a trie. Typos are
+ * matched through a trigram index over the distinct tokens, which yields the tokens worth
+ * checking with a bounded edit distance. Results are ranked in three tiers: names starting with
+ * the query, names with a token starting with every query token, and names with a token within a
+ * small edit distance of every query token; each tier is ordered by name.
+ * <p>
+ * The index is built from {@code products} on {@link #start()}. Products with ids beyond the
+ * highest indexed one are added periodically and after imports, and the whole index is rebuilt
+ * at a longer interval, which also picks up renamed and deleted products. Searches never block
+ * updates.
+ */
+public class ProductSearchIndex {
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionOperations transactionOperations;
+    private final int maxCandidates;
+    private final Duration refreshInterval;
+    private final Duration rebuildInterval;
+    private volatile Index index = new Index();
+    private ScheduledExecutorService scheduler;
+
+    public ProductSearchIndex(JdbcTemplate jdbcTemplate, TransactionOperations transactionOperations,
+                              int maxCandidates, Duration refreshInterval, Duration rebuildInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionOperations = transactionOperations;
+        this.maxCandidates = maxCandidates;
+        this.refreshInterval = refreshInterval;
+        this.rebuildInterval = rebuildInterval;
+    }
+
+    /**
+     * Builds the index and schedules its refreshes and rebuilds.
+     */
+    public void start() {
+        rebuild();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-search-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long refreshMillis = refreshInterval.toMillis();
+        long rebuildMillis = rebuildInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(() -> run(this::refresh), refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(() -> run(this::rebuild), rebuildMillis, rebuildMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the scheduled refreshes and rebuilds.
+     */
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Replaces the index with one built from all products. Searches use the previous index until
+     * the new one is complete.
+     */
+    public synchronized void rebuild() {
+        long startNanos = System.nanoTime();
+        Index fresh = new Index();
+        transactionOperations.executeWithoutResult(status ->
+                jdbcTemplate.query("SELECT id, name FROM products", row -> {
+                    fresh.put(row.getLong(1), row.getString(2));
+                }));
+        index = fresh;
+        log.info("Indexed {} product names for search in {} ms",
+                fresh.entries.size(), (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    /**
+     * Adds the products created since the highest indexed product id.
+     */
+    public synchronized void refresh() {
+        Index current = index;
+        transactionOperations.executeWithoutResult(status ->
+                jdbcTemplate.query("SELECT id, name FROM products WHERE id > ?", row -> {
+                    current.put(row.getLong(1), row.getString(2));
+                }, current.maxId.get()));
+    }
+
+    /**
+     * Adds a product to the index, or updates its name.
+     *
+     * @param productId the id of the product
+     * @param name the name of the product
+     */
+    public void put(long productId, String name) {
+        index.put(productId, name);
+    }
+
+    /**
+     * Removes a product from the index.
+     *
+     * @param productId the id of the product
+     */
+    public void remove(long productId) {
+        index.remove(productId);
+    }
+
+    private static void run(Runnable update) {
+        try {
+            update.run();
+        } catch (RuntimeException e) {
+            log.warn("Could not update the product search index, retrying on the next run: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Searches products by name, matching prefixes of the name and of its words, and words with
+     * a typo.
+     * <p>
+     * Each tier considers at most the configured number of candidates, so a very short query
+     * pages through a bounded part of the catalogue.
+     *
+     * @param query the text typed by the user
+     * @param page the number of the page, starting at 0
+     * @param size the number of products per page
+     * @return the page of matching products
+     */
+    public Page search(String query, int page, int size) {
+        Index current = index;
+        String prefix = normalize(query);
+        List<String> queryTokens = tokens(query);
+        if (queryTokens.isEmpty()) {
+            return new Page(List.of(), page, size, false);
+        }
+        long wanted = (long) page * size + size + 1;
+        Set<Long> results = new LinkedHashSet<>();
+
+        for (Map.Entry<String, Long> entry : current.byName.tailMap(prefix).entrySet()) {
+            if (results.size() >= wanted || !entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            results.add(entry.getValue());
+        }
+        if (results.size() < wanted) {
+            addByName(current, results, wanted, matching(current, queryTokens, List.of()));
+        }
+        if (results.size() < wanted) {
+            // Only words that match nothing are taken for typos.
+            List<Set<String>> similar = new ArrayList<>(queryTokens.size());
+            boolean typos = false;
+            for (String queryToken : queryTokens) {
+                boolean known = !current.byToken.subMap(queryToken, true, queryToken + Character.MAX_VALUE, true).isEmpty();
+                similar.add(known ? null : current.similarTokens(queryToken));
+                typos |= !known;
+            }
+            if (typos) {
+                addByName(current, results, wanted, matching(current, queryTokens, similar));
+            }
+        }
+
+        List<Match> matches = new ArrayList<>(size);
+        int skip = page * size;
+        for (Long productId : results) {
+            if (skip-- > 0) {
+                continue;
+            }
+            if (matches.size() == size) {
+                break;
+            }
+            Entry entry = current.entries.get(productId);
+            if (entry != null) {
+                matches.add(new Match(productId, entry.name()));
+            }
+        }
+        return new Page(matches, page, size, results.size() == wanted);
+    }
+
+    /**
+     * Finds the products that have, for every query token, a token starting with it or, if
+     * similar tokens are given for it, one of those.
+     *
+     * @param similar the tokens similar to each query token, {@code null} for query tokens that
+     *                are matched by prefix only; empty to match every query token by prefix
+     */
+    private Set<Long> matching(Index current, List<String> queryTokens, List<Set<String>> similar) {
+        // Drive the scan with the query token that matches the fewest products.
+        List<Iterable<Set<Long>>> ids = new ArrayList<>(queryTokens.size());
+        int driver = 0;
+        long driverSize = Long.MAX_VALUE;
+        for (int i = 0; i < queryTokens.size(); i++) {
+            Iterable<Set<Long>> tokenIds;
+            if (similar.isEmpty() || similar.get(i) == null) {
+                String token = queryTokens.get(i);
+                tokenIds = current.byToken.subMap(token, true, token + Character.MAX_VALUE, true).values();
+            } else {
+                List<Set<Long>> similarIds = new ArrayList<>();
+                similar.get(i).forEach(token -> similarIds.add(current.byToken.getOrDefault(token, Set.of())));
+                tokenIds = similarIds;
+            }
+            ids.add(tokenIds);
+            long size = 0;
+            for (Set<Long> tokenSet : tokenIds) {
+                size += tokenSet.size();
+                if (size >= driverSize) {
+                    break;
+                }
+            }
+            if (size < driverSize) {
+                driver = i;
+                driverSize = size;
+            }
+        }
+
+        Set<Long> candidates = new HashSet<>();
+        for (Set<Long> tokenSet : ids.get(driver)) {
+            for (Long productId : tokenSet) {
+                Entry entry = current.entries.get(productId);
+                if (entry != null && matchesAll(entry.tokens(), queryTokens, similar)) {
+                    candidates.add(productId);
+                    if (candidates.size() >= maxCandidates) {
+                        return candidates;
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private static boolean matchesAll(String[] nameTokens, List<String> queryTokens, List<Set<String>> similar) {
+        for (int i = 0; i < queryTokens.size(); i++) {
+            boolean matched = false;
+            for (String nameToken : nameTokens) {
+                if (nameToken.startsWith(queryTokens.get(i))
+                        || (!similar.isEmpty() && similar.get(i) != null && similar.get(i).contains(nameToken))) {
+                    matched = true;
+                    break;
+                }
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void addByName(Index current, Set<Long> results, long wanted, Set<Long> candidates) {
+        candidates.removeAll(results);
+        List<Long> ordered = new ArrayList<>(candidates);
+        Map<Long, String> names = new HashMap<>();
+        ordered.forEach(productId -> {
+            Entry entry = current.entries.get(productId);
+            names.put(productId, entry == null ? "" : normalize(entry.name()));
+        });
+        ordered.sort(Comparator.comparing(names::get));
+        for (Long productId : ordered) {
+            if (results.size() >= wanted) {
+                return;
+            }
+            results.add(productId);
+        }
+    }
+
+    static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Returns the trigrams of a token, padded at the front so that its first letters count too.
+     */
+    static List<String> trigrams(String token) {
+        String padded = "  " + token;
+        List<String> trigrams = new ArrayList<>(token.length());
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Returns the number of typos tolerated in a query token of the given length.
+     */
+    static int maxEdits(int length) {
+        return length < 3 ? 0 : length <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Returns the smallest edit distance between the query and a prefix of the token, counting
+     * insertions, deletions, substitutions and transpositions, or {@code maxEdits + 1} if it is
+     * larger than {@code maxEdits}.
+     */
+    static int prefixDistance(String query, String token, int maxEdits) {
+        int columns = token.length() + 1;
+        int[] previous2 = new int[columns];
+        int[] previous = new int[columns];
+        int[] current = new int[columns];
+        for (int j = 0; j < columns; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= query.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j < columns; j++) {
+                int cost = query.charAt(i - 1) == token.charAt(j - 1) ? 0 : 1;
+                int distance = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && query.charAt(i - 1) == token.charAt(j - 2)
+                        && query.charAt(i - 2) == token.charAt(j - 1)) {
+                    distance = Math.min(distance, previous2[j - 2] + 1);
+                }
+                current[j] = distance;
+                rowMin = Math.min(rowMin, distance);
+            }
+            if (rowMin > maxEdits) {
+                return maxEdits + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        int best = maxEdits + 1;
+        for (int distance : previous) {
+            best = Math.min(best, distance);
+        }
+        return best;
+    }
+
+    /**
+     * The index structures. Updates are serialized; searches read them concurrently.
+     */
+    private static final class Index {
+        private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+        // Keyed by normalized name and id, so that equal names do not collide.
+        private final ConcurrentSkipListMap<String, Long> byName = new ConcurrentSkipListMap<>();
+        private final ConcurrentSkipListMap<String, Set<Long>> byToken = new ConcurrentSkipListMap<>();
+        private final Map<String, Set<String>> tokensByTrigram = new ConcurrentHashMap<>();
+        private final LongAccumulator maxId = new LongAccumulator(Math::max, 0);
+
+        synchronized void put(long productId, String name) {
+            maxId.accumulate(productId);
+            Entry previous = entries.get(productId);
+            if (previous != null && previous.name().equals(name)) {
+                return;
+            }
+            if (previous != null) {
+                unindex(productId, previous);
+            }
+            String[] tokens = tokens(name).toArray(String[]::new);
+            entries.put(productId, new Entry(name, tokens));
+            byName.put(normalize(name) + '\0' + productId, productId);
+            for (String token : tokens) {
+                byToken.computeIfAbsent(token, key -> {
+                    trigrams(key).forEach(trigram ->
+                            tokensByTrigram.computeIfAbsent(trigram, t -> ConcurrentHashMap.newKeySet()).add(key));
+                    return ConcurrentHashMap.newKeySet();
+                }).add(productId);
+            }
+        }
+
+        synchronized void remove(long productId) {
+            Entry previous = entries.remove(productId);
+            if (previous != null) {
+                unindex(productId, previous);
+            }
+        }
+
+        /**
+         * Removes the product from the name and token maps. Tokens left without products stay
+         * until the next rebuild; they match nothing.
+         */
+        private void unindex(long productId, Entry entry) {
+            byName.remove(normalize(entry.name()) + '\0' + productId);
+            for (String token : entry.tokens()) {
+                Set<Long> ids = byToken.get(token);
+                if (ids != null) {
+                    ids.remove(productId);
+                }
+            }
+        }
+
+        /**
+         * Returns the indexed tokens that have a prefix within the tolerated edit distance of
+         * the query token and share at least two trigrams with it.
+         * <p>
+         * Every edit changes at most three trigrams of the query, so a similar token shares
+         * {@code required} of its trigrams and must occur in one of the {@code trigrams -
+         * required + 1} shortest posting lists. Only the tokens in those lists are compared,
+         * which skips the long lists of common trigrams such as a padded first letter.
+         */
+        Set<String> similarTokens(String queryToken) {
+            int maxEdits = maxEdits(queryToken.length());
+            if (maxEdits == 0) {
+                return Set.of();
+            }
+            List<Set<String>> postings = new ArrayList<>();
+            for (String trigram : trigrams(queryToken)) {
+                postings.add(tokensByTrigram.getOrDefault(trigram, Set.of()));
+            }
+            postings.sort(Comparator.comparingInt(Set::size));
+            int required = Math.max(2, postings.size() - 3 * maxEdits);
+            Set<String> similar = new HashSet<>();
+            Set<String> compared = new HashSet<>();
+            for (Set<String> tokens : postings.subList(0, Math.max(0, postings.size() - required + 1))) {
+                for (String token : tokens) {
+                    if (compared.add(token) && prefixDistance(queryToken, token, maxEdits) <= maxEdits) {
+                        similar.add(token);
+                    }
+                }
+            }
+            return similar;
+        }
+    }
+
+    /**
+     * An indexed product name and its tokens.
+     */
+    private record Entry(String name, String[] tokens) {
+    }
+
+    /**
+     * A product matching a search.
+     *
+     * @param id the id of the product
+     * @param name the name of the product
+     */
+    public record Match(long id, String name) {
+    }
+
+    /**
+     * A page of search results.
+     *
+     * @param results the matching products on the page, best matches first
+     * @param page the number of the page, starting at 0
+     * @param size the requested page size
+     * @param more whether there are further matches after this page
+     */
+    public record Page(List<Match> results, int page, int size, boolean more) {
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.inventoryservice.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A version number for a resource served over HTTP, incremented after every committed change
+ * of the resource, so that responses can be validated with an ETag and {@code Last-Modified}
+ * without hashing their content.
+ * <p>
+ * The version starts at 0 in every process, so ETags also contain the time the process
+ * started and never match an ETag issued before a restart. Readers must take the current
+ * {@link Tag} before reading the resource: a change committed in between then at worst makes
+ * the next request fetch the resource again.
+ * <p>
+ * Reads may be served by a read replica that lags behind the primary. A tag is only
+ * {@link Tag#settled() settled} once the last change is older than the settle time, which
+ * should be the replica's staleness bound; responses with an unsettled tag must not carry
+ * validators, otherwise the stale content could be cached under the new version.
+ * <p>
+ * The version only counts the changes made by this process. With several instances, or with
+ * changes made outside the process, a version can stay the same while the resource changes, so
+ * only a version that is known to cover all changes is validating; tags of other versions are
+ * never settled.
+ */
+public class ResourceVersion {
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Duration settleTime;
+    private final boolean validating;
+    private final AtomicReference<Version> current;
+
+    public ResourceVersion() {
+        this(Duration.ZERO);
+    }
+
+    public ResourceVersion(Duration settleTime) {
+        this(settleTime, true);
+    }
+
+    /**
+     * Creates a version.
+     *
+     * @param settleTime the time after a change until the version settles
+     * @param validating whether this process makes all changes of the resource, so that its
+     *                   versions may validate cached responses
+     */
+    public ResourceVersion(Duration settleTime, boolean validating) {
+        this.settleTime = settleTime;
+        this.validating = validating;
+        this.current = new AtomicReference<>(new Version(0, Instant.now()));
+    }
+
+    /**
+     * Records that the resource changed. Must be called after the change is committed.
+     */
+    public void increment() {
+        Instant now = Instant.now();
+        current.updateAndGet(version -> new Version(version.number() + 1,
+                now.isAfter(version.changedAt()) ? now : version.changedAt()));
+    }
+
+    /**
+     * Returns the validators of the current version of the resource.
+     *
+     * @return the current tag
+     */
+    public Tag current() {
+        Version version = current.get();
+        boolean settled = validating && !version.changedAt().plus(settleTime).isAfter(Instant.now());
+        return new Tag("W/\"" + epoch + "-" + version.number() + "\"", version.changedAt(), settled);
+    }
+
+    private record Version(long number, Instant changedAt) {
+    }
+
+    /**
+     * The validators of one version of a resource.
+     *
+     * @param eTag the weak ETag of the version, which also matches the compressed response
+     * @param lastModified the time of the last change, or of the start of the process
+     * @param settled whether the version validates and the last change is older than the
+     *                settle time, so that replicas within their staleness bound serve this version
+     */
+    public record Tag(String eTag, Instant lastModified, boolean settled) {
+
+        /**
+         * Returns the tag of another representation of this version, e.g. in another media
+         * type, so that a cached copy of one representation never validates the other.
+         *
+         * @param name the name of the representation
+         * @return the tag of the representation
+         */
+        public Tag variant(String name) {
+            return new Tag(eTag.substring(0, eTag.length() - 1) + "-" + name + "\"", lastModified, settled);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.inventoryservice.service;
+
+import com.example.inventoryservice.config.StockUpdateProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.TransactionStatus;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Base class for stock update strategies that retry a single attempt a bounded number of
+ * times with exponential backoff and full jitter whenever the attempt conflicts with a
+ * concurrent writer.
+ * <p>
+ * Publishes {@code inventory.stock.update.attempts}, {@code inventory.stock.update.conflicts}
+ * and {@code inventory.stock.update.exhausted} counters tagged with the strategy name, so the
+ * conflict rate is {@code conflicts / attempts}.
+ * <p>
+ * Decrements for an order are recorded in {@link StockReservations} by the attempt that makes
+ * them, in its transaction, so that the stock can be released if the order is not completed.
+ */
+public abstract class RetryingStockUpdateStrategy implements StockUpdateStrategy {
+
+    /**
+     * Outcome of a single update attempt.
+     */
+    protected enum Outcome {
+        UPDATED,
+        REJECTED,
+        CONFLICT
+    }
+
+    private final StockReservations stockReservations;
+    private final StockUpdateProperties properties;
+    private final Counter attempts;
+    private final Counter conflicts;
+    private final Counter exhausted;
+
+    protected RetryingStockUpdateStrategy(String name, StockUpdateProperties properties, MeterRegistry meterRegistry) {
+        this(name, null, properties, meterRegistry);
+    }
+
+    /**
+     * Creates the strategy.
+     *
+     * @param name the strategy name the metrics are tagged with
+     * @param stockReservations where decrements for orders are recorded, or {@code null} to
+     *                          ignore order references
+     * @param properties the stock update settings
+     * @param meterRegistry the registry for conflict metrics
+     */
+    protected RetryingStockUpdateStrategy(String name, @Nullable StockReservations stockReservations,
+                                          StockUpdateProperties properties, MeterRegistry meterRegistry) {
+        this.stockReservations = stockReservations;
+        this.properties = properties;
+        this.attempts = meterRegistry.counter("inventory.stock.update.attempts", "strategy", name);
+        this.conflicts = meterRegistry.counter("inventory.stock.update.conflicts", "strategy", name);
+        this.exhausted = meterRegistry.counter("inventory.stock.update.exhausted", "strategy", name);
+    }
+
+    @Override
+    public boolean decrement(String productName, int quantity, String orderRef) {
+        return retry(() -> attempt(null, productName, quantity, reservationOf(orderRef)));
+    }
+
+    @Override
+    public boolean decrementById(long productId, int quantity, String orderRef) {
+        return retry(() -> attempt(productId, null, quantity, reservationOf(orderRef)));
+    }
+
+    private String reservationOf(String orderRef) {
+        return stockReservations != null ? orderRef : null;
+    }
+
+    private boolean retry(Supplier<Outcome> singleAttempt) {
+        long backoffNanos = properties.getInitialBackoff().toNanos();
+        long maxBackoffNanos = properties.getMaxBackoff().toNanos();
+        for (int attempt = 1; attempt <= properties.getMaxAttempts(); attempt++) {
+            attempts.increment();
+            Outcome outcome = singleAttempt.get();
+            if (outcome != Outcome.CONFLICT) {
+                return outcome == Outcome.UPDATED;
+            }
+            conflicts.increment();
+            if (attempt < properties.getMaxAttempts() && backoffNanos > 0) {
+                LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(backoffNanos + 1));
+                backoffNanos = Math.min(backoffNanos * 2, maxBackoffNanos);
+            }
+        }
+        exhausted.increment();
+        return false;
+    }
+
+    /**
+     * Performs one attempt at decrementing the stock of a product, identified by id when
+     * {@code productId} is not {@code null} and by name otherwise. With an order reference, the
+     * attempt calls {@link #openReservation} first and {@link #addToReservation} once it has taken
+     * the stock, in its transaction, and rolls the transaction back if it does not take stock.
+     *
+     * @param productId the id of the product to update, or {@code null}
+     * @param productName the name of the product to update, used when no id is given
+     * @param quantity the amount to reduce the product's stock quantity by
+     * @param orderRef the order the stock is taken for, or {@code null}
+     * @return the outcome of the attempt; {@link Outcome#CONFLICT} triggers a retry
+     */
+    protected abstract Outcome attempt(Long productId, String productName, int quantity, String orderRef);
+
+    /**
+     * Opens the reservation of an order, first thing in an attempt's transaction.
+     *
+     * @param orderRef the order reference, or {@code null}
+     * @return {@code false} if the reference has taken stock or been released before, and the
+     *         attempt must not take stock
+     */
+    protected boolean openReservation(String orderRef) {
+        if (orderRef == null) {
+            return true;
+        }
+        try {
+            stockReservations.open(orderRef);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Records the stock an attempt has taken for an order, in its transaction.
+     *
+     * @param orderRef the order reference, or {@code null}
+     * @param productId the id of the product
+     * @param quantity the quantity taken
+     */
+    protected void addToReservation(String orderRef, Long productId, int quantity) {
+        if (orderRef != null) {
+            stockReservations.add(orderRef, Map.of(productId, quantity));
+        }
+    }
+
+    /**
+     * Rolls back the transaction of an attempt that does not take stock, and with it the
+     * reservation it opened.
+     *
+     * @param status the status of the attempt's transaction
+     * @param outcome the outcome of the attempt
+     * @return the outcome
+     */
+    protected static Outcome withoutStock(TransactionStatus status, Outcome outcome) {
+        status.setRollbackOnly();
+        return outcome;
+    }
+}
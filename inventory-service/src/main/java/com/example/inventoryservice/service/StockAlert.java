@@ -0,0 +1,30 @@
+package com.example.inventoryservice.service;
+
+import java.time.Instant;
+
+/**
+ * A product's stock crossed its reorder threshold.
+ *
+ * @param sequence position of the alert among all alerts of this service, starting at 1
+ * @param productId the id of the product
+ * @param product the name of the product
+ * @param stockQuantity the stock that caused the alert
+ * @param reorderThreshold the threshold that was crossed
+ * @param type the direction of the crossing
+ * @param timestamp when the alert was raised
+ */
+public record StockAlert(long sequence, long productId, String product, int stockQuantity, int reorderThreshold,
+                         Type type, Instant timestamp) {
+
+    public enum Type {
+        /**
+         * Stock fell to or below the reorder threshold.
+         */
+        LOW_STOCK,
+
+        /**
+         * Stock rose above the reorder threshold again.
+         */
+        RESTOCKED
+    }
+}
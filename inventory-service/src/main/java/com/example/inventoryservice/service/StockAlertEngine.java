@@ -0,0 +1,186 @@
+package com.example.inventoryservice.service;
+
+import com.example.inventoryservice.config.StockAlertProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+/**
+ * Raises {@link StockAlert}s when the stock of a product crosses its reorder threshold.
+ * <p>
+ * Thresholds are evaluated incrementally: {@link InventoryService} calls {@link #evaluate} for
+ * the products whose stock it changed, and products without a threshold cost a map lookup.
+ * Alerts are edge-triggered, so a product raises one {@link StockAlert.Type#LOW_STOCK} alert when
+ * it falls to its threshold and one {@link StockAlert.Type#RESTOCKED} alert when it rises above
+ * it, however many changes happen in between. The stock is read while the product's watch is
+ * locked, so the last evaluation of a product always sees its latest stock.
+ * <p>
+ * The latest alerts are retained for polling and for subscribers that resume after a sequence
+ * number; subscribers are called on the thread that changed the stock.
+ */
+public class StockAlertEngine {
+    private static final Logger log = LoggerFactory.getLogger(StockAlertEngine.class);
+
+    private final int historySize;
+    private final Map<Long, Watch> watches = new ConcurrentHashMap<>();
+    private final Map<String, Long> watchedIds = new ConcurrentHashMap<>();
+    private final List<Consumer<StockAlert>> subscribers = new CopyOnWriteArrayList<>();
+    private final Deque<StockAlert> history = new ArrayDeque<>();
+    private final Counter lowStockAlerts;
+    private final Counter restockedAlerts;
+    private long nextSequence = 1;
+
+    public StockAlertEngine(StockAlertProperties properties, MeterRegistry meterRegistry) {
+        this.historySize = properties.getHistorySize();
+        this.lowStockAlerts = meterRegistry.counter("inventory.stock.alerts", "type", "low_stock");
+        this.restockedAlerts = meterRegistry.counter("inventory.stock.alerts", "type", "restocked");
+    }
+
+    /**
+     * Starts or stops watching a product. A product that is watched again keeps its alert state.
+     *
+     * @param productId the id of the product
+     * @param productName the name of the product
+     * @param reorderThreshold the reorder threshold, or {@code null} to stop watching
+     */
+    public void watch(long productId, String productName, Integer reorderThreshold) {
+        if (reorderThreshold == null) {
+            Watch removed = watches.remove(productId);
+            if (removed != null) {
+                watchedIds.remove(removed.productName);
+            }
+            return;
+        }
+        watches.compute(productId, (id, watch) -> {
+            if (watch == null) {
+                return new Watch(productName, reorderThreshold);
+            }
+            watch.reorderThreshold = reorderThreshold;
+            return watch;
+        });
+        watchedIds.put(productName, productId);
+    }
+
+    /**
+     * Returns whether any of the given products is watched.
+     *
+     * @param productIds the ids of the products
+     * @return {@code true} if at least one of them has a reorder threshold
+     */
+    public boolean isWatched(Collection<Long> productIds) {
+        for (Long productId : productIds) {
+            if (productId != null && watches.containsKey(productId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the id of a watched product.
+     *
+     * @param productName the name of the product
+     * @return the id, or {@code null} if the product is not watched
+     */
+    public Long getWatchedId(String productName) {
+        return productName != null ? watchedIds.get(productName) : null;
+    }
+
+    /**
+     * Re-evaluates the threshold of a product after its stock changed. Does nothing for
+     * products that are not watched.
+     *
+     * @param productId the id of the product
+     * @param stock reads the current stock of a product by id; returns {@code null} for a
+     *              product that no longer exists
+     */
+    public void evaluate(long productId, LongFunction<Integer> stock) {
+        Watch watch = watches.get(productId);
+        if (watch == null) {
+            return;
+        }
+        synchronized (watch) {
+            Integer quantity = stock.apply(productId);
+            if (quantity == null) {
+                return;
+            }
+            boolean low = quantity <= watch.reorderThreshold;
+            if (low != watch.low) {
+                watch.low = low;
+                publish(productId, watch, quantity, low ? StockAlert.Type.LOW_STOCK : StockAlert.Type.RESTOCKED);
+            }
+        }
+    }
+
+    /**
+     * Returns the retained alerts after the given sequence number, oldest first.
+     *
+     * @param afterSequence the sequence number of the last alert already seen, or 0
+     * @return the newer alerts
+     */
+    public synchronized List<StockAlert> getAlerts(long afterSequence) {
+        List<StockAlert> alerts = new ArrayList<>();
+        for (StockAlert alert : history) {
+            if (alert.sequence() > afterSequence) {
+                alerts.add(alert);
+            }
+        }
+        return alerts;
+    }
+
+    /**
+     * Passes the retained alerts after the given sequence number to the subscriber, and then
+     * every new alert until the returned handle is run. No alert is missed or passed twice.
+     *
+     * @param afterSequence the sequence number of the last alert already seen, or 0
+     * @param subscriber receives the alerts; must not block
+     * @return a handle that unsubscribes
+     */
+    public synchronized Runnable subscribe(long afterSequence, Consumer<StockAlert> subscriber) {
+        getAlerts(afterSequence).forEach(subscriber);
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    private synchronized void publish(long productId, Watch watch, int quantity, StockAlert.Type type) {
+        StockAlert alert = new StockAlert(nextSequence++, productId, watch.productName, quantity,
+                watch.reorderThreshold, type, Instant.now());
+        history.addLast(alert);
+        if (history.size() > historySize) {
+            history.removeFirst();
+        }
+        (type == StockAlert.Type.LOW_STOCK ? lowStockAlerts : restockedAlerts).increment();
+        for (Consumer<StockAlert> subscriber : subscribers) {
+            try {
+                subscriber.accept(alert);
+            } catch (RuntimeException e) {
+                log.warn("Dropping stock alert subscriber that failed: {}", e.getMessage());
+                subscribers.remove(subscriber);
+            }
+        }
+    }
+
+    private static final class Watch {
+        private final String productName;
+        private volatile int reorderThreshold;
+        private boolean low;
+
+        private Watch(String productName, int reorderThreshold) {
+            this.productName = productName;
+            this.reorderThreshold = reorderThreshold;
+        }
+    }
+}
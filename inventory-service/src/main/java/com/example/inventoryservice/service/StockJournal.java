@@ -0,0 +1,472 @@
+package com.example.inventoryservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Append-only journal of stock movements, with an in-memory projection of the current stock of
+ * every product.
+ * <p>
+ * Stock is the fold of a product's movements ({@code stock_journal}) on top of its latest
+ * snapshot ({@code stock_snapshots}). Decrements are applied to the projection with a
+ * compare-and-set, so stock checks and the oversell guard never touch the database, and are then
+ * appended to the journal. A single writer thread assigns sequence numbers and commits all
+ * pending appends in one batched insert (group commit), so concurrent orders for the same product
+ * never contend on a row. Because only the writer commits, every sequence number below the next
+ * one is durable, and the writer can take exact snapshots between batches.
+ * <p>
+ * On {@link #start()} the projection is rebuilt from the latest snapshots plus the movements
+ * recorded after them. The journal assumes it is the only writer of stock, i.e. a single
+ * inventory-service instance.
+ */
+public class StockJournal {
+    private static final Logger log = LoggerFactory.getLogger(StockJournal.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionOperations transactionOperations;
+    private final int maxBatchSize;
+    private final long snapshotEvery;
+    private final Map<Long, AtomicInteger> stock = new ConcurrentHashMap<>();
+    private final Map<String, Long> productIds = new ConcurrentHashMap<>();
+    private final BlockingQueue<Append> pending = new LinkedBlockingQueue<>();
+    private Thread writer;
+    private volatile boolean running;
+
+    // Owned by the writer thread once started.
+    private long nextSeq;
+    private long snapshotSeq;
+
+    public StockJournal(JdbcTemplate jdbcTemplate, TransactionOperations transactionOperations,
+                        int maxBatchSize, long snapshotEvery) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionOperations = transactionOperations;
+        this.maxBatchSize = maxBatchSize;
+        this.snapshotEvery = snapshotEvery;
+    }
+
+    /**
+     * Rebuilds the projection from the latest snapshots and the journal, and starts the writer.
+     * Products without a snapshot yet are given an opening snapshot of their current
+     * {@code stock_quantity}.
+     */
+    public void start() {
+        long startNanos = System.nanoTime();
+        long lastSeq = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(seq), 0) FROM stock_journal", Long.class);
+        jdbcTemplate.update("INSERT INTO stock_snapshots (product_id, seq, stock_quantity) "
+                + "SELECT p.id, ?, p.stock_quantity FROM products p "
+                + "WHERE NOT EXISTS (SELECT 1 FROM stock_snapshots s WHERE s.product_id = p.id)", lastSeq);
+        jdbcTemplate.query("SELECT p.id, p.name, s.stock_quantity FROM stock_snapshots s "
+                + "JOIN products p ON p.id = s.product_id", row -> {
+            stock.put(row.getLong(1), new AtomicInteger(row.getInt(3)));
+            productIds.put(row.getString(2), row.getLong(1));
+        });
+        int[] replayed = new int[1];
+        jdbcTemplate.query("SELECT j.product_id, SUM(j.delta), COUNT(*) FROM stock_journal j "
+                + "JOIN stock_snapshots s ON s.product_id = j.product_id AND j.seq > s.seq "
+                + "GROUP BY j.product_id", row -> {
+            AtomicInteger quantity = stock.get(row.getLong(1));
+            if (quantity != null) {
+                quantity.addAndGet(row.getInt(2));
+            }
+            replayed[0] += row.getInt(3);
+        });
+        nextSeq = lastSeq + 1;
+        snapshotSeq = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(seq), 0) FROM stock_snapshots", Long.class);
+
+        running = true;
+        writer = new Thread(this::runWriter, "stock-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Stock journal replayed {} movements for {} products in {} ms",
+                replayed[0], stock.size(), (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    /**
+     * Stops the writer after the pending appends and takes a final snapshot, so that the next
+     * start replays nothing. Appends after that fail.
+     */
+    public void stop() {
+        running = false;
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the projected stock of a product.
+     *
+     * @param productId the id of the product
+     * @return the current stock, or {@code null} if the product does not exist
+     */
+    public Integer getStock(long productId) {
+        AtomicInteger quantity = projection(productId);
+        return quantity == null ? null : quantity.get();
+    }
+
+    /**
+     * Returns the id of the product with the given name.
+     *
+     * @param productName the name of the product
+     * @return the id, or {@code null} if the product does not exist
+     */
+    public Long getProductId(String productName) {
+        Long productId = productIds.get(productName);
+        if (productId == null) {
+            List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM products WHERE name = ?", Long.class, productName);
+            if (!ids.isEmpty()) {
+                productId = ids.get(0);
+                productIds.put(productName, productId);
+            }
+        }
+        return productId;
+    }
+
+    /**
+     * Removes the given quantity from the stock of a product and journals the movement.
+     *
+     * @param productId the id of the product
+     * @param quantity the quantity to remove
+     * @param orderRef the order the movement belongs to, or {@code null}
+     * @return {@code true} if there was enough stock, {@code false} if the product does not exist
+     *         or there is not enough stock
+     * @throws IllegalStateException if the movement could not be journaled; the projection is
+     *         left unchanged
+     */
+    public boolean decrement(long productId, int quantity, String orderRef) {
+        AtomicInteger available = projection(productId);
+        if (available == null || !tryTake(available, quantity)) {
+            return false;
+        }
+        try {
+            append(List.of(new Movement(productId, -quantity, orderRef)));
+        } catch (RuntimeException e) {
+            available.addAndGet(quantity);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Removes stock from several products at once, all or nothing, and journals the movements
+     * in one append.
+     *
+     * @param quantities the quantity to remove per product id
+     * @param orderRef the order the movements belong to, or {@code null}
+     * @return the ids of the products that do not exist or lack stock, in id order; empty if
+     *         the stock was removed
+     * @throws IllegalStateException if the movements could not be journaled; the projection is
+     *         left unchanged
+     */
+    public List<Long> reserve(Map<Long, Integer> quantities, String orderRef) {
+        SortedMap<Long, Integer> requested = new TreeMap<>(quantities);
+        List<Long> unavailable = new ArrayList<>();
+        requested.forEach((productId, quantity) -> {
+            AtomicInteger available = projection(productId);
+            if (available == null || available.get() < quantity) {
+                unavailable.add(productId);
+            }
+        });
+        if (!unavailable.isEmpty()) {
+            return unavailable;
+        }
+
+        List<Movement> movements = new ArrayList<>(requested.size());
+        for (Map.Entry<Long, Integer> entry : requested.entrySet()) {
+            if (!tryTake(stock.get(entry.getKey()), entry.getValue())) {
+                restore(movements);
+                return List.of(entry.getKey());
+            }
+            movements.add(new Movement(entry.getKey(), -entry.getValue(), orderRef));
+        }
+        try {
+            append(movements);
+        } catch (RuntimeException e) {
+            restore(movements);
+            throw e;
+        }
+        return unavailable;
+    }
+
+    /**
+     * Adds stock to several products at once, all or nothing, and journals the movements in one
+     * append. The stock becomes available once the movements are durable.
+     *
+     * @param quantities the quantity to add per product id
+     * @param ref the delivery or request the movements belong to, or {@code null}
+     * @return the ids of the products that do not exist, in id order; empty if the stock was added
+     * @throws IllegalStateException if the movements could not be journaled; the projection is
+     *         left unchanged
+     */
+    public List<Long> restock(Map<Long, Integer> quantities, String ref) {
+        SortedMap<Long, Integer> requested = new TreeMap<>(quantities);
+        List<Long> unknown = new ArrayList<>();
+        requested.keySet().forEach(productId -> {
+            if (projection(productId) == null) {
+                unknown.add(productId);
+            }
+        });
+        if (!unknown.isEmpty()) {
+            return unknown;
+        }
+        List<Movement> movements = new ArrayList<>(requested.size());
+        requested.forEach((productId, quantity) -> movements.add(new Movement(productId, quantity, ref)));
+        append(movements);
+        movements.forEach(movement -> stock.get(movement.productId()).addAndGet(movement.delta()));
+        return unknown;
+    }
+
+    /**
+     * Sets the stock of some products and adjusts the stock of others, e.g. for a bulk import,
+     * and journals the resulting movements in one append. Unlike {@link #reserve} this is not
+     * all or nothing: products that cannot be changed are skipped and reported.
+     * <p>
+     * Decreases take effect at once, so that the stock is never oversold; increases take effect
+     * once the movements are durable, like {@link #restock}.
+     *
+     * @param quantities the new stock per product id
+     * @param deltas the change of stock per product id, which may be negative
+     * @param ref the request the movements belong to, or {@code null}
+     * @return the ids of the products that do not exist or would get negative stock
+     * @throws IllegalStateException if the movements could not be journaled; the projection is
+     *         left unchanged
+     */
+    public List<Long> adjust(Map<Long, Integer> quantities, Map<Long, Integer> deltas, String ref) {
+        List<Long> refused = new ArrayList<>();
+        List<Movement> taken = new ArrayList<>();
+        List<Movement> added = new ArrayList<>();
+        new TreeMap<>(quantities).forEach((productId, quantity) -> {
+            AtomicInteger available = projection(productId);
+            if (available == null) {
+                refused.add(productId);
+                return;
+            }
+            while (true) {
+                int current = available.get();
+                if (quantity > current) {
+                    added.add(new Movement(productId, quantity - current, ref));
+                    break;
+                }
+                if (available.compareAndSet(current, quantity)) {
+                    if (quantity < current) {
+                        taken.add(new Movement(productId, quantity - current, ref));
+                    }
+                    break;
+                }
+            }
+        });
+        new TreeMap<>(deltas).forEach((productId, delta) -> {
+            AtomicInteger available = projection(productId);
+            if (available == null || (delta < 0 && !tryTake(available, -delta))) {
+                refused.add(productId);
+            } else if (delta < 0) {
+                taken.add(new Movement(productId, delta, ref));
+            } else if (delta > 0) {
+                added.add(new Movement(productId, delta, ref));
+            }
+        });
+        if (taken.isEmpty() && added.isEmpty()) {
+            return refused;
+        }
+        List<Movement> movements = new ArrayList<>(taken);
+        movements.addAll(added);
+        try {
+            append(movements);
+        } catch (RuntimeException e) {
+            restore(taken);
+            throw e;
+        }
+        added.forEach(movement -> stock.get(movement.productId()).addAndGet(movement.delta()));
+        return refused;
+    }
+
+    /**
+     * Streams the stock removed per product by orders in a time window, i.e. the journaled
+     * decrements that carry an order reference, in product id order. Rows are fetched from a
+     * cursor in chunks; call it in a transaction for the cursor to be used.
+     *
+     * @param from the start of the window, inclusive
+     * @param to the end of the window, exclusive
+     * @param fromProductId the lowest product id, inclusive
+     * @param toProductId the highest product id, exclusive
+     * @param fetchSize the number of rows fetched at a time
+     * @param consumer called with each product id and the quantity removed
+     */
+    public void sumOrderDecrements(Instant from, Instant to, long fromProductId, long toProductId, int fetchSize,
+                                   BiConsumer<Long, Long> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "SELECT product_id, -SUM(delta) FROM stock_journal "
+                            + "WHERE order_ref IS NOT NULL AND delta < 0 AND recorded_at >= ? AND recorded_at < ? "
+                            + "AND product_id >= ? AND product_id < ? "
+                            + "GROUP BY product_id ORDER BY product_id");
+            statement.setFetchSize(fetchSize);
+            statement.setTimestamp(1, Timestamp.from(from));
+            statement.setTimestamp(2, Timestamp.from(to));
+            statement.setLong(3, fromProductId);
+            statement.setLong(4, toProductId);
+            return statement;
+        }, (RowCallbackHandler) row -> consumer.accept(row.getLong(1), row.getLong(2)));
+    }
+
+    private AtomicInteger projection(long productId) {
+        AtomicInteger quantity = stock.get(productId);
+        if (quantity != null) {
+            return quantity;
+        }
+        // A product created after start: open its snapshot at its current stock.
+        return stock.computeIfAbsent(productId, id -> {
+            List<Integer> found = jdbcTemplate.queryForList(
+                    "SELECT stock_quantity FROM products WHERE id = ?", Integer.class, id);
+            if (found.isEmpty()) {
+                return null;
+            }
+            jdbcTemplate.update("INSERT INTO stock_snapshots (product_id, seq, stock_quantity) "
+                    + "SELECT id, (SELECT COALESCE(MAX(seq), 0) FROM stock_journal), stock_quantity FROM products p "
+                    + "WHERE id = ? AND NOT EXISTS (SELECT 1 FROM stock_snapshots s WHERE s.product_id = p.id)", id);
+            return new AtomicInteger(found.get(0));
+        });
+    }
+
+    private static boolean tryTake(AtomicInteger available, int quantity) {
+        for (int current = available.get(); current >= quantity; current = available.get()) {
+            if (available.compareAndSet(current, current - quantity)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void restore(List<Movement> movements) {
+        movements.forEach(movement -> stock.get(movement.productId()).addAndGet(-movement.delta()));
+    }
+
+    private void append(List<Movement> movements) {
+        if (!running) {
+            throw new IllegalStateException("Stock journal is not running");
+        }
+        Append append = new Append(movements, new CompletableFuture<>());
+        pending.add(append);
+        if (!running && pending.remove(append)) {
+            // Stopped while adding, possibly after the writer's final drain.
+            throw new IllegalStateException("Stock journal is not running");
+        }
+        try {
+            append.committed().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while journaling stock movement", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to journal stock movement", e.getCause());
+        }
+    }
+
+    private void runWriter() {
+        List<Append> batch = new ArrayList<>();
+        while (true) {
+            Append first;
+            try {
+                first = pending.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (first == null) {
+                if (!running) {
+                    break;
+                }
+                continue;
+            }
+            batch.add(first);
+            pending.drainTo(batch, maxBatchSize - 1);
+            commit(batch);
+            batch.clear();
+            if (nextSeq - 1 - snapshotSeq >= snapshotEvery) {
+                snapshot();
+            }
+        }
+        snapshot();
+        IllegalStateException stopped = new IllegalStateException("Stock journal is not running");
+        for (Append append = pending.poll(); append != null; append = pending.poll()) {
+            append.committed().completeExceptionally(stopped);
+        }
+    }
+
+    private void commit(List<Append> batch) {
+        List<Object[]> rows = new ArrayList<>();
+        long firstSeq = nextSeq;
+        for (Append append : batch) {
+            for (Movement movement : append.movements()) {
+                rows.add(new Object[]{nextSeq++, movement.productId(), movement.delta(), movement.orderRef()});
+            }
+        }
+        try {
+            transactionOperations.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                    "INSERT INTO stock_journal (seq, product_id, delta, order_ref) VALUES (?, ?, ?, ?)", rows));
+        } catch (RuntimeException e) {
+            nextSeq = firstSeq;
+            batch.forEach(append -> append.committed().completeExceptionally(e));
+            return;
+        }
+        batch.forEach(append -> append.committed().complete(null));
+    }
+
+    /**
+     * Folds the movements recorded since each product's snapshot into a new snapshot, and
+     * writes the result back to {@code products.stock_quantity} so that plain reads of the
+     * products table stay close to the journal. Runs on the writer thread only.
+     */
+    private void snapshot() {
+        long seq = nextSeq - 1;
+        if (seq <= snapshotSeq) {
+            return;
+        }
+        try {
+            transactionOperations.executeWithoutResult(status -> {
+                jdbcTemplate.update("UPDATE stock_snapshots SET stock_quantity = stock_quantity + "
+                        + "(SELECT COALESCE(SUM(j.delta), 0) FROM stock_journal j "
+                        + "WHERE j.product_id = stock_snapshots.product_id AND j.seq > stock_snapshots.seq), "
+                        + "seq = ?, taken_at = CURRENT_TIMESTAMP "
+                        + "WHERE EXISTS (SELECT 1 FROM stock_journal j "
+                        + "WHERE j.product_id = stock_snapshots.product_id AND j.seq > stock_snapshots.seq)", seq);
+                jdbcTemplate.update("UPDATE products SET stock_quantity = "
+                        + "(SELECT s.stock_quantity FROM stock_snapshots s WHERE s.product_id = products.id), "
+                        + "version = version + 1 "
+                        + "WHERE id IN (SELECT product_id FROM stock_snapshots WHERE seq = ?)", seq);
+            });
+            snapshotSeq = seq;
+        } catch (RuntimeException e) {
+            log.warn("Could not snapshot the stock journal at seq {}: {}", seq, e.getMessage());
+        }
+    }
+
+    private record Movement(long productId, int delta, String orderRef) {
+    }
+
+    private record Append(List<Movement> movements, CompletableFuture<Void> committed) {
+    }
+}
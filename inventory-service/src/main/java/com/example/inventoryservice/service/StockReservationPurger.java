@@ -0,0 +1,96 @@
+package com.example.inventoryservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Purges the {@link StockReservations} older than the retention period in the background, so
+ * that the reservation tables, which gain rows with every order, do not grow without bound.
+ * Reservations are deleted in batches, one transaction per batch.
+ */
+public class StockReservationPurger {
+    private static final Logger log = LoggerFactory.getLogger(StockReservationPurger.class);
+
+    private final StockReservations stockReservations;
+    private final TransactionOperations transactionOperations;
+    private final Duration retention;
+    private final Duration interval;
+    private final int batchSize;
+    private final Counter purgedCounter;
+    private ScheduledExecutorService scheduler;
+
+    public StockReservationPurger(StockReservations stockReservations, TransactionOperations transactionOperations,
+                                  Duration retention, Duration interval, int batchSize, MeterRegistry meterRegistry) {
+        this.stockReservations = stockReservations;
+        this.transactionOperations = transactionOperations;
+        this.retention = retention;
+        this.interval = interval;
+        this.batchSize = batchSize;
+        this.purgedCounter = Counter.builder("inventory.reservations.purged")
+                .description("Stock reservations deleted after the retention period")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts purging at the configured interval.
+     */
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-reservation-purge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::run, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops purging; a batch that is being deleted is rolled back.
+     */
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the purge once. Failures are logged and retried on the next run.
+     */
+    public void run() {
+        try {
+            int purged = purge(Instant.now());
+            if (purged > 0) {
+                log.info("Purged {} stock reservations older than {}", purged, retention);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Stock reservation purge failed, retrying on the next run: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Purges the reservations taken or released more than the retention period before a time.
+     *
+     * @param now the current time
+     * @return the number of reservations purged
+     */
+    public int purge(Instant now) {
+        Instant before = now.minus(retention);
+        int total = 0;
+        int purged;
+        do {
+            purged = transactionOperations.execute(status -> stockReservations.purge(before, batchSize));
+            total += purged;
+            purgedCounter.increment(purged);
+        } while (purged == batchSize && !Thread.currentThread().isInterrupted());
+        return total;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.inventoryservice.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Records the stock taken under an order reference ({@code stock_reservations} and
+ * {@code stock_reservation_items}), so that it can be put back exactly once if the order is
+ * not completed, e.g. because the order service could not store it or gave up waiting for the
+ * inventory.
+ * <p>
+ * A reference takes stock once: its reservation row is inserted in the transaction that takes
+ * the stock, and a second insert fails on the primary key. Releasing a reference that has not
+ * taken stock inserts the row as already released, so that a decrement that is still on its way,
+ * e.g. from a call the order service timed out, is refused when it arrives. Both sides lock the
+ * reservation row before any product row, so a release and a decrement of the same reference
+ * cannot deadlock.
+ * <p>
+ * Reservations are kept until they are older than the retention period, and then purged by
+ * {@link #purge(Instant, int)}.
+ */
+public class StockReservations {
+    private final JdbcTemplate jdbcTemplate;
+
+    public StockReservations(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Opens the reservation of an order. Must run in the transaction that takes the stock, before
+     * any product row is locked; roll the transaction back if no stock is taken after all.
+     *
+     * @param orderRef the order reference
+     * @throws org.springframework.dao.DuplicateKeyException if the reference has taken stock or
+     *         been released before
+     */
+    public void open(String orderRef) {
+        jdbcTemplate.update("INSERT INTO stock_reservations (order_ref, reserved_at) VALUES (?, CURRENT_TIMESTAMP)",
+                orderRef);
+    }
+
+    /**
+     * Takes back a reservation opened in the current transaction that did not take stock after
+     * all, so that the order can try again.
+     *
+     * @param orderRef the order reference
+     */
+    public void cancel(String orderRef) {
+        jdbcTemplate.update("DELETE FROM stock_reservations WHERE order_ref = ? AND released_at IS NULL", orderRef);
+    }
+
+    /**
+     * Records stock taken under an opened reservation, in the transaction that takes it.
+     *
+     * @param orderRef the order reference
+     * @param quantities the quantity taken per product id
+     */
+    public void add(String orderRef, Map<Long, Integer> quantities) {
+        jdbcTemplate.batchUpdate("INSERT INTO stock_reservation_items (order_ref, product_id, quantity) VALUES (?, ?, ?)",
+                quantities.entrySet().stream()
+                        .map(entry -> new Object[]{orderRef, entry.getKey(), entry.getValue()})
+                        .toList());
+    }
+
+    /**
+     * Closes the reservation of an order and returns the stock to put back, which must be put
+     * back in the same transaction. A reference that has not taken stock is closed as well.
+     *
+     * @param orderRef the order reference
+     * @return the quantity to put back per product id; empty if the reference has not taken stock
+     *         or has been released before
+     * @throws org.springframework.dao.DuplicateKeyException if the reference takes stock at the
+     *         same time; release it again
+     */
+    public Map<Long, Integer> release(String orderRef) {
+        List<Boolean> released = jdbcTemplate.queryForList(
+                "SELECT released_at IS NOT NULL FROM stock_reservations WHERE order_ref = ? FOR UPDATE",
+                Boolean.class, orderRef);
+        if (released.isEmpty()) {
+            jdbcTemplate.update("INSERT INTO stock_reservations (order_ref, released_at) VALUES (?, CURRENT_TIMESTAMP)",
+                    orderRef);
+            return Map.of();
+        }
+        if (released.get(0)) {
+            return Map.of();
+        }
+        jdbcTemplate.update("UPDATE stock_reservations SET released_at = CURRENT_TIMESTAMP WHERE order_ref = ?", orderRef);
+        Map<Long, Integer> quantities = new HashMap<>();
+        jdbcTemplate.query("SELECT product_id, quantity FROM stock_reservation_items WHERE order_ref = ?",
+                row -> {
+                    quantities.put(row.getLong(1), row.getInt(2));
+                }, orderRef);
+        return quantities;
+    }
+
+    /**
+     * Streams the stock taken per product by the orders reserved in a time window and not
+     * released, in product id order. Rows are fetched from a cursor in chunks, so memory does not
+     * grow with the number of products; call it in a transaction for the cursor to be used.
+     *
+     * @param from the start of the window, inclusive
+     * @param to the end of the window, exclusive
+     * @param fromProductId the lowest product id, inclusive
+     * @param toProductId the highest product id, exclusive
+     * @param fetchSize the number of rows fetched at a time
+     * @param consumer called with each product id and the quantity taken
+     */
+    public void sumTaken(Instant from, Instant to, long fromProductId, long toProductId, int fetchSize,
+                         BiConsumer<Long, Long> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "SELECT i.product_id, SUM(i.quantity) FROM stock_reservation_items i "
+                            + "JOIN stock_reservations r ON r.order_ref = i.order_ref "
+                            + "WHERE r.released_at IS NULL AND r.reserved_at >= ? AND r.reserved_at < ? "
+                            + "AND i.product_id >= ? AND i.product_id < ? "
+                            + "GROUP BY i.product_id ORDER BY i.product_id");
+            statement.setFetchSize(fetchSize);
+            statement.setTimestamp(1, Timestamp.from(from));
+            statement.setTimestamp(2, Timestamp.from(to));
+            statement.setLong(3, fromProductId);
+            statement.setLong(4, toProductId);
+            return statement;
+        }, (RowCallbackHandler) row -> consumer.accept(row.getLong(1), row.getLong(2)));
+    }
+
+    /**
+     * Deletes a batch of the reservations taken or released before a time, with their items and
+     * warehouse allocations. A purged reference could take stock again, and a purged open
+     * reservation can no longer be released, so the retention must exceed the time an order may
+     * take to be stored or released and the window the order service reconciles.
+     *
+     * @param before the time before which reservations are purged
+     * @param limit the maximum number of reservations purged
+     * @return the number of reservations purged
+     */
+    public int purge(Instant before, int limit) {
+        List<String> orderRefs = jdbcTemplate.queryForList(
+                "SELECT order_ref FROM stock_reservations WHERE reserved_at < ? "
+                        + "OR (reserved_at IS NULL AND released_at < ?) LIMIT ? FOR UPDATE",
+                String.class, Timestamp.from(before), Timestamp.from(before), limit);
+        if (orderRefs.isEmpty()) {
+            return 0;
+        }
+        List<Object[]> batch = orderRefs.stream().map(orderRef -> new Object[]{orderRef}).toList();
+        jdbcTemplate.batchUpdate("DELETE FROM stock_reservation_items WHERE order_ref = ?", batch);
+        jdbcTemplate.batchUpdate("DELETE FROM location_reservations WHERE order_ref = ?", batch);
+        jdbcTemplate.batchUpdate("DELETE FROM stock_reservations WHERE order_ref = ?", batch);
+        return orderRefs.size();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.inventoryservice.service;
+
+/**
+ * Strategy used by {@link InventoryService} to atomically decrement the stock of a product
+ * when several requests race for the same row.
+ */
+public interface StockUpdateStrategy {
+
+    /**
+     * Reduces the stock quantity of the given product by the given amount.
+     *
+     * @param productName the name of the product to update
+     * @param quantity the amount to reduce the product's stock quantity by
+     * @return {@code true} if the stock was reduced, {@code false} if the product does not exist,
+     *         there is not enough stock, or the update kept conflicting with concurrent writers
+     */
+    default boolean decrement(String productName, int quantity) {
+        return decrement(productName, quantity, null);
+    }
+
+    /**
+     * Reduces the stock quantity of the product with the given id by the given amount.
+     *
+     * @param productId the id of the product to update
+     * @param quantity the amount to reduce the product's stock quantity by
+     * @return {@code true} if the stock was reduced, {@code false} if the product does not exist,
+     *         there is not enough stock, or the update kept conflicting with concurrent writers
+     */
+    default boolean decrementById(long productId, int quantity) {
+        return decrementById(productId, quantity, null);
+    }
+
+    /**
+     * Reduces the stock quantity of the given product by the given amount for an order, recording
+     * the decrement under the order's reference together with it.
+     *
+     * @param productName the name of the product to update
+     * @param quantity the amount to reduce the product's stock quantity by
+     * @param orderRef the order the stock is taken for, or {@code null}
+     * @return {@code true} if the stock was reduced, {@code false} if the product does not exist,
+     *         there is not enough stock, the update kept conflicting with concurrent writers, or
+     *         the order reference has taken stock or been released before
+     */
+    boolean decrement(String productName, int quantity, String orderRef);
+
+    /**
+     * Reduces the stock quantity of the product with the given id by the given amount for an
+     * order, recording the decrement under the order's reference together with it.
+     *
+     * @param productId the id of the product to update
+     * @param quantity the amount to reduce the product's stock quantity by
+     * @param orderRef the order the stock is taken for, or {@code null}
+     * @return {@code true} if the stock was reduced, {@code false} if the product does not exist,
+     *         there is not enough stock, the update kept conflicting with concurrent writers, or
+     *         the order reference has taken stock or been released before
+     */
+    boolean decrementById(long productId, int quantity, String orderRef);
+}
\ No newline at end of file
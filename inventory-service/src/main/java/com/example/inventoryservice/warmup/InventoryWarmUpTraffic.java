@@ -0,0 +1,70 @@
+package com.example.inventoryservice.warmup;
+
+import com.example.inventoryservice.entity.Product;
+import com.example.inventoryservice.grpc.InventoryGrpcService;
+import com.example.inventoryservice.grpc.StockRequest;
+import com.example.inventoryservice.grpc.StockResponse;
+import com.example.inventoryservice.repository.ProductRepository;
+import io.grpc.stub.StreamObserver;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+
+/**
+ * Synthetic stock checks for the {@link WarmUp}, made in-process against the gRPC service, which
+ * only read stock. Stock updates are not warmed up, since they cannot be made without changing
+ * stock, versions and alerts.
+ */
+public class InventoryWarmUpTraffic {
+    private static final StreamObserver<StockResponse> DISCARD = new StreamObserver<>() {
+        @Override
+        public void onNext(StockResponse response) {
+        }
+
+        @Override
+        public void onError(Throwable t) {
+        }
+
+        @Override
+        public void onCompleted() {
+        }
+    };
+
+    private final InventoryGrpcService inventoryGrpcService;
+    private final ProductRepository productRepository;
+    private final String product;
+    private long productId;
+
+    /**
+     * Creates the traffic.
+     *
+     * @param inventoryGrpcService the gRPC service the checks are made against
+     * @param productRepository the repository a product to check by id is taken from
+     * @param product the product the checks by name ask for
+     */
+    public InventoryWarmUpTraffic(InventoryGrpcService inventoryGrpcService, ProductRepository productRepository,
+                                  String product) {
+        this.inventoryGrpcService = inventoryGrpcService;
+        this.productRepository = productRepository;
+        this.product = product;
+    }
+
+    /**
+     * Checks the stock of the warm-up product by name.
+     */
+    public void checkStockByName() {
+        inventoryGrpcService.checkStock(StockRequest.newBuilder().setProduct(product).setQuantity(1).build(), DISCARD);
+    }
+
+    /**
+     * Checks the stock of a stored product by id, so that the responses describing a product are
+     * built too.
+     */
+    public void checkStockById() {
+        if (productId == 0) {
+            List<Product> products = productRepository.findAll(PageRequest.of(0, 1)).getContent();
+            productId = products.isEmpty() ? 1 : products.get(0).getId();
+        }
+        inventoryGrpcService.checkStock(StockRequest.newBuilder().setProductId(productId).setQuantity(1).build(), DISCARD);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.inventoryservice.warmup;
+
+import com.example.inventoryservice.config.WarmUpProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Warms the service up before it takes traffic: opens connections in every connection pool,
+ * then drives each kind of synthetic call a number of times, so that the JIT has compiled the
+ * hot paths and Hibernate has built its query plans.
+ * <p>
+ * It runs as an {@link ApplicationRunner}, which Spring Boot completes before it marks the
+ * application as accepting traffic, and reports itself {@code OUT_OF_SERVICE} as a health
+ * indicator until it is done, so that it can be part of the readiness group. Warm-up is best
+ * effort: a kind of call that fails is given up, and the service becomes ready once the
+ * timeout has elapsed, whatever remains.
+ */
+public class WarmUp implements ApplicationRunner, HealthIndicator {
+    private static final Logger log = LoggerFactory.getLogger(WarmUp.class);
+
+    private final WarmUpProperties properties;
+    private final List<HikariDataSource> pools;
+    private final Map<String, Runnable> calls;
+    private volatile Health health = Health.outOfService().build();
+
+    /**
+     * Creates the warm-up.
+     *
+     * @param properties the warm-up settings
+     * @param pools the connection pools to open connections in
+     * @param calls the synthetic calls by name, in the order they are driven; they must not
+     *              have lasting side effects
+     */
+    public WarmUp(WarmUpProperties properties, List<HikariDataSource> pools, Map<String, Runnable> calls) {
+        this.properties = properties;
+        this.pools = pools;
+        this.calls = calls;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        warmUp();
+    }
+
+    /**
+     * Warms the service up, unless disabled, and reports it ready afterwards.
+     */
+    public void warmUp() {
+        if (!properties.isEnabled()) {
+            health = Health.up().withDetail("enabled", false).build();
+            return;
+        }
+        long begin = System.nanoTime();
+        long deadline = begin + properties.getTimeout().toNanos();
+        Map<String, Object> details = new LinkedHashMap<>();
+        for (HikariDataSource pool : pools) {
+            details.put(pool.getPoolName(), openConnections(pool));
+        }
+        calls.forEach((name, call) -> details.put(name, drive(name, call, deadline)));
+        long millis = (System.nanoTime() - begin) / 1_000_000;
+        details.put("durationMs", millis);
+        health = Health.up().withDetails(details).build();
+        log.info("Warm-up finished in {} ms: {}", millis, details);
+    }
+
+    /**
+     * Reports the service out of service while it warms up, and up afterwards, with the
+     * connections opened and calls made.
+     *
+     * @return the warm-up health
+     */
+    @Override
+    public Health health() {
+        return health;
+    }
+
+    private String openConnections(HikariDataSource pool) {
+        int wanted = Math.min(properties.getConnections(), pool.getMaximumPoolSize());
+        // Connections are held until all are open, so that the pool cannot hand out one twice.
+        List<Connection> opened = new ArrayList<>(wanted);
+        try {
+            while (opened.size() < wanted) {
+                opened.add(pool.getConnection());
+            }
+        } catch (SQLException e) {
+            log.warn("Warm-up could not open connections in {}: {}", pool.getPoolName(), e.getMessage());
+        } finally {
+            for (Connection connection : opened) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    log.warn("Could not return a warm-up connection to {}: {}", pool.getPoolName(), e.getMessage());
+                }
+            }
+        }
+        return opened.size() + " connections";
+    }
+
+    private String drive(String name, Runnable call, long deadline) {
+        int made = 0;
+        while (made < properties.getIterations() && System.nanoTime() - deadline < 0) {
+            try {
+                call.run();
+            } catch (RuntimeException e) {
+                log.warn("Warm-up gave up on {} after {} calls: {}", name, made, e.getMessage());
+                return made + " calls, failed: " + e.getMessage();
+            }
+            made++;
+        }
+        return made + " calls";
+    }
+}
@@ -0,0 +1,24 @@
+-- One-off migration for databases that hold several products under the same name, from before
+-- names were unique. Run it once, with the inventory service stopped:
+--
+--   psql --single-transaction -d inventorydb -f merge-duplicate-products.sql
+--
+-- The product with the lowest id of each name is kept, with its own stock. The others were
+-- created by startups that inserted the seed products again, so their stock is not added to it.
+-- Their ids and the id they were merged into are recorded in product_id_merges, so that orders
+-- referring to them can be repointed in the order database. Their journal, snapshots and
+-- warehouse stock are deleted, then the unique index on names is created.
+CREATE TABLE IF NOT EXISTS product_id_merges (
+                                       removed_id BIGINT PRIMARY KEY,
+                                       kept_id BIGINT NOT NULL
+);
+INSERT INTO product_id_merges (removed_id, kept_id)
+SELECT d.id, (SELECT MIN(k.id) FROM products k WHERE k.name = d.name)
+FROM products d
+WHERE EXISTS (SELECT 1 FROM products k WHERE k.name = d.name AND k.id < d.id);
+DELETE FROM stock_journal WHERE product_id IN (SELECT removed_id FROM product_id_merges);
+DELETE FROM stock_snapshots WHERE product_id IN (SELECT removed_id FROM product_id_merges);
+DELETE FROM location_reservations WHERE product_id IN (SELECT removed_id FROM product_id_merges);
+DELETE FROM location_stock WHERE product_id IN (SELECT removed_id FROM product_id_merges);
+DELETE FROM products WHERE id IN (SELECT removed_id FROM product_id_merges);
+CREATE UNIQUE INDEX IF NOT EXISTS products_name_uidx ON products (name);
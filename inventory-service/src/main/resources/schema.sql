@@ -1,7 +1,52 @@
 CREATE TABLE IF NOT EXISTS products (
                                        id SERIAL PRIMARY KEY,
                                        name VARCHAR(255) NOT NULL,
-                                       stock_quantity INTEGER NOT NULL
+                                       stock_quantity INTEGER NOT NULL,
+                                       version BIGINT NOT NULL DEFAULT 0
 );
-INSERT INTO products (name, stock_quantity) VALUES ('Laptop', 10);
-INSERT INTO products (name, stock_quantity) VALUES ('Phone', 20);
+ALTER TABLE products ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE products ADD COLUMN IF NOT EXISTS reorder_threshold INTEGER;
+-- The unique index on names, products_name_uidx, is created by the StockImporter on startup once no name
+-- is stored twice; see db/merge-duplicate-products.sql.
+CREATE TABLE IF NOT EXISTS stock_journal (
+                                       seq BIGINT PRIMARY KEY,
+                                       product_id BIGINT NOT NULL,
+                                       delta INTEGER NOT NULL,
+                                       order_ref VARCHAR(64),
+                                       recorded_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS stock_journal_product_seq_idx ON stock_journal (product_id, seq);
+CREATE TABLE IF NOT EXISTS stock_snapshots (
+                                       product_id BIGINT PRIMARY KEY,
+                                       seq BIGINT NOT NULL,
+                                       stock_quantity INTEGER NOT NULL,
+                                       taken_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+CREATE TABLE IF NOT EXISTS stock_reservations (
+                                       order_ref VARCHAR(64) PRIMARY KEY,
+                                       reserved_at TIMESTAMP,
+                                       released_at TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS stock_reservations_reserved_at_idx ON stock_reservations (reserved_at);
+CREATE INDEX IF NOT EXISTS stock_reservations_released_at_idx ON stock_reservations (released_at);
+CREATE TABLE IF NOT EXISTS stock_reservation_items (
+                                       order_ref VARCHAR(64) NOT NULL,
+                                       product_id BIGINT NOT NULL,
+                                       quantity INTEGER NOT NULL,
+                                       PRIMARY KEY (order_ref, product_id)
+);
+CREATE TABLE IF NOT EXISTS location_stock (
+                                       product_id BIGINT NOT NULL,
+                                       location VARCHAR(64) NOT NULL,
+                                       quantity INTEGER NOT NULL,
+                                       PRIMARY KEY (product_id, location)
+);
+CREATE TABLE IF NOT EXISTS location_reservations (
+                                       order_ref VARCHAR(64) NOT NULL,
+                                       product_id BIGINT NOT NULL,
+                                       location VARCHAR(64) NOT NULL,
+                                       quantity INTEGER NOT NULL,
+                                       PRIMARY KEY (order_ref, product_id, location)
+);
+INSERT INTO products (name, stock_quantity) SELECT 'Laptop', 10 WHERE NOT EXISTS (SELECT 1 FROM products WHERE name = 'Laptop');
+INSERT INTO products (name, stock_quantity) SELECT 'Phone', 20 WHERE NOT EXISTS (SELECT 1 FROM products WHERE name = 'Phone');
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.example.inventoryservice.config;
+
+import com.example.inventoryservice.grpc.ImportRecord;
+import com.example.inventoryservice.grpc.ProductList;
+import com.example.inventoryservice.grpc.StockResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NativeImageHintsTest {
+
+    /**
+     * Verifies that the messages, builders and nested enums of {@code product.proto} are
+     * registered for reflection.
+     */
+    @Test
+    void registersProtobufMessages() {
+        RuntimeHints hints = new RuntimeHints();
+        new NativeImageHints().registerHints(hints, getClass().getClassLoader());
+
+        for (Class<?> type : new Class<?>[]{StockResponse.class, StockResponse.Builder.class, StockResponse.Status.class,
+                ProductList.class, ImportRecord.Mode.class}) {
+            assertTrue(RuntimeHintsPredicates.reflection().onType(type)
+                    .withMemberCategory(MemberCategory.INVOKE_PUBLIC_METHODS).test(hints), type::getName);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.inventoryservice.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadReplicaRoutingDataSourceTest {
+
+    private EmbeddedDatabase primary;
+    private EmbeddedDatabase replica;
+    private ReplicaLagMonitor lagMonitor;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    /**
+     * Starts two independent H2 databases standing in for the primary and the replica.
+     * Each one records its own name, and the replica exposes a configurable lag.
+     */
+    @BeforeEach
+    void setUp() {
+        primary = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        replica = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        new JdbcTemplate(primary).execute("CREATE TABLE node (name VARCHAR(16)); INSERT INTO node VALUES ('primary')");
+        new JdbcTemplate(replica).execute("CREATE TABLE node (name VARCHAR(16)); INSERT INTO node VALUES ('replica');"
+                + "CREATE TABLE replica_lag (seconds DOUBLE); INSERT INTO replica_lag VALUES (0)");
+
+        lagMonitor = new ReplicaLagMonitor(replica, "SELECT seconds FROM replica_lag",
+                Duration.ofSeconds(5), Duration.ofSeconds(1));
+        lagMonitor.run();
+        LazyConnectionDataSourceProxy dataSource =
+                new LazyConnectionDataSourceProxy(new ReadReplicaRoutingDataSource(primary, replica, lagMonitor));
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.shutdown();
+        replica.shutdown();
+    }
+
+    /**
+     * Verifies that read-only transactions are served by the replica, while read-write
+     * transactions and statements outside a transaction go to the primary.
+     */
+    @Test
+    void testReadOnlyTransactionsGoToReplica() {
+        assertEquals("replica", readOnly.execute(status -> currentNode()));
+        assertEquals("primary", readWrite.execute(status -> currentNode()));
+        assertEquals("primary", currentNode());
+    }
+
+    /**
+     * Verifies that read-only transactions fall back to the primary while the replica lag
+     * exceeds the staleness bound, and return to the replica once it has caught up.
+     */
+    @Test
+    void testStaleReplicaFallsBackToPrimary() {
+        new JdbcTemplate(replica).update("UPDATE replica_lag SET seconds = 30");
+        lagMonitor.run();
+        assertEquals("primary", readOnly.execute(status -> currentNode()));
+
+        new JdbcTemplate(replica).update("UPDATE replica_lag SET seconds = 1");
+        lagMonitor.run();
+        assertEquals("replica", readOnly.execute(status -> currentNode()));
+    }
+
+    /**
+     * Verifies that reads fall back to the primary when the replica reports no lag, and when
+     * the replica lag cannot be measured.
+     */
+    @Test
+    void testUnmeasurableLagFallsBackToPrimary() {
+        new JdbcTemplate(replica).update("UPDATE replica_lag SET seconds = NULL");
+        lagMonitor.run();
+        assertEquals("primary", readOnly.execute(status -> currentNode()));
+
+        new JdbcTemplate(replica).update("UPDATE replica_lag SET seconds = 0");
+        lagMonitor.run();
+        new JdbcTemplate(replica).execute("DROP TABLE replica_lag");
+        lagMonitor.run();
+        assertEquals("primary", readOnly.execute(status -> currentNode()));
+    }
+
+    private String currentNode() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+}
@@ -1,20 +1,34 @@
 package com.example.inventoryservice.controller;
 
+import com.example.inventoryservice.config.SizedProtobufHttpMessageConverter;
 import com.example.inventoryservice.entity.Product;
+import com.example.inventoryservice.grpc.ProductList;
+import com.example.inventoryservice.importer.StockImportRecord;
+import com.example.inventoryservice.importer.StockImporter;
 import com.example.inventoryservice.service.InventoryService;
+import com.example.inventoryservice.service.ProductSearchIndex;
+import com.example.inventoryservice.service.ResourceVersion;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import java.time.Duration;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.mockito.Mockito.*;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.endsWith;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
@@ -37,6 +51,11 @@ class InventoryControllerTest {
         inventoryService = mock(InventoryService.class);
         inventoryController = new InventoryController(inventoryService);
         mockMvc = MockMvcBuilders.standaloneSetup(inventoryController).build();
+        when(inventoryService.getProductsVersion()).thenReturn(new ResourceVersion().current());
+    }
+
+    private static WebRequest productsRequest() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/inventory/products"));
     }
 
     /**
@@ -61,7 +80,7 @@ class InventoryControllerTest {
         List<Product> products = Arrays.asList(product1, product2);
         when(inventoryService.getAllProducts()).thenReturn(products);
 
-        ResponseEntity<List<Product>> response = inventoryController.getAllProducts();
+        ResponseEntity<List<Product>> response = inventoryController.getAllProducts(productsRequest());
 
         assertThat(response.getStatusCode().value()).isEqualTo(200);
         assertThat(response.getBody()).containsExactlyElementsOf(products);
@@ -76,7 +95,7 @@ class InventoryControllerTest {
     void testGetAllProductsReturnsEmptyList() {
         when(inventoryService.getAllProducts()).thenReturn(Collections.emptyList());
 
-        ResponseEntity<List<Product>> response = inventoryController.getAllProducts();
+        ResponseEntity<List<Product>> response = inventoryController.getAllProducts(productsRequest());
 
         assertThat(response.getStatusCode().value()).isEqualTo(200);
         assertThat(response.getBody()).isEmpty();
@@ -90,11 +109,101 @@ class InventoryControllerTest {
     void testGetAllProductsReturnsHttpOk() {
         when(inventoryService.getAllProducts()).thenReturn(Collections.emptyList());
 
-        ResponseEntity<List<Product>> response = inventoryController.getAllProducts();
+        ResponseEntity<List<Product>> response = inventoryController.getAllProducts(productsRequest());
 
         assertThat(response.getStatusCode().value()).isEqualTo(200);
     }
 
+    /**
+     * Verifies that the product list is served with the ETag and modification time of its
+     * version, and that a request revalidating that ETag gets a 304 without the list being read.
+     */
+    @Test
+    void testGetAllProductsReturnsNotModifiedForCurrentETag() throws Exception {
+        ResourceVersion.Tag version = new ResourceVersion().current();
+        when(inventoryService.getProductsVersion()).thenReturn(version);
+        when(inventoryService.getAllProducts()).thenReturn(Collections.emptyList());
+
+        mockMvc.perform(get("/inventory/products"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, version.eTag()))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+
+        mockMvc.perform(get("/inventory/products").header(HttpHeaders.IF_NONE_MATCH, version.eTag()))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(inventoryService, times(1)).getAllProducts();
+    }
+
+    /**
+     * Verifies that the product list is served as a protobuf {@code ProductList} to clients that
+     * accept {@code application/x-protobuf}, with an ETag of its own, and as JSON otherwise.
+     */
+    @Test
+    void testGetAllProductsNegotiatesProtobuf() throws Exception {
+        Product product = new Product();
+        product.setId(1L);
+        product.setName("Widget");
+        product.setStockQuantity(10);
+        when(inventoryService.getAllProducts()).thenReturn(List.of(product));
+        MockMvc negotiatingMvc = MockMvcBuilders.standaloneSetup(inventoryController)
+                .setMessageConverters(new SizedProtobufHttpMessageConverter(), new MappingJackson2HttpMessageConverter())
+                .build();
+
+        byte[] body = negotiatingMvc.perform(get("/inventory/products").accept(InventoryController.APPLICATION_PROTOBUF))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(InventoryController.APPLICATION_PROTOBUF))
+                .andExpect(header().string(HttpHeaders.ETAG, endsWith("-pb\"")))
+                .andReturn().getResponse().getContentAsByteArray();
+        ProductList products = ProductList.parseFrom(body);
+        assertThat(products.getProductsCount()).isEqualTo(1);
+        assertThat(products.getProducts(0).getProduct()).isEqualTo("Widget");
+        assertThat(products.getProducts(0).getProductId()).isEqualTo(1L);
+        assertThat(products.getProducts(0).getStockQuantity()).isEqualTo(10);
+        assertThat(products.getProducts(0).getAvailable()).isTrue();
+
+        negotiatingMvc.perform(get("/inventory/products").accept(MediaType.APPLICATION_JSON, MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(content().json("[{\"name\":\"Widget\",\"stockQuantity\":10}]"));
+    }
+
+    /**
+     * Verifies that the product list is sent again once its version has changed since the
+     * client's copy.
+     */
+    @Test
+    void testGetAllProductsReturnsListForStaleETag() throws Exception {
+        ResourceVersion productsVersion = new ResourceVersion();
+        String staleETag = productsVersion.current().eTag();
+        productsVersion.increment();
+        when(inventoryService.getProductsVersion()).thenReturn(productsVersion.current());
+        when(inventoryService.getAllProducts()).thenReturn(Collections.emptyList());
+
+        mockMvc.perform(get("/inventory/products").header(HttpHeaders.IF_NONE_MATCH, staleETag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, productsVersion.current().eTag()))
+                .andExpect(content().json("[]"));
+    }
+
+    /**
+     * Verifies that no validators are sent while a recent change may not have reached the
+     * read replica yet, so that clients do not cache a stale list under the new version.
+     */
+    @Test
+    void testGetAllProductsOmitsValidatorsUntilVersionSettles() throws Exception {
+        ResourceVersion productsVersion = new ResourceVersion(Duration.ofHours(1));
+        String eTag = productsVersion.current().eTag();
+        when(inventoryService.getProductsVersion()).thenReturn(productsVersion.current());
+        when(inventoryService.getAllProducts()).thenReturn(Collections.emptyList());
+
+        mockMvc.perform(get("/inventory/products").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED));
+    }
+
     /**
      * Verifies that the {@code getAllProducts()} method returns an empty JSON
      * array when the list of products is empty.
@@ -131,4 +240,92 @@ class InventoryControllerTest {
         mockMvc.perform(delete("/inventory/products"))
                 .andExpect(status().isMethodNotAllowed());
     }
+
+    /**
+     * Verifies that the restock endpoint adds stock, reports unknown products with 404 and
+     * rejects non-positive quantities without calling the service.
+     */
+    @Test
+    void testRestockEndpoint() throws Exception {
+        when(inventoryService.restock(Map.of("Laptop", 5))).thenReturn(List.of());
+        when(inventoryService.restock(Map.of("Ghost", 1))).thenReturn(List.of("Ghost"));
+
+        mockMvc.perform(post("/inventory/restock").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"Laptop\": 5}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/inventory/restock").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"Ghost\": 1}"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().json("[\"Ghost\"]"));
+        mockMvc.perform(post("/inventory/restock").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"Laptop\": 0}"))
+                .andExpect(status().isBadRequest());
+
+        verify(inventoryService, times(2)).restock(any());
+    }
+
+    /**
+     * Tests that the stock of a product in a warehouse can be set, and that negative stock,
+     * unknown warehouses and products, and a missing warehouse setup are refused.
+     */
+    @Test
+    void testSetLocationStockEndpoint() throws Exception {
+        when(inventoryService.setLocationStock(1L, "HAM", 4)).thenReturn(Map.of("HAM", 4, "MUC", 0));
+        when(inventoryService.setLocationStock(1L, "PAR", 4)).thenThrow(new IllegalArgumentException("Unknown location PAR"));
+        when(inventoryService.setLocationStock(2L, "HAM", 4)).thenReturn(null);
+        when(inventoryService.setLocationStock(3L, "HAM", 4)).thenThrow(new IllegalStateException("Not kept"));
+
+        mockMvc.perform(put("/inventory/products/1/locations/HAM").contentType(MediaType.APPLICATION_JSON).content("4"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"HAM\": 4, \"MUC\": 0}"));
+        mockMvc.perform(put("/inventory/products/1/locations/PAR").contentType(MediaType.APPLICATION_JSON).content("4"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(put("/inventory/products/2/locations/HAM").contentType(MediaType.APPLICATION_JSON).content("4"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(put("/inventory/products/3/locations/HAM").contentType(MediaType.APPLICATION_JSON).content("4"))
+                .andExpect(status().isConflict());
+        mockMvc.perform(put("/inventory/products/1/locations/HAM").contentType(MediaType.APPLICATION_JSON).content("-1"))
+                .andExpect(status().isBadRequest());
+
+        verify(inventoryService, times(4)).setLocationStock(anyLong(), any(), anyInt());
+    }
+
+    /**
+     * Verifies that a CSV upload is read into an import session and answered with the counts
+     * of the import.
+     */
+    @Test
+    void testImportCsvEndpoint() throws Exception {
+        StockImporter.Session session = mock(StockImporter.Session.class);
+        when(inventoryService.openStockImport()).thenReturn(session);
+        when(session.finish()).thenReturn(new StockImporter.Result(2, 1, 1, 0, 0,
+                List.of(new StockImporter.BatchResult(1, 2, 1, 1, 0, 0))));
+
+        mockMvc.perform(post("/inventory/import").contentType("text/csv")
+                        .content("product,quantity\nLaptop,5\nDesk,3\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.records").value(2))
+                .andExpect(jsonPath("$.batches[0].created").value(1));
+
+        verify(session).add(new StockImportRecord("Laptop", 5, StockImportRecord.Mode.SET));
+        verify(session).add(new StockImportRecord("Desk", 3, StockImportRecord.Mode.SET));
+        verify(session, never()).reject();
+    }
+
+    /**
+     * Verifies that the search endpoint returns a page of matches and rejects oversized pages.
+     */
+    @Test
+    void testSearchProductsEndpoint() throws Exception {
+        when(inventoryService.searchProducts("lap", 1, 5)).thenReturn(new ProductSearchIndex.Page(
+                List.of(new ProductSearchIndex.Match(3L, "Laptop Stand")), 1, 5, false));
+
+        mockMvc.perform(get("/inventory/products/search").param("q", "lap").param("page", "1").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].id").value(3))
+                .andExpect(jsonPath("$.results[0].name").value("Laptop Stand"))
+                .andExpect(jsonPath("$.more").value(false));
+        mockMvc.perform(get("/inventory/products/search").param("q", "lap").param("size", "1000"))
+                .andExpect(status().isBadRequest());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,154 @@
+package com.example.inventoryservice.grpc;
+
+import com.example.inventoryservice.entity.Product;
+import com.example.inventoryservice.repository.ProductRepository;
+import com.example.inventoryservice.service.InventoryService;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures the throughput and the allocation per call of {@code CheckStock} and
+ * {@code UpdateStock} in the gRPC service, with the inventory service replaced by fixed answers,
+ * so that only the request handling and the construction of the responses are measured. The
+ * stock of the product does not change, so the responses for it are reused after the first call;
+ * an update that changes the stock allocates one response.
+ * <p>
+ * Not part of the regular test run:
+ * <pre>
+ * mvn test -Dtest=InventoryGrpcServiceBenchmark
+ * </pre>
+ */
+class InventoryGrpcServiceBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(InventoryGrpcServiceBenchmark.class);
+
+    private static final long WARMUP_NANOS = 5_000_000_000L;
+    private static final long MEASURE_NANOS = 10_000_000_000L;
+
+    private static StockResponse lastResponse;
+
+    @Test
+    void benchmarkStockCalls() {
+        Product product = new Product();
+        product.setId(42L);
+        product.setName("Laptop");
+        product.setStockQuantity(10);
+        InventoryGrpcService grpcService = new InventoryGrpcService(new FixedInventoryService(product));
+        StreamObserver<StockResponse> observer = new StreamObserver<>() {
+            @Override
+            public void onNext(StockResponse response) {
+                lastResponse = response;
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                throw new IllegalStateException(t);
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        };
+
+        StockRequest available = StockRequest.newBuilder().setProductId(42).setQuantity(5).build();
+        StockRequest insufficient = StockRequest.newBuilder().setProductId(42).setQuantity(50).build();
+        StockRequest unknown = StockRequest.newBuilder().setProduct("Unknown").setQuantity(1).build();
+        UpdateStockRequest updated = UpdateStockRequest.newBuilder().setProductId(42).setQuantity(1).build();
+        UpdateStockRequest failed = UpdateStockRequest.newBuilder().setProduct("Unknown").setQuantity(1).build();
+        Map<String, Runnable> scenarios = new LinkedHashMap<>();
+        scenarios.put("CheckStock available", () -> grpcService.checkStock(available, observer));
+        scenarios.put("CheckStock insufficient", () -> grpcService.checkStock(insufficient, observer));
+        scenarios.put("CheckStock unknown product", () -> grpcService.checkStock(unknown, observer));
+        scenarios.put("UpdateStock updated", () -> grpcService.updateStock(updated, observer));
+        scenarios.put("UpdateStock unknown product", () -> grpcService.updateStock(failed, observer));
+
+        // Warm up every scenario before measuring any, so that the code paths they share are
+        // compiled alike for all of them.
+        scenarios.values().forEach(scenario -> repeat(scenario, WARMUP_NANOS));
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        scenarios.forEach((name, scenario) -> {
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long begin = System.nanoTime();
+            long calls = repeat(scenario, MEASURE_NANOS);
+            double seconds = (System.nanoTime() - begin) / 1e9;
+            long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            log.info(String.format("%-30s %11.0f calls/s %6.1f bytes allocated/call",
+                    name, calls / seconds, (double) allocated / calls));
+        });
+    }
+
+    private static long repeat(Runnable scenario, long nanos) {
+        long begin = System.nanoTime();
+        long calls = 0;
+        do {
+            // Checking the clock on every call would dominate these short calls.
+            for (int i = 0; i < 1_000; i++) {
+                scenario.run();
+            }
+            calls += 1_000;
+        } while (System.nanoTime() - begin < nanos);
+        return calls;
+    }
+
+    /**
+     * Answers for a single product, without allocating, so that the allocation measured is that
+     * of the gRPC service.
+     */
+    private static class FixedInventoryService extends InventoryService {
+        private final Product product;
+
+        FixedInventoryService(Product product) {
+            super(mock(ProductRepository.class));
+            this.product = product;
+        }
+
+        @Override
+        public boolean checkStock(String productName, int quantity) {
+            Product found = getProductByName(productName);
+            return found != null && found.getStockQuantity() >= quantity;
+        }
+
+        @Override
+        public boolean checkStock(long productId, int quantity) {
+            Product found = getProductById(productId);
+            return found != null && found.getStockQuantity() >= quantity;
+        }
+
+        @Override
+        public boolean updateStock(String productName, int quantity, String orderRef) {
+            return getProductByName(productName) != null;
+        }
+
+        @Override
+        public boolean updateStock(long productId, int quantity, String orderRef) {
+            return getProductById(productId) != null;
+        }
+
+        @Override
+        public Product getProductStock(String productName) {
+            return getProductByName(productName);
+        }
+
+        @Override
+        public Product getProductStock(long productId) {
+            return getProductById(productId);
+        }
+
+        @Override
+        public Product getProductByName(String productName) {
+            return product.getName().equals(productName) ? product : null;
+        }
+
+        @Override
+        public Product getProductById(long productId) {
+            return product.getId() == productId ? product : null;
+        }
+    }
+}
@@ -1,11 +1,24 @@
 package com.example.inventoryservice.grpc;
 
 import com.example.inventoryservice.entity.Product;
+import com.example.inventoryservice.importer.StockImportRecord;
+import com.example.inventoryservice.importer.StockImporter;
 import com.example.inventoryservice.service.InventoryService;
+import com.example.inventoryservice.service.LocationStock;
+import com.example.inventoryservice.service.StockAlert;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -15,12 +28,14 @@ class InventoryGrpcServiceTest {
     private InventoryService inventoryService;
     private InventoryGrpcService inventoryGrpcService;
     private StreamObserver<StockResponse> responseObserver;
+    private StreamObserver<ReserveStockResponse> reserveObserver;
 
     @BeforeEach
     void setUp() {
         inventoryService = mock(InventoryService.class);
         inventoryGrpcService = new InventoryGrpcService(inventoryService);
         responseObserver = mock(StreamObserver.class);
+        reserveObserver = mock(StreamObserver.class);
     }
 
     /**
@@ -37,7 +52,7 @@ class InventoryGrpcServiceTest {
         product.setStockQuantity(10);
 
         when(inventoryService.checkStock(productName, requestQty)).thenReturn(true);
-        when(inventoryService.getProductByName(productName)).thenReturn(product);
+        when(inventoryService.getProductStock(productName)).thenReturn(product);
 
         StockRequest request = StockRequest.newBuilder()
                 .setProduct(productName)
@@ -55,6 +70,7 @@ class InventoryGrpcServiceTest {
         assertTrue(response.getAvailable());
         assertEquals(10, response.getStockQuantity());
         assertEquals("Stock available", response.getMessage());
+        assertEquals(StockResponse.Status.AVAILABLE, response.getStatus());
     }
 
     /**
@@ -70,8 +86,8 @@ class InventoryGrpcServiceTest {
         product.setName(productName);
         product.setStockQuantity(7);
 
-        when(inventoryService.updateStock(productName, requestQty)).thenReturn(true);
-        when(inventoryService.getProductByName(productName)).thenReturn(product);
+        when(inventoryService.updateStock(productName, requestQty, null)).thenReturn(true);
+        when(inventoryService.getProductStock(productName)).thenReturn(product);
 
         UpdateStockRequest request = UpdateStockRequest.newBuilder()
                 .setProduct(productName)
@@ -89,6 +105,7 @@ class InventoryGrpcServiceTest {
         assertTrue(response.getAvailable());
         assertEquals(7, response.getStockQuantity());
         assertEquals("Stock updated successfully", response.getMessage());
+        assertEquals(StockResponse.Status.UPDATED, response.getStatus());
     }
 
     /**
@@ -106,8 +123,8 @@ class InventoryGrpcServiceTest {
         product.setName(productName);
         product.setStockQuantity(8);
 
-        when(inventoryService.updateStock(productName, requestQty)).thenReturn(true);
-        when(inventoryService.getProductByName(productName)).thenReturn(product);
+        when(inventoryService.updateStock(productName, requestQty, null)).thenReturn(true);
+        when(inventoryService.getProductStock(productName)).thenReturn(product);
 
         UpdateStockRequest request = UpdateStockRequest.newBuilder()
                 .setProduct(productName)
@@ -125,6 +142,7 @@ class InventoryGrpcServiceTest {
         assertTrue(response.getAvailable());
         assertEquals(8, response.getStockQuantity());
         assertEquals("Stock updated successfully", response.getMessage());
+        assertEquals(StockResponse.Status.UPDATED, response.getStatus());
     }
 
     /**
@@ -138,7 +156,7 @@ class InventoryGrpcServiceTest {
         int requestQty = 1;
 
         when(inventoryService.checkStock(productName, requestQty)).thenReturn(false);
-        when(inventoryService.getProductByName(productName)).thenReturn(null);
+        when(inventoryService.getProductStock(productName)).thenReturn(null);
 
         StockRequest request = StockRequest.newBuilder()
                 .setProduct(productName)
@@ -156,6 +174,66 @@ class InventoryGrpcServiceTest {
         assertFalse(response.getAvailable());
         assertEquals(0, response.getStockQuantity());
         assertEquals("Insufficient stock", response.getMessage());
+        assertEquals(StockResponse.Status.PRODUCT_NOT_FOUND, response.getStatus());
+    }
+
+    /**
+     * Test that checkStock looks the product up once, reports insufficient stock with the
+     * current stock quantity, and answers every check of an unknown product with the same
+     * response instance.
+     */
+    @Test
+    void testCheckStock_SingleLookupAndSharedNotFoundResponse() {
+        Product product = new Product();
+        product.setId(42L);
+        product.setName("Widget");
+        product.setStockQuantity(3);
+        when(inventoryService.getProductStock(42L)).thenReturn(product);
+
+        ArgumentCaptor<StockResponse> captor = ArgumentCaptor.forClass(StockResponse.class);
+        inventoryGrpcService.checkStock(StockRequest.newBuilder().setProductId(42).setQuantity(5).build(), responseObserver);
+        inventoryGrpcService.checkStock(StockRequest.newBuilder().setProduct("Gadget").setQuantity(1).build(), responseObserver);
+        inventoryGrpcService.checkStock(StockRequest.newBuilder().setProduct("Gizmo").setQuantity(1).build(), responseObserver);
+
+        verify(responseObserver, times(3)).onNext(captor.capture());
+        StockResponse insufficient = captor.getAllValues().get(0);
+        assertEquals(StockResponse.Status.INSUFFICIENT_STOCK, insufficient.getStatus());
+        assertFalse(insufficient.getAvailable());
+        assertEquals(3, insufficient.getStockQuantity());
+        assertEquals(42L, insufficient.getProductId());
+        assertEquals("Insufficient stock", insufficient.getMessage());
+        assertSame(captor.getAllValues().get(1), captor.getAllValues().get(2));
+        verify(inventoryService).getProductStock(42L);
+        verify(inventoryService, never()).checkStock(anyLong(), anyInt());
+        verify(inventoryService, never()).checkStock(anyString(), anyInt());
+    }
+
+    /**
+     * Test that repeated checks of a product whose stock has not changed share a response, and
+     * that a change of stock yields a new response with the new quantity.
+     */
+    @Test
+    void testCheckStock_ReusesResponseUntilStockChanges() {
+        Product product = new Product();
+        product.setId(42L);
+        product.setName("Widget");
+        product.setStockQuantity(10);
+        when(inventoryService.getProductStock(42L)).thenReturn(product);
+        StockRequest request = StockRequest.newBuilder().setProductId(42).setQuantity(1).build();
+
+        ArgumentCaptor<StockResponse> captor = ArgumentCaptor.forClass(StockResponse.class);
+        inventoryGrpcService.checkStock(request, responseObserver);
+        inventoryGrpcService.checkStock(request, responseObserver);
+        product.setStockQuantity(9);
+        inventoryGrpcService.checkStock(request, responseObserver);
+
+        verify(responseObserver, times(3)).onNext(captor.capture());
+        List<StockResponse> responses = captor.getAllValues();
+        assertSame(responses.get(0), responses.get(1));
+        assertNotSame(responses.get(1), responses.get(2));
+        assertEquals(10, responses.get(1).getStockQuantity());
+        assertEquals(9, responses.get(2).getStockQuantity());
+        assertEquals(StockResponse.Status.AVAILABLE, responses.get(2).getStatus());
     }
 
     /**
@@ -171,8 +249,8 @@ class InventoryGrpcServiceTest {
         product.setName(productName);
         product.setStockQuantity(10);
 
-        when(inventoryService.updateStock(productName, requestQty)).thenReturn(false);
-        when(inventoryService.getProductByName(productName)).thenReturn(product);
+        when(inventoryService.updateStock(productName, requestQty, null)).thenReturn(false);
+        when(inventoryService.getProductStock(productName)).thenReturn(product);
 
         UpdateStockRequest request = UpdateStockRequest.newBuilder()
                 .setProduct(productName)
@@ -190,6 +268,7 @@ class InventoryGrpcServiceTest {
         assertFalse(response.getAvailable());
         assertEquals(10, response.getStockQuantity());
         assertEquals("Failed to update stock", response.getMessage());
+        assertEquals(StockResponse.Status.UPDATE_FAILED, response.getStatus());
     }
 
     /**
@@ -204,8 +283,8 @@ class InventoryGrpcServiceTest {
         int requestQty = 5;
 
         when(inventoryService.checkStock(nullProductName, requestQty)).thenReturn(false);
-        when(inventoryService.getProductByName(nullProductName)).thenReturn(null);
-        when(inventoryService.updateStock(nullProductName, requestQty)).thenReturn(false);
+        when(inventoryService.getProductStock(nullProductName)).thenReturn(null);
+        when(inventoryService.updateStock(nullProductName, requestQty, null)).thenReturn(false);
 
         StockRequest checkRequestNull = StockRequest.newBuilder()
                 .setProduct("")
@@ -229,6 +308,7 @@ class InventoryGrpcServiceTest {
         assertFalse(checkResponse.getAvailable());
         assertEquals(0, checkResponse.getStockQuantity());
         assertEquals("Insufficient stock", checkResponse.getMessage());
+        assertEquals(StockResponse.Status.PRODUCT_NOT_FOUND, checkResponse.getStatus());
 
         // UpdateStock with null/empty product name
         inventoryGrpcService.updateStock(updateRequestNull, responseObserver);
@@ -239,5 +319,345 @@ class InventoryGrpcServiceTest {
         assertFalse(updateResponse.getAvailable());
         assertEquals(0, updateResponse.getStockQuantity());
         assertEquals("Failed to update stock", updateResponse.getMessage());
+        assertEquals(StockResponse.Status.PRODUCT_NOT_FOUND, updateResponse.getStatus());
+    }
+
+    /**
+     * Test that reserveStock adds up repeated products, reserves them through a single
+     * service call and reports success.
+     */
+    @Test
+    void testReserveStock_MergesRepeatedProductsAndReserves() {
+        when(inventoryService.reserveStock(Map.of("Laptop", 3, "Phone", 1), null)).thenReturn(List.of());
+
+        ReserveStockRequest request = ReserveStockRequest.newBuilder()
+                .addItems(StockItem.newBuilder().setProduct("Laptop").setQuantity(1))
+                .addItems(StockItem.newBuilder().setProduct("Phone").setQuantity(1))
+                .addItems(StockItem.newBuilder().setProduct("Laptop").setQuantity(2))
+                .build();
+
+        ArgumentCaptor<ReserveStockResponse> captor = ArgumentCaptor.forClass(ReserveStockResponse.class);
+
+        inventoryGrpcService.reserveStock(request, reserveObserver);
+
+        verify(reserveObserver).onNext(captor.capture());
+        verify(reserveObserver).onCompleted();
+        verify(inventoryService, times(1)).reserveStock(any(), any());
+        assertTrue(captor.getValue().getReserved());
+        assertEquals("Stock reserved", captor.getValue().getMessage());
+    }
+
+    /**
+     * Test that reserveStock reports the unavailable products when the reservation fails,
+     * and rejects requests with a non-positive quantity without touching the inventory.
+     */
+    @Test
+    void testReserveStock_ReportsUnavailableAndRejectsInvalidItems() {
+        when(inventoryService.reserveStock(Map.of("Laptop", 9), null)).thenReturn(List.of("Laptop"));
+
+        inventoryGrpcService.reserveStock(ReserveStockRequest.newBuilder()
+                .addItems(StockItem.newBuilder().setProduct("Laptop").setQuantity(9))
+                .build(), reserveObserver);
+        inventoryGrpcService.reserveStock(ReserveStockRequest.newBuilder()
+                .addItems(StockItem.newBuilder().setProduct("Phone").setQuantity(0))
+                .build(), reserveObserver);
+
+        ArgumentCaptor<ReserveStockResponse> captor = ArgumentCaptor.forClass(ReserveStockResponse.class);
+        verify(reserveObserver, times(2)).onNext(captor.capture());
+        ReserveStockResponse insufficient = captor.getAllValues().get(0);
+        ReserveStockResponse invalid = captor.getAllValues().get(1);
+
+        assertFalse(insufficient.getReserved());
+        assertEquals(List.of("Laptop"), insufficient.getUnavailableProductsList());
+        assertFalse(invalid.getReserved());
+        assertEquals("Invalid reservation request", invalid.getMessage());
+        verify(inventoryService, times(1)).reserveStock(any(), any());
+    }
+
+    /**
+     * Test that reserveStock passes the order reference on, and reports an order that has
+     * reserved or been released before as not reserved.
+     */
+    @Test
+    void testReserveStock_WithOrderRef_ReportsRepeatedOrder() {
+        when(inventoryService.reserveStockByIds(Map.of(1L, 2), "order-1"))
+                .thenThrow(new DuplicateKeyException("order-1"));
+
+        inventoryGrpcService.reserveStock(ReserveStockRequest.newBuilder()
+                .addItems(StockItem.newBuilder().setProductId(1L).setQuantity(2))
+                .setOrderRef("order-1")
+                .build(), reserveObserver);
+
+        ArgumentCaptor<ReserveStockResponse> captor = ArgumentCaptor.forClass(ReserveStockResponse.class);
+        verify(reserveObserver).onNext(captor.capture());
+        assertFalse(captor.getValue().getReserved());
+        assertEquals("Order already reserved or released", captor.getValue().getMessage());
+    }
+
+    /**
+     * Test that releaseStock counts the released orders once each, and the rest as unchanged.
+     */
+    @Test
+    void testReleaseStock_CountsReleasedAndUnchanged() {
+        StreamObserver<ReleaseStockResponse> releaseObserver = mock(StreamObserver.class);
+        when(inventoryService.releaseStock(List.of("order-1", "order-2", "order-1", "order-3"))).thenReturn(2);
+
+        inventoryGrpcService.releaseStock(ReleaseStockRequest.newBuilder()
+                .addAllOrderRefs(List.of("order-1", "order-2", "order-1", "order-3"))
+                .build(), releaseObserver);
+
+        ArgumentCaptor<ReleaseStockResponse> captor = ArgumentCaptor.forClass(ReleaseStockResponse.class);
+        verify(releaseObserver).onNext(captor.capture());
+        verify(releaseObserver).onCompleted();
+        assertEquals(2, captor.getValue().getReleased());
+        assertEquals(1, captor.getValue().getUnchanged());
+    }
+
+    /**
+     * Test that releaseStock fails with FAILED_PRECONDITION when the stock update strategy does
+     * not record the stock taken for orders.
+     */
+    @Test
+    void testReleaseStock_Unsupported_FailsPrecondition() {
+        StreamObserver<ReleaseStockResponse> releaseObserver = mock(StreamObserver.class);
+        when(inventoryService.releaseStock(any())).thenThrow(new IllegalStateException("Not supported"));
+
+        inventoryGrpcService.releaseStock(ReleaseStockRequest.newBuilder().addOrderRefs("order-1").build(),
+                releaseObserver);
+
+        ArgumentCaptor<Throwable> captor = ArgumentCaptor.forClass(Throwable.class);
+        verify(releaseObserver).onError(captor.capture());
+        verify(releaseObserver, never()).onNext(any());
+        assertEquals(Status.Code.FAILED_PRECONDITION, Status.fromThrowable(captor.getValue()).getCode());
+    }
+
+    /**
+     * Test that streamOrderDecrements sends the products in chunks, each only once the call is
+     * ready for it, and reads a missing upper product id as no bound.
+     */
+    @Test
+    void testStreamOrderDecrements_SendsChunksWhenReady() {
+        ServerCallStreamObserver<OrderDecrements> decrementsObserver = mock(ServerCallStreamObserver.class);
+        when(decrementsObserver.isReady()).thenReturn(false, true);
+        doAnswer(invocation -> {
+            BiConsumer<Long, Long> consumer = invocation.getArgument(5);
+            for (long productId = 1; productId <= 1200; productId++) {
+                consumer.accept(productId, productId * 2);
+            }
+            return null;
+        }).when(inventoryService).streamOrderDecrements(eq(Instant.ofEpochMilli(1000)), eq(Instant.ofEpochMilli(2000)),
+                eq(10L), eq(Long.MAX_VALUE), anyInt(), any());
+
+        inventoryGrpcService.streamOrderDecrements(OrderDecrementsRequest.newBuilder()
+                .setFromTime(1000).setToTime(2000).setFromProductId(10).build(), decrementsObserver);
+
+        ArgumentCaptor<OrderDecrements> captor = ArgumentCaptor.forClass(OrderDecrements.class);
+        verify(decrementsObserver, times(3)).onNext(captor.capture());
+        verify(decrementsObserver).onCompleted();
+        verify(decrementsObserver, atLeast(4)).isReady();
+        List<OrderDecrements> chunks = captor.getAllValues();
+        assertEquals(List.of(500, 500, 200), chunks.stream().map(OrderDecrements::getProductsCount).toList());
+        assertEquals(1001, chunks.get(2).getProducts(0).getProductId());
+        assertEquals(2002, chunks.get(2).getProducts(0).getQuantity());
+    }
+
+    /**
+     * Test that streamOrderDecrements stops reading once the client cancels the call, and sends
+     * nothing more.
+     */
+    @Test
+    void testStreamOrderDecrements_StopsWhenCancelled() {
+        ServerCallStreamObserver<OrderDecrements> decrementsObserver = mock(ServerCallStreamObserver.class);
+        when(decrementsObserver.isCancelled()).thenReturn(true);
+        long[] read = new long[1];
+        doAnswer(invocation -> {
+            BiConsumer<Long, Long> consumer = invocation.getArgument(5);
+            for (long productId = 1; productId <= 1200; productId++) {
+                consumer.accept(productId, 1L);
+                read[0]++;
+            }
+            return null;
+        }).when(inventoryService).streamOrderDecrements(any(), any(), anyLong(), anyLong(), anyInt(), any());
+
+        inventoryGrpcService.streamOrderDecrements(OrderDecrementsRequest.newBuilder()
+                .setFromTime(1000).setToTime(2000).build(), decrementsObserver);
+
+        assertEquals(499, read[0]);
+        verify(decrementsObserver, never()).onNext(any());
+        verify(decrementsObserver, never()).onCompleted();
+    }
+
+    /**
+     * Test that allocateStock resolves the product by name, passes the destination on, and
+     * reports the stock taken per warehouse.
+     */
+    @Test
+    void testAllocateStock_ReportsAllocationsPerWarehouse() {
+        StreamObserver<AllocateStockResponse> allocateObserver = mock(StreamObserver.class);
+        Product product = new Product();
+        product.setId(7L);
+        product.setName("Laptop");
+        when(inventoryService.getProductByName("Laptop")).thenReturn(product);
+        when(inventoryService.allocateStock(7L, 5, new LocationStock.Destination(52.4, 13.1), true, "order-1"))
+                .thenReturn(List.of(new LocationStock.Allocation("BER", 2, 20.5), new LocationStock.Allocation("HAM", 3, 250)));
+
+        inventoryGrpcService.allocateStock(AllocateStockRequest.newBuilder()
+                .setProduct("Laptop").setQuantity(5).setAllowSplit(true).setOrderRef("order-1")
+                .setDestination(Coordinates.newBuilder().setLatitude(52.4).setLongitude(13.1))
+                .build(), allocateObserver);
+
+        ArgumentCaptor<AllocateStockResponse> captor = ArgumentCaptor.forClass(AllocateStockResponse.class);
+        verify(allocateObserver).onNext(captor.capture());
+        verify(allocateObserver).onCompleted();
+        AllocateStockResponse response = captor.getValue();
+        assertTrue(response.getAllocated());
+        assertEquals(7, response.getProductId());
+        assertEquals(List.of("BER", "HAM"), response.getAllocationsList().stream().map(LocationAllocation::getLocation).toList());
+        assertEquals(3, response.getAllocations(1).getQuantity());
+        assertEquals(250, response.getAllocations(1).getDistanceKm());
+    }
+
+    /**
+     * Test that allocateStock reports insufficient stock, and fails with FAILED_PRECONDITION
+     * when stock is not kept per warehouse.
+     */
+    @Test
+    void testAllocateStock_InsufficientOrUnsupported() {
+        StreamObserver<AllocateStockResponse> allocateObserver = mock(StreamObserver.class);
+        Product product = new Product();
+        product.setId(7L);
+        when(inventoryService.getProductById(7L)).thenReturn(product);
+        when(inventoryService.allocateStock(eq(7L), eq(5), isNull(), eq(false), isNull())).thenReturn(List.of());
+        when(inventoryService.allocateStock(eq(7L), eq(6), isNull(), eq(false), isNull()))
+                .thenThrow(new IllegalStateException("Stock is not kept per warehouse"));
+
+        inventoryGrpcService.allocateStock(AllocateStockRequest.newBuilder().setProductId(7).setQuantity(5).build(),
+                allocateObserver);
+        inventoryGrpcService.allocateStock(AllocateStockRequest.newBuilder().setProductId(7).setQuantity(6).build(),
+                allocateObserver);
+
+        ArgumentCaptor<AllocateStockResponse> captor = ArgumentCaptor.forClass(AllocateStockResponse.class);
+        verify(allocateObserver).onNext(captor.capture());
+        assertFalse(captor.getValue().getAllocated());
+        assertEquals("Insufficient stock", captor.getValue().getMessage());
+        ArgumentCaptor<Throwable> error = ArgumentCaptor.forClass(Throwable.class);
+        verify(allocateObserver).onError(error.capture());
+        assertEquals(Status.Code.FAILED_PRECONDITION, Status.fromThrowable(error.getValue()).getCode());
+    }
+
+    /**
+     * Test that checkStock with a product id looks the product up by id, and that the
+     * response carries the product id so callers can keep using it.
+     */
+    @Test
+    void testCheckStock_ByProductId_ReturnsProductId() {
+        Product product = new Product();
+        product.setId(42L);
+        product.setName("Widget");
+        product.setStockQuantity(10);
+
+        when(inventoryService.checkStock(42L, 5)).thenReturn(true);
+        when(inventoryService.getProductStock(42L)).thenReturn(product);
+
+        StockRequest request = StockRequest.newBuilder()
+                .setProductId(42L)
+                .setQuantity(5)
+                .build();
+
+        ArgumentCaptor<StockResponse> captor = ArgumentCaptor.forClass(StockResponse.class);
+
+        inventoryGrpcService.checkStock(request, responseObserver);
+
+        verify(responseObserver).onNext(captor.capture());
+        verify(inventoryService, never()).getProductStock(anyString());
+        StockResponse response = captor.getValue();
+        assertTrue(response.getAvailable());
+        assertEquals(10, response.getStockQuantity());
+        assertEquals(42L, response.getProductId());
+    }
+
+    /**
+     * Test that restock adds stock by id when every item carries an id, and reports the ids of
+     * unknown products.
+     */
+    @Test
+    void testRestock_ByIdReportsUnknownProducts() {
+        StreamObserver<RestockResponse> restockObserver = mock(StreamObserver.class);
+        when(inventoryService.restockByIds(Map.of(1L, 5, 99L, 1))).thenReturn(List.of(99L));
+
+        inventoryGrpcService.restock(RestockRequest.newBuilder()
+                .addItems(StockItem.newBuilder().setProductId(1L).setQuantity(2))
+                .addItems(StockItem.newBuilder().setProductId(1L).setQuantity(3))
+                .addItems(StockItem.newBuilder().setProductId(99L).setQuantity(1))
+                .build(), restockObserver);
+
+        ArgumentCaptor<RestockResponse> captor = ArgumentCaptor.forClass(RestockResponse.class);
+        verify(restockObserver).onNext(captor.capture());
+        verify(restockObserver).onCompleted();
+        assertFalse(captor.getValue().getRestocked());
+        assertEquals(List.of(99L), captor.getValue().getUnknownProductIdsList());
+        verify(inventoryService, never()).restock(any());
+    }
+
+    /**
+     * Test that watchStockAlerts streams the alerts passed to its subscription, and
+     * unsubscribes when the client cancels the call.
+     */
+    @Test
+    void testWatchStockAlerts_StreamsUntilCancelled() {
+        ServerCallStreamObserver<StockAlertEvent> alertObserver = mock(ServerCallStreamObserver.class);
+        Runnable unsubscribe = mock(Runnable.class);
+        ArgumentCaptor<Consumer<StockAlert>> subscriber = ArgumentCaptor.forClass(Consumer.class);
+        when(inventoryService.subscribeToStockAlerts(eq(4L), subscriber.capture())).thenReturn(unsubscribe);
+
+        inventoryGrpcService.watchStockAlerts(WatchStockAlertsRequest.newBuilder().setAfterSequence(4L).build(),
+                alertObserver);
+        subscriber.getValue().accept(new StockAlert(5, 7L, "Laptop", 2, 3, StockAlert.Type.LOW_STOCK, Instant.now()));
+
+        ArgumentCaptor<StockAlertEvent> event = ArgumentCaptor.forClass(StockAlertEvent.class);
+        verify(alertObserver).onNext(event.capture());
+        assertEquals(5, event.getValue().getSequence());
+        assertEquals("Laptop", event.getValue().getProduct());
+        assertEquals(StockAlertEvent.Type.LOW_STOCK, event.getValue().getType());
+        verify(alertObserver, never()).onCompleted();
+
+        ArgumentCaptor<Runnable> onCancel = ArgumentCaptor.forClass(Runnable.class);
+        verify(alertObserver).setOnCancelHandler(onCancel.capture());
+        onCancel.getValue().run();
+        verify(unsubscribe).run();
+    }
+
+    /**
+     * Test that importStock hands every streamed record to the import session, and responds
+     * with the counts of the import when the client completes.
+     */
+    @Test
+    void testImportStock_AppliesStreamedRecords() {
+        StockImporter.Session session = mock(StockImporter.Session.class);
+        StreamObserver<ImportStockResponse> importObserver = mock(StreamObserver.class);
+        when(inventoryService.openStockImport()).thenReturn(session);
+        when(session.finish()).thenReturn(new StockImporter.Result(3, 1, 1, 0, 1,
+                List.of(new StockImporter.BatchResult(1, 3, 1, 1, 0, 1))));
+
+        StreamObserver<ImportStockRequest> requests = inventoryGrpcService.importStock(importObserver);
+        requests.onNext(ImportStockRequest.newBuilder()
+                .addRecords(ImportRecord.newBuilder().setProduct("Laptop").setQuantity(5))
+                .addRecords(ImportRecord.newBuilder().setProduct("Phone").setQuantity(-1)
+                        .setMode(ImportRecord.Mode.ADJUST))
+                .build());
+        requests.onNext(ImportStockRequest.newBuilder()
+                .addRecords(ImportRecord.newBuilder().setProduct("Tablet").setQuantity(2))
+                .build());
+        requests.onCompleted();
+
+        verify(session).add(new StockImportRecord("Laptop", 5, StockImportRecord.Mode.SET));
+        verify(session).add(new StockImportRecord("Phone", -1, StockImportRecord.Mode.ADJUST));
+        verify(session).add(new StockImportRecord("Tablet", 2, StockImportRecord.Mode.SET));
+        ArgumentCaptor<ImportStockResponse> captor = ArgumentCaptor.forClass(ImportStockResponse.class);
+        verify(importObserver).onNext(captor.capture());
+        verify(importObserver).onCompleted();
+        assertEquals(3, captor.getValue().getRecords());
+        assertEquals(1, captor.getValue().getBatchesCount());
+        assertEquals(1, captor.getValue().getBatches(0).getRejected());
     }
 }
\ No newline at end of file
@@ -0,0 +1,247 @@
+package com.example.inventoryservice.importer;
+
+import com.example.inventoryservice.config.StockAlertProperties;
+import com.example.inventoryservice.entity.Product;
+import com.example.inventoryservice.importer.StockImportRecord.Mode;
+import com.example.inventoryservice.repository.ProductRepository;
+import com.example.inventoryservice.service.ProductSearchIndex;
+import com.example.inventoryservice.service.ResourceVersion;
+import com.example.inventoryservice.service.StockAlert;
+import com.example.inventoryservice.service.StockAlertEngine;
+import com.example.inventoryservice.service.StockJournal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockImporterTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final StockAlertEngine stockAlerts = new StockAlertEngine(new StockAlertProperties(), new SimpleMeterRegistry());
+
+    private ProductSearchIndex searchIndex;
+
+    private StockJournal journal;
+
+    private long laptopId;
+
+    /**
+     * Resets the products and the journal tables.
+     */
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM stock_journal");
+        jdbcTemplate.update("DELETE FROM stock_snapshots");
+        productRepository.deleteAll();
+        laptopId = save("Laptop", 10);
+        save("Phone", 5);
+        searchIndex = new ProductSearchIndex(jdbcTemplate, new TransactionTemplate(transactionManager), 1000,
+                Duration.ofSeconds(30), Duration.ofHours(1));
+        searchIndex.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (journal != null) {
+            journal.stop();
+        }
+    }
+
+    /**
+     * Verifies that records are applied in batches of the configured size, that products are
+     * created or have their stock set or adjusted, and that invalid records, adjustments of
+     * unknown products and adjustments below zero are rejected and counted per batch. Created
+     * products become searchable.
+     */
+    @Test
+    void testImportAppliesBatchesAndCountsThem() {
+        StockImporter.Session session = importer(null, 3).open();
+        session.add(new StockImportRecord("Laptop", 50, Mode.SET));
+        session.add(new StockImportRecord("Tablet", 7, Mode.SET));
+        session.add(new StockImportRecord("Phone", -2, Mode.ADJUST));
+
+        assertEquals(50, stock("Laptop"));
+        assertEquals(7, stock("Tablet"));
+        assertEquals(3, stock("Phone"));
+
+        session.add(new StockImportRecord("Phone", -4, Mode.ADJUST));
+        session.add(new StockImportRecord("Ghost", 1, Mode.ADJUST));
+        session.add(new StockImportRecord("", 1, Mode.SET));
+        session.add(new StockImportRecord("Laptop", -5, Mode.ADJUST));
+        StockImporter.Result result = session.finish();
+
+        assertEquals(List.of(new StockImporter.BatchResult(1, 3, 1, 1, 1, 0),
+                new StockImporter.BatchResult(2, 3, 0, 0, 0, 3),
+                new StockImporter.BatchResult(3, 1, 0, 0, 1, 0)), result.batches());
+        assertEquals(7, result.records());
+        assertEquals(3, result.rejected());
+        assertEquals(45, stock("Laptop"));
+        assertEquals(3, stock("Phone"));
+        assertEquals(List.of("Tablet"), searchIndex.search("tab", 0, 10).results().stream()
+                .map(ProductSearchIndex.Match::name).toList());
+        assertTrue(productRepository.findById(laptopId).orElseThrow().getVersion() > 0);
+    }
+
+    /**
+     * Verifies that records for the same product within a batch are combined in order, so that
+     * an adjustment after a set applies to the new stock.
+     */
+    @Test
+    void testRecordsForTheSameProductAreCombined() {
+        StockImporter.Session session = importer(null, 100).open();
+        session.add(new StockImportRecord("Laptop", 3, Mode.ADJUST));
+        session.add(new StockImportRecord("Tablet", 20, Mode.SET));
+        session.add(new StockImportRecord("Tablet", -5, Mode.ADJUST));
+        session.add(new StockImportRecord("Laptop", 4, Mode.ADJUST));
+
+        assertEquals(List.of(new StockImporter.BatchResult(1, 4, 1, 0, 1, 0)), session.finish().batches());
+        assertEquals(17, stock("Laptop"));
+        assertEquals(15, stock("Tablet"));
+    }
+
+    /**
+     * Verifies that with a stock journal, changes of existing products are journaled and
+     * visible in the projection, and new products are picked up by the journal.
+     */
+    @Test
+    void testImportIntoJournal() {
+        journal = new StockJournal(jdbcTemplate, new TransactionTemplate(transactionManager), 64, 10_000);
+        journal.start();
+
+        StockImporter.Session session = importer(journal, 100).open();
+        session.add(new StockImportRecord("Laptop", 4, Mode.SET));
+        session.add(new StockImportRecord("Phone", 3, Mode.ADJUST));
+        session.add(new StockImportRecord("Tablet", 9, Mode.SET));
+
+        assertEquals(List.of(new StockImporter.BatchResult(1, 3, 1, 1, 1, 0)), session.finish().batches());
+        assertEquals(4, journal.getStock(laptopId));
+        assertEquals(8, journal.getStock(journal.getProductId("Phone")));
+        assertEquals(9, journal.getStock(journal.getProductId("Tablet")));
+        assertEquals(-3, jdbcTemplate.queryForObject("SELECT SUM(delta) FROM stock_journal", Integer.class));
+    }
+
+    /**
+     * Verifies that a CSV upload skips its header, unquotes quoted names, applies the mode
+     * column and counts malformed lines as rejected.
+     */
+    @Test
+    void testCsvImport() throws Exception {
+        StockImporter.Session session = importer(null, 100).open();
+        CsvStockImportReader.read(new StringReader("""
+                product,quantity,mode
+                "Desk, oak",12
+                Laptop,-4,adjust
+                Phone,lots
+                Pen,1,replace
+                """), session);
+
+        StockImporter.Result result = session.finish();
+        assertEquals(4, result.records());
+        assertEquals(1, result.created());
+        assertEquals(1, result.adjusted());
+        assertEquals(2, result.rejected());
+        assertEquals(12, stock("Desk, oak"));
+        assertEquals(6, stock("Laptop"));
+    }
+
+    /**
+     * Verifies that an import that takes a watched product to its reorder threshold raises a
+     * low-stock alert.
+     */
+    @Test
+    void testImportRaisesStockAlerts() {
+        stockAlerts.watch(laptopId, "Laptop", 5);
+        StockImporter.Session session = importer(null, 100).open();
+        session.add(new StockImportRecord("Laptop", 2, Mode.SET));
+        session.finish();
+
+        List<StockAlert> alerts = stockAlerts.getAlerts(0);
+        assertEquals(1, alerts.size());
+        assertEquals(StockAlert.Type.LOW_STOCK, alerts.get(0).type());
+        assertEquals(2, alerts.get(0).stockQuantity());
+    }
+
+    /**
+     * Verifies that a database holding several products under one name still starts, with
+     * imports refused, and that the merge migration keeps the first product of each name with
+     * its own stock, records the ids it removed, and makes names unique. Running it again
+     * changes nothing.
+     */
+    @Test
+    void testDuplicateNamesRefuseImportsUntilMerged() {
+        jdbcTemplate.execute("ALTER TABLE products DROP CONSTRAINT IF EXISTS products_name_uidx");
+        jdbcTemplate.execute("DROP INDEX IF EXISTS products_name_uidx");
+        long duplicate = save("Laptop", 30);
+        jdbcTemplate.update("INSERT INTO stock_journal (seq, product_id, delta) VALUES (1, ?, -9)", duplicate);
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(jdbcTemplate.getDataSource());
+        StockImporter importer = importer(null, 100);
+        importer.createNameIndex();
+
+        StockImporter.Session refused = importer.open();
+        refused.add(new StockImportRecord("Phone", 7, Mode.SET));
+        assertThrows(IllegalStateException.class, refused::finish);
+        assertEquals(5, stock("Phone"));
+
+        ResourceDatabasePopulator migration =
+                new ResourceDatabasePopulator(new ClassPathResource("db/merge-duplicate-products.sql"));
+        migration.execute(jdbcTemplate.getDataSource());
+        migration.execute(jdbcTemplate.getDataSource());
+
+        assertEquals(List.of(laptopId), jdbcTemplate.queryForList(
+                "SELECT id FROM products WHERE name = 'Laptop'", Long.class));
+        assertEquals(10, stock("Laptop"));
+        assertEquals(laptopId, jdbcTemplate.queryForObject(
+                "SELECT kept_id FROM product_id_merges WHERE removed_id = ?", Long.class, duplicate));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM stock_journal WHERE product_id = ?", Integer.class, duplicate));
+        assertThrows(DataIntegrityViolationException.class, () -> save("Phone", 1));
+
+        importer.createNameIndex();
+        StockImporter.Session session = importer.open();
+        session.add(new StockImportRecord("Phone", 7, Mode.SET));
+        assertEquals(1, session.finish().updated());
+        assertEquals(7, stock("Phone"));
+    }
+
+    private StockImporter importer(StockJournal stockJournal, int batchSize) {
+        return new StockImporter(jdbcTemplate, new TransactionTemplate(transactionManager), stockJournal,
+                stockAlerts, searchIndex, new ResourceVersion(), batchSize, new SimpleMeterRegistry());
+    }
+
+    private int stock(String name) {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE name = ?", Integer.class, name);
+    }
+
+    private long save(String name, int stock) {
+        Product product = new Product();
+        product.setName(name);
+        product.setStockQuantity(stock);
+        return productRepository.save(product).getId();
+    }
+}
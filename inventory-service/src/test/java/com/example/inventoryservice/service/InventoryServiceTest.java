@@ -5,9 +5,12 @@ import com.example.inventoryservice.repository.ProductRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -81,6 +84,31 @@ class InventoryServiceTest {
         assertEquals(15, captor.getValue().getStockQuantity());
     }
 
+    /**
+     * Tests that updateStock re-reads the product and retries the write when the first
+     * save fails with an optimistic locking conflict caused by a concurrent update.
+     */
+    @Test
+    void testUpdateStock_RetriesOnOptimisticLockConflict() {
+        Product stale = new Product();
+        stale.setName("Contended");
+        stale.setStockQuantity(10);
+        Product fresh = new Product();
+        fresh.setName("Contended");
+        fresh.setStockQuantity(8);
+
+        when(productRepository.findByName("Contended")).thenReturn(stale, fresh);
+        when(productRepository.save(any(Product.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Product.class, 1L))
+                .thenReturn(fresh);
+
+        boolean result = inventoryService.updateStock("Contended", 3);
+
+        assertTrue(result);
+        verify(productRepository, times(2)).save(any(Product.class));
+        assertEquals(5, fresh.getStockQuantity());
+    }
+
     /**
      * Test that the getAllProducts method returns all products in the inventory.
      *
@@ -159,4 +187,164 @@ class InventoryServiceTest {
         assertNull(result);
         verify(productRepository).findByName("Ghost");
     }
+
+    /**
+     * Tests that reserveStock decrements every requested product when all of them have
+     * enough stock, and reports no unavailable products.
+     */
+    @Test
+    void testReserveStock_AllProductsAvailable() {
+        Product laptop = new Product();
+        laptop.setName("Laptop");
+        laptop.setStockQuantity(5);
+        Product phone = new Product();
+        phone.setName("Phone");
+        phone.setStockQuantity(3);
+
+        when(productRepository.findAllByNameInForUpdate(any())).thenReturn(List.of(laptop, phone));
+
+        List<String> unavailable = inventoryService.reserveStock(Map.of("Laptop", 2, "Phone", 3));
+
+        assertTrue(unavailable.isEmpty());
+        assertEquals(3, laptop.getStockQuantity());
+        assertEquals(0, phone.getStockQuantity());
+        verify(productRepository).saveAll(any());
+    }
+
+    /**
+     * Tests that reserveStock leaves every product untouched when one product lacks stock
+     * and another does not exist, and reports both of them in name order.
+     */
+    @Test
+    void testReserveStock_AllOrNothing() {
+        Product laptop = new Product();
+        laptop.setName("Laptop");
+        laptop.setStockQuantity(5);
+        Product phone = new Product();
+        phone.setName("Phone");
+        phone.setStockQuantity(1);
+
+        when(productRepository.findAllByNameInForUpdate(any())).thenReturn(List.of(laptop, phone));
+
+        List<String> unavailable = inventoryService.reserveStock(Map.of("Laptop", 2, "Phone", 3, "Ghost", 1));
+
+        assertEquals(List.of("Ghost", "Phone"), unavailable);
+        assertEquals(5, laptop.getStockQuantity());
+        assertEquals(1, phone.getStockQuantity());
+        verify(productRepository, never()).saveAll(any());
+    }
+
+    /**
+     * Tests that the version of the product list changes when a reservation changes stock,
+     * and stays the same when a reservation is refused.
+     */
+    @Test
+    void testReserveStock_IncrementsProductsVersionOnChange() {
+        Product laptop = new Product();
+        laptop.setName("Laptop");
+        laptop.setStockQuantity(5);
+
+        when(productRepository.findAllByNameInForUpdate(any())).thenReturn(List.of(laptop));
+        String initial = inventoryService.getProductsVersion().eTag();
+
+        inventoryService.reserveStock(Map.of("Laptop", 9));
+        assertEquals(initial, inventoryService.getProductsVersion().eTag());
+
+        inventoryService.reserveStock(Map.of("Laptop", 2));
+        assertNotEquals(initial, inventoryService.getProductsVersion().eTag());
+    }
+
+    /**
+     * Tests that checkStock and updateStock by product id look the product up by primary key
+     * instead of by name.
+     */
+    @Test
+    void testCheckAndUpdateStock_ById_UsePrimaryKeyLookup() {
+        Product product = new Product();
+        product.setId(7L);
+        product.setName("Gadget");
+        product.setStockQuantity(4);
+
+        when(productRepository.findById(7L)).thenReturn(Optional.of(product));
+        when(productRepository.save(any(Product.class))).thenReturn(product);
+
+        assertTrue(inventoryService.checkStock(7L, 4));
+        assertTrue(inventoryService.updateStock(7L, 3));
+        assertFalse(inventoryService.updateStock(7L, 3));
+
+        assertEquals(1, product.getStockQuantity());
+        verify(productRepository, never()).findByName(any());
+    }
+
+    /**
+     * Tests that reserveStockByIds locks the products by id and reports the ids of
+     * missing products without decrementing anything.
+     */
+    @Test
+    void testReserveStockByIds_ReportsMissingIds() {
+        Product product = new Product();
+        product.setId(1L);
+        product.setStockQuantity(5);
+
+        when(productRepository.findAllByIdInForUpdate(any())).thenReturn(List.of(product));
+
+        List<Long> unavailable = inventoryService.reserveStockByIds(Map.of(1L, 2, 99L, 1));
+
+        assertEquals(List.of(99L), unavailable);
+        assertEquals(5, product.getStockQuantity());
+        verify(productRepository, never()).saveAll(any());
+    }
+
+    /**
+     * Tests that restockByIds adds the quantities to every product, and that it changes nothing
+     * when one of the products does not exist.
+     */
+    @Test
+    void testRestockByIds_AddsStockAllOrNothing() {
+        Product product = new Product();
+        product.setId(1L);
+        product.setStockQuantity(5);
+
+        when(productRepository.findAllByIdInForUpdate(any())).thenReturn(List.of(product));
+
+        assertEquals(List.of(99L), inventoryService.restockByIds(Map.of(1L, 2, 99L, 1)));
+        assertEquals(5, product.getStockQuantity());
+        verify(productRepository, never()).saveAll(any());
+
+        assertEquals(List.of(), inventoryService.restockByIds(Map.of(1L, 10)));
+        assertEquals(15, product.getStockQuantity());
+        verify(productRepository).saveAll(any());
+    }
+
+    /**
+     * Tests that a decrement that takes a watched product down to its reorder threshold raises
+     * one low-stock alert, and a restock above it raises one restocked alert.
+     */
+    @Test
+    void testStockChangesRaiseAlertsForWatchedProducts() {
+        Product product = new Product();
+        product.setId(7L);
+        product.setName("Gadget");
+        product.setStockQuantity(8);
+
+        when(productRepository.updateReorderThreshold(7L, 5)).thenReturn(1);
+        when(productRepository.findById(7L)).thenReturn(Optional.of(product));
+        when(productRepository.findByName("Gadget")).thenReturn(product);
+        when(productRepository.save(any(Product.class))).thenReturn(product);
+        when(productRepository.findAllByIdInForUpdate(any())).thenReturn(List.of(product));
+
+        inventoryService.setReorderThreshold(7L, 5);
+        assertTrue(inventoryService.getStockAlerts(0).isEmpty());
+
+        inventoryService.updateStock(7L, 3);
+        inventoryService.updateStock("Gadget", 1);
+        inventoryService.restockByIds(Map.of(7L, 20));
+
+        List<StockAlert> alerts = inventoryService.getStockAlerts(0);
+        assertEquals(2, alerts.size());
+        assertEquals(StockAlert.Type.LOW_STOCK, alerts.get(0).type());
+        assertEquals(5, alerts.get(0).stockQuantity());
+        assertEquals(StockAlert.Type.RESTOCKED, alerts.get(1).type());
+        assertEquals(24, alerts.get(1).stockQuantity());
+    }
 }
\ No newline at end of file
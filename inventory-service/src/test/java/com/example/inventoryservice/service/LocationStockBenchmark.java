@@ -0,0 +1,63 @@
+package com.example.inventoryservice.service;
+
+import com.example.inventoryservice.config.LocationStockProperties;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the allocation latency of the stock per warehouse with a thousand warehouses and ten
+ * thousand products, for whole and split allocations.
+ * <p>
+ * Not part of the regular test run; execute with {@code mvn test -Dtest=LocationStockBenchmark}.
+ */
+class LocationStockBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(LocationStockBenchmark.class);
+
+    private static final int WAREHOUSES = 1_000;
+    private static final int PRODUCTS = 10_000;
+    private static final int ALLOCATIONS = 100_000;
+
+    @Test
+    void benchmarkAllocate() {
+        Random random = new Random(42);
+        List<LocationStock.Location> locations = new ArrayList<>();
+        for (int i = 0; i < WAREHOUSES; i++) {
+            locations.add(new LocationStock.Location("W" + i, random.nextDouble() * 120 - 60,
+                    random.nextDouble() * 360 - 180, random.nextInt(10)));
+        }
+        for (LocationStockProperties.Policy policy : LocationStockProperties.Policy.values()) {
+            LocationStock locationStock = new LocationStock(null, locations, policy, 3);
+            for (long productId = 1; productId <= PRODUCTS; productId++) {
+                List<LocationStock.Allocation> stock = new ArrayList<>();
+                for (LocationStock.Location location : locations) {
+                    if (random.nextInt(4) == 0) {
+                        stock.add(new LocationStock.Allocation(location.code(), random.nextInt(20), 0));
+                    }
+                }
+                locationStock.putBack(productId, stock);
+            }
+            for (int quantity : new int[]{1, 50}) {
+                long[] nanos = new long[ALLOCATIONS];
+                for (int i = 0; i < ALLOCATIONS; i++) {
+                    long productId = 1 + random.nextInt(PRODUCTS);
+                    LocationStock.Destination destination = new LocationStock.Destination(
+                            random.nextDouble() * 120 - 60, random.nextDouble() * 360 - 180);
+                    long start = System.nanoTime();
+                    List<LocationStock.Allocation> allocations = locationStock.allocate(productId, quantity,
+                            destination, true);
+                    nanos[i] = System.nanoTime() - start;
+                    locationStock.putBack(productId, allocations);
+                }
+                Arrays.sort(nanos);
+                log.info(String.format("%-10s quantity %2d  p50 %5d us  p99 %5d us", policy, quantity,
+                        nanos[ALLOCATIONS / 2] / 1_000, nanos[ALLOCATIONS * 99 / 100] / 1_000));
+            }
+        }
+    }
+}
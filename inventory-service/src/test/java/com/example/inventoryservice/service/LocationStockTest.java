@@ -0,0 +1,283 @@
+package com.example.inventoryservice.service;
+
+import com.example.inventoryservice.config.LocationStockProperties;
+import com.example.inventoryservice.config.StockAlertProperties;
+import com.example.inventoryservice.config.StockUpdateProperties;
+import com.example.inventoryservice.entity.Product;
+import com.example.inventoryservice.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LocationStockTest {
+
+    // Berlin, Hamburg and Munich, in decreasing priority.
+    private static final List<LocationStock.Location> WAREHOUSES = List.of(
+            new LocationStock.Location("BER", 52.52, 13.405, 3),
+            new LocationStock.Location("HAM", 53.551, 9.994, 1),
+            new LocationStock.Location("MUC", 48.137, 11.575, 2));
+
+    // Potsdam, next to Berlin.
+    private static final LocationStock.Destination POTSDAM = new LocationStock.Destination(52.39, 13.065);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private StockReservations stockReservations;
+
+    private long laptopId;
+
+    /**
+     * Resets the products, the warehouse stock and the reservation tables, and stocks the laptop
+     * with 2 units in Berlin and 10 in Hamburg and Munich each.
+     */
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM location_reservations");
+        jdbcTemplate.update("DELETE FROM location_stock");
+        jdbcTemplate.update("DELETE FROM stock_reservation_items");
+        jdbcTemplate.update("DELETE FROM stock_reservations");
+        productRepository.deleteAll();
+        Product laptop = new Product();
+        laptop.setName("Laptop");
+        laptop.setStockQuantity(22);
+        laptopId = productRepository.save(laptop).getId();
+        locationStock("BER", 2, "HAM", 10, "MUC", 10);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        stockReservations = new StockReservations(jdbcTemplate);
+    }
+
+    /**
+     * Verifies that the nearest warehouse that has the whole quantity is picked over a nearer
+     * one that has only part of it, and that the stock is taken from the warehouse and the
+     * product together.
+     */
+    @Test
+    void testAllocatesFromNearestWarehouseWithAllOfIt() {
+        InventoryService inventoryService = inventoryService(started(LocationStockProperties.Policy.NEAREST, 3));
+
+        List<LocationStock.Allocation> allocations = allocate(inventoryService, 5, POTSDAM, true, null);
+
+        assertEquals(1, allocations.size());
+        assertEquals("HAM", allocations.get(0).location());
+        assertEquals(5, allocations.get(0).quantity());
+        assertEquals(250, allocations.get(0).distanceKm(), 25);
+        assertEquals(Map.of("BER", 2, "HAM", 5, "MUC", 10), inventoryService.getLocationStock(laptopId));
+        assertEquals(Map.of("BER", 2, "HAM", 5, "MUC", 10), storedLocationStock());
+        assertEquals(17, stock());
+    }
+
+    /**
+     * Verifies that a quantity no warehouse has is split across the nearest warehouses if
+     * allowed, and refused without taking anything otherwise.
+     */
+    @Test
+    void testSplitsAcrossNearestWarehousesOnlyIfAllowed() {
+        InventoryService inventoryService = inventoryService(started(LocationStockProperties.Policy.NEAREST, 3));
+
+        assertEquals(List.of(), allocate(inventoryService, 15, POTSDAM, false, null));
+        assertEquals(22, stock());
+
+        List<LocationStock.Allocation> allocations = allocate(inventoryService, 15, POTSDAM, true, null);
+
+        assertEquals(List.of("BER", "HAM", "MUC"), allocations.stream().map(LocationStock.Allocation::location).toList());
+        assertEquals(List.of(2, 10, 3), allocations.stream().map(LocationStock.Allocation::quantity).toList());
+        assertEquals(Map.of("BER", 0, "HAM", 0, "MUC", 7), storedLocationStock());
+        assertEquals(7, stock());
+    }
+
+    /**
+     * Verifies the order of the priority and most-stock policies, and that a split is limited to
+     * the configured number of warehouses.
+     */
+    @Test
+    void testPoliciesAndSplitLimit() {
+        LocationStock byPriority = started(LocationStockProperties.Policy.PRIORITY, 2);
+        assertEquals(List.of(new LocationStock.Allocation("HAM", 1, 0)), byPriority.allocate(laptopId, 1, null, true));
+        assertEquals(List.of(), byPriority.allocate(laptopId, 20, null, true));
+        assertEquals(Map.of("BER", 2, "HAM", 9, "MUC", 10), byPriority.getStock(laptopId));
+
+        LocationStock byStock = started(LocationStockProperties.Policy.MOST_STOCK, 2);
+        assertEquals(List.of(new LocationStock.Allocation("HAM", 10, 0), new LocationStock.Allocation("MUC", 1, 0)),
+                byStock.allocate(laptopId, 11, null, true));
+
+        LocationStock nearestWithoutDestination = started(LocationStockProperties.Policy.NEAREST, 1);
+        assertEquals(List.of(new LocationStock.Allocation("HAM", 3, 0)),
+                nearestWithoutDestination.allocate(laptopId, 3, null, true));
+    }
+
+    /**
+     * Verifies that releasing an order puts its stock back into the warehouses it was taken
+     * from, once, and that a failed allocation leaves the warehouses as they were.
+     */
+    @Test
+    void testReleasePutsStockBackIntoWarehouses() {
+        InventoryService inventoryService = inventoryService(started(LocationStockProperties.Policy.NEAREST, 3));
+        allocate(inventoryService, 2, POTSDAM, true, "order-1");
+        assertEquals(Map.of("BER", 0, "HAM", 10, "MUC", 10), inventoryService.getLocationStock(laptopId));
+
+        assertThrows(DuplicateKeyException.class, () -> allocate(inventoryService, 1, POTSDAM, true, "order-1"));
+        assertEquals(Map.of("BER", 0, "HAM", 10, "MUC", 10), inventoryService.getLocationStock(laptopId));
+
+        assertEquals(1, release(inventoryService, "order-1"));
+        assertEquals(0, release(inventoryService, "order-1"));
+        assertEquals(Map.of("BER", 2, "HAM", 10, "MUC", 10), inventoryService.getLocationStock(laptopId));
+        assertEquals(Map.of("BER", 2, "HAM", 10, "MUC", 10), storedLocationStock());
+        assertEquals(22, stock());
+    }
+
+    /**
+     * Verifies that setting the stock of a warehouse changes the stock of the product by the
+     * same amount, and that a decrease the product does not have is refused as a whole.
+     */
+    @Test
+    void testSetLocationStockMovesProductStock() {
+        InventoryService inventoryService = inventoryService(started(LocationStockProperties.Policy.NEAREST, 3));
+
+        assertEquals(Map.of("BER", 6, "HAM", 10, "MUC", 10),
+                transactionTemplate.execute(status -> inventoryService.setLocationStock(laptopId, "BER", 6)));
+        assertEquals(26, stock());
+        transactionTemplate.execute(status -> inventoryService.setLocationStock(laptopId, "MUC", 1));
+        assertEquals(17, stock());
+
+        jdbcTemplate.update("UPDATE products SET stock_quantity = 3 WHERE id = ?", laptopId);
+        assertThrows(IllegalStateException.class,
+                () -> transactionTemplate.execute(status -> inventoryService.setLocationStock(laptopId, "HAM", 0)));
+        assertEquals(Map.of("BER", 6, "HAM", 10, "MUC", 1), inventoryService.getLocationStock(laptopId));
+        assertEquals(Map.of("BER", 6, "HAM", 10, "MUC", 1), storedLocationStock());
+        assertThrows(IllegalArgumentException.class,
+                () -> transactionTemplate.execute(status -> inventoryService.setLocationStock(laptopId, "PAR", 1)));
+    }
+
+    /**
+     * Races counts of the same warehouse, and verifies that the warehouse ends at one of the
+     * counted quantities, in memory and in the database, and that the product stock moved by
+     * the same amount.
+     */
+    @Test
+    void testConcurrentCountsEndAtOneOfThem() throws InterruptedException {
+        InventoryService inventoryService = inventoryService(started(LocationStockProperties.Policy.NEAREST, 3));
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            int quantity = 5 + t;
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 10; i++) {
+                    transactionTemplate.execute(status -> inventoryService.setLocationStock(laptopId, "BER", quantity));
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        int counted = storedLocationStock().get("BER");
+        assertTrue(counted >= 5 && counted <= 8);
+        assertEquals(counted, inventoryService.getLocationStock(laptopId).get("BER"));
+        assertEquals(20 + counted, stock());
+    }
+
+    /**
+     * Races allocations of single units from many threads, and verifies that every unit is
+     * allocated exactly once.
+     */
+    @Test
+    void testConcurrentAllocationsNeverOverAllocate() throws InterruptedException {
+        LocationStock locationStock = started(LocationStockProperties.Policy.NEAREST, 3);
+        AtomicInteger allocated = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 10; i++) {
+                    locationStock.allocate(laptopId, 1, POTSDAM, true).forEach(allocation ->
+                            allocated.addAndGet(allocation.quantity()));
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(22, allocated.get());
+        assertEquals(Map.of("BER", 0, "HAM", 0, "MUC", 0), locationStock.getStock(laptopId));
+    }
+
+    private List<LocationStock.Allocation> allocate(InventoryService inventoryService, int quantity,
+                                                    LocationStock.Destination destination, boolean split,
+                                                    String orderRef) {
+        return transactionTemplate.execute(status ->
+                inventoryService.allocateStock(laptopId, quantity, destination, split, orderRef));
+    }
+
+    private int release(InventoryService inventoryService, String orderRef) {
+        return transactionTemplate.execute(status -> inventoryService.releaseStock(List.of(orderRef)));
+    }
+
+    private LocationStock started(LocationStockProperties.Policy policy, int maxSplit) {
+        LocationStock locationStock = new LocationStock(jdbcTemplate, WAREHOUSES, policy, maxSplit);
+        locationStock.start();
+        return locationStock;
+    }
+
+    private InventoryService inventoryService(LocationStock locationStock) {
+        StockUpdateStrategy strategy = new OptimisticStockUpdateStrategy(productRepository, transactionTemplate,
+                stockReservations, new StockUpdateProperties(), new SimpleMeterRegistry());
+        return new InventoryService(productRepository, strategy, null, stockReservations,
+                new StockAlertEngine(new StockAlertProperties(), new SimpleMeterRegistry()), null, null,
+                locationStock, new ResourceVersion());
+    }
+
+    private void locationStock(Object... codesAndQuantities) {
+        for (int i = 0; i < codesAndQuantities.length; i += 2) {
+            jdbcTemplate.update("INSERT INTO location_stock (product_id, location, quantity) VALUES (?, ?, ?)",
+                    laptopId, codesAndQuantities[i], codesAndQuantities[i + 1]);
+        }
+    }
+
+    private Map<String, Integer> storedLocationStock() {
+        Map<String, Integer> stock = new HashMap<>();
+        jdbcTemplate.query("SELECT location, quantity FROM location_stock WHERE product_id = ?",
+                row -> {
+                    stock.put(row.getString(1), row.getInt(2));
+                }, laptopId);
+        return stock;
+    }
+
+    private int stock() {
+        return productRepository.findById(laptopId).orElseThrow().getStockQuantity();
+    }
+}
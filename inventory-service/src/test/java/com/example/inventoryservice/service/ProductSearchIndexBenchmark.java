@@ -0,0 +1,55 @@
+package com.example.inventoryservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures the search latency of the product search index over a catalogue of one million
+ * generated product names.
+ * <p>
+ * Not part of the regular test run; execute with {@code mvn test -Dtest=ProductSearchIndexBenchmark}.
+ */
+class ProductSearchIndexBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndexBenchmark.class);
+
+    private static final int PRODUCTS = 1_000_000;
+    private static final int SEARCHES = 2_000;
+    private static final String[] WORDS = {"laptop", "phone", "case", "charger", "cable", "monitor", "stand", "desk",
+            "lamp", "chair", "keyboard", "mouse", "headset", "speaker", "camera", "tripod", "battery", "adapter",
+            "router", "switch", "printer", "scanner", "tablet", "watch", "strap", "bag", "sleeve", "dock", "hub",
+            "drive"};
+    private static final String[] QUERIES = {"lap", "laptop sl", "char usb", "moni 27", "keybord", "hedset",
+            "tripod bl", "x", "cable 2"};
+
+    @Test
+    void benchmarkSearch() {
+        Random random = new Random(42);
+        ProductSearchIndex index = new ProductSearchIndex(null, null, 200, Duration.ofSeconds(30), Duration.ofHours(1));
+        long buildStart = System.nanoTime();
+        for (long id = 1; id <= PRODUCTS; id++) {
+            index.put(id, WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                    + " " + Long.toString(id, 36));
+        }
+        log.info(String.format("Indexed %d products in %d ms", PRODUCTS, (System.nanoTime() - buildStart) / 1_000_000));
+
+        for (String query : QUERIES) {
+            for (int i = 0; i < SEARCHES / 10; i++) {
+                index.search(query, 0, 20);
+            }
+            long[] nanos = new long[SEARCHES];
+            for (int i = 0; i < SEARCHES; i++) {
+                long start = System.nanoTime();
+                index.search(query, 0, 20);
+                nanos[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(nanos);
+            log.info(String.format("%-12s p50 %6d us  p99 %6d us", '"' + query + '"',
+                    nanos[SEARCHES / 2] / 1_000, nanos[SEARCHES * 99 / 100] / 1_000));
+        }
+    }
+}
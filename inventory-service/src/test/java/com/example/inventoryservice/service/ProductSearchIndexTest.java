@@ -0,0 +1,91 @@
+package com.example.inventoryservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex(null, null, 1000, Duration.ofSeconds(30), Duration.ofHours(1));
+        index.put(1L, "Laptop Pro 14");
+        index.put(2L, "Gaming Laptop");
+        index.put(3L, "Laptop Stand");
+        index.put(4L, "Phone Case");
+        index.put(5L, "Desk Lamp");
+    }
+
+    /**
+     * Verifies that names starting with the query rank before names that only have a word
+     * starting with it, each in name order.
+     */
+    @Test
+    void testPrefixMatchesRankNameStartFirst() {
+        assertEquals(List.of("Laptop Pro 14", "Laptop Stand", "Gaming Laptop"), names("lap", 0, 10));
+        assertEquals(List.of("Laptop Stand"), names("st lap", 0, 10));
+        assertEquals(List.of("Laptop Pro 14"), names("LAPTOP 14", 0, 10));
+        assertEquals(List.of(), names("  ", 0, 10));
+    }
+
+    /**
+     * Verifies that words that match nothing are matched with a typo, while the other words of
+     * the query still match by prefix.
+     */
+    @Test
+    void testFuzzyMatches() {
+        assertEquals(List.of("Phone Case"), names("phnoe", 0, 10));
+        assertEquals(List.of("Desk Lamp", "Gaming Laptop", "Laptop Pro 14", "Laptop Stand"), names("lanp", 0, 10));
+        assertEquals(List.of("Laptop Stand"), names("laptop stnad", 0, 10));
+        assertEquals(List.of("Desk Lamp"), names("lamp", 0, 10));
+        assertEquals(List.of(), names("xyz", 0, 10));
+    }
+
+    /**
+     * Verifies that results are paged and report whether more follow.
+     */
+    @Test
+    void testPaging() {
+        ProductSearchIndex.Page first = index.search("lap", 0, 2);
+        ProductSearchIndex.Page second = index.search("lap", 1, 2);
+
+        assertEquals(List.of(1L, 3L), first.results().stream().map(ProductSearchIndex.Match::id).toList());
+        assertTrue(first.more());
+        assertEquals(List.of(2L), second.results().stream().map(ProductSearchIndex.Match::id).toList());
+        assertFalse(second.more());
+    }
+
+    /**
+     * Verifies that renamed and removed products are found under their new name only.
+     */
+    @Test
+    void testRenameAndRemove() {
+        index.put(3L, "Monitor Stand");
+        index.remove(4L);
+
+        assertEquals(List.of("Laptop Pro 14", "Gaming Laptop"), names("laptop", 0, 10));
+        assertEquals(List.of("Monitor Stand"), names("stand", 0, 10));
+        assertEquals(List.of(), names("phone", 0, 10));
+    }
+
+    /**
+     * Verifies the prefix edit distance, including transpositions.
+     */
+    @Test
+    void testPrefixDistance() {
+        assertEquals(0, ProductSearchIndex.prefixDistance("lap", "laptop", 2));
+        assertEquals(1, ProductSearchIndex.prefixDistance("lpa", "laptop", 2));
+        assertEquals(1, ProductSearchIndex.prefixDistance("laptip", "laptop", 2));
+        assertEquals(3, ProductSearchIndex.prefixDistance("xyzw", "laptop", 2));
+    }
+
+    private List<String> names(String query, int page, int size) {
+        return index.search(query, page, size).results().stream().map(ProductSearchIndex.Match::name).toList();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.inventoryservice.service;
+
+import com.example.inventoryservice.config.StockAlertProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StockAlertEngineTest {
+
+    private final AtomicInteger stock = new AtomicInteger();
+
+    private StockAlertEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        StockAlertProperties properties = new StockAlertProperties();
+        properties.setHistorySize(3);
+        engine = new StockAlertEngine(properties, new SimpleMeterRegistry());
+    }
+
+    /**
+     * Verifies that alerts are raised only when the stock crosses the threshold, not on every
+     * change below or above it.
+     */
+    @Test
+    void testAlertsOnlyOnCrossing() {
+        engine.watch(1L, "Laptop", 5);
+
+        evaluate(8);
+        evaluate(5);
+        evaluate(2);
+        evaluate(6);
+        evaluate(9);
+
+        List<StockAlert> alerts = engine.getAlerts(0);
+        assertEquals(2, alerts.size());
+        assertEquals(StockAlert.Type.LOW_STOCK, alerts.get(0).type());
+        assertEquals(5, alerts.get(0).stockQuantity());
+        assertEquals(StockAlert.Type.RESTOCKED, alerts.get(1).type());
+        assertEquals(6, alerts.get(1).stockQuantity());
+        assertEquals(List.of(alerts.get(1)), engine.getAlerts(alerts.get(0).sequence()));
+    }
+
+    /**
+     * Verifies that products without a threshold never raise alerts and are not read.
+     */
+    @Test
+    void testUnwatchedProductsAreIgnored() {
+        engine.watch(1L, "Laptop", 5);
+        engine.watch(1L, "Laptop", null);
+
+        engine.evaluate(1L, productId -> fail("stock of an unwatched product was read"));
+        engine.evaluate(2L, productId -> fail("stock of an unwatched product was read"));
+
+        assertTrue(engine.getAlerts(0).isEmpty());
+        assertFalse(engine.isWatched(List.of(1L, 2L)));
+        assertNull(engine.getWatchedId("Laptop"));
+    }
+
+    /**
+     * Verifies that a subscriber first receives the retained alerts after its sequence number
+     * and then the new ones, and that only the latest alerts are retained.
+     */
+    @Test
+    void testSubscribersReplayThenFollow() {
+        engine.watch(1L, "Laptop", 5);
+        for (int i = 0; i < 4; i++) {
+            evaluate(1);
+            evaluate(10);
+        }
+        List<StockAlert> retained = engine.getAlerts(0);
+        assertEquals(List.of(6L, 7L, 8L), retained.stream().map(StockAlert::sequence).toList());
+
+        List<StockAlert> received = new ArrayList<>();
+        Runnable unsubscribe = engine.subscribe(7, received::add);
+        evaluate(0);
+        unsubscribe.run();
+        evaluate(10);
+
+        assertEquals(List.of(8L, 9L), received.stream().map(StockAlert::sequence).toList());
+    }
+
+    private void evaluate(int quantity) {
+        stock.set(quantity);
+        engine.evaluate(1L, productId -> stock.get());
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.inventoryservice.service;
+
+import com.example.inventoryservice.config.StockAlertProperties;
+import com.example.inventoryservice.entity.Product;
+import com.example.inventoryservice.grpc.InventoryGrpcService;
+import com.example.inventoryservice.grpc.StockRequest;
+import com.example.inventoryservice.grpc.StockResponse;
+import com.example.inventoryservice.repository.ProductRepository;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockJournalTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<StockJournal> journals = new ArrayList<>();
+
+    private long laptopId;
+
+    private long phoneId;
+
+    /**
+     * Resets the products and the journal tables.
+     */
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM stock_journal");
+        jdbcTemplate.update("DELETE FROM stock_snapshots");
+        productRepository.deleteAll();
+        laptopId = save("Laptop", 100);
+        phoneId = save("Phone", 5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        journals.forEach(StockJournal::stop);
+    }
+
+    /**
+     * Verifies that a decrement updates the projection and appends one movement to the journal,
+     * and that a decrement beyond the stock is refused without journaling anything.
+     */
+    @Test
+    void testDecrementAppendsMovement() {
+        StockJournal journal = start(10_000);
+
+        assertTrue(journal.decrement(laptopId, 3, "order-1"));
+        assertFalse(journal.decrement(phoneId, 6, "order-2"));
+
+        assertEquals(97, journal.getStock(laptopId));
+        assertEquals(5, journal.getStock(phoneId));
+        assertEquals(List.of(Map.of("PRODUCT_ID", laptopId, "DELTA", -3, "ORDER_REF", "order-1")),
+                jdbcTemplate.queryForList("SELECT product_id, delta, order_ref FROM stock_journal"));
+        assertEquals(laptopId, journal.getProductId("Laptop"));
+        assertNull(journal.getStock(-1));
+    }
+
+    /**
+     * Hammers one product from many threads and verifies that exactly the initial stock is sold,
+     * and that the journal agrees with the projection.
+     */
+    @Test
+    void testConcurrentDecrementsNeverOversell() throws InterruptedException {
+        StockJournal journal = start(50);
+        AtomicInteger sold = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch done = new CountDownLatch(8);
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 20; i++) {
+                    if (journal.decrement(laptopId, 1, null)) {
+                        sold.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertEquals(100, sold.get());
+        assertEquals(0, journal.getStock(laptopId));
+        assertEquals(-100, jdbcTemplate.queryForObject(
+                "SELECT SUM(delta) FROM stock_journal WHERE product_id = ?", Integer.class, laptopId));
+    }
+
+    /**
+     * Verifies that a reservation is all or nothing.
+     */
+    @Test
+    void testReserveIsAllOrNothing() {
+        StockJournal journal = start(10_000);
+
+        assertEquals(List.of(phoneId), journal.reserve(Map.of(laptopId, 10, phoneId, 6), "order-1"));
+        assertEquals(100, journal.getStock(laptopId));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_journal", Integer.class));
+
+        assertEquals(List.of(), journal.reserve(Map.of(laptopId, 10, phoneId, 5), "order-2"));
+        assertEquals(90, journal.getStock(laptopId));
+        assertEquals(0, journal.getStock(phoneId));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_journal", Integer.class));
+    }
+
+    /**
+     * Verifies that stopping takes a snapshot, writes it back to the products table, and that a
+     * restart rebuilds the same stock from it.
+     */
+    @Test
+    void testRestartFromSnapshot() {
+        StockJournal journal = start(10_000);
+        journal.decrement(laptopId, 30, null);
+        journal.stop();
+
+        assertEquals(70, productRepository.findById(laptopId).orElseThrow().getStockQuantity());
+        assertEquals(70, jdbcTemplate.queryForObject(
+                "SELECT stock_quantity FROM stock_snapshots WHERE product_id = ?", Integer.class, laptopId));
+
+        StockJournal restarted = start(10_000);
+        assertEquals(70, restarted.getStock(laptopId));
+        assertEquals(5, restarted.getStock(phoneId));
+    }
+
+    /**
+     * Verifies that movements journaled after the latest snapshot are replayed on start, as after
+     * a crash that left no final snapshot.
+     */
+    @Test
+    void testRestartReplaysMovementsAfterSnapshot() {
+        StockJournal crashed = start(10_000);
+        crashed.decrement(laptopId, 4, null);
+        crashed.decrement(laptopId, 6, null);
+
+        StockJournal restarted = start(10_000);
+
+        assertEquals(90, restarted.getStock(laptopId));
+        assertEquals(100, jdbcTemplate.queryForObject(
+                "SELECT stock_quantity FROM stock_snapshots WHERE product_id = ?", Integer.class, laptopId));
+    }
+
+    /**
+     * Verifies that a restock adds stock to every product, is journaled as positive movements
+     * and survives a restart, and that it adds nothing if a product does not exist.
+     */
+    @Test
+    void testRestockAddsJournaledStock() {
+        StockJournal journal = start(10_000);
+
+        assertEquals(List.of(999L), journal.restock(Map.of(laptopId, 5, 999L, 1), "delivery-1"));
+        assertEquals(100, journal.getStock(laptopId));
+
+        assertEquals(List.of(), journal.restock(Map.of(laptopId, 5, phoneId, 10), "delivery-2"));
+        assertEquals(105, journal.getStock(laptopId));
+        assertEquals(15, journal.getStock(phoneId));
+        assertEquals(15, jdbcTemplate.queryForObject("SELECT SUM(delta) FROM stock_journal", Integer.class));
+
+        StockJournal restarted = start(10_000);
+        assertEquals(105, restarted.getStock(laptopId));
+    }
+
+    /**
+     * Verifies that adjust sets and adjusts stock in one append, and skips the products that do
+     * not exist or would get negative stock.
+     */
+    @Test
+    void testAdjustSkipsRefusedProducts() {
+        StockJournal journal = start(10_000);
+
+        assertEquals(List.of(999L, phoneId),
+                journal.adjust(Map.of(laptopId, 40, 999L, 1), Map.of(phoneId, -6), "import-1"));
+        assertEquals(40, journal.getStock(laptopId));
+        assertEquals(5, journal.getStock(phoneId));
+
+        assertEquals(List.of(), journal.adjust(Map.of(laptopId, 45), Map.of(phoneId, -5), "import-2"));
+        assertEquals(45, journal.getStock(laptopId));
+        assertEquals(0, journal.getStock(phoneId));
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_journal", Integer.class));
+
+        StockJournal restarted = start(10_000);
+        assertEquals(45, restarted.getStock(laptopId));
+        assertEquals(0, restarted.getStock(phoneId));
+    }
+
+    /**
+     * Verifies that a product read with its journaled stock in a read-write transaction does not
+     * write that stock back to the products table or bump its version.
+     */
+    @Test
+    void testJournaledStockIsNotFlushedToProducts() {
+        StockJournal journal = start(10_000);
+        InventoryService inventoryService = new InventoryService(productRepository,
+                new JournalStockUpdateStrategy(journal), journal, null,
+                new StockAlertEngine(new StockAlertProperties(), new SimpleMeterRegistry()), null, null, null,
+                new ResourceVersion());
+        assertTrue(inventoryService.updateStock(laptopId, 30));
+        long version = productRepository.findById(laptopId).orElseThrow().getVersion();
+
+        Product product = new TransactionTemplate(transactionManager).execute(status ->
+                inventoryService.setReorderThreshold(laptopId, 10));
+
+        assertEquals(70, product.getStockQuantity());
+        assertEquals(100, jdbcTemplate.queryForObject(
+                "SELECT stock_quantity FROM products WHERE id = ?", Integer.class, laptopId));
+        assertEquals(version, productRepository.findById(laptopId).orElseThrow().getVersion());
+    }
+
+    /**
+     * Verifies that CheckStock is answered from the journal projection, by id and by name,
+     * without reading products through JPA.
+     */
+    @Test
+    void testCheckStockDoesNotReadProducts() {
+        StockJournal journal = start(10_000);
+        assertTrue(journal.decrement(laptopId, 30, null));
+        ProductRepository products = mock(ProductRepository.class);
+        InventoryGrpcService grpcService = new InventoryGrpcService(new InventoryService(products,
+                new JournalStockUpdateStrategy(journal), journal, null,
+                new StockAlertEngine(new StockAlertProperties(), new SimpleMeterRegistry()), null, null, null,
+                new ResourceVersion()));
+        StreamObserver<StockResponse> responses = mock(StreamObserver.class);
+
+        grpcService.checkStock(StockRequest.newBuilder().setProductId(laptopId).setQuantity(80).build(), responses);
+        grpcService.checkStock(StockRequest.newBuilder().setProduct("Phone").setQuantity(5).build(), responses);
+        grpcService.checkStock(StockRequest.newBuilder().setProduct("Tablet").setQuantity(1).build(), responses);
+
+        ArgumentCaptor<StockResponse> captor = ArgumentCaptor.forClass(StockResponse.class);
+        verify(responses, times(3)).onNext(captor.capture());
+        assertEquals(StockResponse.Status.INSUFFICIENT_STOCK, captor.getAllValues().get(0).getStatus());
+        assertEquals(70, captor.getAllValues().get(0).getStockQuantity());
+        assertEquals(StockResponse.Status.AVAILABLE, captor.getAllValues().get(1).getStatus());
+        assertEquals(phoneId, captor.getAllValues().get(1).getProductId());
+        assertEquals(StockResponse.Status.PRODUCT_NOT_FOUND, captor.getAllValues().get(2).getStatus());
+        verifyNoInteractions(products);
+    }
+
+    private StockJournal start(long snapshotEvery) {
+        StockJournal journal = new StockJournal(jdbcTemplate, new TransactionTemplate(transactionManager),
+                256, snapshotEvery);
+        journal.start();
+        journals.add(journal);
+        return journal;
+    }
+
+    private long save(String name, int stock) {
+        Product product = new Product();
+        product.setName(name);
+        product.setStockQuantity(stock);
+        return productRepository.save(product).getId();
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.inventoryservice.service;
+
+import com.example.inventoryservice.config.StockAlertProperties;
+import com.example.inventoryservice.config.StockUpdateProperties;
+import com.example.inventoryservice.entity.Product;
+import com.example.inventoryservice.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockReservationsTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private StockReservations stockReservations;
+
+    private long laptopId;
+
+    private long phoneId;
+
+    /**
+     * Resets the products and the reservation tables.
+     */
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM stock_reservation_items");
+        jdbcTemplate.update("DELETE FROM stock_reservations");
+        productRepository.deleteAll();
+        laptopId = save("Laptop", 10);
+        phoneId = save("Phone", 5);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        stockReservations = new StockReservations(jdbcTemplate);
+    }
+
+    /**
+     * Verifies that the stock taken for an order is put back once, and that releasing the order
+     * again changes nothing.
+     */
+    @Test
+    void testReleasePutsStockBackOnce() {
+        InventoryService inventoryService = inventoryService(optimistic());
+
+        assertTrue(inventoryService.updateStock("Laptop", 3, "order-1"));
+        assertEquals(7, stock(laptopId));
+
+        assertEquals(1, release(inventoryService, "order-1"));
+        assertEquals(10, stock(laptopId));
+        assertEquals(0, release(inventoryService, "order-1"));
+        assertEquals(10, stock(laptopId));
+    }
+
+    /**
+     * Verifies that an order takes stock only once, and that an order released before its stock
+     * update arrives, e.g. after its call timed out, is refused the stock.
+     */
+    @Test
+    void testOrderTakesStockOnceAndNotAfterRelease() {
+        InventoryService inventoryService = inventoryService(pessimistic());
+
+        assertTrue(inventoryService.updateStock(laptopId, 1, "order-1"));
+        assertFalse(inventoryService.updateStock(laptopId, 1, "order-1"));
+        assertEquals(0, release(inventoryService, "order-2"));
+        assertFalse(inventoryService.updateStock(laptopId, 1, "order-2"));
+
+        assertEquals(9, stock(laptopId));
+    }
+
+    /**
+     * Verifies that a reservation of several products is released as a whole, that a failed
+     * reservation leaves the order free to try again, and that a reserved order cannot reserve
+     * again.
+     */
+    @Test
+    void testReservationReleasedAsWhole() {
+        InventoryService inventoryService = inventoryService(optimistic());
+
+        assertEquals(List.of(phoneId),
+                transactionTemplate.execute(status -> inventoryService.reserveStockByIds(Map.of(laptopId, 2, phoneId, 6), "order-1")));
+        assertEquals(List.of(),
+                transactionTemplate.execute(status -> inventoryService.reserveStockByIds(Map.of(laptopId, 2, phoneId, 5), "order-1")));
+        assertThrows(DuplicateKeyException.class,
+                () -> transactionTemplate.execute(status -> inventoryService.reserveStock(Map.of("Laptop", 1), "order-1")));
+        assertEquals(8, stock(laptopId));
+        assertEquals(0, stock(phoneId));
+
+        assertEquals(1, release(inventoryService, "order-1"));
+        assertEquals(10, stock(laptopId));
+        assertEquals(5, stock(phoneId));
+    }
+
+    /**
+     * Races stock updates against releases of the same orders, and verifies that the stock ends
+     * up short by exactly what the orders that were not released took.
+     */
+    @Test
+    void testReleasesRacingUpdatesLoseNoStock() throws InterruptedException {
+        jdbcTemplate.update("UPDATE products SET stock_quantity = 1000 WHERE id = ?", laptopId);
+        InventoryService inventoryService = inventoryService(pessimistic());
+        int orders = 200;
+        AtomicInteger taken = new AtomicInteger();
+        AtomicInteger released = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 4; t++) {
+            int first = t;
+            executor.submit(() -> {
+                start.await();
+                for (int i = first; i < orders; i += 4) {
+                    if (inventoryService.updateStock(laptopId, 1, "order-" + i)) {
+                        taken.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+            executor.submit(() -> {
+                start.await();
+                for (int i = first; i < orders; i += 8) {
+                    List<String> refs = new ArrayList<>();
+                    refs.add("order-" + i);
+                    released.addAndGet(releaseRetrying(inventoryService, refs));
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        assertEquals(1000 - taken.get() + released.get(), stock(laptopId));
+    }
+
+    /**
+     * Verifies that the stock taken per product is summed over the orders reserved in the window
+     * and not released, in product id order and within the requested range of ids.
+     */
+    @Test
+    void testStreamsStockTakenPerProductInWindow() {
+        InventoryService inventoryService = inventoryService(optimistic());
+        assertTrue(inventoryService.updateStock(laptopId, 2, "order-1"));
+        transactionTemplate.execute(status -> inventoryService.reserveStockByIds(Map.of(laptopId, 1, phoneId, 3), "order-2"));
+        assertTrue(inventoryService.updateStock(phoneId, 1, "order-3"));
+        assertTrue(inventoryService.updateStock(laptopId, 4));
+        release(inventoryService, "order-3");
+        Instant now = Instant.now();
+
+        assertEquals(Map.of(laptopId, 3L, phoneId, 3L),
+                decrements(inventoryService, now.minusSeconds(60), now.plusSeconds(60), 0, Long.MAX_VALUE));
+        assertEquals(Map.of(phoneId, 3L),
+                decrements(inventoryService, now.minusSeconds(60), now.plusSeconds(60), laptopId + 1, Long.MAX_VALUE));
+        assertEquals(Map.of(), decrements(inventoryService, now.plusSeconds(60), now.plusSeconds(120), 0, Long.MAX_VALUE));
+    }
+
+    /**
+     * Verifies that the purge deletes, in batches, the reservations taken or released before the
+     * retention period with their items, and keeps the recent ones.
+     */
+    @Test
+    void testPurgeDeletesReservationsBeyondRetention() {
+        InventoryService inventoryService = inventoryService(optimistic());
+        assertTrue(inventoryService.updateStock(laptopId, 1, "order-1"));
+        assertTrue(inventoryService.updateStock(laptopId, 1, "order-2"));
+        release(inventoryService, "order-3");
+        jdbcTemplate.update("UPDATE stock_reservations SET reserved_at = DATEADD('DAY', -8, reserved_at), "
+                + "released_at = DATEADD('DAY', -8, released_at) WHERE order_ref IN ('order-1', 'order-3')");
+        assertTrue(inventoryService.updateStock(laptopId, 1, "order-4"));
+        StockReservationPurger purger = new StockReservationPurger(stockReservations, transactionTemplate,
+                Duration.ofDays(7), Duration.ofHours(1), 1, new SimpleMeterRegistry());
+
+        assertEquals(2, purger.purge(Instant.now()));
+
+        assertEquals(List.of("order-2", "order-4"), jdbcTemplate.queryForList(
+                "SELECT order_ref FROM stock_reservations ORDER BY order_ref", String.class));
+        assertEquals(List.of("order-2", "order-4"), jdbcTemplate.queryForList(
+                "SELECT order_ref FROM stock_reservation_items ORDER BY order_ref", String.class));
+        assertEquals(0, purger.purge(Instant.now()));
+    }
+
+    private int releaseRetrying(InventoryService inventoryService, List<String> orderRefs) {
+        while (true) {
+            try {
+                return transactionTemplate.execute(status -> inventoryService.releaseStock(orderRefs));
+            } catch (DuplicateKeyException e) {
+                // The order took stock at the same time; release it again.
+            }
+        }
+    }
+
+    private Map<Long, Long> decrements(InventoryService inventoryService, Instant from, Instant to,
+                                       long fromProductId, long toProductId) {
+        Map<Long, Long> decrements = new TreeMap<>();
+        List<Long> order = new ArrayList<>();
+        inventoryService.streamOrderDecrements(from, to, fromProductId, toProductId, 1, (productId, quantity) -> {
+            decrements.put(productId, quantity);
+            order.add(productId);
+        });
+        assertEquals(order.stream().sorted().toList(), order);
+        return decrements;
+    }
+
+    private int release(InventoryService inventoryService, String orderRef) {
+        return transactionTemplate.execute(status -> inventoryService.releaseStock(List.of(orderRef)));
+    }
+
+    private InventoryService inventoryService(StockUpdateStrategy strategy) {
+        return new InventoryService(productRepository, strategy, null, stockReservations,
+                new StockAlertEngine(new StockAlertProperties(), new SimpleMeterRegistry()), null, null, null,
+                new ResourceVersion());
+    }
+
+    private StockUpdateStrategy optimistic() {
+        return new OptimisticStockUpdateStrategy(productRepository, transactionTemplate, stockReservations,
+                retryingProperties(), new SimpleMeterRegistry());
+    }
+
+    private StockUpdateStrategy pessimistic() {
+        return new PessimisticStockUpdateStrategy(productRepository, transactionTemplate, stockReservations,
+                retryingProperties(), new SimpleMeterRegistry());
+    }
+
+    private static StockUpdateProperties retryingProperties() {
+        StockUpdateProperties properties = new StockUpdateProperties();
+        properties.setMaxAttempts(1000);
+        properties.setInitialBackoff(Duration.ofNanos(100_000));
+        properties.setMaxBackoff(Duration.ofMillis(5));
+        return properties;
+    }
+
+    private long save(String name, int stock) {
+        Product product = new Product();
+        product.setName(name);
+        product.setStockQuantity(stock);
+        return productRepository.save(product).getId();
+    }
+
+    private int stock(long productId) {
+        return productRepository.findById(productId).orElseThrow().getStockQuantity();
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.inventoryservice.service;
+
+import com.example.inventoryservice.config.StockUpdateProperties;
+import com.example.inventoryservice.entity.Product;
+import com.example.inventoryservice.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockUpdateConcurrencyTest {
+
+    private static final int INITIAL_STOCK = 100;
+    private static final int THREADS = 8;
+    private static final int DECREMENTS_PER_THREAD = 20;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private StockUpdateProperties properties;
+
+    /**
+     * Resets the product under test and uses a generous retry budget so that every
+     * decrement eventually wins the race while stock remains.
+     */
+    @BeforeEach
+    void setUp() {
+        productRepository.deleteAll();
+        Product product = new Product();
+        product.setName("Hot");
+        product.setStockQuantity(INITIAL_STOCK);
+        productRepository.save(product);
+
+        properties = new StockUpdateProperties();
+        properties.setMaxAttempts(1000);
+        properties.setInitialBackoff(Duration.ofNanos(100_000));
+        properties.setMaxBackoff(Duration.ofMillis(5));
+    }
+
+    /**
+     * Hammers a single product from many threads with the optimistic strategy and
+     * verifies that exactly the initial stock is sold and the stock never goes negative.
+     */
+    @Test
+    void testOptimisticStrategy_NoOversellUnderContention() throws InterruptedException {
+        hammerAndAssertNoOversell(new OptimisticStockUpdateStrategy(productRepository,
+                new TransactionTemplate(transactionManager), properties, new SimpleMeterRegistry()));
+    }
+
+    /**
+     * Hammers a single product from many threads with the pessimistic strategy and
+     * verifies that exactly the initial stock is sold and the stock never goes negative.
+     */
+    @Test
+    void testPessimisticStrategy_NoOversellUnderContention() throws InterruptedException {
+        hammerAndAssertNoOversell(new PessimisticStockUpdateStrategy(productRepository,
+                new TransactionTemplate(transactionManager), properties, new SimpleMeterRegistry()));
+    }
+
+    /**
+     * Runs many concurrent multi-product reservations that list the same two products in
+     * opposite orders, and verifies that they neither deadlock nor oversell either product.
+     */
+    @Test
+    void testReserveStock_OverlappingReservationsDoNotDeadlockOrOversell() throws InterruptedException {
+        Product other = new Product();
+        other.setName("Cold");
+        other.setStockQuantity(INITIAL_STOCK);
+        productRepository.save(other);
+
+        InventoryService inventoryService = new InventoryService(productRepository);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicInteger reserved = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            Map<String, Integer> items = t % 2 == 0 ? Map.of("Hot", 1, "Cold", 2) : Map.of("Cold", 2, "Hot", 1);
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < DECREMENTS_PER_THREAD; i++) {
+                    if (transactionTemplate.execute(status -> inventoryService.reserveStock(items)).isEmpty()) {
+                        reserved.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        assertEquals(INITIAL_STOCK / 2, reserved.get());
+        assertEquals(INITIAL_STOCK - reserved.get(), productRepository.findByName("Hot").getStockQuantity());
+        assertEquals(0, productRepository.findByName("Cold").getStockQuantity());
+    }
+
+    private void hammerAndAssertNoOversell(StockUpdateStrategy strategy) throws InterruptedException {
+        AtomicInteger sold = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < DECREMENTS_PER_THREAD; i++) {
+                    if (strategy.decrement("Hot", 1)) {
+                        sold.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        int remaining = productRepository.findByName("Hot").getStockQuantity();
+        assertEquals(0, remaining);
+        assertEquals(INITIAL_STOCK, sold.get());
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.inventoryservice.service;
+
+import com.example.inventoryservice.config.StockUpdateProperties;
+import com.example.inventoryservice.entity.Product;
+import com.example.inventoryservice.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * Compares the throughput of the optimistic, pessimistic and journal stock update strategies
+ * when many threads decrement the same product.
+ * <p>
+ * Not part of the regular test run; execute with {@code mvn test -Dtest=StockUpdateStrategyBenchmark}.
+ * Runs against embedded H2, so absolute numbers only indicate the relative cost of the strategies.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockUpdateStrategyBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(StockUpdateStrategyBenchmark.class);
+
+    private static final int THREADS = 32;
+    private static final int DECREMENTS = 5_000;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void benchmarkStrategies() throws InterruptedException {
+        StockUpdateProperties properties = new StockUpdateProperties();
+        properties.setMaxAttempts(10_000);
+        properties.setInitialBackoff(Duration.ofNanos(50_000));
+
+        SimpleMeterRegistry optimisticMetrics = new SimpleMeterRegistry();
+        resetProduct();
+        run("optimistic", new OptimisticStockUpdateStrategy(productRepository,
+                new TransactionTemplate(transactionManager), properties, optimisticMetrics), optimisticMetrics,
+                this::storedStock);
+
+        SimpleMeterRegistry pessimisticMetrics = new SimpleMeterRegistry();
+        resetProduct();
+        run("pessimistic", new PessimisticStockUpdateStrategy(productRepository,
+                new TransactionTemplate(transactionManager), properties, pessimisticMetrics), pessimisticMetrics,
+                this::storedStock);
+
+        long productId = resetProduct();
+        jdbcTemplate.update("DELETE FROM stock_journal");
+        jdbcTemplate.update("DELETE FROM stock_snapshots");
+        StockJournal journal = new StockJournal(jdbcTemplate, new TransactionTemplate(transactionManager), 256, 10_000);
+        journal.start();
+        run("journal", new JournalStockUpdateStrategy(journal), new SimpleMeterRegistry(),
+                () -> journal.getStock(productId));
+        journal.stop();
+    }
+
+    private long resetProduct() {
+        productRepository.deleteAll();
+        Product product = new Product();
+        product.setName("Bench");
+        product.setStockQuantity(DECREMENTS);
+        return productRepository.save(product).getId();
+    }
+
+    private int storedStock() {
+        return productRepository.findByName("Bench").getStockQuantity();
+    }
+
+    private void run(String name, StockUpdateStrategy strategy, SimpleMeterRegistry metrics, IntSupplier finalStock)
+            throws InterruptedException {
+        AtomicInteger remaining = new AtomicInteger(DECREMENTS);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                start.await();
+                while (remaining.getAndDecrement() > 0) {
+                    strategy.decrement("Bench", 1);
+                }
+                return null;
+            });
+        }
+        long startNanos = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+
+        double attempts = metrics.counter("inventory.stock.update.attempts", "strategy", name).count();
+        double conflicts = metrics.counter("inventory.stock.update.conflicts", "strategy", name).count();
+        log.info(String.format("%-12s %8.0f updates/s, conflict rate %.1f%%, final stock %d",
+                name, DECREMENTS / seconds, attempts == 0 ? 0 : 100 * conflicts / attempts,
+                finalStock.getAsInt()));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.inventoryservice.warmup;
+
+import com.example.inventoryservice.entity.Product;
+import com.example.inventoryservice.grpc.InventoryGrpcService;
+import com.example.inventoryservice.repository.ProductRepository;
+import com.example.inventoryservice.service.InventoryService;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class InventoryWarmUpTrafficTest {
+
+    /**
+     * Verifies that the checks only read stock, by name and by the id of a stored product, which
+     * is looked up once.
+     */
+    @Test
+    void testChecksStockWithoutChangingIt() {
+        InventoryService inventoryService = mock(InventoryService.class);
+        ProductRepository productRepository = mock(ProductRepository.class);
+        Product product = new Product();
+        product.setId(7L);
+        product.setName("Laptop");
+        product.setStockQuantity(3);
+        when(productRepository.findAll(any(Pageable.class))).thenReturn(new PageImpl<>(List.of(product)));
+        when(inventoryService.getProductStock(7L)).thenReturn(product);
+        InventoryWarmUpTraffic traffic = new InventoryWarmUpTraffic(new InventoryGrpcService(inventoryService),
+                productRepository, "warm-up");
+
+        for (int i = 0; i < 3; i++) {
+            traffic.checkStockByName();
+            traffic.checkStockById();
+        }
+
+        verify(productRepository).findAll(any(Pageable.class));
+        verify(inventoryService, times(3)).getProductStock("warm-up");
+        verify(inventoryService, times(3)).getProductStock(7L);
+        verifyNoMoreInteractions(inventoryService);
+    }
+}
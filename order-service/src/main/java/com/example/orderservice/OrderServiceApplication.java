@@ -1,9 +1,12 @@
 package com.example.orderservice;
 
+import com.example.orderservice.config.NativeImageHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
+@ImportRuntimeHints(NativeImageHints.class)
 public class OrderServiceApplication {
 
 	/**
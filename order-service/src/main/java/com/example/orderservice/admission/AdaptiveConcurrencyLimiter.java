@@ -0,0 +1,93 @@
+package com.example.orderservice.admission;
+
+import com.example.orderservice.config.AdmissionProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the number of order creations in flight with an AIMD (additive increase,
+ * multiplicative decrease) limit driven by the measured latency of each creation.
+ * <p>
+ * A creation that finishes within the latency threshold while the limiter is at least half
+ * used grows the limit by {@code 1 / limit}, i.e. by about one per limit's worth of requests.
+ * A slower creation multiplies the limit by the backoff ratio. Requests over the limit are
+ * rejected immediately instead of queueing behind work the service cannot keep up with.
+ */
+public class AdaptiveConcurrencyLimiter {
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong limitBits;
+    private final double minLimit;
+    private final double maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final Counter rejected;
+
+    public AdaptiveConcurrencyLimiter(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.minLimit = properties.getMinLimit();
+        this.maxLimit = properties.getMaxLimit();
+        this.latencyThresholdNanos = properties.getLatencyThreshold().toNanos();
+        this.backoffRatio = properties.getBackoffRatio();
+        this.limitBits = new AtomicLong(Double.doubleToRawLongBits(
+                Math.max(minLimit, Math.min(maxLimit, properties.getInitialLimit()))));
+        this.rejected = meterRegistry.counter("order.admission.rejected");
+        meterRegistry.gauge("order.admission.limit", this, AdaptiveConcurrencyLimiter::getLimit);
+        meterRegistry.gauge("order.admission.in.flight", inFlight);
+    }
+
+    /**
+     * Tries to admit one order creation.
+     *
+     * @return {@code true} if the caller may proceed and must call {@link #release(long)} when done,
+     *         {@code false} if the limit is reached
+     */
+    public boolean tryAcquire() {
+        int limit = getLimit();
+        for (int current = inFlight.get(); current < limit; current = inFlight.get()) {
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * Releases an admitted order creation and adjusts the limit to its latency.
+     *
+     * @param latencyNanos how long the order creation took
+     */
+    public void release(long latencyNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        long bits;
+        double limit;
+        double updated;
+        do {
+            bits = limitBits.get();
+            limit = Double.longBitsToDouble(bits);
+            if (latencyNanos > latencyThresholdNanos) {
+                updated = Math.max(minLimit, limit * backoffRatio);
+            } else if (inFlightBefore * 2 >= limit) {
+                updated = Math.min(maxLimit, limit + 1 / limit);
+            } else {
+                return;
+            }
+        } while (updated != limit && !limitBits.compareAndSet(bits, Double.doubleToRawLongBits(updated)));
+    }
+
+    /**
+     * @return the current concurrency limit
+     */
+    public int getLimit() {
+        return (int) Double.longBitsToDouble(limitBits.get());
+    }
+
+    /**
+     * @return the number of order creations currently admitted
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
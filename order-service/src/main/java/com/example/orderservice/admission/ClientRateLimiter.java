@@ -0,0 +1,153 @@
+package com.example.orderservice.admission;
+
+import com.example.orderservice.config.RateLimitProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.lang.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-client token buckets kept in a lock-free table.
+ * <p>
+ * Each bucket is a single {@link AtomicLong} holding the theoretical arrival time of the next
+ * request (the generic cell rate algorithm, which is equivalent to a token bucket): a request is
+ * allowed if it does not push that time more than one burst ahead of now. A check is one map
+ * lookup and one compare-and-set.
+ * <p>
+ * Only API keys with a configured quota identify a client; requests without one, or with a key
+ * that is not configured, are limited by their remote address, so a client cannot escape its
+ * quota by making up keys. Configured clients have fixed buckets. Address buckets are created on
+ * first use; a bucket whose arrival time lies in the past is full, so it is indistinguishable from
+ * a fresh one, and such buckets idle for longer than the idle timeout are swept by a background
+ * task. While the table is at its size bound, new addresses share a single overflow bucket.
+ */
+public class ClientRateLimiter {
+    static final String OVERFLOW_CLIENT = "<overflow>";
+
+    private final Map<String, Bucket> keyBuckets = new HashMap<>();
+    private final Map<String, Bucket> addressBuckets = new ConcurrentHashMap<>();
+    private final RateLimitProperties properties;
+    private final long idleTimeoutNanos;
+    private final LongSupplier nanoClock;
+    private final Counter throttled;
+    private ScheduledExecutorService scheduler;
+
+    public ClientRateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    ClientRateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.properties = properties;
+        this.idleTimeoutNanos = properties.getIdleTimeout().toNanos();
+        this.nanoClock = nanoClock;
+        this.throttled = meterRegistry.counter("order.rate-limit.throttled");
+        long now = nanoClock.getAsLong();
+        properties.getClients().forEach((apiKey, quota) -> keyBuckets.put(apiKey, newBucket(quota, now)));
+        meterRegistry.gauge("order.rate-limit.clients", addressBuckets, Map::size);
+    }
+
+    /**
+     * Starts sweeping idle address buckets, once per idle timeout.
+     */
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-rate-limit-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = Math.max(1, properties.getIdleTimeout().toMillis());
+        scheduler.scheduleWithFixedDelay(this::sweep, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops sweeping idle address buckets.
+     */
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Takes one token from the client's bucket.
+     *
+     * @param apiKey the API key sent by the client, or {@code null}
+     * @param remoteAddress the address of the client, used unless the API key is configured
+     * @return {@code true} if the request is within the client's quota
+     */
+    public boolean tryAcquire(@Nullable String apiKey, String remoteAddress) {
+        long now = nanoClock.getAsLong();
+        Bucket bucket = apiKey != null ? keyBuckets.get(apiKey) : null;
+        if (bucket == null) {
+            bucket = addressBuckets.get(remoteAddress);
+            if (bucket == null) {
+                bucket = bucketFor(remoteAddress, now);
+            }
+        }
+        if (bucket.tryAcquire(now)) {
+            return true;
+        }
+        throttled.increment();
+        return false;
+    }
+
+    /**
+     * Drops the address buckets that have been idle for longer than the idle timeout.
+     */
+    void sweep() {
+        long now = nanoClock.getAsLong();
+        addressBuckets.entrySet().removeIf(entry -> entry.getValue().isIdle(now, idleTimeoutNanos));
+    }
+
+    int trackedClients() {
+        return addressBuckets.size();
+    }
+
+    private Bucket bucketFor(String remoteAddress, long now) {
+        String clientId = addressBuckets.size() >= properties.getMaxClients() ? OVERFLOW_CLIENT : remoteAddress;
+        return addressBuckets.computeIfAbsent(clientId, id -> newBucket(properties.getDefaultQuota(), now));
+    }
+
+    private static Bucket newBucket(RateLimitProperties.Quota quota, long now) {
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / quota.getRequestsPerSecond());
+        return new Bucket(interval, interval * Math.max(0, quota.getBurst() - 1), now);
+    }
+
+    private static final class Bucket {
+        private final long emissionIntervalNanos;
+        private final long burstToleranceNanos;
+        private final AtomicLong theoreticalArrival;
+
+        Bucket(long emissionIntervalNanos, long burstToleranceNanos, long now) {
+            this.emissionIntervalNanos = emissionIntervalNanos;
+            this.burstToleranceNanos = burstToleranceNanos;
+            this.theoreticalArrival = new AtomicLong(now);
+        }
+
+        boolean tryAcquire(long now) {
+            while (true) {
+                long tat = theoreticalArrival.get();
+                long start = tat - now < 0 ? now : tat;
+                if (start - now > burstToleranceNanos) {
+                    return false;
+                }
+                if (theoreticalArrival.compareAndSet(tat, start + emissionIntervalNanos)) {
+                    return true;
+                }
+            }
+        }
+
+        boolean isIdle(long now, long idleTimeoutNanos) {
+            return now - theoreticalArrival.get() >= idleTimeoutNanos;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.orderservice.admission;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Admission control for {@code POST /orders}. Requests whose client deadline has already passed
+ * are dropped with {@code 504 Gateway Timeout}; requests over the concurrency limit are rejected
+ * with {@code 429 Too Many Requests}.
+ * <p>
+ * Clients pass their deadline as epoch milliseconds in the {@value #DEADLINE_HEADER} header.
+ */
+public class OrderAdmissionFilter extends OncePerRequestFilter {
+    public static final String DEADLINE_HEADER = "X-Request-Deadline";
+
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public OrderAdmissionFilter(AdaptiveConcurrencyLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (deadlinePassed(request)) {
+            reject(response, HttpStatus.GATEWAY_TIMEOUT, "Request deadline exceeded");
+            return;
+        }
+        if (!limiter.tryAcquire()) {
+            response.setHeader("Retry-After", "1");
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, "Too many concurrent orders");
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limiter.release(System.nanoTime() - start);
+        }
+    }
+
+    private static boolean deadlinePassed(HttpServletRequest request) {
+        String deadline = request.getHeader(DEADLINE_HEADER);
+        if (deadline == null) {
+            return false;
+        }
+        try {
+            return Long.parseLong(deadline.trim()) <= System.currentTimeMillis();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType("text/plain");
+        response.getWriter().write(message);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.orderservice.admission;
+
+import com.example.orderservice.grpc.OrderServiceGrpc;
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admission control for the {@code CreateOrder} RPC. Calls whose deadline has passed, either on
+ * arrival or by the time the request has been received, are dropped with
+ * {@code DEADLINE_EXCEEDED}; calls over the concurrency limit are rejected with
+ * {@code RESOURCE_EXHAUSTED}.
+ */
+public class OrderAdmissionInterceptor implements ServerInterceptor {
+    private static final String CREATE_ORDER = OrderServiceGrpc.getCreateOrderMethod().getFullMethodName();
+
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public OrderAdmissionInterceptor(AdaptiveConcurrencyLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        if (!CREATE_ORDER.equals(call.getMethodDescriptor().getFullMethodName())) {
+            return next.startCall(call, headers);
+        }
+        Deadline deadline = Context.current().getDeadline();
+        if (deadline != null && deadline.isExpired()) {
+            call.close(Status.DEADLINE_EXCEEDED.withDescription("Request deadline exceeded"), new Metadata());
+            return new ServerCall.Listener<>() {
+            };
+        }
+        if (!limiter.tryAcquire()) {
+            call.close(Status.RESOURCE_EXHAUSTED.withDescription("Too many concurrent orders"), new Metadata());
+            return new ServerCall.Listener<>() {
+            };
+        }
+
+        long start = System.nanoTime();
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                limiter.release(System.nanoTime() - start);
+            }
+        };
+        ServerCall<ReqT, RespT> releasingCall = new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+            @Override
+            public void close(Status status, Metadata trailers) {
+                release.run();
+                super.close(status, trailers);
+            }
+        };
+
+        ServerCall.Listener<ReqT> listener;
+        try {
+            listener = next.startCall(releasingCall, headers);
+        } catch (RuntimeException e) {
+            release.run();
+            throw e;
+        }
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(listener) {
+            @Override
+            public void onHalfClose() {
+                if (deadline != null && deadline.isExpired()) {
+                    releasingCall.close(Status.DEADLINE_EXCEEDED.withDescription("Request deadline exceeded"),
+                            new Metadata());
+                    return;
+                }
+                super.onHalfClose();
+            }
+
+            @Override
+            public void onCancel() {
+                release.run();
+                super.onCancel();
+            }
+        };
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.orderservice.admission;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Per-client rate limiting for {@code POST /orders}. Clients are identified by the
+ * {@value #API_KEY_HEADER} header if it holds a configured API key, or by their remote address
+ * otherwise; clients over their quota get {@code 429 Too Many Requests}.
+ */
+public class OrderRateLimitFilter extends OncePerRequestFilter {
+    public static final String API_KEY_HEADER = "X-Api-Key";
+
+    private final ClientRateLimiter rateLimiter;
+
+    public OrderRateLimitFilter(ClientRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!rateLimiter.tryAcquire(request.getHeader(API_KEY_HEADER), request.getRemoteAddr())) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader("Retry-After", "1");
+            response.setContentType("text/plain");
+            response.getWriter().write("Rate limit exceeded");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.orderservice.admission;
+
+import com.example.orderservice.grpc.OrderServiceGrpc;
+import io.grpc.Grpc;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * Per-client rate limiting for the {@code CreateOrder} RPC. Clients are identified by the
+ * {@code x-api-key} metadata entry if it holds a configured API key, or by their remote address
+ * otherwise; clients over their quota get {@code RESOURCE_EXHAUSTED}.
+ */
+public class OrderRateLimitInterceptor implements ServerInterceptor {
+    public static final Metadata.Key<String> API_KEY =
+            Metadata.Key.of("x-api-key", Metadata.ASCII_STRING_MARSHALLER);
+    private static final String CREATE_ORDER = OrderServiceGrpc.getCreateOrderMethod().getFullMethodName();
+
+    private final ClientRateLimiter rateLimiter;
+
+    public OrderRateLimitInterceptor(ClientRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        if (CREATE_ORDER.equals(call.getMethodDescriptor().getFullMethodName())
+                && !rateLimiter.tryAcquire(headers.get(API_KEY), remoteAddress(call))) {
+            call.close(Status.RESOURCE_EXHAUSTED.withDescription("Rate limit exceeded"), new Metadata());
+            return new ServerCall.Listener<>() {
+            };
+        }
+        return next.startCall(call, headers);
+    }
+
+    private static String remoteAddress(ServerCall<?, ?> call) {
+        SocketAddress address = call.getAttributes().get(Grpc.TRANSPORT_ATTR_REMOTE_ADDR);
+        if (address instanceof InetSocketAddress inet && inet.getAddress() != null) {
+            return inet.getAddress().getHostAddress();
+        }
+        return String.valueOf(address);
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.orderservice.archive;
+
+import com.example.orderservice.entity.ArchivedOrder;
+import com.example.orderservice.entity.Order;
+import com.example.orderservice.repository.ArchivedOrderRepository;
+import com.example.orderservice.repository.OrderRepository;
+import com.example.orderservice.service.ResourceVersion;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Moves closed orders that are older than the retention period from the {@code orders} table
+ * into {@code orders_archive}, so that the live table and its indexes only hold recent orders.
+ * <p>
+ * Orders are moved in batches, each in its own transaction: a batch is copied into the archive
+ * as gzip-compressed JSON and deleted from {@code orders} together, so an order is never lost or
+ * archived twice. The job runs on a single background thread at a fixed interval. If the
+ * {@code orders} table is partitioned, the job also keeps the partitions for the coming months
+ * in place and drops the old partitions it has emptied.
+ */
+public class OrderArchiver {
+    private static final Logger log = LoggerFactory.getLogger(OrderArchiver.class);
+
+    private final OrderRepository orderRepository;
+    private final ArchivedOrderRepository archivedOrderRepository;
+    private final TransactionOperations transactionOperations;
+    private final ObjectMapper objectMapper;
+    private final Duration retention;
+    private final Collection<String> closedStatuses;
+    private final int batchSize;
+    private final Duration interval;
+    private final OrderPartitionManager partitionManager;
+    private final ResourceVersion ordersVersion;
+    private final Counter archivedCounter;
+    private ScheduledExecutorService scheduler;
+
+    public OrderArchiver(OrderRepository orderRepository, ArchivedOrderRepository archivedOrderRepository,
+                         TransactionOperations transactionOperations, ObjectMapper objectMapper,
+                         Duration retention, Collection<String> closedStatuses, int batchSize, Duration interval,
+                         @Nullable OrderPartitionManager partitionManager, ResourceVersion ordersVersion,
+                         MeterRegistry meterRegistry) {
+        this.orderRepository = orderRepository;
+        this.archivedOrderRepository = archivedOrderRepository;
+        this.transactionOperations = transactionOperations;
+        this.objectMapper = objectMapper;
+        this.retention = retention;
+        this.closedStatuses = List.copyOf(closedStatuses);
+        this.batchSize = batchSize;
+        this.interval = interval;
+        this.partitionManager = partitionManager;
+        this.ordersVersion = ordersVersion;
+        this.archivedCounter = Counter.builder("order.archival.archived")
+                .description("Orders moved from the orders table into the archive")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts running the archival job at the configured interval, the first time one interval
+     * after startup.
+     */
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::run, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the archival job; a batch that is being archived is rolled back or completed by its
+     * transaction.
+     */
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the archival job once: prepares upcoming partitions, archives the closed orders older
+     * than the retention period and drops the partitions that are left empty. Failures are logged
+     * and retried on the next run.
+     */
+    public void run() {
+        try {
+            Instant cutoff = Instant.now().minus(retention);
+            if (partitionManager != null) {
+                partitionManager.createUpcomingPartitions();
+            }
+            int archived = archive(cutoff);
+            if (archived > 0) {
+                log.info("Archived {} orders accepted before {}", archived, cutoff);
+            }
+            if (partitionManager != null) {
+                partitionManager.dropArchivedPartitions(cutoff);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Order archival failed, retrying on the next run: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Archives all closed orders accepted before the cutoff.
+     *
+     * @param cutoff the acceptance time archived orders must be older than
+     * @return the number of orders archived
+     */
+    public int archive(Instant cutoff) {
+        int total = 0;
+        while (true) {
+            Integer archived = transactionOperations.execute(status -> archiveBatch(cutoff));
+            total += archived;
+            archivedCounter.increment(archived);
+            if (archived > 0) {
+                ordersVersion.increment();
+            }
+            if (archived < batchSize) {
+                return total;
+            }
+        }
+    }
+
+    private int archiveBatch(Instant cutoff) {
+        List<Order> orders = orderRepository.findByCreatedAtBeforeAndStatusInOrderByIdAsc(
+                cutoff, closedStatuses, PageRequest.of(0, batchSize));
+        if (orders.isEmpty()) {
+            return 0;
+        }
+        Instant archivedAt = Instant.now();
+        archivedOrderRepository.saveAll(orders.stream().map(order -> toArchive(order, archivedAt)).toList());
+        orderRepository.deleteAll(orders);
+        return orders.size();
+    }
+
+    private ArchivedOrder toArchive(Order order, Instant archivedAt) {
+        ArchivedOrder archivedOrder = new ArchivedOrder();
+        archivedOrder.setOrderId(order.getId());
+        archivedOrder.setReference(order.getReference());
+        archivedOrder.setStatus(order.getStatus());
+        archivedOrder.setCreatedAt(order.getCreatedAt());
+        archivedOrder.setArchivedAt(archivedAt);
+        archivedOrder.setPayload(compress(order));
+        return archivedOrder;
+    }
+
+    private byte[] compress(Order order) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(gzip, order);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not archive order " + order.getId(), e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.orderservice.archive;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maintains the monthly partitions of the {@code orders} table on PostgreSQL, once the table
+ * has been converted with {@code db/partition-orders.sql}.
+ * <p>
+ * Each month of {@code created_at} (UTC) has its own partition, named
+ * {@code orders_pYYYY_MM}, so queries for recent orders only scan the latest partitions.
+ * Partitions are created a few months ahead, so that new orders never land in the default
+ * partition, and a partition is dropped once it lies entirely before the archival cutoff and
+ * the archiver has emptied it. If the table is not partitioned, nothing is done.
+ */
+public class OrderPartitionManager {
+    private static final Logger log = LoggerFactory.getLogger(OrderPartitionManager.class);
+    private static final String PARTITION_PREFIX = "orders_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int monthsAhead;
+    private volatile boolean partitioned;
+
+    public OrderPartitionManager(JdbcTemplate jdbcTemplate, int monthsAhead) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.monthsAhead = monthsAhead;
+    }
+
+    /**
+     * Checks whether the {@code orders} table is partitioned and, if so, creates the partitions
+     * for the current and the coming months.
+     */
+    public void start() {
+        partitioned = Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table pt JOIN pg_class c ON c.oid = pt.partrelid "
+                        + "WHERE c.relname = 'orders' AND pg_table_is_visible(c.oid))", Boolean.class));
+        if (!partitioned) {
+            log.warn("The orders table is not partitioned; run db/partition-orders.sql to enable partitioning");
+            return;
+        }
+        createUpcomingPartitions();
+    }
+
+    /**
+     * Creates the partitions for the current month and the configured number of months ahead
+     * that do not exist yet.
+     */
+    public void createUpcomingPartitions() {
+        if (!partitioned) {
+            return;
+        }
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        for (int i = 0; i <= monthsAhead; i++) {
+            jdbcTemplate.execute(createPartitionSql(current.plusMonths(i)));
+        }
+    }
+
+    /**
+     * Drops the monthly partitions that end at or before the cutoff and no longer hold any
+     * orders.
+     *
+     * @param cutoff the archival cutoff
+     * @return the names of the dropped partitions
+     */
+    public List<String> dropArchivedPartitions(Instant cutoff) {
+        List<String> dropped = new ArrayList<>();
+        if (!partitioned) {
+            return dropped;
+        }
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                        + "JOIN pg_class p ON p.oid = i.inhparent WHERE p.relname = 'orders' ORDER BY c.relname",
+                String.class);
+        for (String partition : partitions) {
+            YearMonth month = partitionMonth(partition);
+            if (month == null || start(month.plusMonths(1)).isAfter(cutoff)) {
+                continue;
+            }
+            Boolean empty = jdbcTemplate.queryForObject(
+                    "SELECT NOT EXISTS (SELECT 1 FROM " + partition + ")", Boolean.class);
+            if (Boolean.TRUE.equals(empty)) {
+                jdbcTemplate.execute("ALTER TABLE orders DETACH PARTITION " + partition);
+                jdbcTemplate.execute("DROP TABLE " + partition);
+                log.info("Dropped archived order partition {}", partition);
+                dropped.add(partition);
+            }
+        }
+        return dropped;
+    }
+
+    static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + PARTITION_SUFFIX.format(month);
+    }
+
+    static String createPartitionSql(YearMonth month) {
+        return "CREATE TABLE IF NOT EXISTS " + partitionName(month) + " PARTITION OF orders FOR VALUES FROM ('"
+                + start(month) + "') TO ('" + start(month.plusMonths(1)) + "')";
+    }
+
+    /**
+     * Returns the month of a partition created by this class, or {@code null} for any other
+     * partition, such as the default partition.
+     */
+    static YearMonth partitionMonth(String partition) {
+        if (!partition.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static Instant start(YearMonth month) {
+        return month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+}
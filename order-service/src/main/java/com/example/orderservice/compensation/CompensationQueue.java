@@ -0,0 +1,75 @@
+package com.example.orderservice.compensation;
+
+import com.example.orderservice.entity.PendingCompensation;
+import com.example.orderservice.repository.PendingCompensationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * The durable queue of orders whose stock may have to be put back, in
+ * {@code pending_compensations}.
+ * <p>
+ * An order records its intent before it asks the inventory service for stock, so that stock
+ * taken for an order that is never stored, because the order service gave up waiting, failed to
+ * store it or crashed, is released by the {@link CompensationReconciler} once the grace period
+ * has passed. The grace period must exceed the deadline of the inventory calls plus the time it
+ * takes to store an order, or the stock of an order that is still being created may be released.
+ */
+public class CompensationQueue {
+    private static final Logger log = LoggerFactory.getLogger(CompensationQueue.class);
+
+    private final PendingCompensationRepository repository;
+    private final Duration gracePeriod;
+
+    public CompensationQueue(PendingCompensationRepository repository, Duration gracePeriod) {
+        this.repository = repository;
+        this.gracePeriod = gracePeriod;
+    }
+
+    /**
+     * Records that an order is about to take stock. Must succeed before the order asks for stock.
+     *
+     * @param orderRef the order reference
+     */
+    public void recordIntent(String orderRef) {
+        Instant now = Instant.now();
+        PendingCompensation compensation = new PendingCompensation();
+        compensation.setOrderRef(orderRef);
+        compensation.setCreatedAt(now);
+        compensation.setDueAt(now.plus(gracePeriod));
+        repository.save(compensation);
+    }
+
+    /**
+     * Asks for the stock of an order to be released right away, because the order will not be
+     * stored. Should this fail, the stock is released once the grace period has passed.
+     *
+     * @param orderRef the order reference
+     */
+    public void requestRelease(String orderRef) {
+        try {
+            repository.reschedule(orderRef, Instant.now());
+        } catch (RuntimeException e) {
+            log.warn("Could not request the release of order {}, releasing it after the grace period: {}",
+                    orderRef, e.getMessage());
+        }
+    }
+
+    /**
+     * Forgets an order that has been stored, or that took no stock. Should this fail, the
+     * reconciler finds the order stored, or releases nothing.
+     *
+     * @param orderRef the order reference
+     */
+    public void discard(String orderRef) {
+        try {
+            repository.deleteByOrderRefs(List.of(orderRef));
+        } catch (RuntimeException e) {
+            log.warn("Could not discard the compensation of order {}: {}", orderRef, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.orderservice.compensation;
+
+import com.example.inventoryservice.grpc.InventoryServiceGrpc;
+import com.example.inventoryservice.grpc.ReleaseStockRequest;
+import com.example.inventoryservice.grpc.ReleaseStockResponse;
+import com.example.orderservice.entity.PendingCompensation;
+import com.example.orderservice.repository.OrderRepository;
+import com.example.orderservice.repository.PendingCompensationRepository;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Releases the stock of the orders in the {@link CompensationQueue} that have fallen due.
+ * <p>
+ * Due entries are taken in batches: those whose order has been stored as CREATED after all are
+ * dropped, and the stock of the others is put back with one {@code ReleaseStock} call per batch,
+ * after which the batch is dropped. Releasing is idempotent on the inventory side, so a batch
+ * that is released again after a failure changes nothing twice. When the call fails, the batch
+ * is retried with exponential backoff. An inventory that cannot release stock at all, as with
+ * the journal stock update strategy, answers {@code FAILED_PRECONDITION} or
+ * {@code UNIMPLEMENTED}; retrying is pointless then, so the batch is logged as an error, counted
+ * in {@code order.compensation.unreleasable} and dropped. The job runs on a single background
+ * thread at a fixed interval.
+ */
+public class CompensationReconciler {
+    private static final Logger log = LoggerFactory.getLogger(CompensationReconciler.class);
+
+    private final PendingCompensationRepository pendingCompensations;
+    private final OrderRepository orderRepository;
+    private final int batchSize;
+    private final Duration interval;
+    private final Duration maxBackoff;
+    private final Duration releaseTimeout;
+    private final Counter releasedCounter;
+    private final Counter unreleasableCounter;
+    private ScheduledExecutorService scheduler;
+
+    @GrpcClient("inventory-service")
+    private InventoryServiceGrpc.InventoryServiceBlockingStub inventoryServiceStub;
+
+    public CompensationReconciler(PendingCompensationRepository pendingCompensations, OrderRepository orderRepository,
+                                  int batchSize, Duration interval, Duration maxBackoff, Duration releaseTimeout,
+                                  MeterRegistry meterRegistry) {
+        this.pendingCompensations = pendingCompensations;
+        this.orderRepository = orderRepository;
+        this.batchSize = batchSize;
+        this.interval = interval;
+        this.maxBackoff = maxBackoff;
+        this.releaseTimeout = releaseTimeout;
+        this.releasedCounter = Counter.builder("order.compensation.released")
+                .description("Orders whose stock was put back in the inventory")
+                .register(meterRegistry);
+        this.unreleasableCounter = Counter.builder("order.compensation.unreleasable")
+                .description("Orders whose stock the inventory cannot release, and that were given up on")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts running the reconciler at the configured interval.
+     */
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-compensation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::run, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the reconciler; entries of a batch that is being released are released again on the
+     * next start.
+     */
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the reconciler once. Failures are logged and retried on the next run.
+     */
+    public void run() {
+        try {
+            int released = reconcile(Instant.now());
+            if (released > 0) {
+                log.info("Released the stock of {} orders that were not stored", released);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Order compensation failed, retrying on the next run: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Releases the stock of all orders that are due, batch by batch, until none is left or a
+     * release fails.
+     *
+     * @param now the current time
+     * @return the number of orders whose stock was put back
+     */
+    public int reconcile(Instant now) {
+        int total = 0;
+        while (true) {
+            List<PendingCompensation> due = pendingCompensations.findByDueAtLessThanEqualOrderByDueAtAsc(
+                    now, PageRequest.of(0, batchSize));
+            if (due.isEmpty()) {
+                return total;
+            }
+            List<String> orderRefs = due.stream().map(PendingCompensation::getOrderRef).toList();
+            Set<String> created = new HashSet<>(orderRepository.findCreatedReferences(orderRefs));
+            List<String> unstored = orderRefs.stream().filter(orderRef -> !created.contains(orderRef)).toList();
+            if (!unstored.isEmpty()) {
+                try {
+                    ReleaseStockResponse response = inventoryServiceStub
+                            .withDeadlineAfter(releaseTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                            .releaseStock(ReleaseStockRequest.newBuilder().addAllOrderRefs(unstored).build());
+                    releasedCounter.increment(response.getReleased());
+                    total += response.getReleased();
+                } catch (StatusRuntimeException e) {
+                    Status.Code code = e.getStatus().getCode();
+                    if (code == Status.Code.FAILED_PRECONDITION || code == Status.Code.UNIMPLEMENTED) {
+                        unreleasableCounter.increment(unstored.size());
+                        log.error("The inventory cannot release stock ({}), giving up on the stock of orders {}",
+                                e.getStatus(), unstored);
+                        pendingCompensations.deleteByOrderRefs(orderRefs);
+                        continue;
+                    }
+                    if (!created.isEmpty()) {
+                        pendingCompensations.deleteByOrderRefs(created);
+                    }
+                    backOff(due.stream().filter(compensation -> !created.contains(compensation.getOrderRef())).toList(), now);
+                    log.warn("Could not release the stock of {} orders, backing off: {}", unstored.size(), e.getStatus());
+                    return total;
+                }
+            }
+            pendingCompensations.deleteByOrderRefs(orderRefs);
+            if (due.size() < batchSize) {
+                return total;
+            }
+        }
+    }
+
+    private void backOff(List<PendingCompensation> failed, Instant now) {
+        for (PendingCompensation compensation : failed) {
+            int attempts = compensation.getAttempts() + 1;
+            Duration backoff = interval.multipliedBy(1L << Math.min(attempts, 30));
+            compensation.setAttempts(attempts);
+            compensation.setDueAt(now.plus(backoff.compareTo(maxBackoff) < 0 ? backoff : maxBackoff));
+        }
+        pendingCompensations.saveAll(failed);
+    }
+}
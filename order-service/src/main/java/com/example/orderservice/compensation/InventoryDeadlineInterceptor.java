@@ -0,0 +1,32 @@
+package com.example.orderservice.compensation;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.MethodDescriptor;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gives calls that have no deadline of their own a default one, so that an order gives up on a
+ * slow inventory service quickly; the stock of an order that gave up is released by the
+ * {@link CompensationReconciler}.
+ */
+public class InventoryDeadlineInterceptor implements ClientInterceptor {
+    private final long timeoutNanos;
+
+    public InventoryDeadlineInterceptor(Duration timeout) {
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                               CallOptions callOptions, Channel next) {
+        if (callOptions.getDeadline() == null) {
+            callOptions = callOptions.withDeadlineAfter(timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+        return next.newCall(method, callOptions);
+    }
+}
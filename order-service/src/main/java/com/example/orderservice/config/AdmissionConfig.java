@@ -0,0 +1,59 @@
+package com.example.orderservice.config;
+
+import com.example.orderservice.admission.AdaptiveConcurrencyLimiter;
+import com.example.orderservice.admission.OrderAdmissionFilter;
+import com.example.orderservice.admission.OrderAdmissionInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.devh.boot.grpc.server.interceptor.GrpcGlobalServerInterceptor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Puts one adaptive concurrency limiter in front of both order intake paths, REST and gRPC.
+ * Enabled unless {@code order.admission.enabled=false}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "order.admission", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(AdmissionProperties.class)
+public class AdmissionConfig {
+
+    /**
+     * Creates the limiter shared by the REST and gRPC order intake.
+     *
+     * @param properties the admission settings
+     * @param meterRegistry the registry for limiter metrics
+     * @return the concurrency limiter
+     */
+    @Bean
+    public AdaptiveConcurrencyLimiter orderConcurrencyLimiter(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        return new AdaptiveConcurrencyLimiter(properties, meterRegistry);
+    }
+
+    /**
+     * Registers admission control for {@code POST /orders}.
+     *
+     * @param limiter the concurrency limiter
+     * @return the filter registration
+     */
+    @Bean
+    public FilterRegistrationBean<OrderAdmissionFilter> orderAdmissionFilter(AdaptiveConcurrencyLimiter limiter) {
+        FilterRegistrationBean<OrderAdmissionFilter> registration = new FilterRegistrationBean<>(new OrderAdmissionFilter(limiter));
+        registration.addUrlPatterns("/orders");
+        return registration;
+    }
+
+    /**
+     * Registers admission control for the {@code CreateOrder} RPC.
+     *
+     * @param limiter the concurrency limiter
+     * @return the server interceptor
+     */
+    @Bean
+    @GrpcGlobalServerInterceptor
+    public OrderAdmissionInterceptor orderAdmissionInterceptor(AdaptiveConcurrencyLimiter limiter) {
+        return new OrderAdmissionInterceptor(limiter);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.orderservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for admission control of order intake, bound from {@code order.admission.*}.
+ */
+@Setter
+@Getter
+@ConfigurationProperties(prefix = "order.admission")
+public class AdmissionProperties {
+    private boolean enabled = true;
+
+    /**
+     * Concurrency limit before any latency has been measured.
+     */
+    private int initialLimit = 20;
+    private int minLimit = 1;
+    private int maxLimit = 500;
+
+    /**
+     * Order creations slower than this count as a sign of overload and shrink the limit.
+     */
+    private Duration latencyThreshold = Duration.ofMillis(250);
+
+    /**
+     * Factor the limit is multiplied by on overload.
+     */
+    private double backoffRatio = 0.9;
+}
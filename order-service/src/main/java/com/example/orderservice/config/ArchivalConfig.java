@@ -0,0 +1,68 @@
+package com.example.orderservice.config;
+
+import com.example.orderservice.archive.OrderArchiver;
+import com.example.orderservice.archive.OrderPartitionManager;
+import com.example.orderservice.repository.ArchivedOrderRepository;
+import com.example.orderservice.repository.OrderRepository;
+import com.example.orderservice.service.ResourceVersion;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs the archival job for old orders, and maintains the partitions of the {@code orders}
+ * table when {@code order.archival.partitioning.enabled=true}. Enabled unless
+ * {@code order.archival.enabled=false}.
+ */
+@Configuration
+@EnableConfigurationProperties(ArchivalProperties.class)
+@ConditionalOnProperty(prefix = "order.archival", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ArchivalConfig {
+
+    /**
+     * Creates the partition manager, which creates the upcoming partitions when the context
+     * starts.
+     *
+     * @param properties the archival settings
+     * @param jdbcTemplate the template partitions are managed with
+     * @return the partition manager
+     */
+    @Bean(initMethod = "start")
+    @ConditionalOnProperty(prefix = "order.archival.partitioning", name = "enabled", havingValue = "true")
+    public OrderPartitionManager orderPartitionManager(ArchivalProperties properties, JdbcTemplate jdbcTemplate) {
+        return new OrderPartitionManager(jdbcTemplate, properties.getPartitioning().getMonthsAhead());
+    }
+
+    /**
+     * Creates the order archiver; its job is scheduled when the context starts and stopped when
+     * it closes.
+     *
+     * @param properties the archival settings
+     * @param orderRepository the repository orders are archived from
+     * @param archivedOrderRepository the repository orders are archived into
+     * @param transactionManager the transaction manager each batch runs in
+     * @param objectMapper the mapper archived orders are serialized with
+     * @param partitionManager the partition manager, if partitioning is enabled
+     * @param ordersVersion the version of the order list, incremented by every archived batch
+     * @param meterRegistry the registry for archival metrics
+     * @return the order archiver
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public OrderArchiver orderArchiver(ArchivalProperties properties, OrderRepository orderRepository,
+                                       ArchivedOrderRepository archivedOrderRepository,
+                                       PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                                       ObjectProvider<OrderPartitionManager> partitionManager,
+                                       ResourceVersion ordersVersion,
+                                       MeterRegistry meterRegistry) {
+        return new OrderArchiver(orderRepository, archivedOrderRepository, new TransactionTemplate(transactionManager),
+                objectMapper, properties.getRetention(), properties.getClosedStatuses(), properties.getBatchSize(),
+                properties.getInterval(), partitionManager.getIfAvailable(), ordersVersion, meterRegistry);
+    }
+}
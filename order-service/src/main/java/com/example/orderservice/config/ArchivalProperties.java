@@ -0,0 +1,59 @@
+package com.example.orderservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Settings for archiving old orders and partitioning the {@code orders} table, bound from
+ * {@code order.archival.*}.
+ */
+@Setter
+@Getter
+@ConfigurationProperties(prefix = "order.archival")
+public class ArchivalProperties {
+    private boolean enabled = true;
+
+    /**
+     * How long a closed order stays in the {@code orders} table before it is archived.
+     */
+    private Duration retention = Duration.ofDays(90);
+
+    /**
+     * Statuses of orders that no longer change and may be archived.
+     */
+    private Set<String> closedStatuses = new LinkedHashSet<>(List.of("CREATED", "REJECTED"));
+
+    /**
+     * Maximum number of orders moved per transaction.
+     */
+    private int batchSize = 500;
+
+    /**
+     * Pause between two runs of the archival job.
+     */
+    private Duration interval = Duration.ofHours(1);
+
+    private Partitioning partitioning = new Partitioning();
+
+    @Setter
+    @Getter
+    public static class Partitioning {
+
+        /**
+         * Whether to maintain monthly partitions of the {@code orders} table. Requires PostgreSQL
+         * and a table converted with {@code db/partition-orders.sql}.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Number of months after the current one to create partitions for in advance.
+         */
+        private int monthsAhead = 2;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.orderservice.config;
+
+import com.example.orderservice.compensation.CompensationQueue;
+import com.example.orderservice.compensation.CompensationReconciler;
+import com.example.orderservice.compensation.InventoryDeadlineInterceptor;
+import com.example.orderservice.repository.OrderRepository;
+import com.example.orderservice.repository.PendingCompensationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.devh.boot.grpc.client.interceptor.GrpcGlobalClientInterceptor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Releases the stock of orders that took stock but were not stored, so that the inventory calls
+ * can run with short deadlines without leaking stock. Enabled unless
+ * {@code order.compensation.enabled=false}; requires an inventory service that keeps its stock in
+ * the products table, as the journal strategy cannot release stock, and
+ * {@code order.durability.mode=database}, as an order in the write-ahead log of one node is not
+ * yet stored and would have its stock released.
+ */
+@Configuration
+@EnableConfigurationProperties(CompensationProperties.class)
+@ConditionalOnProperty(prefix = "order.compensation", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class CompensationConfig {
+
+    /**
+     * Creates the queue that orders record their intent to take stock in.
+     *
+     * @param properties the compensation settings
+     * @param repository the repository of pending compensations
+     * @param durabilityProperties the durability settings
+     * @return the compensation queue
+     * @throws IllegalStateException if the grace period does not exceed the inventory deadline, or
+     *         if orders are made durable in the write-ahead log
+     */
+    @Bean
+    public CompensationQueue compensationQueue(CompensationProperties properties,
+                                               PendingCompensationRepository repository,
+                                               DurabilityProperties durabilityProperties) {
+        if (durabilityProperties.getMode() == DurabilityProperties.Mode.WAL) {
+            // Orders waiting in a write-ahead log, e.g. of a crashed node, are not in the orders
+            // table yet, so their stock would be released.
+            throw new IllegalStateException("order.compensation.enabled=false is required with order.durability.mode=wal");
+        }
+        if (properties.getInventoryTimeout() != null
+                && properties.getGracePeriod().compareTo(properties.getInventoryTimeout()) <= 0) {
+            throw new IllegalStateException("order.compensation.grace-period must exceed order.compensation.inventory-timeout");
+        }
+        return new CompensationQueue(repository, properties.getGracePeriod());
+    }
+
+    /**
+     * Creates the reconciler; it is scheduled when the context starts and stopped when it
+     * closes.
+     *
+     * @param properties the compensation settings
+     * @param repository the repository of pending compensations
+     * @param orderRepository the repository stored orders are looked up in
+     * @param meterRegistry the registry for compensation metrics
+     * @return the compensation reconciler
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public CompensationReconciler compensationReconciler(CompensationProperties properties,
+                                                         PendingCompensationRepository repository,
+                                                         OrderRepository orderRepository,
+                                                         MeterRegistry meterRegistry) {
+        return new CompensationReconciler(repository, orderRepository, properties.getBatchSize(),
+                properties.getInterval(), properties.getMaxBackoff(), properties.getReleaseTimeout(), meterRegistry);
+    }
+
+    /**
+     * Registers the default deadline of the calls to the inventory service, when
+     * {@code order.compensation.inventory-timeout} is set.
+     *
+     * @param properties the compensation settings
+     * @return the client interceptor
+     */
+    @Bean
+    @GrpcGlobalClientInterceptor
+    @ConditionalOnProperty(prefix = "order.compensation", name = "inventory-timeout")
+    public InventoryDeadlineInterceptor inventoryDeadlineInterceptor(CompensationProperties properties) {
+        return new InventoryDeadlineInterceptor(properties.getInventoryTimeout());
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.orderservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for releasing the stock of orders that were not stored, bound from
+ * {@code order.compensation.*}.
+ */
+@Setter
+@Getter
+@ConfigurationProperties(prefix = "order.compensation")
+public class CompensationProperties {
+    private boolean enabled = true;
+
+    /**
+     * How long after an order asks for stock the stock is released unless the order has been
+     * stored. Must exceed the inventory call deadline plus the time it takes to store an order.
+     */
+    private Duration gracePeriod = Duration.ofSeconds(30);
+
+    /**
+     * Pause between two runs of the reconciler, and the first backoff after a failed release.
+     */
+    private Duration interval = Duration.ofSeconds(1);
+
+    /**
+     * Maximum number of orders released per {@code ReleaseStock} call.
+     */
+    private int batchSize = 100;
+
+    /**
+     * Longest pause before an order whose release failed is released again.
+     */
+    private Duration maxBackoff = Duration.ofMinutes(1);
+
+    /**
+     * Deadline of a {@code ReleaseStock} call.
+     */
+    private Duration releaseTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Default deadline of the calls to the inventory service; unset for none.
+     */
+    private Duration inventoryTimeout;
+}
@@ -0,0 +1,52 @@
+package com.example.orderservice.config;
+
+import com.example.orderservice.repository.OrderRepository;
+import com.example.orderservice.service.OrderStatistics;
+import com.example.orderservice.service.ResourceVersion;
+import com.example.orderservice.wal.OrderWriteAheadLog;
+import com.example.orderservice.wal.WriteAheadLog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Enables the order write-ahead log when {@code order.durability.mode=wal}.
+ */
+@Configuration
+@EnableConfigurationProperties(DurabilityProperties.class)
+public class DurabilityConfig {
+
+    /**
+     * Creates the order write-ahead log. The log is replayed when the context starts, and the
+     * replicator is drained when it closes.
+     *
+     * @param properties the durability settings
+     * @param orderRepository the repository logged orders are replicated into
+     * @param transactionManager the transaction manager each replication batch runs in
+     * @param objectMapper the mapper orders are serialized with
+     * @param ordersVersion the version of the order list, incremented by every replicated batch
+     * @param orderStatistics the statistics replayed orders are counted in once stored
+     * @param meterRegistry the registry for the replication backlog gauge
+     * @return the order write-ahead log
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnProperty(prefix = "order.durability", name = "mode", havingValue = "wal")
+    public OrderWriteAheadLog orderWriteAheadLog(DurabilityProperties properties, OrderRepository orderRepository,
+                                                 PlatformTransactionManager transactionManager,
+                                                 ObjectMapper objectMapper, ResourceVersion ordersVersion,
+                                                 OrderStatistics orderStatistics, MeterRegistry meterRegistry) {
+        DurabilityProperties.Wal wal = properties.getWal();
+        OrderWriteAheadLog orderWriteAheadLog = new OrderWriteAheadLog(
+                new WriteAheadLog(wal.getDirectory(), (int) wal.getSegmentSize().toBytes()),
+                orderRepository, new TransactionTemplate(transactionManager), objectMapper,
+                ordersVersion, orderStatistics, wal.getReplicationBatchSize(), wal.getRetryBackoff());
+        meterRegistry.gauge("order.wal.replication.backlog", orderWriteAheadLog,
+                OrderWriteAheadLog::getReplicationBacklog);
+        return orderWriteAheadLog;
+    }
+}
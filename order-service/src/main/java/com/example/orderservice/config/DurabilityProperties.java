@@ -0,0 +1,53 @@
+package com.example.orderservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings for how accepted orders are made durable, bound from {@code order.durability.*}.
+ */
+@Setter
+@Getter
+@ConfigurationProperties(prefix = "order.durability")
+public class DurabilityProperties {
+
+    /**
+     * Where an accepted order is durable when {@code OrderService} returns.
+     */
+    public enum Mode {
+        /**
+         * Committed to the {@code orders} table.
+         */
+        DATABASE,
+
+        /**
+         * Appended to the local write-ahead log, and copied to the {@code orders} table later.
+         */
+        WAL
+    }
+
+    private Mode mode = Mode.DATABASE;
+    private Wal wal = new Wal();
+
+    @Setter
+    @Getter
+    public static class Wal {
+        private Path directory = Path.of("data", "order-wal");
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+        /**
+         * Maximum number of logged orders stored in the {@code orders} table per transaction.
+         */
+        private int replicationBatchSize = 500;
+
+        /**
+         * Pause before retrying a batch that could not be stored, e.g. while the database is down.
+         */
+        private Duration retryBackoff = Duration.ofSeconds(1);
+    }
+}
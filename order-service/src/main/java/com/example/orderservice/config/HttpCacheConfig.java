@@ -0,0 +1,35 @@
+package com.example.orderservice.config;
+
+import com.example.orderservice.service.ResourceVersion;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Creates the versions that validate cached responses of {@code /orders}.
+ */
+@Configuration
+@EnableConfigurationProperties(HttpCacheProperties.class)
+public class HttpCacheConfig {
+
+    /**
+     * Creates the version of the order list. With a read replica, versions only settle once
+     * the replica's staleness bound has passed since the last change. Versions only validate
+     * cached responses if {@code order.http-cache.single-instance} is set, since the version
+     * of one instance misses the changes made by the others.
+     *
+     * @param properties the HTTP cache settings
+     * @param replicaProperties the replica settings, present if a read replica is enabled
+     * @return the version of the order list
+     */
+    @Bean
+    public ResourceVersion ordersVersion(HttpCacheProperties properties,
+                                         ObjectProvider<ReplicaProperties> replicaProperties) {
+        ReplicaProperties replica = replicaProperties.getIfAvailable();
+        return new ResourceVersion(replica != null ? replica.getMaxLag() : Duration.ZERO,
+                properties.isSingleInstance());
+    }
+}
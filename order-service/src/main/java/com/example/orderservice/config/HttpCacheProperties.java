@@ -0,0 +1,23 @@
+package com.example.orderservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the validators of cached responses of {@code /orders}, bound from
+ * {@code order.http-cache.*}.
+ */
+@Setter
+@Getter
+@ConfigurationProperties(prefix = "order.http-cache")
+public class HttpCacheProperties {
+
+    /**
+     * Whether this is the only instance that changes the order list. The version of the order list is
+     * counted in memory and misses the changes of other instances, so responses only carry an
+     * ETag and {@code Last-Modified}, and conditional requests are only answered with 304, when
+     * this is set. Off by default, as a wrong setting serves stale lists.
+     */
+    private boolean singleInstance;
+}
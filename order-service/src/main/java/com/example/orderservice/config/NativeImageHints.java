@@ -0,0 +1,54 @@
+package com.example.orderservice.config;
+
+import com.example.inventoryservice.grpc.ProductProto;
+import com.example.orderservice.entity.Order;
+import com.example.orderservice.grpc.OrderProto;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.EnumDescriptor;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.ReflectionHints;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+import java.util.List;
+
+/**
+ * Reflection hints for a GraalVM native image, for what Spring AOT cannot find on its own:
+ * <ul>
+ *     <li>the generated protobuf messages, their builders and enums, which protobuf and the
+ *     protobuf message converters look up reflectively, e.g. {@code getDefaultInstance} and the
+ *     field accessors;</li>
+ *     <li>orders, which the write-ahead log and the archiver write as JSON outside Spring MVC.</li>
+ * </ul>
+ */
+public class NativeImageHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        for (FileDescriptor file : List.of(OrderProto.getDescriptor(), ProductProto.getDescriptor())) {
+            String javaPackage = file.getOptions().getJavaPackage() + ".";
+            registerMessages(hints.reflection(), javaPackage, file.getMessageTypes());
+            registerEnums(hints.reflection(), javaPackage, file.getEnumTypes());
+        }
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), Order.class);
+    }
+
+    private static void registerMessages(ReflectionHints reflection, String prefix, List<Descriptor> messages) {
+        for (Descriptor message : messages) {
+            String className = prefix + message.getName();
+            reflection.registerType(TypeReference.of(className), MemberCategory.INVOKE_PUBLIC_METHODS);
+            reflection.registerType(TypeReference.of(className + "$Builder"), MemberCategory.INVOKE_PUBLIC_METHODS);
+            registerMessages(reflection, className + "$", message.getNestedTypes());
+            registerEnums(reflection, className + "$", message.getEnumTypes());
+        }
+    }
+
+    private static void registerEnums(ReflectionHints reflection, String prefix, List<EnumDescriptor> enums) {
+        for (EnumDescriptor enumType : enums) {
+            reflection.registerType(TypeReference.of(prefix + enumType.getName()), MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+    }
+}
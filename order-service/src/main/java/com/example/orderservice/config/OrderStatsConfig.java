@@ -0,0 +1,46 @@
+package com.example.orderservice.config;
+
+import com.example.orderservice.repository.OrderRepository;
+import com.example.orderservice.service.OrderStatistics;
+import com.example.orderservice.service.OrderStatisticsReconciler;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Creates the in-memory order statistics served at {@code /orders/stats}.
+ */
+@Configuration
+@EnableConfigurationProperties(OrderStatsProperties.class)
+public class OrderStatsConfig {
+
+    /**
+     * Creates the order statistics, seeded from the orders already stored.
+     *
+     * @param properties the statistics settings
+     * @param orderRepository the repository the statistics are seeded from
+     * @return the order statistics
+     */
+    @Bean
+    public OrderStatistics orderStatistics(OrderStatsProperties properties, OrderRepository orderRepository) {
+        OrderStatistics orderStatistics = new OrderStatistics(properties);
+        orderStatistics.reconcile(orderRepository);
+        return orderStatistics;
+    }
+
+    /**
+     * Creates the job that reconciles the order statistics with the database, so that they
+     * include the orders stored by other instances.
+     *
+     * @param properties the statistics settings
+     * @param orderStatistics the statistics to reconcile
+     * @param orderRepository the repository the statistics are seeded from
+     * @return the statistics reconciler
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public OrderStatisticsReconciler orderStatisticsReconciler(OrderStatsProperties properties,
+                                                               OrderStatistics orderStatistics,
+                                                               OrderRepository orderRepository) {
+        return new OrderStatisticsReconciler(orderStatistics, orderRepository, properties.getReconcileInterval());
+    }
+}
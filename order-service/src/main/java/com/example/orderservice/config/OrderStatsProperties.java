@@ -0,0 +1,37 @@
+package com.example.orderservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settings for the order statistics served at {@code /orders/stats}, bound from
+ * {@code order.stats.*}.
+ */
+@Setter
+@Getter
+@ConfigurationProperties(prefix = "order.stats")
+public class OrderStatsProperties {
+
+    /**
+     * Granularity of the sliding windows; a window covers the buckets of this width that overlap
+     * it, including the current, partly elapsed one.
+     */
+    private Duration bucketWidth = Duration.ofMinutes(1);
+
+    /**
+     * Sliding windows reported in addition to the totals.
+     */
+    private List<Duration> windows = new ArrayList<>(List.of(Duration.ofMinutes(5), Duration.ofMinutes(15),
+            Duration.ofHours(1)));
+
+    /**
+     * How often the statistics are replaced with ones seeded from the database, which brings in
+     * the orders stored by other instances.
+     */
+    private Duration reconcileInterval = Duration.ofMinutes(5);
+}
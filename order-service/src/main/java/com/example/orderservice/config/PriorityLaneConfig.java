@@ -0,0 +1,27 @@
+package com.example.orderservice.config;
+
+import com.example.orderservice.service.PriorityLaneExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Creates the executor that gives interactive and batch orders separate, weighted lanes.
+ */
+@Configuration
+@EnableConfigurationProperties(PriorityLaneProperties.class)
+public class PriorityLaneConfig {
+
+    /**
+     * Creates the priority lane executor; its workers are stopped when the context closes.
+     *
+     * @param properties the lane settings
+     * @param meterRegistry the registry for lane metrics
+     * @return the priority lane executor
+     */
+    @Bean(destroyMethod = "shutdown")
+    public PriorityLaneExecutor priorityLaneExecutor(PriorityLaneProperties properties, MeterRegistry meterRegistry) {
+        return new PriorityLaneExecutor(properties, meterRegistry);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.orderservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the priority lanes orders are created in, bound from {@code order.lanes.*}.
+ */
+@Setter
+@Getter
+@ConfigurationProperties(prefix = "order.lanes")
+public class PriorityLaneProperties {
+    /**
+     * Worker threads shared by all lanes. With 0, orders are created on the calling thread.
+     */
+    private int workers = 16;
+
+    private Lane interactive = new Lane(8, 256, 0);
+
+    /**
+     * Batch orders may not occupy every worker, so that interactive orders always find one free.
+     */
+    private Lane batch = new Lane(1, 1024, 12);
+
+    @Setter
+    @Getter
+    public static class Lane {
+        /**
+         * Share of the workers the lane receives while other lanes have work queued.
+         */
+        private int weight;
+        private int queueCapacity;
+
+        /**
+         * Maximum number of the lane's orders processed at once; 0 means all workers.
+         */
+        private int maxConcurrency;
+
+        public Lane() {
+        }
+
+        public Lane(int weight, int queueCapacity, int maxConcurrency) {
+            this.weight = weight;
+            this.queueCapacity = queueCapacity;
+            this.maxConcurrency = maxConcurrency;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.orderservice.config;
+
+import com.example.orderservice.admission.ClientRateLimiter;
+import com.example.orderservice.admission.OrderRateLimitFilter;
+import com.example.orderservice.admission.OrderRateLimitInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.devh.boot.grpc.server.interceptor.GrpcGlobalServerInterceptor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+/**
+ * Puts one per-client rate limiter in front of both order intake paths, REST and gRPC, ahead of
+ * admission control so that throttled clients never take a concurrency permit.
+ * Enabled unless {@code order.rate-limit.enabled=false}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "order.rate-limit", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitConfig {
+
+    /**
+     * Creates the rate limiter shared by the REST and gRPC order intake, sweeping idle clients in
+     * the background.
+     *
+     * @param properties the rate limit settings
+     * @param meterRegistry the registry for rate limit metrics
+     * @return the rate limiter
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public ClientRateLimiter clientRateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        return new ClientRateLimiter(properties, meterRegistry);
+    }
+
+    /**
+     * Registers rate limiting for {@code POST /orders}.
+     *
+     * @param rateLimiter the rate limiter
+     * @return the filter registration
+     */
+    @Bean
+    public FilterRegistrationBean<OrderRateLimitFilter> orderRateLimitFilter(ClientRateLimiter rateLimiter) {
+        FilterRegistrationBean<OrderRateLimitFilter> registration = new FilterRegistrationBean<>(new OrderRateLimitFilter(rateLimiter));
+        registration.addUrlPatterns("/orders");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    /**
+     * Registers rate limiting for the {@code CreateOrder} RPC.
+     *
+     * @param rateLimiter the rate limiter
+     * @return the server interceptor
+     */
+    @Bean
+    @GrpcGlobalServerInterceptor
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public OrderRateLimitInterceptor orderRateLimitInterceptor(ClientRateLimiter rateLimiter) {
+        return new OrderRateLimitInterceptor(rateLimiter);
+    }
+}
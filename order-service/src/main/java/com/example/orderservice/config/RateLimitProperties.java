@@ -0,0 +1,51 @@
+package com.example.orderservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Settings for per-client rate limiting of order intake, bound from {@code order.rate-limit.*}.
+ */
+@Setter
+@Getter
+@ConfigurationProperties(prefix = "order.rate-limit")
+public class RateLimitProperties {
+    private boolean enabled = true;
+
+    /**
+     * Quota of each remote address not sending a configured API key.
+     */
+    private Quota defaultQuota = new Quota();
+
+    /**
+     * Quotas by API key. Only these keys identify a client; other keys are ignored.
+     */
+    private Map<String, Quota> clients = new HashMap<>();
+
+    /**
+     * Upper bound on the number of remote addresses tracked at once. Addresses beyond it share one
+     * bucket until idle ones are swept.
+     */
+    private int maxClients = 10_000;
+
+    /**
+     * Remote addresses not seen for this long are dropped from the table, checked once per idle
+     * timeout.
+     */
+    private Duration idleTimeout = Duration.ofMinutes(10);
+
+    /**
+     * Sustained rate and burst size of one client's token bucket.
+     */
+    @Setter
+    @Getter
+    public static class Quota {
+        private double requestsPerSecond = 50;
+        private int burst = 100;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.orderservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Replaces the auto-configured data source with one that sends
+ * {@code @Transactional(readOnly = true)} work to a read replica. Enabled with
+ * {@code order.replica.enabled=true}; the primary keeps using {@code spring.datasource.*}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "order.replica", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReadReplicaConfig {
+
+    /**
+     * Creates the connection pool for the primary database.
+     *
+     * @param properties the {@code spring.datasource.*} settings
+     * @return the primary connection pool
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Creates the connection pool for the read replica.
+     *
+     * @param properties the replica settings
+     * @return the replica connection pool
+     */
+    @Bean
+    @ConfigurationProperties("order.replica.hikari")
+    public HikariDataSource replicaDataSource(ReplicaProperties properties) {
+        return DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(properties.getUrl())
+                .username(properties.getUsername())
+                .password(properties.getPassword())
+                .build();
+    }
+
+    /**
+     * Creates the monitor that measures the replica lag in the background.
+     *
+     * @param replica the replica connection pool
+     * @param properties the replica settings
+     * @return the lag monitor
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replica,
+                                               ReplicaProperties properties) {
+        return new ReplicaLagMonitor(replica, properties.getLagQuery(), properties.getMaxLag(),
+                properties.getLagCheckInterval());
+    }
+
+    /**
+     * Creates the data source used by JPA and JDBC, routing each transaction to the primary
+     * or the replica.
+     *
+     * @param primary the primary connection pool
+     * @param replica the replica connection pool
+     * @param lagMonitor the replica lag monitor
+     * @return the routing data source
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 ReplicaLagMonitor lagMonitor) {
+        return new LazyConnectionDataSourceProxy(new ReadReplicaRoutingDataSource(primary, replica, lagMonitor));
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.orderservice.config;
+
+import com.example.orderservice.reconciliation.StockReconciler;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Periodically reconciles the stored orders against the stock the inventory took for them.
+ * Enabled unless {@code order.reconciliation.enabled=false}; requires compensation, since the
+ * inventory only attributes stock to orders whose calls carry an order reference.
+ */
+@Configuration
+@EnableConfigurationProperties(ReconciliationProperties.class)
+@ConditionalOnExpression("${order.reconciliation.enabled:true} and ${order.compensation.enabled:true}")
+public class ReconciliationConfig {
+
+    /**
+     * Creates the reconciler; it is scheduled when the context starts and stopped when it
+     * closes.
+     *
+     * @param properties the reconciliation settings
+     * @param compensationProperties the compensation settings
+     * @param jdbcTemplate the template the orders are read with
+     * @param transactionManager the transaction manager of the orders database
+     * @param meterRegistry the registry for reconciliation metrics
+     * @return the stock reconciler
+     * @throws IllegalStateException if the delay does not exceed the compensation grace period
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public StockReconciler stockReconciler(ReconciliationProperties properties,
+                                           CompensationProperties compensationProperties, JdbcTemplate jdbcTemplate,
+                                           PlatformTransactionManager transactionManager,
+                                           MeterRegistry meterRegistry) {
+        if (properties.getDelay().compareTo(compensationProperties.getGracePeriod()) <= 0) {
+            throw new IllegalStateException("order.reconciliation.delay must exceed order.compensation.grace-period");
+        }
+        TransactionTemplate readOnlyTransactions = new TransactionTemplate(transactionManager);
+        readOnlyTransactions.setReadOnly(true);
+        return new StockReconciler(jdbcTemplate, readOnlyTransactions, properties.getInterval(), properties.getDelay(),
+                properties.getPartitions(), properties.getFetchSize(), properties.getMaxDiscrepancies(),
+                properties.getTimeout(), meterRegistry);
+    }
+}
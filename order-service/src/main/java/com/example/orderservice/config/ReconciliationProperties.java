@@ -0,0 +1,49 @@
+package com.example.orderservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for reconciling the stored orders against the stock the inventory took for them,
+ * bound from {@code order.reconciliation.*}.
+ */
+@Setter
+@Getter
+@ConfigurationProperties(prefix = "order.reconciliation")
+public class ReconciliationProperties {
+    private boolean enabled = true;
+
+    /**
+     * Pause between two runs, and so the length of the window each run reconciles.
+     */
+    private Duration interval = Duration.ofHours(1);
+
+    /**
+     * How far behind the present the reconciled window ends. Must exceed the compensation grace
+     * period, so that the stock of orders that were not stored has been released.
+     */
+    private Duration delay = Duration.ofMinutes(5);
+
+    /**
+     * Number of product id ranges reconciled in parallel.
+     */
+    private int partitions = 4;
+
+    /**
+     * Number of rows fetched from the orders cursor at a time.
+     */
+    private int fetchSize = 500;
+
+    /**
+     * Maximum number of discrepancies listed in a report; all of them are counted.
+     */
+    private int maxDiscrepancies = 100;
+
+    /**
+     * Deadline of the {@code StreamOrderDecrements} call of a product id range.
+     */
+    private Duration timeout = Duration.ofMinutes(5);
+}
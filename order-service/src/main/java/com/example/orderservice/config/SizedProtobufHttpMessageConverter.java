@@ -0,0 +1,66 @@
+package com.example.orderservice.config;
+
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.protobuf.ProtobufHttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * A {@link ProtobufHttpMessageConverter} that sizes its buffers to the message for
+ * {@code application/x-protobuf}, instead of allocating 4 KB stream buffers per request and per
+ * response, which cost more than the small order messages themselves.
+ * <p>
+ * Request bodies with a known length of up to {@link #MAX_BUFFERED_REQUEST_SIZE} are read into
+ * an array of that length and parsed from it. Responses are written with a buffer of at most
+ * the size of the message, and with a {@code Content-Length} instead of chunked encoding.
+ * Other media types are handled by the superclass.
+ */
+public class SizedProtobufHttpMessageConverter extends ProtobufHttpMessageConverter {
+    static final int MAX_BUFFERED_REQUEST_SIZE = 64 * 1024;
+
+    private static final ClassValue<Parser<? extends Message>> PARSERS = new ClassValue<>() {
+        @Override
+        protected Parser<? extends Message> computeValue(Class<?> messageClass) {
+            try {
+                return ((Message) messageClass.getMethod("getDefaultInstance").invoke(null)).getParserForType();
+            } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("Not a generated protobuf message: " + messageClass, e);
+            }
+        }
+    };
+
+    @Override
+    protected Message readInternal(Class<? extends Message> clazz, HttpInputMessage inputMessage) throws IOException {
+        MediaType contentType = inputMessage.getHeaders().getContentType();
+        long length = inputMessage.getHeaders().getContentLength();
+        if (contentType == null || !PROTOBUF.isCompatibleWith(contentType)
+                || length < 0 || length > MAX_BUFFERED_REQUEST_SIZE) {
+            return super.readInternal(clazz, inputMessage);
+        }
+        byte[] body = inputMessage.getBody().readNBytes((int) length);
+        return PARSERS.get(clazz).parseFrom(body, ExtensionRegistryLite.getEmptyRegistry());
+    }
+
+    @Override
+    protected Long getContentLength(Message message, MediaType contentType) {
+        return contentType != null && PROTOBUF.isCompatibleWith(contentType) ? (long) message.getSerializedSize() : null;
+    }
+
+    @Override
+    protected void writeInternal(Message message, HttpOutputMessage outputMessage) throws IOException {
+        MediaType contentType = outputMessage.getHeaders().getContentType();
+        if (contentType == null || !PROTOBUF.isCompatibleWith(contentType)) {
+            super.writeInternal(message, outputMessage);
+            return;
+        }
+        outputMessage.getHeaders().set(X_PROTOBUF_SCHEMA_HEADER, message.getDescriptorForType().getFile().getName());
+        outputMessage.getHeaders().set(X_PROTOBUF_MESSAGE_HEADER, message.getDescriptorForType().getFullName());
+        message.writeTo(outputMessage.getBody());
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.orderservice.config;
+
+import com.example.orderservice.repository.OrderRepository;
+import com.example.orderservice.warmup.OrderWarmUpTraffic;
+import com.example.orderservice.warmup.WarmUp;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Warms the service up before it reports itself ready; include the {@code warmUp} health
+ * indicator in the readiness group to hold traffic back until then.
+ */
+@Configuration
+@EnableConfigurationProperties(WarmUpProperties.class)
+public class WarmUpConfig {
+
+    /**
+     * Creates the synthetic order traffic of the warm-up.
+     *
+     * @param properties the warm-up settings
+     * @param orderRepository the repository synthetic orders are stored in and rolled back
+     * @param transactionManager the transaction manager of the rolled back transactions
+     * @param objectMapper the mapper orders are serialized with
+     * @return the synthetic order traffic
+     */
+    @Bean
+    public OrderWarmUpTraffic orderWarmUpTraffic(WarmUpProperties properties, OrderRepository orderRepository,
+                                                 PlatformTransactionManager transactionManager,
+                                                 ObjectMapper objectMapper) {
+        return new OrderWarmUpTraffic(orderRepository, new TransactionTemplate(transactionManager), objectMapper,
+                properties.getProduct(), properties.getTimeout());
+    }
+
+    /**
+     * Creates the warm-up, which opens connections in the primary and, if configured, the
+     * replica pool, then checks stock and creates orders without side effects.
+     *
+     * @param properties the warm-up settings
+     * @param pools the connection pools
+     * @param traffic the synthetic order traffic
+     * @return the warm-up, which is also the {@code warmUp} health indicator
+     */
+    @Bean
+    public WarmUp warmUp(WarmUpProperties properties, ObjectProvider<HikariDataSource> pools,
+                         OrderWarmUpTraffic traffic) {
+        Map<String, Runnable> calls = new LinkedHashMap<>();
+        calls.put("checkStock", traffic::checkStock);
+        calls.put("createOrder", traffic::createOrder);
+        return new WarmUp(properties, pools.orderedStream().toList(), calls);
+    }
+}
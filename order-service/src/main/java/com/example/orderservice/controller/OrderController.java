@@ -1,17 +1,36 @@
 package com.example.orderservice.controller;
 
 import com.example.orderservice.entity.Order;
+import com.example.orderservice.grpc.OrderList;
+import com.example.orderservice.grpc.OrderMessages;
+import com.example.orderservice.grpc.OrderRequest;
+import com.example.orderservice.grpc.OrderResponse;
 import com.example.orderservice.service.OrderService;
+import com.example.orderservice.service.OrderStatistics;
+import com.example.orderservice.service.ResourceVersion;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/orders")
 @CrossOrigin(origins = "http://localhost:4200")
 public class OrderController {
+    /**
+     * The media type of protobuf requests and responses, which use the messages of
+     * {@code order.proto}.
+     */
+    public static final String APPLICATION_PROTOBUF = "application/x-protobuf";
+
     private final OrderService orderService;
 
     public OrderController(OrderService orderService) {
@@ -22,25 +41,120 @@ public class OrderController {
      * Creates a new order.
      *
      * @param order the order to be created
-     * @return the created order
+     * @return the created order, or 429 with {@code Retry-After} if the order's priority lane is
+     *         full, like requests turned away by admission control or rate limiting
      */
     @PostMapping
     public ResponseEntity<?> createOrder(@RequestBody Order order) {
         try {
             Order savedOrder = orderService.createOrder(order);
             return ResponseEntity.ok(savedOrder);
+        } catch (RejectedExecutionException e) {
+            return laneFull().body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         }
     }
 
     /**
-     * Returns a list of all orders.
+     * Creates a new order from a protobuf request.
+     *
+     * @param request the order to be created
+     * @return the created order, or 429 with {@code Retry-After} if the order's priority lane is
+     *         full, or 400 if the order is invalid or could not be processed; errors are described
+     *         by the message field
+     */
+    @PostMapping(consumes = APPLICATION_PROTOBUF, produces = APPLICATION_PROTOBUF)
+    public ResponseEntity<OrderResponse> createOrder(@RequestBody OrderRequest request) {
+        try {
+            Order savedOrder = orderService.createOrder(OrderMessages.toOrder(request));
+            return ResponseEntity.ok(OrderMessages.toResponse(savedOrder));
+        } catch (RejectedExecutionException e) {
+            return laneFull().body(errorResponse(e));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse(e));
+        }
+    }
+
+    private static ResponseEntity.BodyBuilder laneFull() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1");
+    }
+
+    private static OrderResponse errorResponse(Exception e) {
+        return e.getMessage() != null
+                ? OrderResponse.newBuilder().setMessage(e.getMessage()).build()
+                : OrderResponse.getDefaultInstance();
+    }
+
+    /**
+     * Returns a list of all orders that have not been archived. The response carries the ETag
+     * and modification time of the current version of the order list, and a request with
+     * matching {@code If-None-Match} or {@code If-Modified-Since} headers gets a 304 without the
+     * orders being read.
      *
-     * @return a list of orders
+     * @param request the request, with the validators of the client's copy if it has one
+     * @return a list of orders, or 304 if the client's copy is current
      */
     @GetMapping
-    public ResponseEntity<List<Order>> getAllOrders() {
-        return ResponseEntity.ok(orderService.getAllOrders());
+    public ResponseEntity<List<Order>> getAllOrders(WebRequest request) {
+        return conditionalGet(request, orderService.getOrdersVersion(), orderService::getAllOrders);
+    }
+
+    /**
+     * Returns all orders that have not been archived as a protobuf {@code OrderList}, with the
+     * same validation as {@link #getAllOrders(WebRequest)}.
+     *
+     * @param request the request, with the validators of the client's copy if it has one
+     * @return the list of orders, or 304 if the client's copy is current
+     */
+    @GetMapping(produces = APPLICATION_PROTOBUF)
+    public ResponseEntity<OrderList> getAllOrdersAsProtobuf(WebRequest request) {
+        return conditionalGet(request, orderService.getOrdersVersion().variant("pb"),
+                () -> OrderMessages.toList(orderService.getAllOrders()));
+    }
+
+    /**
+     * Answers a request for the order list with 304 if the client's copy has the current
+     * version, and with the list and its validators otherwise.
+     */
+    private static <T> ResponseEntity<T> conditionalGet(WebRequest request, ResourceVersion.Tag version,
+                                                        Supplier<T> body) {
+        if (!version.settled()) {
+            // A lagging replica may still serve the previous version; let clients refetch.
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT)
+                    .body(body.get());
+        }
+        if (request.checkNotModified(version.eTag(), version.lastModified().toEpochMilli())) {
+            // The validators have been added to the response by checkNotModified.
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT).build();
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT)
+                .eTag(version.eTag()).lastModified(version.lastModified())
+                .body(body.get());
+    }
+
+    /**
+     * Returns the orders accepted at or after the given time, oldest first. Archived orders are
+     * not included.
+     *
+     * @param since the earliest acceptance time to include, in ISO-8601 format
+     * @return a list of recent orders
+     */
+    @GetMapping(params = "since")
+    public ResponseEntity<List<Order>> getOrdersSince(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant since) {
+        return ResponseEntity.ok(orderService.getOrdersSince(since));
+    }
+
+    /**
+     * Returns the order counts and quantities by product and by status, in total and over
+     * sliding windows, without reading the orders.
+     *
+     * @return the order statistics
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<OrderStatistics.Snapshot> getStatistics() {
+        return ResponseEntity.ok(orderService.getStatistics());
     }
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.example.orderservice.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * A closed order moved out of the {@code orders} table. The order and its line items are kept
+ * as gzip-compressed JSON; only the columns needed to find it again are stored separately.
+ */
+@Setter
+@Getter
+@Entity
+@Table(name = "orders_archive", indexes = {
+        @Index(name = "orders_archive_order_id_idx", columnList = "order_id"),
+        @Index(name = "orders_archive_created_at_idx", columnList = "created_at")
+})
+public class ArchivedOrder {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(length = 36)
+    private String reference;
+    private String status;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @Column(name = "archived_at", nullable = false)
+    private Instant archivedAt;
+
+    @Column(nullable = false, length = 1_048_576)
+    private byte[] payload;
+}
@@ -3,16 +3,61 @@ package com.example.orderservice.entity;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 @Setter
 @Getter
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = @Index(name = "orders_created_at_idx", columnList = "created_at"))
 public class Order {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
+
+    /**
+     * Unique reference assigned when the order is accepted, before it has an id.
+     */
+    @Column(unique = true, length = 36, updatable = false)
+    private String reference;
     private String product;
+    private Long productId;
     private int quantity;
     private String status;
+
+    /**
+     * When the order was accepted. Orders are archived by age, and the {@code orders} table can
+     * be range-partitioned on this column.
+     */
+    @Column(name = "created_at", updatable = false)
+    private Instant createdAt;
+
+    /**
+     * Lane the order is processed in; orders that do not state a priority are interactive.
+     */
+    @Enumerated(EnumType.STRING)
+    private OrderPriority priority = OrderPriority.INTERACTIVE;
+
+    /**
+     * Line items of a multi-product order, persisted together with the order. Loaded for all
+     * orders of a query with one subselect instead of one query per order.
+     */
+    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    @JoinColumn(name = "order_id", nullable = false)
+    @Fetch(FetchMode.SUBSELECT)
+    private List<OrderItem> items = new ArrayList<>();
+
+    /**
+     * Stamps orders that are stored without passing through {@code OrderService}.
+     */
+    @PrePersist
+    void onCreate() {
+        if (createdAt == null) {
+            createdAt = Instant.now();
+        }
+    }
 }
\ No newline at end of file
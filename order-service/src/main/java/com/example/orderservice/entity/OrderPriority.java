@@ -0,0 +1,16 @@
+package com.example.orderservice.entity;
+
+/**
+ * Priority class of an order, which selects the processing lane it is created in.
+ */
+public enum OrderPriority {
+    /**
+     * Orders placed by a waiting customer, e.g. at checkout. The default.
+     */
+    INTERACTIVE,
+
+    /**
+     * Bulk orders such as backfills and imports, which may wait behind interactive orders.
+     */
+    BATCH
+}
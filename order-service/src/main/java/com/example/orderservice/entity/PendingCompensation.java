@@ -0,0 +1,38 @@
+package com.example.orderservice.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * An order whose stock may have to be put back: written before the order takes stock from the
+ * inventory service, and removed once the order is stored or known to have taken nothing. Entries
+ * that are still there when they fall due are released by the compensation reconciler.
+ */
+@Setter
+@Getter
+@Entity
+@Table(name = "pending_compensations", indexes = {
+        @Index(name = "pending_compensations_due_at_idx", columnList = "due_at")
+})
+public class PendingCompensation {
+    @Id
+    @Column(name = "order_ref", length = 36)
+    private String orderRef;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    /**
+     * When the stock is released unless the order has been stored by then.
+     */
+    @Column(name = "due_at", nullable = false)
+    private Instant dueAt;
+
+    /**
+     * Number of failed attempts at releasing the stock.
+     */
+    private int attempts;
+}
@@ -7,6 +7,8 @@ import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 import net.devh.boot.grpc.server.service.GrpcService;
 
+import java.util.concurrent.RejectedExecutionException;
+
 @GrpcService
 public class OrderGrpcService extends OrderServiceImplBase {
     private final OrderService orderService;
@@ -18,24 +20,23 @@ public class OrderGrpcService extends OrderServiceImplBase {
     /**
      * Handles the creation of an order based on the provided request.
      *
-     * @param request the request containing order details such as product and quantity
+     * @param request the request containing order details such as product and quantity, or line items
      * @param responseObserver the observer to send responses back to the client
      *<p>
      * This method processes the order request, persists the order using the order service,
-     * and sends a response back to the client with the order status.
+     * and sends a response back to the client with the order status and the stored order.
      */
     @Override
     public void createOrder(OrderRequest request, StreamObserver<OrderResponse> responseObserver) {
-        Order order = new Order();
-        order.setProduct(request.getProduct());
-        order.setQuantity(request.getQuantity());
+        Order order = OrderMessages.toOrder(request);
         try {
             Order savedOrder = orderService.createOrder(order);
-            OrderResponse response = OrderResponse.newBuilder()
-                    .setStatus(savedOrder.getStatus())
-                    .build();
-            responseObserver.onNext(response);
+            responseObserver.onNext(OrderMessages.toResponse(savedOrder));
             responseObserver.onCompleted();
+        } catch (RejectedExecutionException e) {
+            responseObserver.onError(Status.RESOURCE_EXHAUSTED
+                    .withDescription(e.getMessage())
+                    .asRuntimeException());
         } catch (RuntimeException e) {
             responseObserver.onError(Status.INVALID_ARGUMENT
                     .withDescription(e.getMessage())
@@ -0,0 +1,100 @@
+package com.example.orderservice.grpc;
+
+import com.example.orderservice.entity.Order;
+import com.example.orderservice.entity.OrderItem;
+import com.example.orderservice.entity.OrderPriority;
+
+import java.util.List;
+
+/**
+ * Converts orders from and to the protobuf messages of {@code order.proto}, which are used by
+ * the gRPC service and by the REST API for {@code application/x-protobuf} requests.
+ */
+public final class OrderMessages {
+
+    private OrderMessages() {
+    }
+
+    /**
+     * Creates an order from a request. Product ids of 0 are treated as not set.
+     *
+     * @param request the request with the product and quantity, or line items
+     * @return the order to create
+     */
+    public static Order toOrder(OrderRequest request) {
+        Order order = new Order();
+        order.setProduct(request.getProduct());
+        order.setQuantity(request.getQuantity());
+        if (request.getProductId() != 0) {
+            order.setProductId(request.getProductId());
+        }
+        order.setPriority(request.getPriority() == Priority.BATCH ? OrderPriority.BATCH : OrderPriority.INTERACTIVE);
+        for (LineItem requestItem : request.getItemsList()) {
+            OrderItem item = new OrderItem();
+            item.setProduct(requestItem.getProduct());
+            item.setQuantity(requestItem.getQuantity());
+            if (requestItem.getProductId() != 0) {
+                item.setProductId(requestItem.getProductId());
+            }
+            order.getItems().add(item);
+        }
+        return order;
+    }
+
+    /**
+     * Describes an order. Fields of the order that are not set are left at their defaults.
+     *
+     * @param order the order
+     * @return the order as a response message
+     */
+    public static OrderResponse toResponse(Order order) {
+        OrderResponse.Builder response = OrderResponse.newBuilder()
+                .setQuantity(order.getQuantity())
+                .setPriority(order.getPriority() == OrderPriority.BATCH ? Priority.BATCH : Priority.INTERACTIVE);
+        if (order.getStatus() != null) {
+            response.setStatus(order.getStatus());
+        }
+        if (order.getId() != null) {
+            response.setId(order.getId());
+        }
+        if (order.getReference() != null) {
+            response.setReference(order.getReference());
+        }
+        if (order.getProduct() != null) {
+            response.setProduct(order.getProduct());
+        }
+        if (order.getProductId() != null) {
+            response.setProductId(order.getProductId());
+        }
+        if (order.getCreatedAt() != null) {
+            response.setCreatedAt(order.getCreatedAt().toEpochMilli());
+        }
+        if (order.getItems() != null) {
+            for (OrderItem item : order.getItems()) {
+                LineItem.Builder lineItem = LineItem.newBuilder().setQuantity(item.getQuantity());
+                if (item.getProduct() != null) {
+                    lineItem.setProduct(item.getProduct());
+                }
+                if (item.getProductId() != null) {
+                    lineItem.setProductId(item.getProductId());
+                }
+                response.addItems(lineItem);
+            }
+        }
+        return response.build();
+    }
+
+    /**
+     * Describes a list of orders.
+     *
+     * @param orders the orders
+     * @return the orders as a list message
+     */
+    public static OrderList toList(List<Order> orders) {
+        OrderList.Builder list = OrderList.newBuilder();
+        for (Order order : orders) {
+            list.addOrders(toResponse(order));
+        }
+        return list.build();
+    }
+}
@@ -0,0 +1,400 @@
+package com.example.orderservice.reconciliation;
+
+import com.example.inventoryservice.grpc.InventoryServiceGrpc;
+import com.example.inventoryservice.grpc.OrderDecrements;
+import com.example.inventoryservice.grpc.OrderDecrementsRequest;
+import com.example.inventoryservice.grpc.ProductDecrement;
+import io.grpc.Context;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Compares, per product, the units of the orders stored as CREATED in a time window against the
+ * stock the inventory service took for orders in the same window, and reports the products
+ * where they differ.
+ * <p>
+ * Neither side is loaded into memory: the order units are summed per product by the database
+ * and read from a cursor, the inventory streams its sums per product through
+ * {@code StreamOrderDecrements}, both in product id order, and the two are merge-joined as they
+ * arrive. The product ids are split into ranges that are reconciled in parallel, each with its
+ * own cursor and call. Only a bounded number of discrepancies is kept for the report.
+ * <p>
+ * The job runs on a single background thread at a fixed interval, each run reconciling the
+ * window since the previous one up to {@code delay} ago, so that orders still being stored or
+ * released are settled first. A failed run is retried with a longer window on the next run.
+ * <p>
+ * Orders are windowed by the time they were stored and the inventory by the time it took the
+ * stock, a little earlier, so an order at the edge of a window shows as a pair of opposite
+ * discrepancies in adjacent windows. The discrepancies of a window are therefore held until the
+ * next window has been reconciled, and only those that remain over both windows together are
+ * logged as a warning and counted; see {@link #confirm(Report)}.
+ */
+public class StockReconciler {
+    private static final Logger log = LoggerFactory.getLogger(StockReconciler.class);
+
+    // Units of the CREATED orders in the window: single-product orders, and the items of
+    // multi-product orders.
+    private static final String CREATED_UNITS = "SELECT o.product_id, o.quantity FROM orders o "
+            + "WHERE o.status = 'CREATED' AND o.created_at >= ? AND o.created_at < ? "
+            + "AND NOT EXISTS (SELECT 1 FROM order_items i WHERE i.order_id = o.id) "
+            + "UNION ALL SELECT i.product_id, i.quantity FROM order_items i JOIN orders o ON o.id = i.order_id "
+            + "WHERE o.status = 'CREATED' AND o.created_at >= ? AND o.created_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionOperations readOnlyTransactions;
+    private final Duration interval;
+    private final Duration delay;
+    private final int partitions;
+    private final int fetchSize;
+    private final int maxDiscrepancies;
+    private final Duration timeout;
+    private final Counter discrepancyCounter;
+    private ScheduledExecutorService scheduler;
+    private Instant nextFrom;
+    private List<Discrepancy> held = List.of();
+
+    @GrpcClient("inventory-service")
+    private InventoryServiceGrpc.InventoryServiceBlockingStub inventoryServiceStub;
+
+    public StockReconciler(JdbcTemplate jdbcTemplate, TransactionOperations readOnlyTransactions, Duration interval,
+                           Duration delay, int partitions, int fetchSize, int maxDiscrepancies, Duration timeout,
+                           MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransactions = readOnlyTransactions;
+        this.interval = interval;
+        this.delay = delay;
+        this.partitions = partitions;
+        this.fetchSize = fetchSize;
+        this.maxDiscrepancies = maxDiscrepancies;
+        this.timeout = timeout;
+        this.discrepancyCounter = Counter.builder("order.reconciliation.discrepancies")
+                .description("Products whose ordered units differ from the stock the inventory took for them")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts running the reconciliation at the configured interval, the first time one interval
+     * after startup, from the window that was still open at startup.
+     */
+    public void start() {
+        nextFrom = Instant.now().minus(delay);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-reconciliation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::run, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the reconciliation; a run in progress is abandoned.
+     */
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Reconciles the window since the previous run. Failures are logged and the window is
+     * reconciled on the next run.
+     */
+    public void run() {
+        Instant to = Instant.now().minus(delay);
+        try {
+            Report report = reconcile(nextFrom, to);
+            nextFrom = to;
+            List<Discrepancy> confirmed = confirm(report);
+            long unlisted = report.discrepancyCount() - report.discrepancies().size();
+            if (!confirmed.isEmpty() || unlisted > 0) {
+                log.warn("Stock reconciliation up to {} confirmed discrepancies {}, and {} more not listed in {}",
+                        report.to(), confirmed, unlisted, report);
+            } else {
+                log.info("Stock reconciliation found no confirmed discrepancies in {} products from {} to {}, "
+                        + "holding {} for the next window", report.productsCompared(), report.from(), report.to(),
+                        held.size());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Stock reconciliation failed, retrying on the next run: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reconciles the orders and the inventory over a time window.
+     *
+     * @param from the start of the window, inclusive
+     * @param to the end of the window, exclusive
+     * @return the discrepancy report
+     * @throws RuntimeException if either side could not be read
+     */
+    public Report reconcile(Instant from, Instant to) {
+        long[] bounds = new long[3];
+        readOnlyTransactions.executeWithoutResult(status -> jdbcTemplate.query(
+                "SELECT MIN(product_id), MAX(product_id), "
+                        + "COALESCE(SUM(CASE WHEN product_id IS NULL THEN quantity ELSE 0 END), 0) "
+                        + "FROM (" + CREATED_UNITS + ") u",
+                row -> {
+                    bounds[0] = row.getLong(1);
+                    bounds[1] = row.wasNull() ? bounds[0] - 1 : row.getLong(2);
+                    bounds[2] = row.getLong(3);
+                }, timestamps(from, to)));
+        List<long[]> ranges = ranges(bounds[0], bounds[1]);
+
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(ranges.size(), runnable -> {
+            Thread thread = new Thread(runnable, "order-reconciliation-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Tally>> tallies = new ArrayList<>();
+            for (long[] range : ranges) {
+                tallies.add(executor.submit(() -> reconcileRange(from, to, range[0], range[1])));
+            }
+            Tally total = new Tally();
+            for (Future<Tally> tally : tallies) {
+                total.add(tally.get());
+            }
+            List<Discrepancy> discrepancies = total.discrepancies.size() > maxDiscrepancies
+                    ? total.discrepancies.subList(0, maxDiscrepancies) : total.discrepancies;
+            return new Report(from, to, total.productsCompared, total.orderedUnits, total.decrementedUnits,
+                    total.discrepancyCount, List.copyOf(discrepancies), bounds[2]);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Stock reconciliation interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Confirms the discrepancies held from the previous window against the next window, and
+     * holds the discrepancies of that window in turn. A held discrepancy is confirmed if the
+     * product still differs with the units of both windows added up, and dropped otherwise, as
+     * the opposite discrepancies of an order at the edge of the windows cancel out. The
+     * discrepancies left out of a truncated report cannot be held, and are counted right away.
+     * Confirmed discrepancies are counted in {@code order.reconciliation.discrepancies}.
+     *
+     * @param report the report of the window that follows the previous one
+     * @return the confirmed discrepancies, with the units of both windows
+     */
+    public synchronized List<Discrepancy> confirm(Report report) {
+        Map<Long, Discrepancy> current = new LinkedHashMap<>();
+        report.discrepancies().forEach(discrepancy -> current.put(discrepancy.productId(), discrepancy));
+        List<Discrepancy> confirmed = new ArrayList<>();
+        for (Discrepancy previous : held) {
+            Discrepancy next = current.remove(previous.productId());
+            long ordered = previous.orderedUnits() + (next != null ? next.orderedUnits() : 0);
+            long decremented = previous.decrementedUnits() + (next != null ? next.decrementedUnits() : 0);
+            if (ordered != decremented) {
+                confirmed.add(new Discrepancy(previous.productId(), ordered, decremented));
+            }
+        }
+        held = List.copyOf(current.values());
+        discrepancyCounter.increment(confirmed.size() + report.discrepancyCount() - report.discrepancies().size());
+        return confirmed;
+    }
+
+    /**
+     * Splits the product ids of the window into ranges of about equal width. The first and last
+     * ranges are open-ended, so that products the inventory took stock for but no order asked
+     * for are compared as well.
+     */
+    private List<long[]> ranges(long minProductId, long maxProductId) {
+        List<long[]> ranges = new ArrayList<>();
+        long lower = Long.MIN_VALUE;
+        if (maxProductId >= minProductId) {
+            long width = Math.max(1, (maxProductId - minProductId + 1) / partitions);
+            for (int i = 1; i < partitions && minProductId + i * width <= maxProductId; i++) {
+                long upper = minProductId + i * width;
+                ranges.add(new long[]{lower, upper});
+                lower = upper;
+            }
+        }
+        ranges.add(new long[]{lower, Long.MAX_VALUE});
+        return ranges;
+    }
+
+    private Tally reconcileRange(Instant from, Instant to, long fromProductId, long toProductId) throws Exception {
+        // Cancels the inventory call, and with it the cursor on the inventory side, if the merge
+        // stops early.
+        Context.CancellableContext context = Context.current().withCancellation();
+        try {
+            return context.call(() -> readOnlyTransactions.execute(status -> {
+                Iterator<OrderDecrements> chunks = inventoryServiceStub
+                        .withDeadlineAfter(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                        .streamOrderDecrements(OrderDecrementsRequest.newBuilder()
+                                .setFromTime(from.toEpochMilli())
+                                .setToTime(to.toEpochMilli())
+                                .setFromProductId(fromProductId)
+                                .setToProductId(toProductId == Long.MAX_VALUE ? 0 : toProductId)
+                                .build());
+                try (Stream<ProductUnits> ordered = jdbcTemplate.queryForStream(connection -> {
+                    PreparedStatement statement = connection.prepareStatement("SELECT product_id, SUM(quantity) "
+                            + "FROM (" + CREATED_UNITS + ") u WHERE product_id >= ? AND product_id < ? "
+                            + "GROUP BY product_id ORDER BY product_id");
+                    statement.setFetchSize(fetchSize);
+                    Object[] parameters = timestamps(from, to);
+                    for (int i = 0; i < parameters.length; i++) {
+                        statement.setObject(i + 1, parameters[i]);
+                    }
+                    statement.setLong(parameters.length + 1, fromProductId);
+                    statement.setLong(parameters.length + 2, toProductId);
+                    return statement;
+                }, (row, rowNum) -> new ProductUnits(row.getLong(1), row.getLong(2)))) {
+                    return merge(ordered.iterator(), decrements(chunks));
+                }
+            }));
+        } finally {
+            context.cancel(null);
+        }
+    }
+
+    /**
+     * Merge-joins two sequences of units per product, both in product id order.
+     */
+    private Tally merge(Iterator<ProductUnits> ordered, Iterator<ProductUnits> decremented) {
+        Tally tally = new Tally();
+        ProductUnits order = ordered.hasNext() ? ordered.next() : null;
+        ProductUnits decrement = decremented.hasNext() ? decremented.next() : null;
+        while (order != null || decrement != null) {
+            if (decrement == null || (order != null && order.productId() < decrement.productId())) {
+                tally.compare(order.productId(), order.units(), 0, maxDiscrepancies);
+                order = ordered.hasNext() ? ordered.next() : null;
+            } else if (order == null || decrement.productId() < order.productId()) {
+                tally.compare(decrement.productId(), 0, decrement.units(), maxDiscrepancies);
+                decrement = decremented.hasNext() ? decremented.next() : null;
+            } else {
+                tally.compare(order.productId(), order.units(), decrement.units(), maxDiscrepancies);
+                order = ordered.hasNext() ? ordered.next() : null;
+                decrement = decremented.hasNext() ? decremented.next() : null;
+            }
+        }
+        return tally;
+    }
+
+    private static Iterator<ProductUnits> decrements(Iterator<OrderDecrements> chunks) {
+        return new Iterator<>() {
+            private Iterator<ProductDecrement> chunk = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!chunk.hasNext() && chunks.hasNext()) {
+                    chunk = chunks.next().getProductsList().iterator();
+                }
+                return chunk.hasNext();
+            }
+
+            @Override
+            public ProductUnits next() {
+                hasNext();
+                ProductDecrement decrement = chunk.next();
+                return new ProductUnits(decrement.getProductId(), decrement.getQuantity());
+            }
+        };
+    }
+
+    private static Object[] timestamps(Instant from, Instant to) {
+        Timestamp fromTime = Timestamp.from(from);
+        Timestamp toTime = Timestamp.from(to);
+        return new Object[]{fromTime, toTime, fromTime, toTime};
+    }
+
+    private record ProductUnits(long productId, long units) {
+    }
+
+    /**
+     * Counts of one or more product ranges; keeps the first discrepancies of each range.
+     */
+    private static final class Tally {
+        private long productsCompared;
+        private long orderedUnits;
+        private long decrementedUnits;
+        private long discrepancyCount;
+        private final List<Discrepancy> discrepancies = new ArrayList<>();
+
+        private void compare(long productId, long ordered, long decremented, int maxDiscrepancies) {
+            productsCompared++;
+            orderedUnits += ordered;
+            decrementedUnits += decremented;
+            if (ordered != decremented) {
+                discrepancyCount++;
+                if (discrepancies.size() < maxDiscrepancies) {
+                    discrepancies.add(new Discrepancy(productId, ordered, decremented));
+                }
+            }
+        }
+
+        private void add(Tally range) {
+            productsCompared += range.productsCompared;
+            orderedUnits += range.orderedUnits;
+            decrementedUnits += range.decrementedUnits;
+            discrepancyCount += range.discrepancyCount;
+            discrepancies.addAll(range.discrepancies);
+        }
+    }
+
+    /**
+     * A product whose ordered units differ from the stock the inventory took for orders.
+     *
+     * @param productId the id of the product
+     * @param orderedUnits the units of the CREATED orders
+     * @param decrementedUnits the stock the inventory took for orders and did not release
+     */
+    public record Discrepancy(long productId, long orderedUnits, long decrementedUnits) {
+    }
+
+    /**
+     * The outcome of reconciling a time window.
+     *
+     * @param from the start of the window, inclusive
+     * @param to the end of the window, exclusive
+     * @param productsCompared the number of products either side has units for
+     * @param orderedUnits the units of the CREATED orders with a product id
+     * @param decrementedUnits the stock the inventory took for orders and did not release
+     * @param discrepancyCount the number of products whose units differ
+     * @param discrepancies the products whose units differ, in product id order; at most the
+     *        configured maximum, so fewer than {@code discrepancyCount} if truncated
+     * @param unattributedUnits the units of CREATED orders without a product id, which cannot be
+     *        compared
+     */
+    public record Report(Instant from, Instant to, long productsCompared, long orderedUnits, long decrementedUnits,
+                         long discrepancyCount, List<Discrepancy> discrepancies, long unattributedUnits) {
+
+        /**
+         * Tells whether discrepancies were left out of the report.
+         *
+         * @return {@code true} if the report lists fewer discrepancies than it counts
+         */
+        public boolean truncated() {
+            return discrepancies.size() < discrepancyCount;
+        }
+    }
+}
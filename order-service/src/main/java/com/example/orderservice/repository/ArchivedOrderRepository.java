@@ -0,0 +1,17 @@
+package com.example.orderservice.repository;
+
+import com.example.orderservice.entity.ArchivedOrder;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface ArchivedOrderRepository extends JpaRepository<ArchivedOrder, Long> {
+
+    /**
+     * Returns the archived copy of an order.
+     *
+     * @param orderId the id the order had in the {@code orders} table
+     * @return the archived order, if it has been archived
+     */
+    Optional<ArchivedOrder> findByOrderId(Long orderId);
+}
@@ -1,7 +1,124 @@
 package com.example.orderservice.repository;
 
 import com.example.orderservice.entity.Order;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
+
+    /**
+     * Returns which of the given order references are already stored.
+     *
+     * @param references the order references to look for
+     * @return the references that exist
+     */
+    @Query("select o.reference from Order o where o.reference in :references")
+    List<String> findExistingReferences(@Param("references") Collection<String> references);
+
+    /**
+     * Returns which of the given order references are stored as CREATED.
+     *
+     * @param references the order references to look for
+     * @return the references of the created orders
+     */
+    @Query("select o.reference from Order o where o.reference in :references and o.status = 'CREATED'")
+    List<String> findCreatedReferences(@Param("references") Collection<String> references);
+
+    /**
+     * Returns the orders accepted at or after the given time, oldest first.
+     *
+     * @param since the earliest acceptance time to include
+     * @return the recent orders
+     */
+    List<Order> findByCreatedAtGreaterThanEqualOrderByCreatedAtAsc(Instant since);
+
+    /**
+     * Returns a page of the orders with one of the given statuses that were accepted before the
+     * given time, in id order.
+     *
+     * @param cutoff the acceptance time orders must be older than
+     * @param statuses the statuses to include
+     * @param pageable the page to return
+     * @return the matching orders
+     */
+    List<Order> findByCreatedAtBeforeAndStatusInOrderByIdAsc(Instant cutoff, Collection<String> statuses,
+                                                             Pageable pageable);
+
+    /**
+     * Counts the single-product orders and their quantities by product and status.
+     *
+     * @return the volume of each product and status
+     */
+    @Query("select new com.example.orderservice.repository.ProductVolume(o.product, o.productId, o.status, count(o), "
+            + "coalesce(sum(o.quantity), 0)) from Order o where o.items is empty group by o.product, o.productId, o.status")
+    List<ProductVolume> countSingleProductOrders();
+
+    /**
+     * Counts the line items of multi-product orders and their quantities by product and order
+     * status.
+     *
+     * @return the volume of each product and status
+     */
+    @Query("select new com.example.orderservice.repository.ProductVolume(i.product, i.productId, o.status, count(i), "
+            + "coalesce(sum(i.quantity), 0)) from Order o join o.items i group by i.product, i.productId, o.status")
+    List<ProductVolume> countOrderItems();
+
+    /**
+     * Counts the orders and their total quantities by status.
+     *
+     * @return the volume of each status
+     */
+    @Query("select new com.example.orderservice.repository.StatusVolume(o.status, count(o), coalesce(sum(o.quantity), 0)) "
+            + "from Order o group by o.status")
+    List<StatusVolume> countOrdersByStatus();
+
+    /**
+     * Counts the single-product orders accepted at or after the given time and their quantities
+     * by product, status and time bucket.
+     *
+     * @param since the earliest acceptance time to include
+     * @param bucketWidth the width of a bucket, in milliseconds
+     * @return the volume of each product, status and bucket
+     */
+    @Query("select new com.example.orderservice.repository.ProductBucketVolume(o.product, o.productId, o.status, "
+            + "cast(floor(extract(epoch from o.createdAt) * 1000 / :bucketWidth) as long) as bucket, count(o), "
+            + "coalesce(sum(o.quantity), 0)) from Order o where o.items is empty and o.createdAt >= :since "
+            + "group by o.product, o.productId, o.status, bucket")
+    List<ProductBucketVolume> countSingleProductOrdersByBucket(@Param("since") Instant since,
+                                                               @Param("bucketWidth") long bucketWidth);
+
+    /**
+     * Counts the line items of multi-product orders accepted at or after the given time and
+     * their quantities by product, order status and time bucket.
+     *
+     * @param since the earliest acceptance time to include
+     * @param bucketWidth the width of a bucket, in milliseconds
+     * @return the volume of each product, status and bucket
+     */
+    @Query("select new com.example.orderservice.repository.ProductBucketVolume(i.product, i.productId, o.status, "
+            + "cast(floor(extract(epoch from o.createdAt) * 1000 / :bucketWidth) as long) as bucket, count(i), "
+            + "coalesce(sum(i.quantity), 0)) from Order o join o.items i where o.createdAt >= :since "
+            + "group by i.product, i.productId, o.status, bucket")
+    List<ProductBucketVolume> countOrderItemsByBucket(@Param("since") Instant since,
+                                                      @Param("bucketWidth") long bucketWidth);
+
+    /**
+     * Counts the orders accepted at or after the given time and their total quantities by
+     * status and time bucket.
+     *
+     * @param since the earliest acceptance time to include
+     * @param bucketWidth the width of a bucket, in milliseconds
+     * @return the volume of each status and bucket
+     */
+    @Query("select new com.example.orderservice.repository.StatusBucketVolume(o.status, "
+            + "cast(floor(extract(epoch from o.createdAt) * 1000 / :bucketWidth) as long) as bucket, count(o), "
+            + "coalesce(sum(o.quantity), 0)) from Order o where o.createdAt >= :since group by o.status, bucket")
+    List<StatusBucketVolume> countOrdersByStatusAndBucket(@Param("since") Instant since,
+                                                          @Param("bucketWidth") long bucketWidth);
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.example.orderservice.repository;
+
+import com.example.orderservice.entity.PendingCompensation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface PendingCompensationRepository extends JpaRepository<PendingCompensation, String> {
+
+    /**
+     * Returns a page of the compensations that are due, the longest due first.
+     *
+     * @param now the current time
+     * @param pageable the page to return
+     * @return the due compensations
+     */
+    List<PendingCompensation> findByDueAtLessThanEqualOrderByDueAtAsc(Instant now, Pageable pageable);
+
+    /**
+     * Moves the due time of a compensation.
+     *
+     * @param orderRef the order reference
+     * @param dueAt the new due time
+     * @return the number of compensations updated, 0 or 1
+     */
+    @Transactional
+    @Modifying
+    @Query("update PendingCompensation c set c.dueAt = :dueAt where c.orderRef = :orderRef")
+    int reschedule(@Param("orderRef") String orderRef, @Param("dueAt") Instant dueAt);
+
+    /**
+     * Removes the compensations of the given orders.
+     *
+     * @param orderRefs the order references
+     * @return the number of compensations removed
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from PendingCompensation c where c.orderRef in :orderRefs")
+    int deleteByOrderRefs(@Param("orderRefs") Collection<String> orderRefs);
+}
@@ -0,0 +1,17 @@
+package com.example.orderservice.repository;
+
+/**
+ * Number of orders and ordered quantity of one product with one order status, in one time
+ * bucket.
+ *
+ * @param product the product name, if the orders named it
+ * @param productId the product id, if the orders identified it by id
+ * @param status the order status
+ * @param bucket the bucket the orders were accepted in, as the number of bucket widths since the
+ *               epoch
+ * @param orders the number of orders
+ * @param quantity the total quantity ordered
+ */
+public record ProductBucketVolume(String product, Long productId, String status, long bucket, long orders,
+                                  long quantity) {
+}
@@ -0,0 +1,13 @@
+package com.example.orderservice.repository;
+
+/**
+ * Number of orders and ordered quantity of one product with one order status.
+ *
+ * @param product the product name, if the orders named it
+ * @param productId the product id, if the orders identified it by id
+ * @param status the order status
+ * @param orders the number of orders
+ * @param quantity the total quantity ordered
+ */
+public record ProductVolume(String product, Long productId, String status, long orders, long quantity) {
+}
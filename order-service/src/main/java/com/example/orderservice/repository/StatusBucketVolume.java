@@ -0,0 +1,13 @@
+package com.example.orderservice.repository;
+
+/**
+ * Number of orders and ordered quantity with one order status, in one time bucket.
+ *
+ * @param status the order status
+ * @param bucket the bucket the orders were accepted in, as the number of bucket widths since the
+ *               epoch
+ * @param orders the number of orders
+ * @param quantity the total quantity ordered
+ */
+public record StatusBucketVolume(String status, long bucket, long orders, long quantity) {
+}
@@ -0,0 +1,11 @@
+package com.example.orderservice.repository;
+
+/**
+ * Number of orders and ordered quantity with one order status.
+ *
+ * @param status the order status
+ * @param orders the number of orders
+ * @param quantity the total quantity ordered
+ */
+public record StatusVolume(String status, long orders, long quantity) {
+}
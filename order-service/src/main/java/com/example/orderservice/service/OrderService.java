@@ -1,84 +1,331 @@
 package com.example.orderservice.service;
 
 import com.example.inventoryservice.grpc.InventoryServiceGrpc;
+import com.example.inventoryservice.grpc.ReserveStockRequest;
+import com.example.inventoryservice.grpc.StockItem;
 import com.example.inventoryservice.grpc.StockRequest;
 import com.example.inventoryservice.grpc.UpdateStockRequest;
+import com.example.orderservice.compensation.CompensationQueue;
+import com.example.orderservice.config.OrderStatsProperties;
 import com.example.orderservice.entity.Order;
+import com.example.orderservice.entity.OrderItem;
+import com.example.orderservice.entity.OrderPriority;
 import com.example.orderservice.repository.OrderRepository;
+import com.example.orderservice.wal.OrderWriteAheadLog;
 import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 @Service
 public class OrderService {
     private final OrderRepository orderRepository;
+    private final ProductIdCache productIdCache;
+    private final PriorityLaneExecutor priorityLanes;
+    private final OrderWriteAheadLog orderWriteAheadLog;
+    private final OrderStatistics orderStatistics;
+    private final ResourceVersion ordersVersion;
+    private final CompensationQueue compensationQueue;
 
     @GrpcClient("inventory-service")
     private InventoryServiceGrpc.InventoryServiceBlockingStub inventoryServiceStub;
 
     public OrderService(OrderRepository orderRepository) {
+        this(orderRepository, new ProductIdCache(ProductIdCache.DEFAULT_MAX_ENTRIES),
+                PriorityLaneExecutor.callerRuns(new SimpleMeterRegistry()));
+    }
+
+    public OrderService(OrderRepository orderRepository, ProductIdCache productIdCache,
+                        PriorityLaneExecutor priorityLanes) {
+        this(orderRepository, productIdCache, priorityLanes, null,
+                new OrderStatistics(new OrderStatsProperties()), new ResourceVersion(), null);
+    }
+
+    /**
+     * Creates the service. With an {@link OrderWriteAheadLog}, accepted orders are durable once
+     * they are in the log, and reach the {@code orders} table asynchronously.
+     *
+     * @param orderRepository the order repository
+     * @param productIdCache the cache of product ids by name
+     * @param priorityLanes the executor orders are processed on
+     * @param orderWriteAheadLog the order write-ahead log, or {@code null} to commit orders to the database
+     * @param orderStatistics the statistics every stored order is counted in
+     * @param ordersVersion the version of the order list, incremented whenever an order is
+     *                      committed to the database
+     * @param compensationQueue the queue orders record their intent to take stock in, or
+     *                          {@code null} to never release stock
+     */
+    @Autowired
+    public OrderService(OrderRepository orderRepository, ProductIdCache productIdCache,
+                        PriorityLaneExecutor priorityLanes, @Nullable OrderWriteAheadLog orderWriteAheadLog,
+                        OrderStatistics orderStatistics, ResourceVersion ordersVersion,
+                        @Nullable CompensationQueue compensationQueue) {
         this.orderRepository = orderRepository;
+        this.productIdCache = productIdCache;
+        this.priorityLanes = priorityLanes;
+        this.orderWriteAheadLog = orderWriteAheadLog;
+        this.orderStatistics = orderStatistics;
+        this.ordersVersion = ordersVersion;
+        this.compensationQueue = compensationQueue;
     }
 
     /**
      * Creates a new order by checking the stock for the given product and quantity, updating the stock if the product is available, and saving the order to the database.
      * If the product is not available or the stock update fails, the order is marked as REJECTED and an exception is thrown.
+     * Orders with line items are reserved all-or-nothing with a single inventory call instead.
+     * Products are sent to the inventory by id when the id is known, either from the order or
+     * from the {@link ProductIdCache}, and by name otherwise.
+     * The order is processed in the {@link PriorityLaneExecutor} lane of its priority.
+     * With a {@link CompensationQueue}, the order records its intent before it takes stock,
+     * and the stock is released if the order cannot be stored or the inventory call fails.
      *
-     * @param order the order to be created, which should contain a product and quantity
+     * @param order the order to be created, which should contain a product and quantity, or line items
      * @return the created order
      * @throws IllegalArgumentException if the order details are invalid
+     * @throws java.util.concurrent.RejectedExecutionException if the order's lane is full
      * @throws RuntimeException if the stock check or update fails
      */
     public Order createOrder(Order order) {
-        if (order == null || order.getProduct() == null || order.getQuantity() <= 0) {
+        OrderPriority priority = order != null && order.getPriority() != null
+                ? order.getPriority() : OrderPriority.INTERACTIVE;
+        return priorityLanes.execute(priority, () -> processOrder(order));
+    }
+
+    private Order processOrder(Order order) {
+        if (order == null || !hasValidDetails(order)) {
             order = new Order();
             order.setStatus("REJECTED");
-            orderRepository.save(order);
+            save(order);
             throw new IllegalArgumentException("Invalid order details");
         }
 
+        order.setReference(UUID.randomUUID().toString());
+        if (hasItems(order)) {
+            return createMultiProductOrder(order);
+        }
+
+        resolveProductId(order);
         try {
-            StockRequest stockRequest = StockRequest.newBuilder()
-                    .setProduct(order.getProduct())
-                    .setQuantity(order.getQuantity())
-                    .build();
+            StockRequest.Builder stockRequest = StockRequest.newBuilder()
+                    .setQuantity(order.getQuantity());
+            if (order.getProductId() != null) {
+                stockRequest.setProductId(order.getProductId());
+            } else {
+                stockRequest.setProduct(order.getProduct());
+            }
 
-            var stockResponse = inventoryServiceStub.checkStock(stockRequest);
+            var stockResponse = inventoryServiceStub.checkStock(stockRequest.build());
+            if (order.getProductId() == null && stockResponse.getProductId() != 0) {
+                order.setProductId(stockResponse.getProductId());
+                productIdCache.put(order.getProduct(), stockResponse.getProductId());
+            }
 
             if (stockResponse.getAvailable()) {
-                UpdateStockRequest updateRequest = UpdateStockRequest.newBuilder()
-                        .setProduct(order.getProduct())
-                        .setQuantity(order.getQuantity())
-                        .build();
-                var updateResponse = inventoryServiceStub.updateStock(updateRequest);
+                UpdateStockRequest.Builder updateRequest = UpdateStockRequest.newBuilder()
+                        .setQuantity(order.getQuantity());
+                if (order.getProductId() != null) {
+                    updateRequest.setProductId(order.getProductId());
+                } else {
+                    updateRequest.setProduct(order.getProduct());
+                }
+                recordIntent(order, updateRequest::setOrderRef);
+                var updateResponse = inventoryServiceStub.updateStock(updateRequest.build());
 
                 if (updateResponse.getAvailable()) {
                     order.setStatus("CREATED");
-                    return orderRepository.save(order);
+                    return saveHoldingStock(order);
                 } else {
+                    discard(order);
                     order.setStatus("REJECTED");
-                    orderRepository.save(order);
+                    save(order);
                     throw new RuntimeException("Failed to update stock: " + updateResponse.getMessage());
                 }
             } else {
                 order.setStatus("REJECTED");
-                return orderRepository.save(order);
+                return save(order);
             }
         } catch (StatusRuntimeException e) {
+            requestRelease(order);
             order.setStatus("REJECTED");
-            orderRepository.save(order);
+            save(order);
             throw new RuntimeException("gRPC error: " + e.getStatus().getDescription());
         }
     }
 
     /**
-     * Retrieves all orders from the database.
+     * Reserves all line items of an order through one inventory call and saves the order
+     * together with its items. The order is CREATED only if every item could be reserved.
+     *
+     * @param order the validated order with line items
+     * @return the saved order
+     * @throws RuntimeException if the reservation call fails
+     */
+    private Order createMultiProductOrder(Order order) {
+        ReserveStockRequest.Builder reserveRequest = ReserveStockRequest.newBuilder();
+        int totalQuantity = 0;
+        for (OrderItem item : order.getItems()) {
+            if (item.getProductId() == null) {
+                item.setProductId(productIdCache.get(item.getProduct()));
+            }
+            StockItem.Builder stockItem = StockItem.newBuilder().setQuantity(item.getQuantity());
+            if (item.getProductId() != null) {
+                stockItem.setProductId(item.getProductId());
+            }
+            if (item.getProduct() != null) {
+                stockItem.setProduct(item.getProduct());
+            }
+            reserveRequest.addItems(stockItem);
+            totalQuantity += item.getQuantity();
+        }
+        order.setQuantity(totalQuantity);
+
+        try {
+            recordIntent(order, reserveRequest::setOrderRef);
+            var reserveResponse = inventoryServiceStub.reserveStock(reserveRequest.build());
+            if (reserveResponse.getReserved()) {
+                order.setStatus("CREATED");
+                return saveHoldingStock(order);
+            }
+            discard(order);
+            order.setStatus("REJECTED");
+            return save(order);
+        } catch (StatusRuntimeException e) {
+            requestRelease(order);
+            order.setStatus("REJECTED");
+            save(order);
+            throw new RuntimeException("gRPC error: " + e.getStatus().getDescription());
+        }
+    }
+
+    /**
+     * Records that the order is about to take stock, and tags its inventory request with the
+     * order reference so that the stock can be released.
+     */
+    private void recordIntent(Order order, Consumer<String> orderRef) {
+        if (compensationQueue != null) {
+            compensationQueue.recordIntent(order.getReference());
+            orderRef.accept(order.getReference());
+        }
+    }
+
+    private void requestRelease(Order order) {
+        if (compensationQueue != null) {
+            compensationQueue.requestRelease(order.getReference());
+        }
+    }
+
+    private void discard(Order order) {
+        if (compensationQueue != null) {
+            compensationQueue.discard(order.getReference());
+        }
+    }
+
+    /**
+     * Stores an order that has taken stock, releasing the stock if the order cannot be stored.
+     */
+    private Order saveHoldingStock(Order order) {
+        Order saved;
+        try {
+            saved = save(order);
+        } catch (RuntimeException e) {
+            requestRelease(order);
+            throw e;
+        }
+        discard(order);
+        return saved;
+    }
+
+    /**
+     * Stores an order, under a new reference unless it has one, in the write-ahead log if there
+     * is one and in the database otherwise, and counts it in the order statistics. The
+     * write-ahead log increments the version of the order list itself once the order reaches the
+     * database.
+     */
+    private Order save(Order order) {
+        if (order.getReference() == null) {
+            order.setReference(UUID.randomUUID().toString());
+        }
+        order.setCreatedAt(Instant.now());
+        Order saved;
+        if (orderWriteAheadLog != null) {
+            saved = orderWriteAheadLog.append(order);
+        } else {
+            saved = orderRepository.save(order);
+            ordersVersion.increment();
+        }
+        orderStatistics.record(order);
+        return saved;
+    }
+
+    private void resolveProductId(Order order) {
+        if (order.getProductId() == null) {
+            order.setProductId(productIdCache.get(order.getProduct()));
+        }
+    }
+
+    private static boolean hasItems(Order order) {
+        return order.getItems() != null && !order.getItems().isEmpty();
+    }
+
+    private static boolean hasValidDetails(Order order) {
+        if (!hasItems(order)) {
+            return (order.getProduct() != null || order.getProductId() != null) && order.getQuantity() > 0;
+        }
+        for (OrderItem item : order.getItems()) {
+            if (item == null || (item.getProduct() == null && item.getProductId() == null) || item.getQuantity() <= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Retrieves all orders from the database that have not been archived.
      *
      * @return list of all orders
      */
+    @Transactional(readOnly = true)
     public List<Order> getAllOrders() {
         return orderRepository.findAll();
     }
+
+    /**
+     * Returns the validators of the current version of the order list. Take them before
+     * reading the list with {@link #getAllOrders()}.
+     *
+     * @return the current version of the order list
+     */
+    public ResourceVersion.Tag getOrdersVersion() {
+        return ordersVersion.current();
+    }
+
+    /**
+     * Retrieves the orders accepted at or after the given time, oldest first. Only the live
+     * partitions of the {@code orders} table that can contain such orders are scanned.
+     *
+     * @param since the earliest acceptance time to include
+     * @return list of recent orders
+     */
+    @Transactional(readOnly = true)
+    public List<Order> getOrdersSince(Instant since) {
+        return orderRepository.findByCreatedAtGreaterThanEqualOrderByCreatedAtAsc(since);
+    }
+
+    /**
+     * Returns the order counts and quantities by product and by status, in total and over the
+     * configured sliding windows.
+     *
+     * @return the current order statistics
+     */
+    public OrderStatistics.Snapshot getStatistics() {
+        return orderStatistics.snapshot();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,275 @@
+package com.example.orderservice.service;
+
+import com.example.orderservice.config.OrderStatsProperties;
+import com.example.orderservice.entity.Order;
+import com.example.orderservice.entity.OrderItem;
+import com.example.orderservice.repository.OrderRepository;
+import com.example.orderservice.repository.ProductBucketVolume;
+import com.example.orderservice.repository.ProductVolume;
+import com.example.orderservice.repository.StatusBucketVolume;
+import com.example.orderservice.repository.StatusVolume;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Order counts and quantities by product and by status, kept in memory and updated as orders
+ * are stored, so that reading them costs O(products) instead of a scan of the {@code orders}
+ * table.
+ * <p>
+ * Each counter is a pair of {@link LongAdder}s for the totals plus a ring of time buckets for
+ * the sliding windows; a bucket is reset by the first order that falls into it after the ring
+ * has wrapped. {@link #reconcile(OrderRepository)} seeds the totals and the buckets of the
+ * longest window with aggregate queries, so restarts do not reset the statistics. Products are
+ * keyed by name, or by id for orders that only carry an id; line items of multi-product orders
+ * count towards their own products.
+ * <p>
+ * Only the orders stored by this instance are counted as they are stored. With several
+ * instances, the statistics are reconciled periodically, every
+ * {@code order.stats.reconcile-interval}, which replaces the counters with freshly seeded ones,
+ * so the orders of other instances show up within that interval. Orders stored while a
+ * reconciliation runs may be missed or counted twice until the next one.
+ */
+public class OrderStatistics {
+    private static final String UNKNOWN = "UNKNOWN";
+
+    private final long bucketWidthMillis;
+    private final int bucketCount;
+    private final Map<String, Integer> windowBuckets = new LinkedHashMap<>();
+    private final LongSupplier clock;
+    private volatile Counts counts = new Counts();
+
+    public OrderStatistics(OrderStatsProperties properties) {
+        this(properties, System::currentTimeMillis);
+    }
+
+    OrderStatistics(OrderStatsProperties properties, LongSupplier clock) {
+        this.bucketWidthMillis = properties.getBucketWidth().toMillis();
+        int longest = 1;
+        for (Duration window : properties.getWindows()) {
+            int buckets = (int) Math.max(1, (window.toMillis() + bucketWidthMillis - 1) / bucketWidthMillis);
+            windowBuckets.put(label(window), buckets);
+            longest = Math.max(longest, buckets);
+        }
+        this.bucketCount = longest;
+        this.clock = clock;
+    }
+
+    /**
+     * Counts a stored order, now.
+     *
+     * @param order the order
+     */
+    public void record(Order order) {
+        record(order, clock.getAsLong() / bucketWidthMillis, true);
+    }
+
+    /**
+     * Counts an order stored from a replayed write-ahead log, in the bucket of its acceptance
+     * time. Such orders were counted by the instance that accepted them, which is gone.
+     *
+     * @param order the order, with its acceptance time
+     */
+    public void recordReplayed(Order order) {
+        record(order, order.getCreatedAt().toEpochMilli() / bucketWidthMillis, true);
+    }
+
+    /**
+     * Seeds the statistics from the orders stored in the database, replacing the counts kept so
+     * far. Called on startup, before any order is recorded, and then periodically.
+     *
+     * @param orderRepository the repository to read the orders from
+     */
+    public void reconcile(OrderRepository orderRepository) {
+        long currentBucket = clock.getAsLong() / bucketWidthMillis;
+        Instant since = Instant.ofEpochMilli((currentBucket - bucketCount + 1) * bucketWidthMillis);
+        Counts seeded = new Counts();
+        for (ProductVolume volume : orderRepository.countSingleProductOrders()) {
+            seeded.product(productKey(volume.product(), volume.productId()), volume.status())
+                    .addTotal(volume.orders(), volume.quantity());
+        }
+        for (ProductVolume volume : orderRepository.countOrderItems()) {
+            seeded.product(productKey(volume.product(), volume.productId()), volume.status())
+                    .addTotal(volume.orders(), volume.quantity());
+        }
+        for (StatusVolume volume : orderRepository.countOrdersByStatus()) {
+            seeded.status(volume.status()).addTotal(volume.orders(), volume.quantity());
+        }
+        for (ProductBucketVolume volume : orderRepository.countSingleProductOrdersByBucket(since, bucketWidthMillis)) {
+            seeded.product(productKey(volume.product(), volume.productId()), volume.status())
+                    .add(volume.bucket(), volume.orders(), volume.quantity(), false);
+        }
+        for (ProductBucketVolume volume : orderRepository.countOrderItemsByBucket(since, bucketWidthMillis)) {
+            seeded.product(productKey(volume.product(), volume.productId()), volume.status())
+                    .add(volume.bucket(), volume.orders(), volume.quantity(), false);
+        }
+        for (StatusBucketVolume volume : orderRepository.countOrdersByStatusAndBucket(since, bucketWidthMillis)) {
+            seeded.status(volume.status()).add(volume.bucket(), volume.orders(), volume.quantity(), false);
+        }
+        counts = seeded;
+    }
+
+    /**
+     * Returns the current statistics.
+     *
+     * @return the totals and windowed counts by product and by status
+     */
+    public Snapshot snapshot() {
+        long currentBucket = clock.getAsLong() / bucketWidthMillis;
+        Counts current = counts;
+        Map<String, Stats> statuses = new TreeMap<>();
+        current.statuses.forEach((status, counters) -> statuses.put(status, counters.stats(currentBucket)));
+        Map<String, Map<String, Stats>> products = new TreeMap<>();
+        current.products.forEach((product, byStatus) -> {
+            Map<String, Stats> stats = new TreeMap<>();
+            byStatus.forEach((status, counters) -> stats.put(status, counters.stats(currentBucket)));
+            products.put(product, stats);
+        });
+        return new Snapshot(statuses, products);
+    }
+
+    private void record(Order order, long bucket, boolean total) {
+        Counts current = counts;
+        String status = order.getStatus();
+        current.status(status).add(bucket, 1, order.getQuantity(), total);
+        if (order.getItems() != null && !order.getItems().isEmpty()) {
+            for (OrderItem item : order.getItems()) {
+                current.product(productKey(item.getProduct(), item.getProductId()), status)
+                        .add(bucket, 1, item.getQuantity(), total);
+            }
+        } else {
+            current.product(productKey(order.getProduct(), order.getProductId()), status)
+                    .add(bucket, 1, order.getQuantity(), total);
+        }
+    }
+
+    private static String productKey(String product, Long productId) {
+        if (product != null) {
+            return product;
+        }
+        return productId != null ? "#" + productId : UNKNOWN;
+    }
+
+    private static String label(Duration window) {
+        long seconds = window.getSeconds();
+        if (seconds > 0 && seconds % 3600 == 0) {
+            return seconds / 3600 + "h";
+        }
+        if (seconds > 0 && seconds % 60 == 0) {
+            return seconds / 60 + "m";
+        }
+        return seconds + "s";
+    }
+
+    /**
+     * Order statistics at one point in time.
+     *
+     * @param statuses the statistics of each order status
+     * @param products the statistics of each product, by order status
+     */
+    public record Snapshot(Map<String, Stats> statuses, Map<String, Map<String, Stats>> products) {
+    }
+
+    /**
+     * Totals and sliding-window counts of one product or status.
+     *
+     * @param total the orders and quantity since the service's data began
+     * @param windows the orders and quantity in each sliding window, by window length
+     */
+    public record Stats(Volume total, Map<String, Volume> windows) {
+    }
+
+    /**
+     * Number of orders and the quantity they ordered.
+     *
+     * @param orders the number of orders
+     * @param quantity the total quantity ordered
+     */
+    public record Volume(long orders, long quantity) {
+    }
+
+    /**
+     * The counters of all products and statuses, replaced as a whole by a reconciliation.
+     */
+    private final class Counts {
+        private final ConcurrentMap<String, ConcurrentMap<String, Counters>> products = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, Counters> statuses = new ConcurrentHashMap<>();
+
+        Counters product(String product, String status) {
+            return products.computeIfAbsent(product, key -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(status != null ? status : UNKNOWN, key -> new Counters());
+        }
+
+        Counters status(String status) {
+            return statuses.computeIfAbsent(status != null ? status : UNKNOWN, key -> new Counters());
+        }
+    }
+
+    private final class Counters {
+        private final LongAdder orders = new LongAdder();
+        private final LongAdder quantity = new LongAdder();
+        private final Bucket[] buckets = new Bucket[bucketCount];
+
+        Counters() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new Bucket();
+            }
+        }
+
+        void addTotal(long orderCount, long orderQuantity) {
+            orders.add(orderCount);
+            quantity.add(orderQuantity);
+        }
+
+        void add(long epoch, long orderCount, long orderQuantity, boolean total) {
+            if (total) {
+                addTotal(orderCount, orderQuantity);
+            }
+            Bucket bucket = buckets[(int) Math.floorMod(epoch, (long) buckets.length)];
+            if (bucket.epoch != epoch) {
+                synchronized (bucket) {
+                    if (bucket.epoch > epoch) {
+                        return;
+                    }
+                    if (bucket.epoch < epoch) {
+                        bucket.orders.reset();
+                        bucket.quantity.reset();
+                        bucket.epoch = epoch;
+                    }
+                }
+            }
+            bucket.orders.add(orderCount);
+            bucket.quantity.add(orderQuantity);
+        }
+
+        Stats stats(long currentEpoch) {
+            Map<String, Volume> windows = new LinkedHashMap<>();
+            windowBuckets.forEach((label, count) -> {
+                long orderCount = 0;
+                long orderQuantity = 0;
+                for (Bucket bucket : buckets) {
+                    long epoch = bucket.epoch;
+                    if (epoch <= currentEpoch && epoch > currentEpoch - count) {
+                        orderCount += bucket.orders.sum();
+                        orderQuantity += bucket.quantity.sum();
+                    }
+                }
+                windows.put(label, new Volume(orderCount, orderQuantity));
+            });
+            return new Stats(new Volume(orders.sum(), quantity.sum()), windows);
+        }
+    }
+
+    private static final class Bucket {
+        private final LongAdder orders = new LongAdder();
+        private final LongAdder quantity = new LongAdder();
+        private volatile long epoch = Long.MIN_VALUE;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.orderservice.service;
+
+import com.example.orderservice.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reconciles the {@link OrderStatistics} with the {@code orders} table at a fixed interval, so
+ * that they include the orders stored by other instances. The job runs on a single background
+ * thread.
+ */
+public class OrderStatisticsReconciler {
+    private static final Logger log = LoggerFactory.getLogger(OrderStatisticsReconciler.class);
+
+    private final OrderStatistics orderStatistics;
+    private final OrderRepository orderRepository;
+    private final Duration interval;
+    private ScheduledExecutorService scheduler;
+
+    public OrderStatisticsReconciler(OrderStatistics orderStatistics, OrderRepository orderRepository,
+                                     Duration interval) {
+        this.orderStatistics = orderStatistics;
+        this.orderRepository = orderRepository;
+        this.interval = interval;
+    }
+
+    /**
+     * Starts reconciling the statistics at the configured interval.
+     */
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-stats-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::run, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops reconciling the statistics.
+     */
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Reconciles the statistics once. Failures are logged and retried on the next run.
+     */
+    public void run() {
+        try {
+            orderStatistics.reconcile(orderRepository);
+        } catch (RuntimeException e) {
+            log.warn("Order statistics reconciliation failed, retrying on the next run: {}", e.getMessage());
+        }
+    }
+}
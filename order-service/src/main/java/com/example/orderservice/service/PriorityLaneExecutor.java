@@ -0,0 +1,225 @@
+package com.example.orderservice.service;
+
+import com.example.orderservice.config.PriorityLaneProperties;
+import com.example.orderservice.entity.OrderPriority;
+import io.grpc.Context;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Runs order creations on a shared pool of workers fed from one bounded queue per
+ * {@link OrderPriority}.
+ * <p>
+ * A free worker picks the next lane by smooth weighted round robin among the lanes that have work
+ * queued and are below their concurrency cap, so with weights 8:1 a saturated batch lane gets one
+ * worker turn for every eight interactive ones, and all of them while no interactive order waits.
+ * A lane whose queue is full rejects new orders instead of letting latency grow without bound.
+ */
+public class PriorityLaneExecutor {
+    private final Map<OrderPriority, Lane> lanes = new EnumMap<>(OrderPriority.class);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final List<Thread> workers = new ArrayList<>();
+    private final Counter rejected;
+    private boolean shutdown;
+
+    public PriorityLaneExecutor(PriorityLaneProperties properties, MeterRegistry meterRegistry) {
+        int workerCount = properties.getWorkers();
+        addLane(OrderPriority.INTERACTIVE, properties.getInteractive(), workerCount, meterRegistry);
+        addLane(OrderPriority.BATCH, properties.getBatch(), workerCount, meterRegistry);
+        this.rejected = meterRegistry.counter("order.lanes.rejected");
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::runWorker, "order-lane-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Creates an executor without workers that runs every order on the calling thread.
+     *
+     * @param meterRegistry the registry for lane metrics
+     * @return the caller-runs executor
+     */
+    public static PriorityLaneExecutor callerRuns(MeterRegistry meterRegistry) {
+        PriorityLaneProperties properties = new PriorityLaneProperties();
+        properties.setWorkers(0);
+        return new PriorityLaneExecutor(properties, meterRegistry);
+    }
+
+    /**
+     * Runs the task in the lane of the given priority and waits for its result. The caller's
+     * gRPC context, and with it any deadline, is carried over to the worker.
+     *
+     * @param priority the lane to run the task in
+     * @param task the task to run
+     * @param <T> the result type
+     * @return the task's result
+     * @throws RejectedExecutionException if the lane's queue is full
+     * @throws RuntimeException any exception thrown by the task
+     */
+    public <T> T execute(OrderPriority priority, Supplier<T> task) {
+        if (workers.isEmpty()) {
+            return task.get();
+        }
+        FutureTask<T> future = new FutureTask<>(Context.current().wrap(task::get));
+        enqueue(lanes.get(priority), future);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for order processing", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Stops the workers after the orders they are processing; queued orders are cancelled.
+     */
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            for (Lane lane : lanes.values()) {
+                lane.queue.forEach(task -> task.cancel(false));
+                lane.queue.clear();
+            }
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int queued(OrderPriority priority) {
+        lock.lock();
+        try {
+            return lanes.get(priority).queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void addLane(OrderPriority priority, PriorityLaneProperties.Lane settings, int workerCount,
+                         MeterRegistry meterRegistry) {
+        int maxConcurrency = settings.getMaxConcurrency() > 0
+                ? Math.min(settings.getMaxConcurrency(), workerCount) : workerCount;
+        Lane lane = new Lane(priority, Math.max(1, settings.getWeight()), settings.getQueueCapacity(), maxConcurrency);
+        lanes.put(priority, lane);
+        Gauge.builder("order.lanes.queued", lane.queue, ArrayDeque::size)
+                .tag("lane", priority.name().toLowerCase())
+                .register(meterRegistry);
+    }
+
+    private void enqueue(Lane lane, FutureTask<?> task) {
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new RejectedExecutionException("Order processing is shutting down");
+            }
+            if (lane.queue.size() >= lane.queueCapacity) {
+                rejected.increment();
+                throw new RejectedExecutionException("Order lane " + lane.priority + " is full");
+            }
+            lane.queue.add(task);
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runWorker() {
+        while (true) {
+            Lane lane;
+            FutureTask<?> task;
+            lock.lock();
+            try {
+                while ((lane = nextLane()) == null) {
+                    if (shutdown) {
+                        return;
+                    }
+                    workAvailable.await();
+                }
+                task = lane.queue.poll();
+                lane.running++;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                task.run();
+            } finally {
+                lock.lock();
+                try {
+                    lane.running--;
+                    workAvailable.signal();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Picks the lane to serve next by smooth weighted round robin. Must be called with the lock held.
+     */
+    private Lane nextLane() {
+        Lane selected = null;
+        int totalWeight = 0;
+        for (Lane lane : lanes.values()) {
+            if (lane.queue.isEmpty() || lane.running >= lane.maxConcurrency) {
+                continue;
+            }
+            lane.currentWeight += lane.weight;
+            totalWeight += lane.weight;
+            if (selected == null || lane.currentWeight > selected.currentWeight) {
+                selected = lane;
+            }
+        }
+        if (selected != null) {
+            selected.currentWeight -= totalWeight;
+        }
+        return selected;
+    }
+
+    private static final class Lane {
+        private final OrderPriority priority;
+        private final int weight;
+        private final int queueCapacity;
+        private final int maxConcurrency;
+        private final ArrayDeque<FutureTask<?>> queue = new ArrayDeque<>();
+        private int running;
+        private int currentWeight;
+
+        Lane(OrderPriority priority, int weight, int queueCapacity, int maxConcurrency) {
+            this.priority = priority;
+            this.weight = weight;
+            this.queueCapacity = queueCapacity;
+            this.maxConcurrency = maxConcurrency;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.orderservice.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches the inventory product id for each product name seen by this service, so that
+ * inventory calls can identify products by primary key instead of by name.
+ * <p>
+ * Product ids never change, so entries are never invalidated. The cache stops accepting new
+ * names once it holds {@code order.product-id-cache.max-entries} entries; unknown names then
+ * simply keep using the name based protocol.
+ */
+@Component
+public class ProductIdCache {
+    static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+    private final ConcurrentMap<String, Long> idsByName = new ConcurrentHashMap<>();
+    private final int maxEntries;
+
+    public ProductIdCache(@Value("${order.product-id-cache.max-entries:100000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the cached id of a product.
+     *
+     * @param productName the name of the product
+     * @return the product id, or {@code null} if it is not known yet
+     */
+    public Long get(String productName) {
+        return productName != null ? idsByName.get(productName) : null;
+    }
+
+    /**
+     * Records the id of a product, unless the cache is full.
+     *
+     * @param productName the name of the product
+     * @param productId the id of the product
+     */
+    public void put(String productName, long productId) {
+        if (productName != null && productId != 0 && idsByName.size() < maxEntries) {
+            idsByName.putIfAbsent(productName, productId);
+        }
+    }
+}
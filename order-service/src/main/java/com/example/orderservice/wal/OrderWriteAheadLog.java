@@ -0,0 +1,197 @@
+package com.example.orderservice.wal;
+
+import com.example.orderservice.entity.Order;
+import com.example.orderservice.repository.OrderRepository;
+import com.example.orderservice.service.OrderStatistics;
+import com.example.orderservice.service.ResourceVersion;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Makes accepted orders durable in a local {@link WriteAheadLog} and copies them into the
+ * {@code orders} table asynchronously, so that accepting an order costs an fsync shared with
+ * concurrent orders instead of a database commit.
+ * <p>
+ * A replicator thread stores the logged orders in batches. Orders are identified by their
+ * reference, so replicating an order twice, e.g. when the log is replayed on startup after a
+ * crash, stores it once. Segments of the log whose orders have all been stored are deleted.
+ * Until an order has been replicated it is not visible in {@code orders}, and it has no id;
+ * the version of the order list is incremented once it is. Orders replayed on startup that
+ * were not stored yet are counted in the {@link OrderStatistics} once they are, as the instance
+ * that counted them is gone.
+ */
+public class OrderWriteAheadLog {
+    private static final Logger log = LoggerFactory.getLogger(OrderWriteAheadLog.class);
+
+    private final WriteAheadLog writeAheadLog;
+    private final OrderRepository orderRepository;
+    private final TransactionOperations transactionOperations;
+    private final ObjectMapper objectMapper;
+    private final ResourceVersion ordersVersion;
+    private final OrderStatistics orderStatistics;
+    private final int batchSize;
+    private final long retryBackoffNanos;
+    private final BlockingQueue<LoggedOrder> unreplicated = new LinkedBlockingQueue<>();
+    private final NavigableSet<Long> outstanding = new ConcurrentSkipListSet<>();
+    private Thread replicator;
+    private volatile boolean running;
+
+    public OrderWriteAheadLog(WriteAheadLog writeAheadLog, OrderRepository orderRepository,
+                              TransactionOperations transactionOperations, ObjectMapper objectMapper,
+                              ResourceVersion ordersVersion, OrderStatistics orderStatistics, int batchSize,
+                              Duration retryBackoff) {
+        this.writeAheadLog = writeAheadLog;
+        this.orderRepository = orderRepository;
+        this.transactionOperations = transactionOperations;
+        this.objectMapper = objectMapper.copy().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.ordersVersion = ordersVersion;
+        this.orderStatistics = orderStatistics;
+        this.batchSize = batchSize;
+        this.retryBackoffNanos = retryBackoff.toNanos();
+    }
+
+    /**
+     * Recovers the log, queues every order in it for replication and starts the replicator.
+     */
+    public void start() {
+        writeAheadLog.recover((lsn, payload) -> {
+            outstanding.add(lsn);
+            unreplicated.add(new LoggedOrder(lsn, payload, true));
+        });
+        if (!unreplicated.isEmpty()) {
+            log.info("Replaying {} orders from the write-ahead log", unreplicated.size());
+        }
+        running = true;
+        replicator = new Thread(this::runReplicator, "order-wal-replicator");
+        replicator.setDaemon(true);
+        replicator.start();
+    }
+
+    /**
+     * Stops the replicator after the orders queued so far and closes the log. Orders that could
+     * not be replicated stay in the log and are replayed on the next start.
+     */
+    public void stop() {
+        running = false;
+        if (replicator != null) {
+            try {
+                replicator.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        writeAheadLog.close();
+    }
+
+    /**
+     * Logs an order durably and queues it for replication into the {@code orders} table.
+     *
+     * @param order the order, which must have a reference
+     * @return the order, without an id until it has been replicated
+     * @throws UncheckedIOException if the order cannot be logged
+     */
+    public Order append(Order order) {
+        if (!running) {
+            throw new IllegalStateException("Order write-ahead log is not running");
+        }
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(order);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not serialize order " + order.getReference(), e);
+        }
+        long lsn = writeAheadLog.append(payload, outstanding::add);
+        unreplicated.add(new LoggedOrder(lsn, payload, false));
+        return order;
+    }
+
+    /**
+     * Returns the number of logged orders not yet stored in the {@code orders} table.
+     *
+     * @return the replication backlog
+     */
+    public int getReplicationBacklog() {
+        return outstanding.size();
+    }
+
+    private void runReplicator() {
+        List<LoggedOrder> batch = new ArrayList<>();
+        while (true) {
+            LoggedOrder first;
+            try {
+                first = unreplicated.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first == null) {
+                if (!running) {
+                    return;
+                }
+                continue;
+            }
+            batch.add(first);
+            unreplicated.drainTo(batch, batchSize - 1);
+            while (!replicate(batch)) {
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(retryBackoffNanos);
+            }
+            ordersVersion.increment();
+            batch.forEach(loggedOrder -> outstanding.remove(loggedOrder.lsn()));
+            batch.clear();
+            Long oldestOutstanding = outstanding.isEmpty() ? null : outstanding.first();
+            writeAheadLog.release(oldestOutstanding == null ? Long.MAX_VALUE : oldestOutstanding - 1);
+        }
+    }
+
+    private boolean replicate(List<LoggedOrder> batch) {
+        try {
+            Map<String, Order> orders = new LinkedHashMap<>();
+            Set<String> replayed = new HashSet<>();
+            for (LoggedOrder loggedOrder : batch) {
+                Order order = objectMapper.readValue(loggedOrder.payload(), Order.class);
+                orders.put(order.getReference(), order);
+                if (loggedOrder.replayed()) {
+                    replayed.add(order.getReference());
+                }
+            }
+            List<Order> stored = transactionOperations.execute(status -> {
+                Set<String> existing = new HashSet<>(orderRepository.findExistingReferences(orders.keySet()));
+                return orderRepository.saveAll(orders.values().stream()
+                        .filter(order -> !existing.contains(order.getReference()))
+                        .toList());
+            });
+            stored.stream()
+                    .filter(order -> replayed.contains(order.getReference()))
+                    .forEach(orderStatistics::recordReplayed);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not replicate {} orders from the write-ahead log, retrying: {}", batch.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    private record LoggedOrder(long lsn, byte[] payload, boolean replayed) {
+    }
+}
@@ -0,0 +1,348 @@
+package com.example.orderservice.wal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * A local write-ahead log of opaque records, stored in memory-mapped segment files.
+ * <p>
+ * Each record is written as {@code [length:int][crc32c:int][lsn:long][payload]}; the rest of a
+ * segment is zero-filled, and a zero length marks its end. Records get consecutive log sequence
+ * numbers (LSNs), and a segment is named after the LSN of its first record. When a record does
+ * not fit into the current segment, the segment is forced to disk and a new one is started.
+ * <p>
+ * {@link #append(byte[])} returns once the record is on disk. Appenders that arrive while a
+ * force is running wait for it and are then covered by a single force of everything written
+ * meanwhile, so concurrent appends share fsyncs (group commit).
+ * <p>
+ * {@link #recover(BiConsumer)} reads the records back after a restart. A torn or corrupt
+ * record, as left by a crash in the middle of a write, ends the log: it and anything after it are
+ * discarded, and appending continues at its position.
+ */
+public class WriteAheadLog implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadLog.class);
+    private static final int HEADER_SIZE = Integer.BYTES * 2 + Long.BYTES;
+    private static final String SEGMENT_SUFFIX = ".wal";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private Segment current;
+    private long nextLsn = 1;
+    private long syncedLsn;
+    private boolean syncing;
+
+    public WriteAheadLog(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Opens the log, passing every intact record to the consumer in LSN order, and prepares the
+     * log for appending after the last intact record.
+     *
+     * @param consumer receives the LSN and payload of each recovered record
+     * @throws UncheckedIOException if the log directory cannot be read or written
+     */
+    public void recover(BiConsumer<Long, byte[]> consumer) {
+        try {
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(directory)) {
+                files = listing.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+            }
+            boolean torn = false;
+            for (Path file : files) {
+                if (torn) {
+                    log.warn("Discarding write-ahead log segment {} after a torn record", file.getFileName());
+                    Files.delete(file);
+                    continue;
+                }
+                Segment segment = Segment.open(file, Math.max(segmentSize, (int) Files.size(file)), firstLsn(file));
+                torn = !segment.scan(consumer);
+                nextLsn = segment.firstLsn + segment.records;
+                segments.add(segment);
+            }
+            syncedLsn = nextLsn - 1;
+            current = segments.peekLast();
+            if (current == null) {
+                current = newSegment();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not recover the write-ahead log in " + directory, e);
+        }
+    }
+
+    /**
+     * Appends a record and waits until it is durable.
+     *
+     * @param payload the record payload
+     * @return the LSN of the record
+     * @throws UncheckedIOException if the record cannot be written
+     */
+    public long append(byte[] payload) {
+        return append(payload, lsn -> {
+        });
+    }
+
+    /**
+     * Appends a record and waits until it is durable.
+     *
+     * @param payload the record payload
+     * @param onWritten called with the LSN of the record as soon as it has been assigned, while no
+     *                  other record can be appended; must be cheap
+     * @return the LSN of the record
+     * @throws UncheckedIOException if the record cannot be written
+     */
+    public long append(byte[] payload, LongConsumer onWritten) {
+        long lsn;
+        appendLock.lock();
+        try {
+            if (current.remaining() < HEADER_SIZE + payload.length) {
+                if (HEADER_SIZE + payload.length > segmentSize) {
+                    throw new IllegalArgumentException("Record of " + payload.length + " bytes exceeds the segment size");
+                }
+                current.force(current.position());
+                current = newSegment();
+            }
+            lsn = nextLsn++;
+            current.write(lsn, payload);
+            onWritten.accept(lsn);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to the write-ahead log", e);
+        } finally {
+            appendLock.unlock();
+        }
+        awaitDurable(lsn);
+        return lsn;
+    }
+
+    /**
+     * Deletes the segments whose records all have an LSN up to the given one, e.g. because they
+     * have been copied to the database. The current segment is never deleted.
+     *
+     * @param lsn the highest LSN that is no longer needed
+     */
+    public void release(long lsn) {
+        List<Segment> released = new ArrayList<>();
+        appendLock.lock();
+        try {
+            while (segments.size() > 1 && segments.peekFirst() != current
+                    && segments.peekFirst().firstLsn + segments.peekFirst().records - 1 <= lsn) {
+                released.add(segments.pollFirst());
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        for (Segment segment : released) {
+            try {
+                segment.close();
+                Files.deleteIfExists(segment.file);
+            } catch (IOException e) {
+                log.warn("Could not delete write-ahead log segment {}: {}", segment.file, e.getMessage());
+            }
+        }
+    }
+
+    int segmentCount() {
+        appendLock.lock();
+        try {
+            return segments.size();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            for (Segment segment : segments) {
+                segment.force(segment.position());
+                segment.close();
+            }
+            segments.clear();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not close the write-ahead log", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void awaitDurable(long lsn) {
+        syncLock.lock();
+        try {
+            while (syncedLsn < lsn) {
+                if (syncing) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                syncing = true;
+                syncLock.unlock();
+                long target = -1;
+                try {
+                    target = forceCurrent();
+                } finally {
+                    syncLock.lock();
+                    syncing = false;
+                    syncedLsn = Math.max(syncedLsn, target);
+                    synced.signalAll();
+                }
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private long forceCurrent() {
+        Segment segment;
+        int position;
+        long target;
+        appendLock.lock();
+        try {
+            segment = current;
+            position = segment.position();
+            target = nextLsn - 1;
+        } finally {
+            appendLock.unlock();
+        }
+        // Earlier segments were forced when they were rotated out.
+        segment.force(position);
+        return target;
+    }
+
+    private Segment newSegment() throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", nextLsn, SEGMENT_SUFFIX));
+        Segment segment = Segment.open(file, segmentSize, nextLsn);
+        segments.add(segment);
+        return segment;
+    }
+
+    private static long firstLsn(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static final class Segment {
+        private final Path file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final long firstLsn;
+        private long records;
+        private int forcedPosition;
+
+        private Segment(Path file, FileChannel channel, MappedByteBuffer buffer, long firstLsn) {
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.firstLsn = firstLsn;
+        }
+
+        static Segment open(Path file, int size, long firstLsn) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new Segment(file, channel, buffer, firstLsn);
+        }
+
+        int remaining() {
+            return buffer.capacity() - buffer.position();
+        }
+
+        int position() {
+            return buffer.position();
+        }
+
+        void write(long lsn, byte[] payload) {
+            CRC32C crc = new CRC32C();
+            crc.update(payload);
+            int start = buffer.position();
+            // Write the length last, so that a reader never sees a length without its record.
+            buffer.position(start + Integer.BYTES);
+            buffer.putInt((int) crc.getValue()).putLong(lsn).put(payload);
+            buffer.putInt(start, payload.length);
+            records++;
+        }
+
+        /**
+         * Reads the records of the segment, stopping at its end or at the first torn record,
+         * which is zeroed out so that it cannot be mistaken for data later.
+         *
+         * @return {@code false} if a torn record was found
+         */
+        boolean scan(BiConsumer<Long, byte[]> consumer) {
+            long expectedLsn = firstLsn;
+            buffer.position(0);
+            while (buffer.remaining() >= HEADER_SIZE) {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                if (length == 0) {
+                    buffer.position(start);
+                    return true;
+                }
+                int checksum = buffer.getInt();
+                long lsn = buffer.getLong();
+                if (length < 0 || length > buffer.remaining() || lsn != expectedLsn) {
+                    return truncate(start);
+                }
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                CRC32C crc = new CRC32C();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    return truncate(start);
+                }
+                consumer.accept(lsn, payload);
+                records++;
+                expectedLsn++;
+            }
+            return true;
+        }
+
+        private boolean truncate(int position) {
+            log.warn("Truncating torn record in write-ahead log segment {} at offset {}", file.getFileName(), position);
+            buffer.position(position);
+            while (buffer.hasRemaining()) {
+                buffer.put((byte) 0);
+            }
+            buffer.position(position);
+            buffer.force();
+            return false;
+        }
+
+        /**
+         * Forces the bytes written up to the given position to disk; earlier forces are not repeated.
+         */
+        synchronized void force(int position) {
+            if (position > forcedPosition) {
+                buffer.force(forcedPosition, position - forcedPosition);
+                forcedPosition = position;
+            }
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.orderservice.warmup;
+
+import com.example.inventoryservice.grpc.InventoryServiceGrpc;
+import com.example.inventoryservice.grpc.StockRequest;
+import com.example.orderservice.entity.Order;
+import com.example.orderservice.grpc.LineItem;
+import com.example.orderservice.grpc.OrderMessages;
+import com.example.orderservice.grpc.OrderRequest;
+import com.example.orderservice.repository.OrderRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Synthetic order traffic for the {@link WarmUp}, which takes the paths of order creation
+ * without lasting side effects.
+ */
+public class OrderWarmUpTraffic {
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final String product;
+    private final Duration timeout;
+
+    @GrpcClient("inventory-service")
+    private InventoryServiceGrpc.InventoryServiceBlockingStub inventoryServiceStub;
+
+    /**
+     * Creates the traffic.
+     *
+     * @param orderRepository the order repository
+     * @param transactionTemplate the template of the transactions synthetic orders are stored and
+     *                            rolled back in
+     * @param objectMapper the object mapper orders are written as JSON with
+     * @param product the product the stock checks ask for
+     * @param timeout the deadline of each call to the inventory service
+     */
+    public OrderWarmUpTraffic(OrderRepository orderRepository, TransactionTemplate transactionTemplate,
+                              ObjectMapper objectMapper, String product, Duration timeout) {
+        this.orderRepository = orderRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.product = product;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Checks the stock of the warm-up product, which connects the channel to the inventory
+     * service and leaves the stock as it is.
+     */
+    public void checkStock() {
+        inventoryServiceStub.withDeadlineAfter(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .checkStock(StockRequest.newBuilder().setProduct(product).setQuantity(1).build());
+    }
+
+    /**
+     * Creates an order with line items from a request, stores it and writes it as a response
+     * and as JSON, all in a transaction that is rolled back.
+     */
+    public void createOrder() {
+        OrderRequest request = OrderRequest.newBuilder()
+                .addItems(LineItem.newBuilder().setProduct(product).setQuantity(1))
+                .addItems(LineItem.newBuilder().setProduct(product).setProductId(1).setQuantity(2))
+                .build();
+        transactionTemplate.executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            Order order = OrderMessages.toOrder(request);
+            order.setStatus("CREATED");
+            order.setReference(UUID.randomUUID().toString());
+            OrderMessages.toResponse(orderRepository.saveAndFlush(order));
+            try {
+                objectMapper.writeValueAsBytes(order);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,64 @@
+-- Converts the orders table into a table range-partitioned by month of created_at (PostgreSQL 12+).
+--
+-- Run once while the order service is stopped, then start the service with
+--   order.archival.partitioning.enabled=true
+--   spring.jpa.hibernate.ddl-auto=none
+-- Hibernate cannot create or update a partitioned table, so schema changes to orders have to be
+-- applied by hand from then on.
+--
+-- Unique constraints of a partitioned table must include the partition key: the primary key
+-- becomes (id, created_at), references are unique per created_at, and order_items no longer has a
+-- foreign key to orders.
+
+BEGIN;
+
+UPDATE orders SET created_at = now() WHERE created_at IS NULL;
+
+DO $$
+DECLARE
+    foreign_key name;
+BEGIN
+    FOR foreign_key IN
+        SELECT conname FROM pg_constraint
+        WHERE conrelid = 'order_items'::regclass AND confrelid = 'orders'::regclass AND contype = 'f'
+    LOOP
+        EXECUTE format('ALTER TABLE order_items DROP CONSTRAINT %I', foreign_key);
+    END LOOP;
+END $$;
+
+ALTER TABLE orders RENAME TO orders_unpartitioned;
+
+CREATE TABLE orders (LIKE orders_unpartitioned INCLUDING DEFAULTS INCLUDING IDENTITY)
+    PARTITION BY RANGE (created_at);
+ALTER TABLE orders ALTER COLUMN created_at SET NOT NULL;
+ALTER TABLE orders ADD PRIMARY KEY (id, created_at);
+
+-- One partition per month from the oldest order up to two months ahead; the default partition
+-- only catches orders outside of these, and OrderPartitionManager keeps creating months ahead.
+DO $$
+DECLARE
+    month date;
+BEGIN
+    FOR month IN
+        SELECT generate_series(
+            date_trunc('month', COALESCE((SELECT MIN(created_at) FROM orders_unpartitioned), now()) AT TIME ZONE 'UTC'),
+            date_trunc('month', now() AT TIME ZONE 'UTC') + interval '2 months',
+            interval '1 month')::date
+    LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF orders FOR VALUES FROM (%L) TO (%L)',
+                       'orders_p' || to_char(month, 'YYYY_MM'),
+                       month::timestamp AT TIME ZONE 'UTC',
+                       (month + interval '1 month')::timestamp AT TIME ZONE 'UTC');
+    END LOOP;
+END $$;
+CREATE TABLE orders_default PARTITION OF orders DEFAULT;
+
+INSERT INTO orders SELECT * FROM orders_unpartitioned;
+SELECT setval(pg_get_serial_sequence('orders', 'id'), COALESCE(MAX(id), 0) + 1, false) FROM orders;
+
+DROP TABLE orders_unpartitioned;
+
+ALTER TABLE orders ADD CONSTRAINT orders_reference_key UNIQUE (reference, created_at);
+CREATE INDEX orders_created_at_idx ON orders (created_at);
+
+COMMIT;
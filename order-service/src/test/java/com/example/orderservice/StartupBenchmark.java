@@ -0,0 +1,101 @@
+package com.example.orderservice;
+
+import com.example.orderservice.grpc.OrderRequest;
+import com.example.orderservice.grpc.OrderResponse;
+import com.example.orderservice.grpc.OrderServiceGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time from launching the order service to the first {@code CreateOrder} it
+ * serves, i.e. how long a new instance takes to become useful when scaling out. The service is
+ * launched as a separate process several times; the inventory service and the database must
+ * already be running, e.g. with {@code docker-compose up db inventory-service}, and every run
+ * creates one order.
+ * <p>
+ * Not part of the regular test run. Build the variant to measure, then pass its command line:
+ * <pre>
+ * mvn package -DskipTests
+ * mvn test -Dtest=StartupBenchmark
+ *
+ * mvn -Pcds package -DskipTests
+ * mvn test -Dtest=StartupBenchmark -Dstartup.directory=target/cds \
+ *     -Dstartup.command="java -XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true -jar order-service-0.0.1-SNAPSHOT-exec.jar"
+ *
+ * mvn -Pnative native:compile -DskipTests
+ * mvn test -Dtest=StartupBenchmark -Dstartup.command=target/order-service
+ * </pre>
+ */
+class StartupBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(StartupBenchmark.class);
+
+    private static final String COMMAND = System.getProperty("startup.command", "java -jar target/order-service-0.0.1-SNAPSHOT-exec.jar");
+    private static final String DIRECTORY = System.getProperty("startup.directory", ".");
+    private static final String TARGET = System.getProperty("startup.target", "localhost:9090");
+    private static final String PRODUCT = System.getProperty("startup.product", "Laptop");
+    private static final int RUNS = Integer.getInteger("startup.runs", 5);
+    private static final long TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(3);
+
+    @Test
+    void benchmarkStartup() throws Exception {
+        long[] millis = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            millis[run] = timeToFirstOrder();
+            log.info(String.format("Run %d: first CreateOrder served after %d ms", run + 1, millis[run]));
+        }
+        Arrays.sort(millis);
+        log.info(String.format("%s: min %d ms  median %d ms  max %d ms",
+                COMMAND, millis[0], millis[RUNS / 2], millis[RUNS - 1]));
+    }
+
+    private static long timeToFirstOrder() throws Exception {
+        ManagedChannel channel = ManagedChannelBuilder.forTarget(TARGET).usePlaintext().build();
+        OrderServiceGrpc.OrderServiceBlockingStub orders = OrderServiceGrpc.newBlockingStub(channel);
+        OrderRequest request = OrderRequest.newBuilder().setProduct(PRODUCT).setQuantity(1).build();
+        long begin = System.nanoTime();
+        Process process = new ProcessBuilder(List.of(COMMAND.trim().split("\\s+")))
+                .directory(new File(DIRECTORY))
+                .redirectErrorStream(true)
+                .redirectOutput(new File("target/startup-benchmark.log"))
+                .start();
+        try {
+            while (System.nanoTime() - begin < TIMEOUT_NANOS) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("The service exited with " + process.exitValue()
+                            + ", see target/startup-benchmark.log");
+                }
+                try {
+                    OrderResponse response = orders.withDeadlineAfter(1, TimeUnit.SECONDS).createOrder(request);
+                    long elapsed = System.nanoTime() - begin;
+                    if (response.getStatus().isEmpty()) {
+                        throw new IllegalStateException("Empty response");
+                    }
+                    return TimeUnit.NANOSECONDS.toMillis(elapsed);
+                } catch (StatusRuntimeException e) {
+                    if (e.getStatus().getCode() != Status.Code.UNAVAILABLE
+                            && e.getStatus().getCode() != Status.Code.DEADLINE_EXCEEDED) {
+                        throw e;
+                    }
+                    // Not listening yet; retry at once instead of after the channel's backoff.
+                    channel.resetConnectBackoff();
+                    Thread.sleep(10);
+                }
+            }
+            throw new IllegalStateException("No order served within " + TimeUnit.NANOSECONDS.toSeconds(TIMEOUT_NANOS) + " s");
+        } finally {
+            process.destroy();
+            process.waitFor(30, TimeUnit.SECONDS);
+            channel.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.orderservice.admission;
+
+import com.example.orderservice.config.AdmissionProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private AdmissionProperties properties;
+
+    /**
+     * Sets up admission settings with a small limit so that tests can saturate it.
+     */
+    @BeforeEach
+    void setUp() {
+        properties = new AdmissionProperties();
+        properties.setInitialLimit(2);
+        properties.setMinLimit(1);
+        properties.setMaxLimit(4);
+        properties.setLatencyThreshold(Duration.ofMillis(100));
+    }
+
+    /**
+     * Verifies that requests beyond the limit are rejected until a permit is released.
+     */
+    @Test
+    void testRejectsRequestsBeyondLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties, new SimpleMeterRegistry());
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(1));
+        assertTrue(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    /**
+     * Verifies that latency above the threshold shrinks the limit, but never below the minimum.
+     */
+    @Test
+    void testSlowResponsesShrinkLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties, new SimpleMeterRegistry());
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(500));
+        }
+
+        assertEquals(1, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    /**
+     * Verifies that fast responses under load grow the limit, but never above the maximum.
+     */
+    @Test
+    void testFastResponsesUnderLoadGrowLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties, new SimpleMeterRegistry());
+
+        for (int i = 0; i < 50; i++) {
+            int acquired = 0;
+            while (limiter.tryAcquire()) {
+                acquired++;
+            }
+            for (int j = 0; j < acquired; j++) {
+                limiter.release(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }
+
+        assertEquals(4, limiter.getLimit());
+    }
+}
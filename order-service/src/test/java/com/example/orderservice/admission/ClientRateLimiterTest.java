@@ -0,0 +1,127 @@
+package com.example.orderservice.admission;
+
+import com.example.orderservice.config.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientRateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong(TimeUnit.SECONDS.toNanos(1_000));
+
+    private RateLimitProperties properties;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    /**
+     * Sets up a default quota of 10 requests per second with a burst of 5.
+     */
+    @BeforeEach
+    void setUp() {
+        properties = new RateLimitProperties();
+        properties.getDefaultQuota().setRequestsPerSecond(10);
+        properties.getDefaultQuota().setBurst(5);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    /**
+     * Verifies that a client may send one burst, is then throttled, and regains one token
+     * per emission interval.
+     */
+    @Test
+    void testBurstThenRefill() {
+        ClientRateLimiter limiter = new ClientRateLimiter(properties, meterRegistry, clock::get);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire(null, "10.0.0.1"));
+        }
+        assertFalse(limiter.tryAcquire(null, "10.0.0.1"));
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(limiter.tryAcquire(null, "10.0.0.1"));
+        assertFalse(limiter.tryAcquire(null, "10.0.0.1"));
+        assertEquals(2.0, meterRegistry.counter("order.rate-limit.throttled").count());
+    }
+
+    /**
+     * Verifies that one client exhausting its quota does not affect another client.
+     */
+    @Test
+    void testClientsAreIsolated() {
+        ClientRateLimiter limiter = new ClientRateLimiter(properties, meterRegistry, clock::get);
+
+        while (limiter.tryAcquire(null, "10.0.0.1")) {
+            // drain the noisy client's bucket
+        }
+
+        assertTrue(limiter.tryAcquire(null, "10.0.0.2"));
+    }
+
+    /**
+     * Verifies that a configured API key gets its own quota, overriding the default quota of its
+     * address.
+     */
+    @Test
+    void testPerClientQuotaOverridesDefault() {
+        RateLimitProperties.Quota partner = new RateLimitProperties.Quota();
+        partner.setRequestsPerSecond(100);
+        partner.setBurst(20);
+        properties.getClients().put("partner", partner);
+        ClientRateLimiter limiter = new ClientRateLimiter(properties, meterRegistry, clock::get);
+
+        int allowed = 0;
+        while (limiter.tryAcquire("partner", "10.0.0.1")) {
+            allowed++;
+        }
+
+        assertEquals(20, allowed);
+    }
+
+    /**
+     * Verifies that API keys without a configured quota do not identify a client, so that made-up
+     * keys share the bucket of their address.
+     */
+    @Test
+    void testUnknownApiKeysAreLimitedByAddress() {
+        ClientRateLimiter limiter = new ClientRateLimiter(properties, meterRegistry, clock::get);
+
+        int allowed = 0;
+        while (limiter.tryAcquire("key-" + allowed, "10.0.0.1")) {
+            allowed++;
+        }
+
+        assertEquals(5, allowed);
+        assertFalse(limiter.tryAcquire(null, "10.0.0.1"));
+        assertEquals(1, limiter.trackedClients());
+    }
+
+    /**
+     * Verifies that new addresses share the overflow bucket while the table is full, and that
+     * the sweep evicts idle addresses.
+     */
+    @Test
+    void testTableIsBoundedAndEvictsIdleClients() {
+        properties.setMaxClients(2);
+        properties.setIdleTimeout(Duration.ofSeconds(1));
+        ClientRateLimiter limiter = new ClientRateLimiter(properties, meterRegistry, clock::get);
+
+        assertTrue(limiter.tryAcquire(null, "a"));
+        assertTrue(limiter.tryAcquire(null, "b"));
+        assertTrue(limiter.tryAcquire(null, "c"));
+        assertEquals(3, limiter.trackedClients());
+        limiter.sweep();
+        assertEquals(3, limiter.trackedClients());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        limiter.sweep();
+        assertEquals(0, limiter.trackedClients());
+        assertTrue(limiter.tryAcquire(null, "d"));
+        assertEquals(1, limiter.trackedClients());
+    }
+}
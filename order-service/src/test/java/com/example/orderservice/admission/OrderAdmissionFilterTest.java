@@ -0,0 +1,92 @@
+package com.example.orderservice.admission;
+
+import com.example.orderservice.config.AdmissionProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OrderAdmissionFilterTest {
+
+    private AdaptiveConcurrencyLimiter limiter;
+
+    private OrderAdmissionFilter filter;
+
+    /**
+     * Sets up a filter in front of a limiter that admits a single request.
+     */
+    @BeforeEach
+    void setUp() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setInitialLimit(1);
+        properties.setMaxLimit(1);
+        limiter = new AdaptiveConcurrencyLimiter(properties, new SimpleMeterRegistry());
+        filter = new OrderAdmissionFilter(limiter);
+    }
+
+    /**
+     * Verifies that an admitted order is passed down the chain and its permit released afterwards.
+     */
+    @Test
+    void testAdmittedRequestIsForwardedAndReleased() throws Exception {
+        FilterChain chain = mock(FilterChain.class);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/orders"), response, chain);
+
+        verify(chain).doFilter(any(), any());
+        assertEquals(200, response.getStatus());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    /**
+     * Verifies that an order arriving while the limit is saturated is rejected with HTTP 429.
+     */
+    @Test
+    void testSaturatedLimitReturnsTooManyRequests() throws Exception {
+        assertTrue(limiter.tryAcquire());
+        FilterChain chain = mock(FilterChain.class);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/orders"), response, chain);
+
+        verifyNoInteractions(chain);
+        assertEquals(429, response.getStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+    }
+
+    /**
+     * Verifies that an order whose client deadline has passed is dropped with HTTP 504.
+     */
+    @Test
+    void testExpiredDeadlineReturnsGatewayTimeout() throws Exception {
+        FilterChain chain = mock(FilterChain.class);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/orders");
+        request.addHeader(OrderAdmissionFilter.DEADLINE_HEADER, String.valueOf(System.currentTimeMillis() - 1000));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, chain);
+
+        verifyNoInteractions(chain);
+        assertEquals(504, response.getStatus());
+        assertEquals("Request deadline exceeded", response.getContentAsString());
+    }
+
+    /**
+     * Verifies that reads are never subject to admission control.
+     */
+    @Test
+    void testGetRequestsBypassAdmission() throws Exception {
+        assertTrue(limiter.tryAcquire());
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/orders"), new MockHttpServletResponse(), chain);
+
+        verify(chain).doFilter(any(), any());
+    }
+}
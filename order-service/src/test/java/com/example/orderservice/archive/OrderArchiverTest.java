@@ -0,0 +1,134 @@
+package com.example.orderservice.archive;
+
+import com.example.orderservice.entity.ArchivedOrder;
+import com.example.orderservice.entity.Order;
+import com.example.orderservice.entity.OrderItem;
+import com.example.orderservice.repository.ArchivedOrderRepository;
+import com.example.orderservice.repository.OrderRepository;
+import com.example.orderservice.service.ResourceVersion;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderArchiverTest {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private final Instant now = Instant.now();
+
+    @BeforeEach
+    void setUp() {
+        archivedOrderRepository.deleteAll();
+        orderRepository.deleteAll();
+    }
+
+    /**
+     * Verifies that only closed orders older than the cutoff are moved into the archive, and that
+     * the recent and still open orders stay in the orders table.
+     */
+    @Test
+    void testArchivesOnlyOldClosedOrders() {
+        Order old = orderRepository.save(order("CREATED", now.minus(100, ChronoUnit.DAYS)));
+        orderRepository.save(order("REJECTED", now.minus(95, ChronoUnit.DAYS)));
+        Order open = orderRepository.save(order("PENDING", now.minus(100, ChronoUnit.DAYS)));
+        Order recent = orderRepository.save(order("CREATED", now.minus(1, ChronoUnit.DAYS)));
+
+        int archived = archiver(10).archive(now.minus(90, ChronoUnit.DAYS));
+
+        assertEquals(2, archived);
+        assertEquals(2, archivedOrderRepository.count());
+        assertTrue(archivedOrderRepository.findByOrderId(old.getId()).isPresent());
+        assertEquals(List.of(open.getId(), recent.getId()),
+                orderRepository.findAll().stream().map(Order::getId).sorted().toList());
+    }
+
+    /**
+     * Verifies that an archived order, including its line items, can be restored from its
+     * compressed payload.
+     */
+    @Test
+    void testArchivedPayloadHoldsOrderWithItems() throws IOException {
+        Order cart = order("CREATED", now.minus(100, ChronoUnit.DAYS));
+        OrderItem item = new OrderItem();
+        item.setProduct("Phone");
+        item.setQuantity(2);
+        cart.getItems().add(item);
+        Order saved = orderRepository.save(cart);
+
+        archiver(10).archive(now.minus(90, ChronoUnit.DAYS));
+
+        ArchivedOrder archivedOrder = archivedOrderRepository.findByOrderId(saved.getId()).orElseThrow();
+        assertEquals(saved.getReference(), archivedOrder.getReference());
+        assertEquals("CREATED", archivedOrder.getStatus());
+        Order restored;
+        try (InputStream payload = new GZIPInputStream(new ByteArrayInputStream(archivedOrder.getPayload()))) {
+            restored = objectMapper.readValue(payload, Order.class);
+        }
+        assertEquals(saved.getId(), restored.getId());
+        assertEquals(1, restored.getItems().size());
+        assertEquals("Phone", restored.getItems().get(0).getProduct());
+    }
+
+    /**
+     * Verifies that more orders than fit into one batch are archived over several batches in
+     * a single run.
+     */
+    @Test
+    void testArchivesInBatches() {
+        for (int i = 0; i < 7; i++) {
+            orderRepository.save(order("CREATED", now.minus(100, ChronoUnit.DAYS)));
+        }
+
+        int archived = archiver(3).archive(now.minus(90, ChronoUnit.DAYS));
+
+        assertEquals(7, archived);
+        assertEquals(0, orderRepository.count());
+        assertEquals(7, archivedOrderRepository.count());
+    }
+
+    private OrderArchiver archiver(int batchSize) {
+        return new OrderArchiver(orderRepository, archivedOrderRepository, new TransactionTemplate(transactionManager),
+                objectMapper, Duration.ofDays(90), List.of("CREATED", "REJECTED"), batchSize, Duration.ofHours(1),
+                null, new ResourceVersion(), new SimpleMeterRegistry());
+    }
+
+    private static Order order(String status, Instant createdAt) {
+        Order order = new Order();
+        order.setProduct("Laptop");
+        order.setQuantity(1);
+        order.setStatus(status);
+        order.setReference(UUID.randomUUID().toString());
+        order.setCreatedAt(createdAt);
+        return order;
+    }
+}
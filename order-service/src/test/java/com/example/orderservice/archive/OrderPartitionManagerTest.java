@@ -0,0 +1,34 @@
+package com.example.orderservice.archive;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderPartitionManagerTest {
+
+    /**
+     * Verifies that a monthly partition covers exactly its month in UTC, up to the start of the
+     * next month, including across a year boundary.
+     */
+    @Test
+    void testPartitionCoversOneMonth() {
+        assertEquals("CREATE TABLE IF NOT EXISTS orders_p2026_12 PARTITION OF orders "
+                        + "FOR VALUES FROM ('2026-12-01T00:00:00Z') TO ('2027-01-01T00:00:00Z')",
+                OrderPartitionManager.createPartitionSql(YearMonth.of(2026, 12)));
+    }
+
+    /**
+     * Verifies that partition names map back to their month, and that other partitions, such as
+     * the default partition, are not mistaken for monthly ones.
+     */
+    @Test
+    void testPartitionMonthIsParsedFromName() {
+        YearMonth month = YearMonth.of(2026, 3);
+
+        assertEquals(month, OrderPartitionManager.partitionMonth(OrderPartitionManager.partitionName(month)));
+        assertNull(OrderPartitionManager.partitionMonth("orders_default"));
+        assertNull(OrderPartitionManager.partitionMonth("orders_pending"));
+    }
+}
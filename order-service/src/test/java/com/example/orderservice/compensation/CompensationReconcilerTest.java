@@ -0,0 +1,174 @@
+package com.example.orderservice.compensation;
+
+import com.example.inventoryservice.grpc.InventoryServiceGrpc;
+import com.example.inventoryservice.grpc.ReleaseStockRequest;
+import com.example.inventoryservice.grpc.ReleaseStockResponse;
+import com.example.orderservice.entity.Order;
+import com.example.orderservice.entity.PendingCompensation;
+import com.example.orderservice.repository.OrderRepository;
+import com.example.orderservice.repository.PendingCompensationRepository;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CompensationReconcilerTest {
+
+    @Autowired
+    private PendingCompensationRepository pendingCompensations;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private InventoryServiceGrpc.InventoryServiceBlockingStub inventoryServiceStub;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+    @BeforeEach
+    void setUp() {
+        pendingCompensations.deleteAll();
+        orderRepository.deleteAll();
+        inventoryServiceStub = mock(InventoryServiceGrpc.InventoryServiceBlockingStub.class);
+        when(inventoryServiceStub.withDeadlineAfter(anyLong(), any(TimeUnit.class))).thenReturn(inventoryServiceStub);
+    }
+
+    /**
+     * Verifies that the due orders that were not stored are released with one call, that due
+     * orders stored as CREATED are dropped without being released, and that orders that are not
+     * due yet are left alone.
+     */
+    @Test
+    void testReleasesDueOrdersThatWereNotStored() {
+        pending("lost", now.minusSeconds(5));
+        pending("rejected", now.minusSeconds(4));
+        pending("created", now.minusSeconds(3));
+        pending("in-flight", now.plusSeconds(30));
+        stored("rejected", "REJECTED");
+        stored("created", "CREATED");
+        when(inventoryServiceStub.releaseStock(any()))
+                .thenReturn(ReleaseStockResponse.newBuilder().setReleased(1).setUnchanged(1).build());
+
+        assertEquals(1, reconciler(10).reconcile(now));
+
+        ArgumentCaptor<ReleaseStockRequest> captor = ArgumentCaptor.forClass(ReleaseStockRequest.class);
+        verify(inventoryServiceStub).releaseStock(captor.capture());
+        assertEquals(List.of("lost", "rejected"), captor.getValue().getOrderRefsList());
+        assertEquals(Set.of("in-flight"), pendingRefs());
+    }
+
+    /**
+     * Verifies that due orders are released in batches of the configured size.
+     */
+    @Test
+    void testReleasesInBatches() {
+        for (int i = 0; i < 5; i++) {
+            pending("order-" + i, now.minusSeconds(10 - i));
+        }
+        when(inventoryServiceStub.releaseStock(any())).thenAnswer(invocation -> ReleaseStockResponse.newBuilder()
+                .setReleased(invocation.<ReleaseStockRequest>getArgument(0).getOrderRefsCount())
+                .build());
+
+        assertEquals(5, reconciler(2).reconcile(now));
+
+        verify(inventoryServiceStub, times(3)).releaseStock(any());
+        assertEquals(Set.of(), pendingRefs());
+    }
+
+    /**
+     * Verifies that orders whose release fails are kept and retried later, with a backoff that
+     * doubles with every attempt up to the maximum.
+     */
+    @Test
+    void testFailedReleaseBacksOffExponentially() {
+        pending("lost", now.minusSeconds(1));
+        stored("created", "CREATED");
+        pending("created", now.minusSeconds(1));
+        when(inventoryServiceStub.releaseStock(any())).thenThrow(new StatusRuntimeException(Status.UNAVAILABLE));
+        CompensationReconciler reconciler = reconciler(10);
+
+        assertEquals(0, reconciler.reconcile(now));
+        PendingCompensation first = pendingCompensations.findById("lost").orElseThrow();
+        assertEquals(1, first.getAttempts());
+        assertEquals(now.plusSeconds(2), first.getDueAt());
+        assertEquals(Set.of("lost"), pendingRefs());
+
+        assertEquals(0, reconciler.reconcile(first.getDueAt()));
+        PendingCompensation second = pendingCompensations.findById("lost").orElseThrow();
+        assertEquals(2, second.getAttempts());
+        assertEquals(first.getDueAt().plusSeconds(4), second.getDueAt());
+
+        second.setAttempts(10);
+        pendingCompensations.save(second);
+        reconciler.reconcile(second.getDueAt());
+        assertEquals(second.getDueAt().plusSeconds(60), pendingCompensations.findById("lost").orElseThrow().getDueAt());
+    }
+
+    /**
+     * Verifies that orders are given up on, and counted, instead of retried when the inventory
+     * cannot release stock at all, as with the journal stock update strategy.
+     */
+    @Test
+    void testUnsupportedReleaseIsNotRetried() {
+        pending("lost-1", now.minusSeconds(2));
+        pending("lost-2", now.minusSeconds(1));
+        when(inventoryServiceStub.releaseStock(any())).thenThrow(new StatusRuntimeException(
+                Status.FAILED_PRECONDITION.withDescription("Stock release is not supported")));
+
+        assertEquals(0, reconciler(1).reconcile(now));
+
+        assertEquals(Set.of(), pendingRefs());
+        assertEquals(2, meterRegistry.counter("order.compensation.unreleasable").count());
+        verify(inventoryServiceStub, times(2)).releaseStock(any());
+    }
+
+    private CompensationReconciler reconciler(int batchSize) {
+        CompensationReconciler reconciler = new CompensationReconciler(pendingCompensations, orderRepository,
+                batchSize, Duration.ofSeconds(1), Duration.ofMinutes(1), Duration.ofSeconds(5), meterRegistry);
+        ReflectionTestUtils.setField(reconciler, "inventoryServiceStub", inventoryServiceStub);
+        return reconciler;
+    }
+
+    private void pending(String orderRef, Instant dueAt) {
+        PendingCompensation compensation = new PendingCompensation();
+        compensation.setOrderRef(orderRef);
+        compensation.setCreatedAt(dueAt.minusSeconds(30));
+        compensation.setDueAt(dueAt);
+        pendingCompensations.save(compensation);
+    }
+
+    private void stored(String reference, String status) {
+        Order order = new Order();
+        order.setReference(reference);
+        order.setProduct("Laptop");
+        order.setQuantity(1);
+        order.setStatus(status);
+        order.setCreatedAt(now);
+        orderRepository.save(order);
+    }
+
+    private Set<String> pendingRefs() {
+        return pendingCompensations.findAll().stream().map(PendingCompensation::getOrderRef).collect(Collectors.toSet());
+    }
+}
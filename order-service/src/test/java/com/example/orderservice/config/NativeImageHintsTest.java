@@ -0,0 +1,34 @@
+package com.example.orderservice.config;
+
+import com.example.inventoryservice.grpc.StockResponse;
+import com.example.orderservice.entity.Order;
+import com.example.orderservice.entity.OrderItem;
+import com.example.orderservice.grpc.OrderRequest;
+import com.example.orderservice.grpc.Priority;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NativeImageHintsTest {
+
+    /**
+     * Verifies that the messages, builders and enums of both proto files, and the orders written
+     * as JSON, are registered for reflection.
+     */
+    @Test
+    void registersProtobufMessagesAndOrders() {
+        RuntimeHints hints = new RuntimeHints();
+        new NativeImageHints().registerHints(hints, getClass().getClassLoader());
+
+        for (Class<?> type : new Class<?>[]{OrderRequest.class, OrderRequest.Builder.class, Priority.class,
+                StockResponse.class, StockResponse.Builder.class, StockResponse.Status.class}) {
+            assertTrue(RuntimeHintsPredicates.reflection().onType(type)
+                    .withMemberCategory(MemberCategory.INVOKE_PUBLIC_METHODS).test(hints), type::getName);
+        }
+        assertTrue(RuntimeHintsPredicates.reflection().onType(Order.class).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(OrderItem.class).test(hints));
+    }
+}
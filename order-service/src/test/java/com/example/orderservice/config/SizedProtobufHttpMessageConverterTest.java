@@ -0,0 +1,62 @@
+package com.example.orderservice.config;
+
+import com.example.orderservice.grpc.LineItem;
+import com.example.orderservice.grpc.OrderRequest;
+import com.example.orderservice.grpc.OrderResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.protobuf.ProtobufHttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.ByteArrayInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SizedProtobufHttpMessageConverterTest {
+
+    private static final MediaType PROTOBUF = ProtobufHttpMessageConverter.PROTOBUF;
+
+    private final SizedProtobufHttpMessageConverter converter = new SizedProtobufHttpMessageConverter();
+
+    private static OrderRequest orderRequest() {
+        return OrderRequest.newBuilder()
+                .addItems(LineItem.newBuilder().setProduct("Laptop").setQuantity(1))
+                .addItems(LineItem.newBuilder().setProductId(7).setQuantity(2))
+                .build();
+    }
+
+    /**
+     * Verifies that a request body with a known length is parsed, and that a body of unknown
+     * length is still read through the stream.
+     */
+    @Test
+    void readsBodiesWithAndWithoutLength() throws Exception {
+        byte[] body = orderRequest().toByteArray();
+        MockHttpInputMessage sized = new MockHttpInputMessage(body);
+        sized.getHeaders().setContentType(PROTOBUF);
+        sized.getHeaders().setContentLength(body.length);
+        MockHttpInputMessage streamed = new MockHttpInputMessage(new ByteArrayInputStream(body));
+        streamed.getHeaders().setContentType(PROTOBUF);
+
+        assertEquals(orderRequest(), converter.read(OrderRequest.class, sized));
+        assertEquals(orderRequest(), converter.read(OrderRequest.class, streamed));
+    }
+
+    /**
+     * Verifies that a response is written with its length and the protobuf schema headers, and
+     * can be parsed back.
+     */
+    @Test
+    void writesMessageWithContentLength() throws Exception {
+        OrderResponse response = OrderResponse.newBuilder().setStatus("CREATED").setId(5).setReference("ref-5").build();
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        converter.write(response, PROTOBUF, output);
+
+        assertEquals(response.getSerializedSize(), output.getHeaders().getContentLength());
+        assertEquals("order.proto", output.getHeaders().getFirst(ProtobufHttpMessageConverter.X_PROTOBUF_SCHEMA_HEADER));
+        assertEquals("OrderResponse", output.getHeaders().getFirst(ProtobufHttpMessageConverter.X_PROTOBUF_MESSAGE_HEADER));
+        assertEquals(response, OrderResponse.parseFrom(output.getBodyAsBytes()));
+    }
+}
@@ -1,18 +1,30 @@
 package com.example.orderservice.controller;
 
 import com.example.orderservice.entity.Order;
+import com.example.orderservice.grpc.OrderList;
+import com.example.orderservice.grpc.OrderRequest;
+import com.example.orderservice.grpc.OrderResponse;
 import com.example.orderservice.service.OrderService;
+import com.example.orderservice.service.OrderStatistics;
+import com.example.orderservice.service.ResourceVersion;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -34,6 +46,11 @@ class OrderControllerTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(orderService.getOrdersVersion()).thenReturn(new ResourceVersion().current());
+    }
+
+    private static ServletWebRequest ordersRequest() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/orders"), new MockHttpServletResponse());
     }
 
     /**
@@ -208,7 +225,7 @@ class OrderControllerTest {
     void testGetAllOrders_ReturnsEmptyList() {
         when(orderService.getAllOrders()).thenReturn(Collections.emptyList());
 
-        ResponseEntity<List<Order>> response = orderController.getAllOrders();
+        ResponseEntity<List<Order>> response = orderController.getAllOrders(ordersRequest());
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
@@ -229,7 +246,7 @@ class OrderControllerTest {
 
         when(orderService.getAllOrders()).thenReturn(orders);
 
-        ResponseEntity<List<Order>> response = orderController.getAllOrders();
+        ResponseEntity<List<Order>> response = orderController.getAllOrders(ordersRequest());
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
@@ -260,7 +277,7 @@ class OrderControllerTest {
 
         when(orderService.getAllOrders()).thenReturn(orders);
 
-        ResponseEntity<List<Order>> response = orderController.getAllOrders();
+        ResponseEntity<List<Order>> response = orderController.getAllOrders(ordersRequest());
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
@@ -278,7 +295,7 @@ class OrderControllerTest {
 
         ResponseEntity<List<Order>> response;
         try {
-            response = orderController.getAllOrders();
+            response = orderController.getAllOrders(ordersRequest());
             // If no exception is thrown, fail the test
             fail("Expected exception was not thrown");
         } catch (Exception ex) {
@@ -302,7 +319,7 @@ class OrderControllerTest {
 
         when(orderService.getAllOrders()).thenReturn(orders);
 
-        ResponseEntity<List<Order>> response = orderController.getAllOrders();
+        ResponseEntity<List<Order>> response = orderController.getAllOrders(ordersRequest());
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
@@ -313,4 +330,157 @@ class OrderControllerTest {
         assertEquals(0, returnedOrder.getQuantity());
         assertNull(returnedOrder.getStatus());
     }
+
+    /**
+     * Checks that getAllOrders sends the ETag and modification time of the current version of
+     * the order list, and tells clients to revalidate their copy.
+     */
+    @Test
+    void testGetAllOrders_SendsValidators() {
+        ResourceVersion.Tag version = new ResourceVersion().current();
+        when(orderService.getOrdersVersion()).thenReturn(version);
+        when(orderService.getAllOrders()).thenReturn(Collections.emptyList());
+
+        ResponseEntity<List<Order>> response = orderController.getAllOrders(ordersRequest());
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(version.eTag(), response.getHeaders().getETag());
+        assertEquals(version.lastModified().toEpochMilli() / 1000 * 1000, response.getHeaders().getLastModified());
+        assertEquals("no-cache", response.getHeaders().getCacheControl());
+    }
+
+    /**
+     * Checks that getAllOrders answers a request for the current version with HTTP 304 Not
+     * Modified without reading the orders, and sends the orders again once the version changed.
+     */
+    @Test
+    void testGetAllOrders_NotModifiedUntilVersionChanges() {
+        ResourceVersion ordersVersion = new ResourceVersion();
+        String eTag = ordersVersion.current().eTag();
+        when(orderService.getOrdersVersion()).thenAnswer(invocation -> ordersVersion.current());
+        when(orderService.getAllOrders()).thenReturn(Collections.emptyList());
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/orders");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, eTag);
+
+        ResponseEntity<List<Order>> response = orderController.getAllOrders(
+                new ServletWebRequest(request, new MockHttpServletResponse()));
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        verify(orderService, never()).getAllOrders();
+
+        ordersVersion.increment();
+        response = orderController.getAllOrders(new ServletWebRequest(request, new MockHttpServletResponse()));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotEquals(eTag, response.getHeaders().getETag());
+        verify(orderService).getAllOrders();
+    }
+
+    /**
+     * Checks that a protobuf order request is converted into an order, and that the created
+     * order is described in the protobuf response.
+     */
+    @Test
+    void testCreateOrder_Protobuf() {
+        Order savedOrder = new Order();
+        savedOrder.setId(5L);
+        savedOrder.setReference("ref-5");
+        savedOrder.setProduct("Laptop");
+        savedOrder.setQuantity(2);
+        savedOrder.setStatus("CREATED");
+        savedOrder.setCreatedAt(Instant.ofEpochMilli(1_000));
+        when(orderService.createOrder(any(Order.class))).thenReturn(savedOrder);
+
+        ResponseEntity<OrderResponse> response = orderController.createOrder(
+                OrderRequest.newBuilder().setProduct("Laptop").setQuantity(2).build());
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("CREATED", response.getBody().getStatus());
+        assertEquals(5L, response.getBody().getId());
+        assertEquals("ref-5", response.getBody().getReference());
+        assertEquals(1_000L, response.getBody().getCreatedAt());
+        verify(orderService).createOrder(argThat(order -> "Laptop".equals(order.getProduct()) && order.getQuantity() == 2));
+    }
+
+    /**
+     * Checks that a rejected protobuf order request gets HTTP 400 with the reason in the message
+     * field, and that an order whose lane is full gets HTTP 429 with {@code Retry-After}, in
+     * protobuf and in JSON.
+     */
+    @Test
+    void testCreateOrder_ProtobufErrors() {
+        when(orderService.createOrder(any(Order.class)))
+                .thenThrow(new IllegalArgumentException("Invalid order details"))
+                .thenThrow(new RejectedExecutionException("Lane full"));
+
+        ResponseEntity<OrderResponse> invalid = orderController.createOrder(OrderRequest.getDefaultInstance());
+        ResponseEntity<OrderResponse> rejected = orderController.createOrder(OrderRequest.getDefaultInstance());
+        ResponseEntity<?> rejectedJson = orderController.createOrder(new Order());
+
+        assertEquals(HttpStatus.BAD_REQUEST, invalid.getStatusCode());
+        assertEquals("Invalid order details", invalid.getBody().getMessage());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getStatusCode());
+        assertEquals("1", rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals("Lane full", rejected.getBody().getMessage());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejectedJson.getStatusCode());
+        assertEquals("1", rejectedJson.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals("Lane full", rejectedJson.getBody());
+    }
+
+    /**
+     * Checks that getAllOrdersAsProtobuf lists the orders as protobuf messages under an ETag that
+     * differs from the one of the JSON list.
+     */
+    @Test
+    void testGetAllOrdersAsProtobuf_ReturnsOrderList() {
+        Order order = new Order();
+        order.setId(1L);
+        order.setProduct("Phone");
+        order.setQuantity(3);
+        order.setStatus("CREATED");
+        when(orderService.getAllOrders()).thenReturn(List.of(order));
+
+        ResponseEntity<OrderList> response = orderController.getAllOrdersAsProtobuf(ordersRequest());
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().getOrdersCount());
+        assertEquals("Phone", response.getBody().getOrders(0).getProduct());
+        assertEquals(3, response.getBody().getOrders(0).getQuantity());
+        assertNotEquals(orderController.getAllOrders(ordersRequest()).getHeaders().getETag(),
+                response.getHeaders().getETag());
+    }
+
+    /**
+     * Checks that getOrdersSince passes the time on to the service and returns its orders with
+     * HTTP 200 OK.
+     */
+    @Test
+    void testGetOrdersSince_ReturnsRecentOrders() {
+        Instant since = Instant.parse("2026-10-01T00:00:00Z");
+        Order order = new Order();
+        order.setId(2L);
+        order.setCreatedAt(since.plusSeconds(60));
+        when(orderService.getOrdersSince(since)).thenReturn(List.of(order));
+
+        ResponseEntity<List<Order>> response = orderController.getOrdersSince(since);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of(order), response.getBody());
+        verify(orderService).getOrdersSince(since);
+    }
+
+    /**
+     * Checks that getStatistics returns the statistics of the service with HTTP 200 OK.
+     */
+    @Test
+    void testGetStatistics_ReturnsSnapshot() {
+        OrderStatistics.Snapshot snapshot = new OrderStatistics.Snapshot(Map.of(), Map.of());
+        when(orderService.getStatistics()).thenReturn(snapshot);
+
+        ResponseEntity<OrderStatistics.Snapshot> response = orderController.getStatistics();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(snapshot, response.getBody());
+    }
 }
\ No newline at end of file
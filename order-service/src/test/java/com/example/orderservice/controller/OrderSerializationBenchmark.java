@@ -0,0 +1,157 @@
+package com.example.orderservice.controller;
+
+import com.example.orderservice.config.SizedProtobufHttpMessageConverter;
+import com.example.orderservice.entity.Order;
+import com.example.orderservice.entity.OrderItem;
+import com.example.orderservice.grpc.LineItem;
+import com.example.orderservice.grpc.OrderRequest;
+import com.example.orderservice.service.OrderService;
+import com.example.orderservice.service.ResourceVersion;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.protobuf.ProtobufHttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Compares the throughput and the allocation per request of JSON and protobuf on
+ * {@code GET /orders} and {@code POST /orders}, through the Spring MVC stack with the order
+ * service stubbed out, so that mostly request handling and serialization are measured.
+ * Protobuf is measured with the {@link SizedProtobufHttpMessageConverter} of the application and
+ * with Spring's stock converter.
+ * <p>
+ * Not part of the regular test run:
+ * <pre>
+ * mvn test -Dtest=OrderSerializationBenchmark
+ * </pre>
+ */
+class OrderSerializationBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(OrderSerializationBenchmark.class);
+
+    private static final int LISTED_ORDERS = 200;
+    private static final long WARMUP_NANOS = 5_000_000_000L;
+    private static final long MEASURE_NANOS = 10_000_000_000L;
+
+    private static int lastResponseBytes;
+
+    @Test
+    void benchmarkSerialization() throws Exception {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < LISTED_ORDERS; i++) {
+            orders.add(order(i));
+        }
+        OrderService orderService = mock(OrderService.class, withSettings().stubOnly());
+        when(orderService.getOrdersVersion()).thenReturn(new ResourceVersion().current());
+        when(orderService.getAllOrders()).thenReturn(orders);
+        when(orderService.createOrder(any(Order.class))).thenReturn(order(LISTED_ORDERS));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new OrderController(orderService))
+                .setMessageConverters(new SizedProtobufHttpMessageConverter(),
+                        new MappingJackson2HttpMessageConverter(objectMapper))
+                .build();
+        MockMvc stockMockMvc = MockMvcBuilders.standaloneSetup(new OrderController(orderService))
+                .setMessageConverters(new ProtobufHttpMessageConverter())
+                .build();
+
+        Order newOrder = cartOrder();
+        byte[] jsonOrder = objectMapper.writeValueAsBytes(newOrder);
+        OrderRequest.Builder orderRequest = OrderRequest.newBuilder();
+        for (OrderItem item : newOrder.getItems()) {
+            orderRequest.addItems(LineItem.newBuilder()
+                    .setProduct(item.getProduct()).setProductId(item.getProductId()).setQuantity(item.getQuantity()));
+        }
+        byte[] protobufOrder = orderRequest.build().toByteArray();
+
+        RequestBuilder getJson = get("/orders").accept(MediaType.APPLICATION_JSON);
+        RequestBuilder getProtobuf = get("/orders").accept(OrderController.APPLICATION_PROTOBUF);
+        RequestBuilder postJson = post("/orders")
+                .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON).content(jsonOrder);
+        RequestBuilder postProtobuf = post("/orders")
+                .contentType(OrderController.APPLICATION_PROTOBUF).accept(OrderController.APPLICATION_PROTOBUF)
+                .content(protobufOrder);
+        Map<String, Runnable> scenarios = new LinkedHashMap<>();
+        scenarios.put("GET /orders json", () -> perform(mockMvc, getJson));
+        scenarios.put("GET /orders protobuf (stock converter)", () -> perform(stockMockMvc, getProtobuf));
+        scenarios.put("GET /orders protobuf", () -> perform(mockMvc, getProtobuf));
+        scenarios.put("POST /orders json", () -> perform(mockMvc, postJson));
+        scenarios.put("POST /orders protobuf (stock converter)", () -> perform(stockMockMvc, postProtobuf));
+        scenarios.put("POST /orders protobuf", () -> perform(mockMvc, postProtobuf));
+
+        // Warm up every scenario before measuring any, so that the code paths they share are
+        // compiled alike for all of them.
+        scenarios.values().forEach(scenario -> repeat(scenario, WARMUP_NANOS));
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        scenarios.forEach((name, scenario) -> {
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long begin = System.nanoTime();
+            long requests = repeat(scenario, MEASURE_NANOS);
+            double seconds = (System.nanoTime() - begin) / 1e9;
+            long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            log.info(String.format("%-40s %8.0f requests/s %8d bytes allocated/request %7d response bytes",
+                    name, requests / seconds, allocated / requests, lastResponseBytes));
+        });
+    }
+
+    private static long repeat(Runnable scenario, long nanos) {
+        long begin = System.nanoTime();
+        long requests = 0;
+        do {
+            scenario.run();
+            requests++;
+        } while (System.nanoTime() - begin < nanos);
+        return requests;
+    }
+
+    private static void perform(MockMvc mockMvc, RequestBuilder request) {
+        try {
+            MockHttpServletResponse response = mockMvc.perform(request).andReturn().getResponse();
+            if (response.getStatus() != 200) {
+                throw new IllegalStateException("Unexpected status " + response.getStatus());
+            }
+            lastResponseBytes = response.getContentAsByteArray().length;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Order order(int i) {
+        Order order = cartOrder();
+        order.setId((long) i + 1);
+        order.setReference("00000000-0000-0000-0000-" + String.format("%012d", i));
+        order.setStatus("CREATED");
+        order.setQuantity(4);
+        order.setCreatedAt(Instant.parse("2026-10-01T00:00:00Z").plusSeconds(i));
+        return order;
+    }
+
+    private static Order cartOrder() {
+        Order order = new Order();
+        for (String product : new String[]{"Laptop", "Phone", "Tablet", "Monitor"}) {
+            OrderItem item = new OrderItem();
+            item.setProduct(product);
+            item.setProductId((long) product.length());
+            item.setQuantity(1);
+            order.getItems().add(item);
+        }
+        return order;
+    }
+}
@@ -115,4 +115,34 @@ public class OrderEntityTest {
         Assertions.assertNotNull(found);
         Assertions.assertEquals(0, found.getQuantity());
     }
+
+    /**
+     * Tests that the line items of an Order are persisted together with the order
+     * and loaded back with it.
+     */
+    @Test
+    @Transactional
+    @Rollback
+    public void testOrderEntityPersistsItems() {
+        Order order = new Order();
+        order.setQuantity(3);
+        order.setStatus("CREATED");
+        OrderItem laptop = new OrderItem();
+        laptop.setProduct("Laptop");
+        laptop.setQuantity(1);
+        OrderItem phone = new OrderItem();
+        phone.setProduct("Phone");
+        phone.setQuantity(2);
+        order.getItems().add(laptop);
+        order.getItems().add(phone);
+
+        entityManager.persist(order);
+        entityManager.flush();
+        entityManager.clear();
+
+        Order found = entityManager.find(Order.class, order.getId());
+        Assertions.assertEquals(2, found.getItems().size());
+        Assertions.assertNotNull(found.getItems().get(0).getId());
+        Assertions.assertEquals(3, found.getItems().stream().mapToInt(OrderItem::getQuantity).sum());
+    }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.example.orderservice.grpc;
 
 import com.example.orderservice.entity.Order;
+import com.example.orderservice.entity.OrderPriority;
 import com.example.orderservice.service.OrderService;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
@@ -103,6 +104,72 @@ class OrderGrpcServiceTest {
         assertEquals(2, capturedOrder.getQuantity());
     }
 
+    /**
+     * Verifies that the line items of a multi-product order request are passed to
+     * the order service as order items.
+     */
+    @Test
+    void testLineItemsAreMappedToOrderItems() {
+        OrderRequest request = OrderRequest.newBuilder()
+                .addItems(LineItem.newBuilder().setProduct("Laptop").setQuantity(1))
+                .addItems(LineItem.newBuilder().setProduct("Phone").setQuantity(2))
+                .build();
+
+        Order savedOrder = new Order();
+        savedOrder.setStatus("CREATED");
+        when(orderService.createOrder(any(Order.class))).thenReturn(savedOrder);
+
+        orderGrpcService.createOrder(request, responseObserver);
+
+        verify(orderService).createOrder(orderCaptor.capture());
+        Order capturedOrder = orderCaptor.getValue();
+        assertEquals(2, capturedOrder.getItems().size());
+        assertEquals("Laptop", capturedOrder.getItems().get(0).getProduct());
+        assertEquals(1, capturedOrder.getItems().get(0).getQuantity());
+        assertEquals("Phone", capturedOrder.getItems().get(1).getProduct());
+        assertEquals(2, capturedOrder.getItems().get(1).getQuantity());
+    }
+
+    /**
+     * Verifies that a product id in the request is passed on to the order service.
+     */
+    @Test
+    void testProductIdIsMappedToOrder() {
+        OrderRequest request = OrderRequest.newBuilder()
+                .setProductId(7L)
+                .setQuantity(1)
+                .build();
+
+        Order savedOrder = new Order();
+        savedOrder.setStatus("CREATED");
+        when(orderService.createOrder(any(Order.class))).thenReturn(savedOrder);
+
+        orderGrpcService.createOrder(request, responseObserver);
+
+        verify(orderService).createOrder(orderCaptor.capture());
+        assertEquals(7L, orderCaptor.getValue().getProductId());
+    }
+
+    /**
+     * Verifies that the priority of the request selects the lane of the order, and that
+     * requests without a priority are interactive.
+     */
+    @Test
+    void testPriorityIsMappedToOrder() {
+        Order savedOrder = new Order();
+        savedOrder.setStatus("CREATED");
+        when(orderService.createOrder(any(Order.class))).thenReturn(savedOrder);
+
+        orderGrpcService.createOrder(OrderRequest.newBuilder().setProduct("Pen").setQuantity(1)
+                .setPriority(Priority.BATCH).build(), responseObserver);
+        orderGrpcService.createOrder(OrderRequest.newBuilder().setProduct("Pen").setQuantity(1).build(),
+                responseObserver);
+
+        verify(orderService, times(2)).createOrder(orderCaptor.capture());
+        assertEquals(OrderPriority.BATCH, orderCaptor.getAllValues().get(0).getPriority());
+        assertEquals(OrderPriority.INTERACTIVE, orderCaptor.getAllValues().get(1).getPriority());
+    }
+
     /**
      * Verifies that the response observer is completed after a successful order
      * creation.
@@ -0,0 +1,219 @@
+package com.example.orderservice.reconciliation;
+
+import com.example.inventoryservice.grpc.InventoryServiceGrpc;
+import com.example.inventoryservice.grpc.OrderDecrements;
+import com.example.inventoryservice.grpc.OrderDecrementsRequest;
+import com.example.inventoryservice.grpc.ProductDecrement;
+import com.example.orderservice.entity.Order;
+import com.example.orderservice.entity.OrderItem;
+import com.example.orderservice.repository.OrderRepository;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockReconcilerTest {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private InventoryServiceGrpc.InventoryServiceBlockingStub inventoryServiceStub;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+    @BeforeEach
+    void setUp() {
+        orderRepository.deleteAll();
+        inventoryServiceStub = mock(InventoryServiceGrpc.InventoryServiceBlockingStub.class);
+        when(inventoryServiceStub.withDeadlineAfter(anyLong(), any(TimeUnit.class))).thenReturn(inventoryServiceStub);
+    }
+
+    /**
+     * Verifies that the units of the CREATED single-product orders and line items in the window
+     * are compared per product against the inventory's decrements, across parallel product
+     * ranges, and that products only one side knows are reported as well.
+     */
+    @Test
+    void testReportsProductsWhoseUnitsDiffer() {
+        single(1L, 2, "CREATED", now.minusSeconds(30));
+        single(2L, 3, "CREATED", now.minusSeconds(20));
+        single(1L, 5, "REJECTED", now.minusSeconds(20));
+        single(1L, 9, "CREATED", now.minusSeconds(120));
+        single(null, 7, "CREATED", now.minusSeconds(10));
+        multi(now.minusSeconds(10), Map.of(1L, 1, 3L, 4));
+        inventory(Map.of(1L, 3L, 2L, 1L, 4L, 2L));
+
+        StockReconciler.Report report = reconciler(2, 10).reconcile(now.minusSeconds(60), now);
+
+        assertEquals(4, report.productsCompared());
+        assertEquals(10, report.orderedUnits());
+        assertEquals(6, report.decrementedUnits());
+        assertEquals(3, report.discrepancyCount());
+        assertEquals(List.of(new StockReconciler.Discrepancy(2, 3, 1), new StockReconciler.Discrepancy(3, 4, 0),
+                new StockReconciler.Discrepancy(4, 0, 2)), report.discrepancies());
+        assertFalse(report.truncated());
+        assertEquals(7, report.unattributedUnits());
+        assertEquals(0, meterRegistry.counter("order.reconciliation.discrepancies").count());
+        verify(inventoryServiceStub, times(2)).streamOrderDecrements(any());
+    }
+
+    /**
+     * Verifies that the report lists at most the configured number of discrepancies, but counts
+     * all of them.
+     */
+    @Test
+    void testTruncatesDiscrepancies() {
+        single(1L, 2, "CREATED", now.minusSeconds(30));
+        single(2L, 3, "CREATED", now.minusSeconds(20));
+        single(3L, 1, "CREATED", now.minusSeconds(10));
+        inventory(Map.of(3L, 1L));
+
+        StockReconciler.Report report = reconciler(1, 1).reconcile(now.minusSeconds(60), now);
+
+        assertEquals(2, report.discrepancyCount());
+        assertEquals(List.of(new StockReconciler.Discrepancy(1, 2, 0)), report.discrepancies());
+        assertTrue(report.truncated());
+    }
+
+    /**
+     * Verifies that a failing inventory stream fails the reconciliation instead of reporting the
+     * products it did not send as discrepancies.
+     */
+    @Test
+    void testInventoryFailureFailsReconciliation() {
+        single(1L, 2, "CREATED", now.minusSeconds(30));
+        when(inventoryServiceStub.streamOrderDecrements(any())).thenReturn(new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                throw new StatusRuntimeException(Status.DEADLINE_EXCEEDED);
+            }
+
+            @Override
+            public OrderDecrements next() {
+                throw new StatusRuntimeException(Status.DEADLINE_EXCEEDED);
+            }
+        });
+
+        assertThrows(StatusRuntimeException.class, () -> reconciler(1, 10).reconcile(now.minusSeconds(60), now));
+        assertEquals(0, meterRegistry.counter("order.reconciliation.discrepancies").count());
+    }
+
+    /**
+     * Verifies that discrepancies are held until the next window, that the opposite
+     * discrepancies of an order at the edge of two windows cancel out, and that the others are
+     * confirmed with the units of both windows and counted, along with the discrepancies a
+     * truncated report could not list.
+     */
+    @Test
+    void testConfirmsDiscrepanciesAcrossAdjacentWindows() {
+        StockReconciler reconciler = reconciler(1, 2);
+
+        assertEquals(List.of(), reconciler.confirm(report(2,
+                new StockReconciler.Discrepancy(1, 0, 2), new StockReconciler.Discrepancy(2, 3, 0))));
+        assertEquals(0, meterRegistry.counter("order.reconciliation.discrepancies").count());
+
+        assertEquals(List.of(new StockReconciler.Discrepancy(2, 4, 0)), reconciler.confirm(report(5,
+                new StockReconciler.Discrepancy(1, 2, 0), new StockReconciler.Discrepancy(2, 1, 0))));
+        assertEquals(4, meterRegistry.counter("order.reconciliation.discrepancies").count());
+
+        assertEquals(List.of(), reconciler.confirm(report(0)));
+        assertEquals(4, meterRegistry.counter("order.reconciliation.discrepancies").count());
+    }
+
+    private StockReconciler.Report report(long discrepancyCount, StockReconciler.Discrepancy... discrepancies) {
+        return new StockReconciler.Report(now.minusSeconds(60), now, discrepancies.length, 0, 0, discrepancyCount,
+                List.of(discrepancies), 0);
+    }
+
+    private StockReconciler reconciler(int partitions, int maxDiscrepancies) {
+        TransactionTemplate readOnlyTransactions = new TransactionTemplate(transactionManager);
+        readOnlyTransactions.setReadOnly(true);
+        StockReconciler reconciler = new StockReconciler(jdbcTemplate, readOnlyTransactions, Duration.ofHours(1),
+                Duration.ofMinutes(5), partitions, 2, maxDiscrepancies, Duration.ofSeconds(5), meterRegistry);
+        ReflectionTestUtils.setField(reconciler, "inventoryServiceStub", inventoryServiceStub);
+        return reconciler;
+    }
+
+    /**
+     * Answers each decrement stream with the given decrements in its product range, two per
+     * chunk.
+     */
+    private void inventory(Map<Long, Long> decrements) {
+        when(inventoryServiceStub.streamOrderDecrements(any())).thenAnswer(invocation -> {
+            OrderDecrementsRequest request = invocation.getArgument(0);
+            long toProductId = request.getToProductId() == 0 ? Long.MAX_VALUE : request.getToProductId();
+            List<OrderDecrements> chunks = new ArrayList<>();
+            OrderDecrements.Builder chunk = OrderDecrements.newBuilder();
+            new TreeMap<>(decrements).forEach((productId, quantity) -> {
+                if (productId >= request.getFromProductId() && productId < toProductId) {
+                    chunk.addProducts(ProductDecrement.newBuilder().setProductId(productId).setQuantity(quantity));
+                    if (chunk.getProductsCount() == 2) {
+                        chunks.add(chunk.build());
+                        chunk.clear();
+                    }
+                }
+            });
+            if (chunk.getProductsCount() > 0) {
+                chunks.add(chunk.build());
+            }
+            return chunks.iterator();
+        });
+    }
+
+    private void single(Long productId, int quantity, String status, Instant createdAt) {
+        Order order = new Order();
+        order.setProduct("Product " + productId);
+        order.setProductId(productId);
+        order.setQuantity(quantity);
+        order.setStatus(status);
+        order.setCreatedAt(createdAt);
+        orderRepository.save(order);
+    }
+
+    private void multi(Instant createdAt, Map<Long, Integer> quantities) {
+        Order order = new Order();
+        quantities.forEach((productId, quantity) -> {
+            OrderItem item = new OrderItem();
+            item.setProduct("Product " + productId);
+            item.setProductId(productId);
+            item.setQuantity(quantity);
+            order.getItems().add(item);
+        });
+        order.setQuantity(quantities.values().stream().mapToInt(Integer::intValue).sum());
+        order.setStatus("CREATED");
+        order.setCreatedAt(createdAt);
+        orderRepository.save(order);
+    }
+}
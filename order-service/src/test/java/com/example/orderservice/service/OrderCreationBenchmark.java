@@ -0,0 +1,122 @@
+package com.example.orderservice.service;
+
+import com.example.inventoryservice.grpc.InventoryServiceGrpc;
+import com.example.inventoryservice.grpc.ReserveStockRequest;
+import com.example.inventoryservice.grpc.ReserveStockResponse;
+import com.example.inventoryservice.grpc.StockRequest;
+import com.example.inventoryservice.grpc.StockResponse;
+import com.example.inventoryservice.grpc.UpdateStockRequest;
+import com.example.orderservice.entity.Order;
+import com.example.orderservice.entity.OrderItem;
+import com.example.orderservice.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Measures the throughput and latency of {@link OrderService#createOrder(Order)} with the inventory
+ * stubbed out, so that only validation and persistence are measured.
+ * <p>
+ * Not part of the regular test run. Compare the default settings with the high-throughput profile:
+ * <pre>
+ * mvn test -Dtest=OrderCreationBenchmark
+ * mvn test -Dtest=OrderCreationBenchmark -Dspring.profiles.active=high-throughput
+ * </pre>
+ * Runs against embedded H2 by default; add {@code -Dspring.test.database.replace=none} to use the
+ * PostgreSQL database from {@code application.properties}, where the PgJDBC settings take effect.
+ */
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderCreationBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(OrderCreationBenchmark.class);
+
+    private static final int THREADS = 16;
+    private static final int WARMUP_ORDERS = 2_000;
+    private static final int ORDERS = 20_000;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Value("${spring.profiles.active:default}")
+    private String profile;
+
+    @Test
+    void benchmarkCreateOrder() throws Exception {
+        StockResponse available = StockResponse.newBuilder().setAvailable(true).setProductId(1L).build();
+        InventoryServiceGrpc.InventoryServiceBlockingStub stub =
+                mock(InventoryServiceGrpc.InventoryServiceBlockingStub.class, withSettings().stubOnly());
+        when(stub.checkStock(any(StockRequest.class))).thenReturn(available);
+        when(stub.updateStock(any(UpdateStockRequest.class))).thenReturn(available);
+        when(stub.reserveStock(any(ReserveStockRequest.class)))
+                .thenReturn(ReserveStockResponse.newBuilder().setReserved(true).build());
+
+        OrderService orderService = new OrderService(orderRepository);
+        java.lang.reflect.Field stubField = OrderService.class.getDeclaredField("inventoryServiceStub");
+        stubField.setAccessible(true);
+        stubField.set(orderService, stub);
+
+        run(orderService, WARMUP_ORDERS);
+        long[] latencies = run(orderService, ORDERS);
+        Arrays.sort(latencies);
+        log.info(String.format("profile=%s orders=%d p50=%dus p99=%dus", profile, ORDERS,
+                latencies[ORDERS / 2] / 1_000, latencies[ORDERS * 99 / 100] / 1_000));
+    }
+
+    private long[] run(OrderService orderService, int orders) throws InterruptedException {
+        long[] latencies = new long[orders];
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = next.getAndIncrement(); i < orders; i = next.getAndIncrement()) {
+                    long begin = System.nanoTime();
+                    orderService.createOrder(i % 2 == 0 ? singleProductOrder() : cartOrder());
+                    latencies[i] = System.nanoTime() - begin;
+                }
+                return null;
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        log.info(String.format("profile=%s %.0f orders/s", profile, orders / seconds));
+        return latencies;
+    }
+
+    private static Order singleProductOrder() {
+        Order order = new Order();
+        order.setProduct("Laptop");
+        order.setQuantity(1);
+        return order;
+    }
+
+    private static Order cartOrder() {
+        Order order = new Order();
+        for (String product : new String[]{"Laptop", "Phone", "Tablet", "Monitor"}) {
+            OrderItem item = new OrderItem();
+            item.setProduct(product);
+            item.setQuantity(1);
+            order.getItems().add(item);
+        }
+        return order;
+    }
+}
@@ -1,16 +1,24 @@
 package com.example.orderservice.service;
 
 import com.example.inventoryservice.grpc.InventoryServiceGrpc;
+import com.example.inventoryservice.grpc.ReserveStockRequest;
+import com.example.inventoryservice.grpc.ReserveStockResponse;
 import com.example.inventoryservice.grpc.StockRequest;
 import com.example.inventoryservice.grpc.StockResponse;
+import com.example.inventoryservice.grpc.UpdateStockRequest;
+import com.example.orderservice.compensation.CompensationQueue;
+import com.example.orderservice.config.OrderStatsProperties;
 import com.example.orderservice.entity.Order;
+import com.example.orderservice.entity.OrderItem;
 import com.example.orderservice.repository.OrderRepository;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import net.devh.boot.grpc.client.inject.GrpcClient;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.test.util.ReflectionTestUtils;
 import java.util.Collections;
 import java.util.List;
 import java.util.Arrays;
@@ -86,6 +94,28 @@ class OrderServiceTest {
         assertEquals("REJECTED", orderCaptor.getValue().getStatus());
     }
 
+    /**
+     * Tests that a stored order is counted in the order statistics under its product and
+     * status.
+     */
+    @Test
+    void testCreateOrder_CountedInStatistics() {
+        Order order = new Order();
+        order.setProduct("Widget");
+        order.setQuantity(3);
+
+        StockResponse stockResponse = mock(StockResponse.class);
+        when(stockResponse.getAvailable()).thenReturn(false);
+        when(inventoryServiceStub.checkStock(any(StockRequest.class))).thenReturn(stockResponse);
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        orderService.createOrder(order);
+
+        OrderStatistics.Snapshot statistics = orderService.getStatistics();
+        assertEquals(new OrderStatistics.Volume(1, 3), statistics.statuses().get("REJECTED").total());
+        assertEquals(new OrderStatistics.Volume(1, 3), statistics.products().get("Widget").get("REJECTED").total());
+    }
+
     /**
      * Tests that an order creation request with invalid order details
      * results in an IllegalArgumentException being thrown.
@@ -162,6 +192,200 @@ class OrderServiceTest {
         assertEquals("REJECTED", orderCaptor.getValue().getStatus());
     }
 
+    /**
+     * Tests that a multi-product order is reserved with a single inventory call,
+     * without per-product stock checks, and saved once with its items as CREATED.
+     */
+    @Test
+    void testCreateOrder_MultiProductReservedWithSingleCall() {
+        Order order = new Order();
+        order.getItems().add(item("Laptop", 1));
+        order.getItems().add(item("Phone", 2));
+
+        when(inventoryServiceStub.reserveStock(any(ReserveStockRequest.class)))
+                .thenReturn(ReserveStockResponse.newBuilder().setReserved(true).build());
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Order result = orderService.createOrder(order);
+
+        assertEquals("CREATED", result.getStatus());
+        assertEquals(3, result.getQuantity());
+        ArgumentCaptor<ReserveStockRequest> requestCaptor = ArgumentCaptor.forClass(ReserveStockRequest.class);
+        verify(inventoryServiceStub, times(1)).reserveStock(requestCaptor.capture());
+        assertEquals(2, requestCaptor.getValue().getItemsCount());
+        verify(inventoryServiceStub, never()).checkStock(any());
+        verify(inventoryServiceStub, never()).updateStock(any());
+        verify(orderRepository, times(1)).save(orderCaptor.capture());
+        assertEquals(2, orderCaptor.getValue().getItems().size());
+    }
+
+    /**
+     * Tests that a multi-product order is saved as REJECTED when the inventory
+     * cannot reserve every item.
+     */
+    @Test
+    void testCreateOrder_MultiProductRejectedWhenReservationFails() {
+        Order order = new Order();
+        order.getItems().add(item("Laptop", 100));
+
+        when(inventoryServiceStub.reserveStock(any(ReserveStockRequest.class)))
+                .thenReturn(ReserveStockResponse.newBuilder().setReserved(false).build());
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Order result = orderService.createOrder(order);
+
+        assertEquals("REJECTED", result.getStatus());
+        verify(orderRepository).save(orderCaptor.capture());
+        assertEquals("REJECTED", orderCaptor.getValue().getStatus());
+    }
+
+    /**
+     * Tests that a multi-product order containing an item with a non-positive
+     * quantity is rejected as invalid without calling the inventory service.
+     */
+    @Test
+    void testCreateOrder_MultiProductWithInvalidItem() {
+        Order order = new Order();
+        order.getItems().add(item("Laptop", 1));
+        order.getItems().add(item("Phone", 0));
+
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> orderService.createOrder(order));
+        assertEquals("Invalid order details", ex.getMessage());
+        verifyNoInteractions(inventoryServiceStub);
+    }
+
+    /**
+     * Tests that the product id returned by the inventory is stored on the order and
+     * cached, so that the next order for the same product is sent by id only.
+     */
+    @Test
+    void testCreateOrder_CachesProductIdAndUsesItForLaterOrders() {
+        StockResponse stockResponse = StockResponse.newBuilder().setAvailable(true).setProductId(42L).build();
+        when(inventoryServiceStub.checkStock(any(StockRequest.class))).thenReturn(stockResponse);
+        when(inventoryServiceStub.updateStock(any(UpdateStockRequest.class))).thenReturn(stockResponse);
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Order first = new Order();
+        first.setProduct("Widget");
+        first.setQuantity(1);
+        Order second = new Order();
+        second.setProduct("Widget");
+        second.setQuantity(2);
+
+        assertEquals(42L, orderService.createOrder(first).getProductId());
+        assertEquals(42L, orderService.createOrder(second).getProductId());
+
+        ArgumentCaptor<StockRequest> checkCaptor = ArgumentCaptor.forClass(StockRequest.class);
+        ArgumentCaptor<UpdateStockRequest> updateCaptor = ArgumentCaptor.forClass(UpdateStockRequest.class);
+        verify(inventoryServiceStub, times(2)).checkStock(checkCaptor.capture());
+        verify(inventoryServiceStub, times(2)).updateStock(updateCaptor.capture());
+        assertEquals("Widget", checkCaptor.getAllValues().get(0).getProduct());
+        assertEquals(0L, checkCaptor.getAllValues().get(0).getProductId());
+        assertEquals(42L, updateCaptor.getAllValues().get(0).getProductId());
+        assertEquals("", checkCaptor.getAllValues().get(1).getProduct());
+        assertEquals(42L, checkCaptor.getAllValues().get(1).getProductId());
+    }
+
+    private static OrderItem item(String product, int quantity) {
+        OrderItem item = new OrderItem();
+        item.setProduct(product);
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    /**
+     * Tests that with a compensation queue, an order records its intent before it takes stock,
+     * tags the stock update with its reference, and is discarded from the queue once stored.
+     */
+    @Test
+    void testCreateOrder_CompensationIntentDiscardedOnceStored() {
+        CompensationQueue compensationQueue = mock(CompensationQueue.class);
+        OrderService service = withCompensation(compensationQueue);
+        Order order = new Order();
+        order.setProduct("Widget");
+        order.setQuantity(2);
+
+        when(inventoryServiceStub.checkStock(any(StockRequest.class)))
+                .thenReturn(StockResponse.newBuilder().setAvailable(true).build());
+        when(inventoryServiceStub.updateStock(any(UpdateStockRequest.class)))
+                .thenReturn(StockResponse.newBuilder().setAvailable(true).build());
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Order result = service.createOrder(order);
+
+        assertEquals("CREATED", result.getStatus());
+        ArgumentCaptor<UpdateStockRequest> requestCaptor = ArgumentCaptor.forClass(UpdateStockRequest.class);
+        InOrder inOrder = inOrder(compensationQueue, inventoryServiceStub, orderRepository);
+        inOrder.verify(compensationQueue).recordIntent(result.getReference());
+        inOrder.verify(inventoryServiceStub).updateStock(requestCaptor.capture());
+        inOrder.verify(orderRepository).save(any(Order.class));
+        inOrder.verify(compensationQueue).discard(result.getReference());
+        assertEquals(result.getReference(), requestCaptor.getValue().getOrderRef());
+        verify(compensationQueue, never()).requestRelease(any());
+    }
+
+    /**
+     * Tests that the stock of an order is released when the stock update fails, e.g. because
+     * its deadline passed while the inventory may still take the stock.
+     */
+    @Test
+    void testCreateOrder_CompensationRequestedWhenStockUpdateFails() {
+        CompensationQueue compensationQueue = mock(CompensationQueue.class);
+        OrderService service = withCompensation(compensationQueue);
+        Order order = new Order();
+        order.setProduct("Widget");
+        order.setQuantity(2);
+
+        when(inventoryServiceStub.checkStock(any(StockRequest.class)))
+                .thenReturn(StockResponse.newBuilder().setAvailable(true).build());
+        when(inventoryServiceStub.updateStock(any(UpdateStockRequest.class)))
+                .thenThrow(new StatusRuntimeException(Status.DEADLINE_EXCEEDED));
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertThrows(RuntimeException.class, () -> service.createOrder(order));
+
+        verify(orderRepository).save(orderCaptor.capture());
+        assertEquals("REJECTED", orderCaptor.getValue().getStatus());
+        verify(compensationQueue).recordIntent(orderCaptor.getValue().getReference());
+        verify(compensationQueue).requestRelease(orderCaptor.getValue().getReference());
+        verify(compensationQueue, never()).discard(any());
+    }
+
+    /**
+     * Tests that the stock of a reserved order is released when the order cannot be stored, and
+     * that an order that reserved nothing is discarded from the queue.
+     */
+    @Test
+    void testCreateOrder_CompensationRequestedWhenReservedOrderCannotBeStored() {
+        CompensationQueue compensationQueue = mock(CompensationQueue.class);
+        OrderService service = withCompensation(compensationQueue);
+        Order reserved = new Order();
+        reserved.getItems().add(item("Laptop", 1));
+        Order rejected = new Order();
+        rejected.getItems().add(item("Laptop", 100));
+
+        when(inventoryServiceStub.reserveStock(any(ReserveStockRequest.class)))
+                .thenReturn(ReserveStockResponse.newBuilder().setReserved(true).build())
+                .thenReturn(ReserveStockResponse.newBuilder().setReserved(false).build());
+        when(orderRepository.save(any(Order.class)))
+                .thenThrow(new IllegalStateException("Database unavailable"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertThrows(IllegalStateException.class, () -> service.createOrder(reserved));
+        Order result = service.createOrder(rejected);
+
+        assertEquals("REJECTED", result.getStatus());
+        ArgumentCaptor<ReserveStockRequest> requestCaptor = ArgumentCaptor.forClass(ReserveStockRequest.class);
+        verify(inventoryServiceStub, times(2)).reserveStock(requestCaptor.capture());
+        String reservedRef = requestCaptor.getAllValues().get(0).getOrderRef();
+        assertEquals(reserved.getReference(), reservedRef);
+        verify(compensationQueue).requestRelease(reservedRef);
+        verify(compensationQueue, never()).discard(reservedRef);
+        verify(compensationQueue).discard(result.getReference());
+    }
+
     /**
      * Tests that getAllOrders returns an empty list when there are no orders.
      * <p>
@@ -275,4 +499,12 @@ class OrderServiceTest {
         assertEquals(0, returnedOrder.getQuantity());
         assertNull(returnedOrder.getStatus());
     }
+
+    private OrderService withCompensation(CompensationQueue compensationQueue) {
+        OrderService service = new OrderService(orderRepository, new ProductIdCache(ProductIdCache.DEFAULT_MAX_ENTRIES),
+                PriorityLaneExecutor.callerRuns(new SimpleMeterRegistry()), null,
+                new OrderStatistics(new OrderStatsProperties()), new ResourceVersion(), compensationQueue);
+        ReflectionTestUtils.setField(service, "inventoryServiceStub", inventoryServiceStub);
+        return service;
+    }
 }
@@ -0,0 +1,153 @@
+package com.example.orderservice.service;
+
+import com.example.orderservice.config.OrderStatsProperties;
+import com.example.orderservice.entity.Order;
+import com.example.orderservice.entity.OrderItem;
+import com.example.orderservice.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderStatisticsTest {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private final AtomicLong now = new AtomicLong(Instant.now().toEpochMilli());
+
+    private OrderStatistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository.deleteAll();
+        OrderStatsProperties properties = new OrderStatsProperties();
+        properties.setBucketWidth(Duration.ofMinutes(1));
+        properties.setWindows(List.of(Duration.ofMinutes(5), Duration.ofHours(1)));
+        statistics = new OrderStatistics(properties, now::get);
+    }
+
+    /**
+     * Verifies that line items count towards their own products, while the status totals count
+     * each order once with its total quantity.
+     */
+    @Test
+    void testCountsByProductAndStatus() {
+        statistics.record(order("Laptop", 2, "CREATED"));
+        statistics.record(order("Laptop", 1, "REJECTED"));
+        statistics.record(cart("CREATED", item("Laptop", 1), item("Phone", 3)));
+
+        OrderStatistics.Snapshot snapshot = statistics.snapshot();
+
+        assertEquals(new OrderStatistics.Volume(2, 6), snapshot.statuses().get("CREATED").total());
+        assertEquals(new OrderStatistics.Volume(1, 1), snapshot.statuses().get("REJECTED").total());
+        assertEquals(new OrderStatistics.Volume(2, 3), snapshot.products().get("Laptop").get("CREATED").total());
+        assertEquals(new OrderStatistics.Volume(1, 1), snapshot.products().get("Laptop").get("REJECTED").total());
+        assertEquals(new OrderStatistics.Volume(1, 3), snapshot.products().get("Phone").get("CREATED").total());
+        assertEquals(new OrderStatistics.Volume(2, 6), snapshot.statuses().get("CREATED").windows().get("5m"));
+    }
+
+    /**
+     * Verifies that orders leave a sliding window once it has moved past them, and stay in the
+     * totals and the longer windows.
+     */
+    @Test
+    void testWindowsSlide() {
+        statistics.record(order("Laptop", 2, "CREATED"));
+        now.addAndGet(Duration.ofMinutes(10).toMillis());
+        statistics.record(order("Laptop", 1, "CREATED"));
+
+        OrderStatistics.Stats stats = statistics.snapshot().products().get("Laptop").get("CREATED");
+
+        assertEquals(new OrderStatistics.Volume(2, 3), stats.total());
+        assertEquals(new OrderStatistics.Volume(1, 1), stats.windows().get("5m"));
+        assertEquals(new OrderStatistics.Volume(2, 3), stats.windows().get("1h"));
+
+        now.addAndGet(Duration.ofHours(2).toMillis());
+        stats = statistics.snapshot().products().get("Laptop").get("CREATED");
+        assertEquals(new OrderStatistics.Volume(0, 0), stats.windows().get("1h"));
+        assertEquals(new OrderStatistics.Volume(2, 3), stats.total());
+    }
+
+    /**
+     * Verifies that reconciling seeds the totals from all stored orders and the windows from the
+     * recent ones.
+     */
+    @Test
+    void testReconcileSeedsFromDatabase() {
+        Order old = order("Laptop", 2, "CREATED");
+        old.setCreatedAt(Instant.ofEpochMilli(now.get()).minus(Duration.ofDays(3)));
+        orderRepository.save(old);
+        Order recent = cart("CREATED", item("Laptop", 1), item("Phone", 4));
+        recent.setCreatedAt(Instant.ofEpochMilli(now.get()).minus(Duration.ofMinutes(2)));
+        orderRepository.save(recent);
+
+        statistics.reconcile(orderRepository);
+
+        OrderStatistics.Snapshot snapshot = statistics.snapshot();
+        assertEquals(new OrderStatistics.Volume(2, 7), snapshot.statuses().get("CREATED").total());
+        assertEquals(new OrderStatistics.Volume(1, 5), snapshot.statuses().get("CREATED").windows().get("5m"));
+        OrderStatistics.Stats laptop = snapshot.products().get("Laptop").get("CREATED");
+        assertEquals(new OrderStatistics.Volume(2, 3), laptop.total());
+        assertEquals(new OrderStatistics.Volume(1, 1), laptop.windows().get("1h"));
+        assertEquals(new OrderStatistics.Volume(1, 4), snapshot.products().get("Phone").get("CREATED").total());
+    }
+
+    /**
+     * Verifies that reconciling again replaces the counts instead of adding to them, and brings
+     * in the orders another instance stored in the meantime.
+     */
+    @Test
+    void testReconcileAgainReplacesCounts() {
+        Order recorded = order("Laptop", 2, "CREATED");
+        recorded.setCreatedAt(Instant.ofEpochMilli(now.get()).minus(Duration.ofMinutes(1)));
+        orderRepository.save(recorded);
+        statistics.reconcile(orderRepository);
+        Order elsewhere = order("Laptop", 3, "CREATED");
+        elsewhere.setCreatedAt(Instant.ofEpochMilli(now.get()));
+        orderRepository.save(elsewhere);
+
+        statistics.reconcile(orderRepository);
+
+        OrderStatistics.Stats laptop = statistics.snapshot().products().get("Laptop").get("CREATED");
+        assertEquals(new OrderStatistics.Volume(2, 5), laptop.total());
+        assertEquals(new OrderStatistics.Volume(2, 5), laptop.windows().get("5m"));
+        assertEquals(new OrderStatistics.Volume(2, 5), statistics.snapshot().statuses().get("CREATED").total());
+    }
+
+    private static Order order(String product, int quantity, String status) {
+        Order order = new Order();
+        order.setProduct(product);
+        order.setQuantity(quantity);
+        order.setStatus(status);
+        return order;
+    }
+
+    private static Order cart(String status, OrderItem... items) {
+        Order order = new Order();
+        order.setStatus(status);
+        for (OrderItem item : items) {
+            order.getItems().add(item);
+            order.setQuantity(order.getQuantity() + item.getQuantity());
+        }
+        return order;
+    }
+
+    private static OrderItem item(String product, int quantity) {
+        OrderItem item = new OrderItem();
+        item.setProduct(product);
+        item.setQuantity(quantity);
+        return item;
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.orderservice.service;
+
+import com.example.orderservice.config.PriorityLaneProperties;
+import com.example.orderservice.entity.OrderPriority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriorityLaneExecutorTest {
+
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    private PriorityLaneExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        callers.shutdownNow();
+    }
+
+    /**
+     * Verifies that an executor without workers runs tasks on the calling thread and passes
+     * exceptions through unchanged.
+     */
+    @Test
+    void testCallerRunsExecutesInline() {
+        executor = PriorityLaneExecutor.callerRuns(new SimpleMeterRegistry());
+        Thread caller = Thread.currentThread();
+
+        assertSame(caller, executor.execute(OrderPriority.BATCH, Thread::currentThread));
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> executor.execute(OrderPriority.INTERACTIVE, () -> {
+                    throw new IllegalArgumentException("Invalid order details");
+                }));
+        assertEquals("Invalid order details", thrown.getMessage());
+    }
+
+    /**
+     * Verifies that exceptions thrown on a worker reach the caller unchanged.
+     */
+    @Test
+    void testWorkerExceptionIsRethrown() {
+        executor = new PriorityLaneExecutor(properties(2, 0), new SimpleMeterRegistry());
+
+        RuntimeException thrown = assertThrows(RuntimeException.class,
+                () -> executor.execute(OrderPriority.INTERACTIVE, () -> {
+                    throw new RuntimeException("gRPC error: unavailable");
+                }));
+        assertEquals("gRPC error: unavailable", thrown.getMessage());
+    }
+
+    /**
+     * Verifies that interactive orders queued behind batch orders are served first when both
+     * lanes have work, according to their weights.
+     */
+    @Test
+    void testInteractiveLaneIsServedAheadOfBatch() throws Exception {
+        executor = new PriorityLaneExecutor(properties(1, 0), new SimpleMeterRegistry());
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        Future<?> blocker = callers.submit(() -> executor.execute(OrderPriority.BATCH, () -> {
+            started.countDown();
+            await(release);
+            return null;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        List<OrderPriority> completed = Collections.synchronizedList(new ArrayList<>());
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(callers.submit(() -> executor.execute(OrderPriority.BATCH, () -> completed.add(OrderPriority.BATCH))));
+        }
+        for (int i = 0; i < 4; i++) {
+            futures.add(callers.submit(() -> executor.execute(OrderPriority.INTERACTIVE, () -> completed.add(OrderPriority.INTERACTIVE))));
+        }
+        waitUntilQueued(4, 4);
+
+        release.countDown();
+        blocker.get(5, TimeUnit.SECONDS);
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        assertEquals(List.of(OrderPriority.INTERACTIVE, OrderPriority.INTERACTIVE, OrderPriority.INTERACTIVE,
+                OrderPriority.INTERACTIVE, OrderPriority.BATCH, OrderPriority.BATCH, OrderPriority.BATCH,
+                OrderPriority.BATCH), completed);
+    }
+
+    /**
+     * Verifies that batch orders cannot occupy every worker, so an interactive order is processed
+     * while the batch lane is saturated.
+     */
+    @Test
+    void testBatchConcurrencyCapKeepsWorkerFreeForInteractive() throws Exception {
+        executor = new PriorityLaneExecutor(properties(2, 1), new SimpleMeterRegistry());
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        Future<?> slowBatch = callers.submit(() -> executor.execute(OrderPriority.BATCH, () -> {
+            started.countDown();
+            await(release);
+            return null;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> queuedBatch = callers.submit(() -> executor.execute(OrderPriority.BATCH, () -> "batch"));
+        waitUntilQueued(1, 0);
+
+        Future<String> interactive = callers.submit(() -> executor.execute(OrderPriority.INTERACTIVE, () -> "interactive"));
+
+        assertEquals("interactive", interactive.get(5, TimeUnit.SECONDS));
+        assertFalse(queuedBatch.isDone());
+        release.countDown();
+        assertEquals("batch", queuedBatch.get(5, TimeUnit.SECONDS));
+        slowBatch.get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Verifies that an order is rejected when the queue of its lane is full.
+     */
+    @Test
+    void testFullLaneRejectsOrders() throws Exception {
+        PriorityLaneProperties properties = properties(1, 0);
+        properties.getBatch().setQueueCapacity(1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        executor = new PriorityLaneExecutor(properties, meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        Future<?> blocker = callers.submit(() -> executor.execute(OrderPriority.INTERACTIVE, () -> {
+            started.countDown();
+            await(release);
+            return null;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> queued = callers.submit(() -> executor.execute(OrderPriority.BATCH, () -> "queued"));
+        waitUntilQueued(1, 0);
+
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(OrderPriority.BATCH, () -> "rejected"));
+        assertEquals(1.0, meterRegistry.counter("order.lanes.rejected").count());
+
+        release.countDown();
+        blocker.get(5, TimeUnit.SECONDS);
+        assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    private static PriorityLaneProperties properties(int workers, int batchMaxConcurrency) {
+        PriorityLaneProperties properties = new PriorityLaneProperties();
+        properties.setWorkers(workers);
+        properties.getBatch().setMaxConcurrency(batchMaxConcurrency);
+        return properties;
+    }
+
+    private void waitUntilQueued(int batch, int interactive) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.queued(OrderPriority.BATCH) < batch || executor.queued(OrderPriority.INTERACTIVE) < interactive) {
+            assertTrue(System.nanoTime() < deadline, "Tasks were not queued in time");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
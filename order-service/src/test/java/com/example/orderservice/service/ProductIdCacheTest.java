@@ -0,0 +1,38 @@
+package com.example.orderservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductIdCacheTest {
+
+    /**
+     * Tests that a cached id is returned for its product name and that unknown or
+     * null names resolve to null.
+     */
+    @Test
+    void testGet_ReturnsCachedIdOrNull() {
+        ProductIdCache cache = new ProductIdCache(10);
+        cache.put("Widget", 42L);
+
+        assertEquals(42L, cache.get("Widget"));
+        assertNull(cache.get("Gadget"));
+        assertNull(cache.get(null));
+    }
+
+    /**
+     * Tests that the cache ignores zero ids and stops accepting new names once it
+     * is full, while keeping the entries it already holds.
+     */
+    @Test
+    void testPut_IgnoresZeroIdsAndRespectsMaxEntries() {
+        ProductIdCache cache = new ProductIdCache(1);
+        cache.put("Widget", 0L);
+        cache.put("Gadget", 1L);
+        cache.put("Gizmo", 2L);
+
+        assertNull(cache.get("Widget"));
+        assertEquals(1L, cache.get("Gadget"));
+        assertNull(cache.get("Gizmo"));
+    }
+}
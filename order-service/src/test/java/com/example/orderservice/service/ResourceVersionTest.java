@@ -0,0 +1,57 @@
+package com.example.orderservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResourceVersionTest {
+
+    /**
+     * Verifies that every change yields a new weak ETag and that the modification time never
+     * goes backwards.
+     */
+    @Test
+    void incrementChangesETag() {
+        ResourceVersion version = new ResourceVersion();
+        ResourceVersion.Tag first = version.current();
+
+        version.increment();
+        ResourceVersion.Tag second = version.current();
+
+        assertThat(first.eTag()).startsWith("W/\"").endsWith("-0\"");
+        assertThat(second.eTag()).isNotEqualTo(first.eTag()).endsWith("-1\"");
+        assertThat(second.lastModified()).isAfterOrEqualTo(first.lastModified());
+        assertThat(version.current()).isEqualTo(second);
+    }
+
+    /**
+     * Verifies that a version is only settled once the settle time has passed since the last
+     * change.
+     */
+    @Test
+    void versionSettlesAfterSettleTime() throws InterruptedException {
+        assertThat(new ResourceVersion().current().settled()).isTrue();
+
+        ResourceVersion version = new ResourceVersion(Duration.ofMillis(50));
+        version.increment();
+        assertThat(version.current().settled()).isFalse();
+
+        Thread.sleep(100);
+        assertThat(version.current().settled()).isTrue();
+    }
+
+    /**
+     * Verifies that the versions of a process that does not make all changes never settle, so
+     * that responses carry no validators.
+     */
+    @Test
+    void nonValidatingVersionNeverSettles() {
+        ResourceVersion version = new ResourceVersion(Duration.ZERO, false);
+
+        assertThat(version.current().settled()).isFalse();
+        version.increment();
+        assertThat(version.current().settled()).isFalse();
+    }
+}
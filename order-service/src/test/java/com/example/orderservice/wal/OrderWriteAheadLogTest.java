@@ -0,0 +1,186 @@
+package com.example.orderservice.wal;
+
+import com.example.orderservice.config.OrderStatsProperties;
+import com.example.orderservice.entity.Order;
+import com.example.orderservice.entity.OrderItem;
+import com.example.orderservice.repository.OrderRepository;
+import com.example.orderservice.service.OrderStatistics;
+import com.example.orderservice.service.ResourceVersion;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderWriteAheadLogTest {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private OrderStatistics statistics;
+
+    private final List<OrderWriteAheadLog> logs = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        orderRepository.deleteAll();
+        statistics = new OrderStatistics(new OrderStatsProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        logs.forEach(OrderWriteAheadLog::stop);
+    }
+
+    /**
+     * Verifies that logged orders, including their line items, reach the orders table.
+     */
+    @Test
+    void testLoggedOrdersAreReplicated() throws InterruptedException {
+        OrderWriteAheadLog orderLog = start();
+        Order cart = order("CREATED");
+        OrderItem item = new OrderItem();
+        item.setProduct("Phone");
+        item.setQuantity(2);
+        cart.getItems().add(item);
+
+        Order returned = orderLog.append(cart);
+        orderLog.append(order("REJECTED"));
+
+        assertNull(returned.getId());
+        awaitReplicated(orderLog);
+        assertEquals(2, orderRepository.count());
+        Order stored = orderRepository.findAll().stream()
+                .filter(order -> order.getReference().equals(cart.getReference()))
+                .findFirst().orElseThrow();
+        assertEquals(1, stored.getItems().size());
+    }
+
+    /**
+     * Verifies that replaying the log after a crash stores every order exactly once, including
+     * orders that had already been replicated before the crash, and counts the orders it stores
+     * in the statistics.
+     */
+    @Test
+    void testReplayIsIdempotent() throws InterruptedException {
+        Order replicated = order("CREATED");
+        Order pending = order("CREATED");
+        try (WriteAheadLog crashed = new WriteAheadLog(directory, 64 * 1024)) {
+            crashed.recover((lsn, payload) -> {
+            });
+            crashed.append(json(replicated));
+            crashed.append(json(pending));
+        }
+        orderRepository.save(copy(replicated));
+
+        OrderWriteAheadLog restarted = start();
+        awaitReplicated(restarted);
+        restarted.stop();
+        logs.remove(restarted);
+        OrderWriteAheadLog restartedAgain = start();
+        awaitReplicated(restartedAgain);
+
+        assertEquals(2, orderRepository.count());
+        assertEquals(new OrderStatistics.Volume(1, 1), statistics.snapshot().statuses().get("CREATED").total());
+    }
+
+    /**
+     * Verifies that an order torn by a crash in the middle of its record is dropped on replay,
+     * while the orders before it are stored.
+     */
+    @Test
+    void testReplayAfterTornRecord() throws Exception {
+        Order complete = order("CREATED");
+        try (WriteAheadLog crashed = new WriteAheadLog(directory, 64 * 1024)) {
+            crashed.recover((lsn, payload) -> {
+            });
+            crashed.append(json(complete));
+            crashed.append(json(order("CREATED")));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.setLength(16 + json(complete).length + 16 + 10);
+        }
+
+        OrderWriteAheadLog restarted = start();
+        awaitReplicated(restarted);
+
+        assertEquals(1, orderRepository.count());
+        assertEquals(complete.getReference(), orderRepository.findAll().get(0).getReference());
+    }
+
+    private OrderWriteAheadLog start() {
+        OrderWriteAheadLog orderLog = new OrderWriteAheadLog(new WriteAheadLog(directory, 64 * 1024),
+                orderRepository, new TransactionTemplate(transactionManager), objectMapper, new ResourceVersion(),
+                statistics, 100, Duration.ofMillis(10));
+        orderLog.start();
+        logs.add(orderLog);
+        return orderLog;
+    }
+
+    private static void awaitReplicated(OrderWriteAheadLog orderLog) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (orderLog.getReplicationBacklog() > 0) {
+            assertTrue(System.nanoTime() < deadline, "Orders were not replicated in time");
+            Thread.sleep(10);
+        }
+    }
+
+    private static Order order(String status) {
+        Order order = new Order();
+        order.setReference(UUID.randomUUID().toString());
+        order.setProduct("Laptop");
+        order.setQuantity(1);
+        order.setStatus(status);
+        order.setCreatedAt(Instant.now());
+        return order;
+    }
+
+    private Order copy(Order order) {
+        try {
+            return objectMapper.readValue(json(order), Order.class);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private byte[] json(Order order) {
+        try {
+            return objectMapper.writeValueAsBytes(order);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
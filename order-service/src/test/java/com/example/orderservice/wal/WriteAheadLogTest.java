@@ -0,0 +1,192 @@
+package com.example.orderservice.wal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+
+    private static final int HEADER_SIZE = 16;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Verifies that appended records are recovered in order after a restart, and that appending
+     * continues with the next LSN.
+     */
+    @Test
+    void testAppendAndRecover() {
+        try (WriteAheadLog log = open(new ArrayList<>(), 4096)) {
+            assertEquals(1, log.append(bytes("first")));
+            assertEquals(2, log.append(bytes("second")));
+            assertEquals(3, log.append(bytes("third")));
+        }
+
+        List<String> recovered = new ArrayList<>();
+        try (WriteAheadLog log = open(recovered, 4096)) {
+            assertEquals(List.of("1:first", "2:second", "3:third"), recovered);
+            assertEquals(4, log.append(bytes("fourth")));
+        }
+    }
+
+    /**
+     * Verifies that records spill over into new segments, and that released segments are
+     * deleted without losing the records after them.
+     */
+    @Test
+    void testSegmentRotationAndRelease() {
+        try (WriteAheadLog log = open(new ArrayList<>(), 2 * (HEADER_SIZE + 8))) {
+            for (int i = 1; i <= 6; i++) {
+                log.append(bytes("record-" + i));
+            }
+            assertEquals(3, log.segmentCount());
+
+            log.release(2);
+            assertEquals(2, log.segmentCount());
+        }
+
+        List<String> recovered = new ArrayList<>();
+        try (WriteAheadLog log = open(recovered, 2 * (HEADER_SIZE + 8))) {
+            assertEquals(List.of("3:record-3", "4:record-4", "5:record-5", "6:record-6"), recovered);
+            assertEquals(7, log.append(bytes("record-7")));
+        }
+    }
+
+    /**
+     * Simulates a crash in the middle of writing a record by truncating the segment file inside
+     * the last record, and verifies that the intact records are recovered and the torn one is
+     * overwritten by the next append.
+     */
+    @Test
+    void testRecoveryTruncatesTornRecord() throws IOException {
+        try (WriteAheadLog log = open(new ArrayList<>(), 4096)) {
+            log.append(bytes("aaaa"));
+            log.append(bytes("bbbb"));
+            log.append(bytes("cccc"));
+        }
+        truncate(singleSegment(), 2 * (HEADER_SIZE + 4) + HEADER_SIZE + 2);
+
+        List<String> recovered = new ArrayList<>();
+        try (WriteAheadLog log = open(recovered, 4096)) {
+            assertEquals(List.of("1:aaaa", "2:bbbb"), recovered);
+            assertEquals(3, log.append(bytes("dddd")));
+        }
+
+        recovered.clear();
+        try (WriteAheadLog ignored = open(recovered, 4096)) {
+            assertEquals(List.of("1:aaaa", "2:bbbb", "3:dddd"), recovered);
+        }
+    }
+
+    /**
+     * Simulates a crash that left only part of a record header, and verifies that the log ends
+     * before it.
+     */
+    @Test
+    void testRecoveryTruncatesTornHeader() throws IOException {
+        try (WriteAheadLog log = open(new ArrayList<>(), 4096)) {
+            log.append(bytes("aaaa"));
+            log.append(bytes("bbbb"));
+        }
+        truncate(singleSegment(), HEADER_SIZE + 4 + 6);
+
+        List<String> recovered = new ArrayList<>();
+        try (WriteAheadLog ignored = open(recovered, 4096)) {
+            assertEquals(List.of("1:aaaa"), recovered);
+        }
+    }
+
+    /**
+     * Verifies that a record whose checksum does not match ends the log, and that later segments
+     * are discarded with it.
+     */
+    @Test
+    void testRecoveryStopsAtCorruptRecord() throws IOException {
+        try (WriteAheadLog log = open(new ArrayList<>(), 2 * (HEADER_SIZE + 4))) {
+            for (int i = 0; i < 4; i++) {
+                log.append(bytes("rec" + i));
+            }
+        }
+        Path first = segments().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(first.toFile(), "rw")) {
+            file.seek(HEADER_SIZE + 4 + HEADER_SIZE);
+            file.write('X');
+        }
+
+        List<String> recovered = new ArrayList<>();
+        try (WriteAheadLog ignored = open(recovered, 2 * (HEADER_SIZE + 4))) {
+            assertEquals(List.of("1:rec0"), recovered);
+        }
+        assertEquals(1, segments().size());
+    }
+
+    /**
+     * Verifies that concurrent appends get distinct LSNs and are all durable.
+     */
+    @Test
+    void testConcurrentAppends() throws Exception {
+        Set<Long> lsns = ConcurrentHashMap.newKeySet();
+        try (WriteAheadLog log = open(new ArrayList<>(), 64 * 1024)) {
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            for (int t = 0; t < 8; t++) {
+                executor.execute(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        lsns.add(log.append(bytes("order")));
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        }
+
+        List<String> recovered = new ArrayList<>();
+        try (WriteAheadLog ignored = open(recovered, 64 * 1024)) {
+            assertEquals(800, lsns.size());
+            assertEquals(800, recovered.size());
+        }
+    }
+
+    private WriteAheadLog open(List<String> recovered, int segmentSize) {
+        WriteAheadLog log = new WriteAheadLog(directory, segmentSize);
+        log.recover((lsn, payload) -> recovered.add(lsn + ":" + new String(payload, StandardCharsets.UTF_8)));
+        return log;
+    }
+
+    private Path singleSegment() throws IOException {
+        List<Path> segments = segments();
+        assertEquals(1, segments.size());
+        return segments.get(0);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static void truncate(Path file, long length) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(length);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
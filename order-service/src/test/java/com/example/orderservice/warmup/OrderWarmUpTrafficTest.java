@@ -0,0 +1,42 @@
+package com.example.orderservice.warmup;
+
+import com.example.orderservice.repository.OrderRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderWarmUpTrafficTest {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Verifies that synthetic orders go through the database but are not kept.
+     */
+    @Test
+    void testCreateOrderLeavesNoOrders() {
+        long before = orderRepository.count();
+        OrderWarmUpTraffic traffic = new OrderWarmUpTraffic(orderRepository, new TransactionTemplate(transactionManager),
+                new ObjectMapper().findAndRegisterModules(), "warm-up", Duration.ofSeconds(1));
+
+        for (int i = 0; i < 5; i++) {
+            traffic.createOrder();
+        }
+
+        assertEquals(before, orderRepository.count());
+    }
+}
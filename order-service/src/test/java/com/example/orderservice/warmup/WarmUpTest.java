@@ -0,0 +1,96 @@
+package com.example.orderservice.warmup;
+
+import com.example.orderservice.config.WarmUpProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import java.sql.Connection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class WarmUpTest {
+
+    private final WarmUpProperties properties = new WarmUpProperties();
+    private HikariDataSource pool;
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        properties.setIterations(3);
+        properties.setConnections(2);
+        pool = mock(HikariDataSource.class);
+        connection = mock(Connection.class);
+        when(pool.getPoolName()).thenReturn("primary");
+        when(pool.getMaximumPoolSize()).thenReturn(10);
+        when(pool.getConnection()).thenReturn(connection);
+    }
+
+    /**
+     * Verifies that the warm-up is out of service until it has opened the connections and made
+     * the calls, and up afterwards.
+     */
+    @Test
+    void testReportsReadyAfterWarmingUp() throws Exception {
+        AtomicInteger checks = new AtomicInteger();
+        WarmUp warmUp = new WarmUp(properties, List.of(pool), Map.of("checkStock", checks::incrementAndGet));
+        assertEquals(Status.OUT_OF_SERVICE, warmUp.health().getStatus());
+
+        warmUp.warmUp();
+
+        Health health = warmUp.health();
+        assertEquals(Status.UP, health.getStatus());
+        assertEquals(3, checks.get());
+        assertEquals("3 calls", health.getDetails().get("checkStock"));
+        assertEquals("2 connections", health.getDetails().get("primary"));
+        verify(pool, times(2)).getConnection();
+        verify(connection, times(2)).close();
+    }
+
+    /**
+     * Verifies that a failing kind of call is given up after its first failure, and that the
+     * other calls are still made and the service still becomes ready.
+     */
+    @Test
+    void testGivesUpFailingCalls() {
+        AtomicInteger failures = new AtomicInteger();
+        AtomicInteger orders = new AtomicInteger();
+        Map<String, Runnable> calls = new LinkedHashMap<>();
+        calls.put("checkStock", () -> {
+            failures.incrementAndGet();
+            throw new IllegalStateException("inventory unavailable");
+        });
+        calls.put("createOrder", orders::incrementAndGet);
+        WarmUp warmUp = new WarmUp(properties, List.of(), calls);
+
+        warmUp.warmUp();
+
+        assertEquals(Status.UP, warmUp.health().getStatus());
+        assertEquals(1, failures.get());
+        assertEquals(3, orders.get());
+        assertEquals("0 calls, failed: inventory unavailable", warmUp.health().getDetails().get("checkStock"));
+    }
+
+    /**
+     * Verifies that a disabled warm-up makes no calls and reports ready at once.
+     */
+    @Test
+    void testDisabledWarmUpIsReadyAtOnce() {
+        properties.setEnabled(false);
+        AtomicInteger checks = new AtomicInteger();
+        WarmUp warmUp = new WarmUp(properties, List.of(pool), Map.of("checkStock", checks::incrementAndGet));
+
+        warmUp.warmUp();
+
+        assertEquals(Status.UP, warmUp.health().getStatus());
+        assertEquals(0, checks.get());
+        verifyNoInteractions(connection);
+    }
+}